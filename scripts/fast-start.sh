@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Builds the fast-start variant of the app and trains an AppCDS archive.
+#
+#   scripts/fast-start.sh build   # AOT build, extract the jar, record target/fast-start/app.jsa
+#   scripts/fast-start.sh run     # start with AOT, CDS and the faststart profile
+#
+# The training run only refreshes the context (spring.context.exit=onRefresh),
+# but it still needs the SPRING_DATASOURCE_* and JWT settings of a normal start.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+APP_DIR=target/fast-start
+MAIN_CLASS=com.ksaphier.trainerapp.TrainerAppApplication
+
+classpath() {
+    echo "$APP_DIR/app.jar:$(ls "$APP_DIR"/BOOT-INF/lib/*.jar | tr '\n' ':')"
+}
+
+case "${1:-run}" in
+    build)
+        sh ./mvnw -B -q -Pfast-start -DskipTests package
+        rm -rf "$APP_DIR" && mkdir -p "$APP_DIR"
+        (cd "$APP_DIR" && jar xf ../*.jar)
+        # CDS only archives classes loaded from jars, not from directories
+        jar cf "$APP_DIR/app.jar" -C "$APP_DIR/BOOT-INF/classes" .
+        java -XX:ArchiveClassesAtExit="$APP_DIR/app.jsa" -Xlog:cds=error \
+            -Dspring.aot.enabled=true -Dspring.profiles.active=faststart \
+            -Dspring.context.exit=onRefresh \
+            -cp "$(classpath)" "$MAIN_CLASS"
+        ;;
+    run)
+        shift || true
+        exec java -XX:SharedArchiveFile="$APP_DIR/app.jsa" -Xshare:auto \
+            -Dspring.aot.enabled=true -Dspring.profiles.active=faststart \
+            -cp "$(classpath)" "$MAIN_CLASS" "$@"
+        ;;
+    *)
+        echo "usage: $0 build|run [app args]" >&2
+        exit 1
+        ;;
+esac
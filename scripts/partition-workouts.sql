@@ -0,0 +1,66 @@
+-- Converts workout and workout_exercise into tables hash-partitioned by
+-- user_id, so that every per-user query reads a single partition. Run once,
+-- with the application stopped, after it has created or updated the schema:
+--
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f scripts/partition-workouts.sql
+--
+-- The rows are copied into the new tables before the keys and indexes are
+-- built. Index and constraint names are the ones Hibernate generates, so
+-- ddl-auto=update finds them and adds nothing. The sequences are untouched.
+-- Partitions are not split later: changing their number means running a copy
+-- like this one again.
+BEGIN;
+
+-- Owner of each planned exercise, copied from its workout
+ALTER TABLE workout_exercise ADD COLUMN IF NOT EXISTS user_id bigint;
+UPDATE workout_exercise we SET user_id = w.user_id
+FROM workout w
+WHERE w.id = we.workout_id AND we.user_id IS NULL;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM workout WHERE user_id IS NULL)
+            OR EXISTS (SELECT 1 FROM workout_exercise WHERE user_id IS NULL) THEN
+        RAISE EXCEPTION 'rows without a user_id cannot be partitioned, assign or delete them first';
+    END IF;
+END $$;
+
+ALTER TABLE workout_exercise RENAME TO workout_exercise_unpartitioned;
+ALTER TABLE workout RENAME TO workout_unpartitioned;
+
+CREATE TABLE workout (LIKE workout_unpartitioned INCLUDING DEFAULTS) PARTITION BY HASH (user_id);
+CREATE TABLE workout_exercise (LIKE workout_exercise_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY HASH (user_id);
+
+-- Same modulus for both tables, so a user's workouts and exercises sit in partitions of the same number
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE workout_p%s PARTITION OF workout '
+                'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+        EXECUTE format('CREATE TABLE workout_exercise_p%s PARTITION OF workout_exercise '
+                'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+    END LOOP;
+END $$;
+
+INSERT INTO workout SELECT * FROM workout_unpartitioned;
+INSERT INTO workout_exercise SELECT * FROM workout_exercise_unpartitioned;
+
+DROP TABLE workout_exercise_unpartitioned;
+DROP TABLE workout_unpartitioned;
+
+-- A unique key on a partitioned table must contain the partition key
+ALTER TABLE workout ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE workout ADD CONSTRAINT workout_pkey PRIMARY KEY (user_id, id);
+ALTER TABLE workout_exercise ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE workout_exercise ADD CONSTRAINT workout_exercise_pkey PRIMARY KEY (user_id, id);
+
+CREATE INDEX idxdub0xnkg3fppsm8rj0spn5guf ON workout (user_id);
+CREATE INDEX idx7qynlprp7v3y7a0xvd5reqq6n ON workout_exercise (user_id, workout_id);
+ALTER TABLE workout_exercise ADD CONSTRAINT fkalytxvdcpsg2e2oo8ihk55dm2
+    FOREIGN KEY (exercise_id) REFERENCES exercise (id);
+
+COMMIT;
+
+ANALYZE workout;
+ANALYZE workout_exercise;
@@ -0,0 +1,16 @@
+#!/usr/bin/env bash
+# Exports the database to a snapshot file, restores it or verifies it against the database.
+#
+#   scripts/snapshot.sh export  snapshot.bin
+#   scripts/snapshot.sh restore snapshot.bin [--threads=N] [--no-verify]
+#   scripts/snapshot.sh verify  snapshot.bin
+#
+# Runs SnapshotTool from the application jar (mvnw package first) with the
+# SPRING_DATASOURCE_* settings. Stop the application before a restore.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/trainer-app-*.jar | head -1)
+
+exec java -cp "$JAR" -Dloader.main=com.ksaphier.trainerapp.snapshot.SnapshotTool \
+    org.springframework.boot.loader.launch.PropertiesLauncher "$@"
@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request and resident memory of the default jar start
+# versus the fast-start variant (run scripts/fast-start.sh build first).
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Needs the same SPRING_DATASOURCE_* and JWT settings as a normal start.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+URL="http://localhost:$PORT/exercises"
+
+measure() {
+    local label=$1
+    shift
+    local total_ms=0 total_rss=0
+    for _ in $(seq "$RUNS"); do
+        local start=$(date +%s%N)
+        "$@" --server.port="$PORT" >/dev/null 2>&1 &
+        local pid=$!
+        # Any HTTP status (401 included) means the app is serving requests
+        until [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" != "000" ]; do
+            if ! kill -0 "$pid" 2>/dev/null; then
+                echo "$label: application exited during startup" >&2
+                exit 1
+            fi
+            sleep 0.02
+        done
+        local elapsed_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+        local rss_kb=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+        kill "$pid" && wait "$pid" 2>/dev/null || true
+        total_ms=$((total_ms + elapsed_ms))
+        total_rss=$((total_rss + rss_kb))
+        echo "$label: first request after ${elapsed_ms} ms, RSS $((rss_kb / 1024)) MB"
+    done
+    echo "$label: average $((total_ms / RUNS)) ms to first request, RSS $((total_rss / RUNS / 1024)) MB"
+}
+
+measure default java -jar target/trainer-app-0.0.1-SNAPSHOT.jar
+measure fast-start scripts/fast-start.sh run
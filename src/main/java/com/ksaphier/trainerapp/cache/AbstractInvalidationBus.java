@@ -0,0 +1,51 @@
+package com.ksaphier.trainerapp.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractInvalidationBus.class);
+
+    private final List<Consumer<EntityChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void subscribe(Consumer<EntityChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void publish(EntityChangeEvent event) {
+        broadcast(event);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(event);
+                }
+            });
+        } else {
+            dispatch(event);
+        }
+    }
+
+    // Sends the event to the other instances
+    protected abstract void broadcast(EntityChangeEvent event);
+
+    protected void dispatch(EntityChangeEvent event) {
+        for (Consumer<EntityChangeEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Invalidation listener failed for {}", event, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.ksaphier.trainerapp.cache;
+
+public enum ChangeType {
+    SAVED,
+    DELETED
+}
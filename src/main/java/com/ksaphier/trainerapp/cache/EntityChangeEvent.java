@@ -0,0 +1,32 @@
+package com.ksaphier.trainerapp.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityChangeEvent {
+    private EntityType entityType;
+    private ChangeType changeType;
+    private Long id;
+    // Owning user for per-user data (workouts), null for catalog entities
+    private Long ownerId;
+
+    public static EntityChangeEvent saved(EntityType entityType, Long id) {
+        return new EntityChangeEvent(entityType, ChangeType.SAVED, id, null);
+    }
+
+    public static EntityChangeEvent deleted(EntityType entityType, Long id) {
+        return new EntityChangeEvent(entityType, ChangeType.DELETED, id, null);
+    }
+
+    public static EntityChangeEvent all() {
+        return new EntityChangeEvent(EntityType.ALL, ChangeType.SAVED, null, null);
+    }
+
+    public boolean affects(EntityType type) {
+        return entityType == EntityType.ALL || entityType == type;
+    }
+}
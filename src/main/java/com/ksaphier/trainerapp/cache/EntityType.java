@@ -0,0 +1,10 @@
+package com.ksaphier.trainerapp.cache;
+
+public enum EntityType {
+    EXERCISE,
+    MUSCLE,
+    WORKOUT,
+    USER,
+    // Sent when a node may have missed events (e.g. after a listener reconnect)
+    ALL
+}
@@ -0,0 +1,13 @@
+package com.ksaphier.trainerapp.cache;
+
+/**
+ * Single-node bus used in tests and local development; events only reach
+ * listeners of this instance.
+ */
+public class InMemoryInvalidationBus extends AbstractInvalidationBus {
+
+    @Override
+    protected void broadcast(EntityChangeEvent event) {
+        // Nothing to send, there are no other nodes
+    }
+}
@@ -0,0 +1,15 @@
+package com.ksaphier.trainerapp.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts entity changes to every application instance so in-process
+ * caches can evict stale entries. Events published inside a transaction are
+ * delivered only after it commits.
+ */
+public interface InvalidationBus {
+
+    void publish(EntityChangeEvent event);
+
+    void subscribe(Consumer<EntityChangeEvent> listener);
+}
@@ -0,0 +1,131 @@
+package com.ksaphier.trainerapp.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Invalidation bus backed by Postgres LISTEN/NOTIFY. NOTIFY is transactional,
+ * so other nodes only see an event once the change that caused it is
+ * committed. A dedicated connection listens for events from the other nodes.
+ */
+public class PostgresInvalidationBus extends AbstractInvalidationBus implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 2000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresInvalidationBus(DataSource dataSource, String channel) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+    }
+
+    @Override
+    protected void broadcast(EntityChangeEvent event) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, toPayload(event));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean reconnected = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN \"" + channel + "\"");
+                }
+                if (reconnected) {
+                    // Events sent while we were disconnected are lost
+                    dispatch(EntityChangeEvent.all());
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Invalidation listener lost its connection, reconnecting", e);
+                reconnected = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length != 5 || parts[0].equals(nodeId)) {
+            // Our own events were already dispatched locally
+            return;
+        }
+        try {
+            dispatch(new EntityChangeEvent(
+                    EntityType.valueOf(parts[1]),
+                    ChangeType.valueOf(parts[2]),
+                    parts[3].isEmpty() ? null : Long.valueOf(parts[3]),
+                    parts[4].isEmpty() ? null : Long.valueOf(parts[4])));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed invalidation payload: {}", payload);
+        }
+    }
+
+    private String toPayload(EntityChangeEvent event) {
+        return nodeId + "|" + event.getEntityType() + "|" + event.getChangeType() + "|"
+                + (event.getId() == null ? "" : event.getId()) + "|"
+                + (event.getOwnerId() == null ? "" : event.getOwnerId());
+    }
+}
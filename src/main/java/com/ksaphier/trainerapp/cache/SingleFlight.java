@@ -0,0 +1,136 @@
+package com.ksaphier.trainerapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the
+ * loader, callers arriving while it runs wait for and share its result. The
+ * result is then kept for a short TTL to absorb bursts. Loaders must not run
+ * inside the caller's transaction, otherwise every waiter holds a connection.
+ */
+public class SingleFlight<K, V> {
+
+    private static final int MAX_RECENT_ENTRIES = 10_000;
+
+    private static class Flight<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        volatile boolean invalidated;
+    }
+
+    private record Recent<V>(V value, long expiresAt) {
+    }
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Recent<V>> recent = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    private final Counter loaded;
+    private final Counter coalesced;
+    private final Counter microCacheHits;
+
+    public SingleFlight(String name, Duration microCacheTtl, MeterRegistry meterRegistry) {
+        this.ttlNanos = microCacheTtl.toNanos();
+        this.loaded = requests(meterRegistry, name, "loaded");
+        this.coalesced = requests(meterRegistry, name, "coalesced");
+        this.microCacheHits = requests(meterRegistry, name, "micro_cache");
+        Gauge.builder("trainerapp.singleflight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .description("Share of requests served without their own database load")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("trainerapp.singleflight.requests")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        Recent<V> cached = recent.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() - System.nanoTime() > 0) {
+                microCacheHits.increment();
+                return cached.value();
+            }
+            recent.remove(key, cached);
+        }
+
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        loaded.increment();
+        try {
+            V value = loader.get();
+            if (!flight.invalidated && ttlNanos > 0) {
+                remember(key, value);
+            }
+            flight.future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public void invalidate(K key) {
+        recent.remove(key);
+        Flight<V> flight = inFlight.remove(key);
+        if (flight != null) {
+            // Its result may predate the change: still returned to current waiters, never cached
+            flight.invalidated = true;
+        }
+    }
+
+    public void invalidateAll() {
+        recent.clear();
+        inFlight.values().forEach(flight -> flight.invalidated = true);
+        inFlight.clear();
+    }
+
+    public double coalescingRatio() {
+        double shared = coalesced.count() + microCacheHits.count();
+        double total = shared + loaded.count();
+        return total == 0 ? 0 : shared / total;
+    }
+
+    private void remember(K key, V value) {
+        long now = System.nanoTime();
+        if (recent.size() >= MAX_RECENT_ENTRIES) {
+            recent.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+            if (recent.size() >= MAX_RECENT_ENTRIES) {
+                recent.clear();
+            }
+        }
+        recent.put(key, new Recent<>(value, now + ttlNanos));
+    }
+
+    private V await(Flight<V> flight) {
+        try {
+            return flight.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
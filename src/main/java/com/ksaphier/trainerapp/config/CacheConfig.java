@@ -0,0 +1,29 @@
+package com.ksaphier.trainerapp.config;
+
+import com.ksaphier.trainerapp.cache.InMemoryInvalidationBus;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.cache.PostgresInvalidationBus;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "trainerapp.invalidation.bus", havingValue = "postgres", matchIfMissing = true)
+    public InvalidationBus postgresInvalidationBus(DataSource dataSource,
+            @Value("${trainerapp.invalidation.channel:trainerapp_invalidation}") String channel) {
+        return new PostgresInvalidationBus(dataSource, channel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "trainerapp.invalidation.bus", havingValue = "memory")
+    public InvalidationBus inMemoryInvalidationBus() {
+        return new InMemoryInvalidationBus();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ksaphier.trainerapp.config;
+
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * The JDBC pool and JPA transaction manager are declared here rather than
+ * auto-configured: Spring Boot's DataSourceAutoConfiguration backs off once an
+ * R2DBC ConnectionFactory exists, and @Transactional needs to know that the
+ * JPA transaction manager wins over the R2DBC one.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(
+            @Qualifier("primaryDataSourceProperties") DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+            ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManagerCustomizers.ifAvailable(
+                customizers -> customizers.customize((TransactionManager) transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * Enabled when trainerapp.datasource.replica.url is set. Without it the
+     * primary pool is the only DataSource.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "trainerapp.datasource.replica.url")
+    static class ReplicaRoutingConfig {
+
+        @Bean
+        @ConfigurationProperties("trainerapp.datasource.replica")
+        public DataSourceProperties replicaDataSourceProperties() {
+            return new DataSourceProperties();
+        }
+
+        @Bean
+        @ConfigurationProperties("trainerapp.datasource.replica.hikari")
+        public HikariDataSource replicaDataSource(
+                @Qualifier("replicaDataSourceProperties") DataSourceProperties properties) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .build();
+            dataSource.setPoolName("replica");
+            dataSource.setReadOnly(true);
+            return dataSource;
+        }
+
+        @Bean
+        public ReplicaStickiness replicaStickiness(
+                @Value("${trainerapp.datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+            return new ReplicaStickiness(stickyWindow);
+        }
+
+        // Writes made through other instances pin the user here as well. Subscribed
+        // separately because the bus itself needs the routing DataSource.
+        @Bean
+        public SmartInitializingSingleton replicaStickinessSubscription(ReplicaStickiness replicaStickiness,
+                InvalidationBus invalidationBus) {
+            return () -> invalidationBus.subscribe(event -> replicaStickiness.recordWrite(event.getOwnerId()));
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                ReplicaStickiness replicaStickiness) {
+            return new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaStickiness));
+        }
+    }
+}
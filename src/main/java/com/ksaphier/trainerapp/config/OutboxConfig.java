@@ -0,0 +1,30 @@
+package com.ksaphier.trainerapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ksaphier.trainerapp.outbox.FileOutboxSink;
+import com.ksaphier.trainerapp.outbox.InMemoryOutboxSink;
+import com.ksaphier.trainerapp.outbox.OutboxSink;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "trainerapp.outbox.sink", havingValue = "file", matchIfMissing = true)
+    public OutboxSink fileOutboxSink(ObjectMapper objectMapper,
+            @Value("${trainerapp.outbox.file}") Path file) {
+        return new FileOutboxSink(file, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "trainerapp.outbox.sink", havingValue = "memory")
+    public OutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ksaphier.trainerapp.config;
+
+import com.ksaphier.trainerapp.service.CustomUserDetails;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the
+ * primary. Must be wrapped in a LazyConnectionDataSourceProxy so the lookup
+ * happens after the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaStickiness stickiness;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaStickiness stickiness) {
+        this.stickiness = stickiness;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return stickiness.isPinnedToPrimary(userId) ? Route.PRIMARY : Route.REPLICA;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            stickiness.recordWrite(userId);
+        }
+        return Route.PRIMARY;
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails userDetails) {
+            return userDetails.getId();
+        }
+        return null;
+    }
+}
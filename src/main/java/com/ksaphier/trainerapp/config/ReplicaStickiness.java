@@ -0,0 +1,47 @@
+package com.ksaphier.trainerapp.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers users who wrote recently so their reads stay on the primary until
+ * the replica has had time to catch up (read-your-writes).
+ */
+public class ReplicaStickiness {
+
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final long windowNanos;
+    private final Map<Long, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    public ReplicaStickiness(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void recordWrite(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        pinnedUntil.put(userId, now + windowNanos);
+        if (pinnedUntil.size() > PRUNE_THRESHOLD) {
+            pinnedUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    public boolean isPinnedToPrimary(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            pinnedUntil.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.ksaphier.trainerapp.config;
+
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.service.JwtAuthenticationFilter;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.web.SecurityFilterChain;
+
+@Configuration
+public class StartupConfig {
+
+    // Beans every request needs are created eagerly even when
+    // spring.main.lazy-initialization is on, so the first request doesn't pay for them
+    @Bean
+    public static LazyInitializationExcludeFilter criticalBeansExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                EntityManagerFactory.class,
+                SecurityFilterChain.class,
+                JwtAuthenticationFilter.class,
+                JwtTokenProvider.class,
+                InvalidationBus.class);
+    }
+}
@@ -4,6 +4,8 @@ import com.ksaphier.trainerapp.service.CustomUserDetailsService;
 import com.ksaphier.trainerapp.service.JwtAuthenticationEntryPoint;
 import com.ksaphier.trainerapp.service.JwtAuthenticationFilter;
 
+import jakarta.servlet.DispatcherType;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
@@ -74,7 +76,11 @@ public class WebConfig implements WebMvcConfigurer {
                 .sessionManagement(
                         sessionManagement -> sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorizeRequests -> authorizeRequests
+                        // The initial dispatch of Mono/Flux and SSE handlers was already authorized; error
+                        // dispatches of a dropped stream happen after the response is committed
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
                         .anyRequest().authenticated())
                 .userDetailsService(customUserDetailsService);
 
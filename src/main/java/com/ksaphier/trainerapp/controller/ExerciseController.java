@@ -1,7 +1,14 @@
 package com.ksaphier.trainerapp.controller;
 
+import com.ksaphier.trainerapp.dto.ExerciseRecommendationDto;
+import com.ksaphier.trainerapp.index.ExerciseMuscleIndex;
 import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.service.ExerciseRecommendationService;
 import com.ksaphier.trainerapp.service.ExerciseService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+
+import jakarta.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.*;
@@ -13,10 +20,15 @@ import java.util.List;
 public class ExerciseController {
 
     private final ExerciseService exerciseService;
+    private final ExerciseRecommendationService exerciseRecommendationService;
+    private final JwtTokenProvider jwtTokenProvider;
 
     @Autowired
-    public ExerciseController(ExerciseService exerciseService) {
+    public ExerciseController(ExerciseService exerciseService,
+            ExerciseRecommendationService exerciseRecommendationService, JwtTokenProvider jwtTokenProvider) {
         this.exerciseService = exerciseService;
+        this.exerciseRecommendationService = exerciseRecommendationService;
+        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     @GetMapping
@@ -50,4 +62,15 @@ public class ExerciseController {
 
         return exerciseService.saveExercise(exercise);
     }
+
+    // Exercises covering the given muscles, e.g. /exercises/recommendations?muscles=1,2,3&mode=NO_OVERLAP
+    @GetMapping("/recommendations")
+    public ExerciseRecommendationDto recommendExercises(@RequestParam List<Long> muscles,
+            @RequestParam(required = false) Long excludeWorkoutId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "BEST_COVER") ExerciseMuscleIndex.Mode mode, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return exerciseRecommendationService.recommend(muscles, excludeWorkoutId, userId, limit, mode);
+    }
 }
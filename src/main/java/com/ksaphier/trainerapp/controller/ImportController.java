@@ -0,0 +1,45 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.job.WorkoutImportJobHandler;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/imports")
+public class ImportController {
+
+    private final JobService jobService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public ImportController(JobService jobService, JwtTokenProvider jwtTokenProvider) {
+        this.jobService = jobService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // 202: the file is stored with an import job, poll GET /jobs/{id} for progress
+    @PostMapping
+    public ResponseEntity<JobDto> importWorkouts(@RequestParam("file") MultipartFile file,
+            HttpServletRequest request) throws IOException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        try (InputStream input = file.getInputStream()) {
+            return JobController.accepted(jobService.submit(userId, WorkoutImportJobHandler.TYPE,
+                    new WorkoutImportJobHandler.Payload(file.getOriginalFilename(), file.getSize()), input));
+        }
+    }
+}
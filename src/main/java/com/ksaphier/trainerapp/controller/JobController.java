@@ -0,0 +1,75 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.model.JobStatus;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    private final JobService jobService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public JobController(JobService jobService, JwtTokenProvider jwtTokenProvider) {
+        this.jobService = jobService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // 202 pointing at the job, or 503 when the user has too many jobs pending
+    static ResponseEntity<JobDto> accepted(JobDto job) {
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getId())).body(job);
+    }
+
+    @GetMapping
+    public List<JobDto> getJobs(HttpServletRequest request) {
+        return jobService.findJobs(userId(request));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobDto> getJob(@PathVariable Long id, HttpServletRequest request) {
+        JobDto job = jobService.findJob(userId(request), id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/{id}/output")
+    public ResponseEntity<StreamingResponseBody> getJobOutput(@PathVariable Long id, HttpServletRequest request) {
+        JobDto job = jobService.findJob(userId(request), id);
+        if (job == null || job.getOutputName() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // The output is written while the job runs and rewritten by a retry, only a finished job's is complete
+        if (job.getStatus() != JobStatus.DONE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(job.getOutputName()).build().toString())
+                .body(out -> jobService.copyOutput(id, out));
+    }
+
+    private Long userId(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.LeaderboardEntryDto;
+import com.ksaphier.trainerapp.dto.LeaderboardPageDto;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.LeaderboardService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/exercises/{exerciseId}/leaderboard")
+public class LeaderboardController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final LeaderboardService leaderboardService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService, JwtTokenProvider jwtTokenProvider) {
+        this.leaderboardService = leaderboardService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    @GetMapping
+    public LeaderboardPageDto getLeaderboard(@PathVariable Long exerciseId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit) {
+        return leaderboardService.getPage(exerciseId, Math.max(0, offset), Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<LeaderboardEntryDto> getMyRank(@PathVariable Long exerciseId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return leaderboardService.getRank(exerciseId, userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
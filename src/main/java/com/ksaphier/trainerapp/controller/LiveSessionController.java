@@ -0,0 +1,69 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.LiveSessionDto;
+import com.ksaphier.trainerapp.dto.SetCompletionDto;
+import com.ksaphier.trainerapp.dto.SetCompletionRequest;
+import com.ksaphier.trainerapp.dto.StartSessionRequest;
+import com.ksaphier.trainerapp.model.WorkoutExercise;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.LiveSessionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/sessions")
+public class LiveSessionController {
+
+    private final LiveSessionService liveSessionService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public LiveSessionController(LiveSessionService liveSessionService, JwtTokenProvider jwtTokenProvider) {
+        this.liveSessionService = liveSessionService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    @PostMapping
+    public ResponseEntity<LiveSessionDto> startSession(@RequestBody StartSessionRequest startRequest,
+            HttpServletRequest request) {
+        return ResponseEntity.ok(liveSessionService.startSession(startRequest.getWorkoutId(), userId(request)));
+    }
+
+    @GetMapping
+    public List<LiveSessionDto> getActiveSessions(HttpServletRequest request) {
+        return liveSessionService.findActiveSessions(userId(request));
+    }
+
+    // Events: "session" (snapshot on connect), "set" (a completed set), "ended"
+    @GetMapping(path = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSession(@PathVariable String id, HttpServletRequest request) {
+        return liveSessionService.openStream(id, userId(request));
+    }
+
+    @PostMapping("/{id}/sets")
+    public ResponseEntity<SetCompletionDto> completeSet(@PathVariable String id,
+            @RequestBody SetCompletionRequest setRequest, HttpServletRequest request) {
+        if (!WorkoutExercise.isValidWeight(setRequest.getWeight())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(liveSessionService.completeSet(id, userId(request), setRequest));
+    }
+
+    @DeleteMapping("/{id}")
+    public void endSession(@PathVariable String id, HttpServletRequest request) {
+        liveSessionService.endSession(id, userId(request));
+    }
+
+    private Long userId(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
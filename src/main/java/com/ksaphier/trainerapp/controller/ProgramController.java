@@ -0,0 +1,63 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.dto.ProgramRequest;
+import com.ksaphier.trainerapp.job.ProgramJobHandler;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Objects;
+
+@RestController
+@RequestMapping("/programs")
+public class ProgramController {
+
+    private static final int MAX_WEEKS = 52;
+    private static final int MAX_SESSIONS_PER_WEEK = 7;
+    private static final int MAX_EXERCISES_PER_SESSION = 15;
+    private static final int MAX_CLIENTS = 10_000;
+
+    private final JobService jobService;
+    private final TrainerService trainerService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public ProgramController(JobService jobService, TrainerService trainerService,
+            JwtTokenProvider jwtTokenProvider) {
+        this.jobService = jobService;
+        this.trainerService = trainerService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // 202: generated by a background job, the ProgramReportDto is the job result
+    @PostMapping
+    public ResponseEntity<JobDto> generateProgram(@RequestBody ProgramRequest programRequest,
+            HttpServletRequest request) {
+        if (programRequest.getWeeks() < 1 || programRequest.getWeeks() > MAX_WEEKS
+                || programRequest.getSessionsPerWeek() < 1
+                || programRequest.getSessionsPerWeek() > MAX_SESSIONS_PER_WEEK
+                || programRequest.getExercisesPerSession() < 1
+                || programRequest.getExercisesPerSession() > MAX_EXERCISES_PER_SESSION
+                || programRequest.getDeloadEvery() < 0
+                || (programRequest.getClientIds() != null && (programRequest.getClientIds().size() > MAX_CLIENTS
+                        || programRequest.getClientIds().stream().anyMatch(Objects::isNull)))) {
+            return ResponseEntity.badRequest().build();
+        }
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        // Programs only for the caller and their clients
+        if (programRequest.getClientIds() != null
+                && !trainerService.isTrainerOf(userId, programRequest.getClientIds())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return JobController.accepted(jobService.submit(userId, ProgramJobHandler.TYPE, programRequest));
+    }
+}
@@ -0,0 +1,45 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.ExerciseProgressDto;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.ProgressService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/progress")
+public class ProgressController {
+
+    private final ProgressService progressService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public ProgressController(ProgressService progressService, JwtTokenProvider jwtTokenProvider) {
+        this.progressService = progressService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    @GetMapping
+    public List<ExerciseProgressDto> getAllProgress(HttpServletRequest request) {
+        return progressService.findAllProgress(userId(request));
+    }
+
+    @GetMapping("/{exerciseId}")
+    public ResponseEntity<ExerciseProgressDto> getProgress(@PathVariable Long exerciseId,
+            HttpServletRequest request) {
+        return progressService.findProgress(userId(request), exerciseId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private Long userId(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
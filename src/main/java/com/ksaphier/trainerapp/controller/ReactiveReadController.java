@@ -0,0 +1,74 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.model.Muscle;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.ReactiveReadService;
+import com.ksaphier.trainerapp.service.TrainerService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Non-blocking mirror of the dashboard read endpoints. Handlers return
+ * Mono/Flux backed by R2DBC, so the servlet thread is released while the
+ * query runs and the response is written on completion.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveReadController {
+
+    private final ReactiveReadService reactiveReadService;
+    private final TrainerService trainerService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public ReactiveReadController(ReactiveReadService reactiveReadService, TrainerService trainerService,
+            JwtTokenProvider jwtTokenProvider) {
+        this.reactiveReadService = reactiveReadService;
+        this.trainerService = trainerService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    @GetMapping("/workouts")
+    public Flux<Workout> getAllWorkouts(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return reactiveReadService.findAllWorkoutsByUser(userId);
+    }
+
+    @GetMapping("/workouts/{id}/details")
+    public Mono<ResponseEntity<WorkoutDetailsDto>> getWorkoutDetails(@PathVariable Long id,
+            @RequestParam(required = false) Long ownerId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        Long owner = ownerId != null ? ownerId : userId;
+        // The trainer check is a blocking JPA query, kept off the servlet thread like the read itself
+        return Mono.fromCallable(() -> trainerService.isTrainerOf(userId, List.of(owner)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(allowed -> allowed
+                        ? reactiveReadService.getWorkoutDetails(id, owner).map(ResponseEntity::ok)
+                        : Mono.just(ResponseEntity.<WorkoutDetailsDto>notFound().build()));
+    }
+
+    @GetMapping("/exercises")
+    public Flux<Exercise> getAllExercises() {
+        return reactiveReadService.findAllExercises();
+    }
+
+    @GetMapping("/muscles")
+    public Flux<Muscle> getAllMuscles() {
+        return reactiveReadService.findAllMuscles();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.SetLogRequest;
+import com.ksaphier.trainerapp.model.SetLog;
+import com.ksaphier.trainerapp.model.WorkoutExercise;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.SetLogService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/sets")
+public class SetLogController {
+
+    private final SetLogService setLogService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public SetLogController(SetLogService setLogService, JwtTokenProvider jwtTokenProvider) {
+        this.setLogService = setLogService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // 202: the set is buffered and written with the next batch
+    @PostMapping
+    public ResponseEntity<Void> logSet(@RequestBody SetLogRequest setLogRequest, HttpServletRequest request) {
+        if (!WorkoutExercise.isValidWeight(setLogRequest.getWeight())) {
+            return ResponseEntity.badRequest().build();
+        }
+        Long userId = userId(request);
+        // Another user's workout exercise is not found either, like everywhere else
+        if (!setLogService.ownsWorkoutExercise(userId, setLogRequest.getWorkoutExerciseId())) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!setLogService.logSet(userId, setLogRequest)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping
+    public List<SetLog> getSets(@RequestParam Long workoutExerciseId, HttpServletRequest request) {
+        return setLogService.findSets(userId(request), workoutExerciseId);
+    }
+
+    private Long userId(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.ClientRequestDto;
+import com.ksaphier.trainerapp.dto.TrainerDashboardDto;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/trainers")
+public class TrainerController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final TrainerService trainerService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    public TrainerController(TrainerService trainerService, JwtTokenProvider jwtTokenProvider) {
+        this.trainerService = trainerService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // The client asks to be linked; 202 because nothing is granted until the trainer accepts
+    @PutMapping("/{trainerId}/clients/me")
+    public ResponseEntity<Void> addClient(@PathVariable Long trainerId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        if (trainerId.equals(userId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return trainerService.addClient(trainerId, userId)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // The trainer accepts a client's request
+    @PutMapping("/me/clients/{clientId}")
+    public ResponseEntity<Void> acceptClient(@PathVariable Long clientId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return trainerService.acceptClient(userId, clientId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // Requests waiting for the caller to accept, oldest first
+    @GetMapping("/me/requests")
+    public List<ClientRequestDto> getClientRequests(@RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return trainerService.getClientRequests(userId, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // Either side can end the relationship, or withdraw or decline a request
+    @DeleteMapping("/{trainerId}/clients/{clientId}")
+    public ResponseEntity<Void> removeClient(@PathVariable Long trainerId, @PathVariable Long clientId,
+            HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        if (!userId.equals(trainerId) && !userId.equals(clientId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return trainerService.removeClient(trainerId, clientId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // The caller's clients, most recently active first
+    @GetMapping("/me/dashboard")
+    public TrainerDashboardDto getDashboard(@RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "50") int limit, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return trainerService.getDashboard(userId, Math.max(0, offset), Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+}
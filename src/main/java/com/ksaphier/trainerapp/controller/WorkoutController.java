@@ -1,12 +1,19 @@
 package com.ksaphier.trainerapp.controller;
 
 import com.ksaphier.trainerapp.dto.AddExerciseToWorkoutRequest;
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.dto.SimilarWorkoutDto;
 import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
+import com.ksaphier.trainerapp.job.WorkoutDeleteJobHandler;
+import com.ksaphier.trainerapp.job.WorkoutExportJobHandler;
 import com.ksaphier.trainerapp.model.Workout;
 import com.ksaphier.trainerapp.model.WorkoutExercise;
+import com.ksaphier.trainerapp.service.JobService;
 import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
 import com.ksaphier.trainerapp.service.WorkoutExerciseService;
 import com.ksaphier.trainerapp.service.WorkoutService;
+import com.ksaphier.trainerapp.service.WorkoutSimilarityService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -16,20 +23,31 @@ import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/workouts")
 public class WorkoutController {
 
+    private static final int MAX_SIMILAR = 50;
+    private static final int MAX_DETAILS_IDS = 100;
+
     private final WorkoutService workoutService;
     private final WorkoutExerciseService workoutExerciseService;
+    private final WorkoutSimilarityService workoutSimilarityService;
+    private final JobService jobService;
+    private final TrainerService trainerService;
     private final JwtTokenProvider jwtTokenProvider;
 
     @Autowired
     public WorkoutController(WorkoutService workoutService, WorkoutExerciseService workoutExerciseService,
+            WorkoutSimilarityService workoutSimilarityService, JobService jobService, TrainerService trainerService,
             JwtTokenProvider jwtTokenProvider) {
         this.workoutService = workoutService;
         this.workoutExerciseService = workoutExerciseService;
+        this.workoutSimilarityService = workoutSimilarityService;
+        this.jobService = jobService;
+        this.trainerService = trainerService;
         this.jwtTokenProvider = jwtTokenProvider;
     }
 
@@ -41,8 +59,10 @@ public class WorkoutController {
     }
 
     @GetMapping("/{id}")
-    public Workout getWorkoutById(@PathVariable @NonNull Long id) {
-        return workoutService.findWorkoutById(id)
+    public Workout getWorkoutById(@PathVariable @NonNull Long id, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return workoutService.findWorkoutById(id, userId)
                 .orElseThrow(() -> new RuntimeException("Workout not found with id: " + id));
     }
 
@@ -51,39 +71,106 @@ public class WorkoutController {
         String token = request.getHeader("Authorization").substring(7);
         Long userId = jwtTokenProvider.getUserIdFromToken(token);
         workout.setUserId(userId);
+        // Dated by the server, only imports bring their own date
+        workout.setCreatedAt(null);
         return workoutService.saveWorkout(workout);
     }
 
     @DeleteMapping("/{id}")
-    public void deleteWorkout(@PathVariable @NonNull Long id) {
-        workoutService.deleteWorkout(id);
+    public void deleteWorkout(@PathVariable @NonNull Long id, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        workoutService.deleteWorkout(id, userId);
     }
 
-    @PutMapping("/{id}")
-    public Workout updateWorkout(@PathVariable @NonNull Long id, @RequestBody @NonNull Workout workoutDetails) {
-        Workout workout = workoutService.findWorkoutById(id)
-                .orElseThrow(() -> new RuntimeException("Workout not found with id: " + id));
+    // Bulk delete of the caller's workouts of one type, or all of them with all=true, as a background job
+    @DeleteMapping
+    public ResponseEntity<JobDto> deleteWorkouts(@RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "false") boolean all, HttpServletRequest request) {
+        if ((type == null) != all) {
+            return ResponseEntity.badRequest().build();
+        }
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return JobController.accepted(jobService.submit(userId, WorkoutDeleteJobHandler.TYPE,
+                new WorkoutDeleteJobHandler.Payload(type)));
+    }
 
-        workout.setName(workoutDetails.getName());
-        workout.setDescription(workoutDetails.getDescription());
+    // CSV of the caller's workouts, downloaded from GET /jobs/{id}/output once the job is done
+    @PostMapping("/export")
+    public ResponseEntity<JobDto> exportWorkouts(HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return JobController.accepted(jobService.submit(userId, WorkoutExportJobHandler.TYPE, null));
+    }
 
-        return workoutService.saveWorkout(workout);
+    @PutMapping("/{id}")
+    public Workout updateWorkout(@PathVariable @NonNull Long id, @RequestBody @NonNull Workout workoutDetails,
+            HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return workoutService.updateWorkout(id, userId, workoutDetails.getName(), workoutDetails.getDescription())
+                .orElseThrow(() -> new RuntimeException("Workout not found with id: " + id));
     }
 
+    // A trainer reads a client's workout with the client as ownerId
     @GetMapping("/{id}/details")
-    public ResponseEntity<WorkoutDetailsDto> getWorkoutDetails(@PathVariable Long id) {
-        WorkoutDetailsDto workoutDetails = workoutService.getWorkoutDetails(id);
+    public ResponseEntity<WorkoutDetailsDto> getWorkoutDetails(@PathVariable Long id,
+            @RequestParam(required = false) Long ownerId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        Long owner = ownerId != null ? ownerId : userId;
+        if (!trainerService.isTrainerOf(userId, List.of(owner))) {
+            // Same answer as a missing workout, so ids of other users' workouts can't be probed
+            return ResponseEntity.notFound().build();
+        }
+        WorkoutDetailsDto workoutDetails = workoutService.getWorkoutDetails(id, owner);
         return ResponseEntity.ok(workoutDetails);
     }
 
+    // Details of several of the caller's workouts in one round-trip, e.g. GET /workouts/details?ids=3,5,8
+    @GetMapping("/details")
+    public ResponseEntity<Map<Long, WorkoutDetailsDto>> getWorkoutDetails(@RequestParam List<Long> ids,
+            HttpServletRequest request) {
+        if (ids.isEmpty() || ids.size() > MAX_DETAILS_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        return ResponseEntity.ok(workoutService.getWorkoutDetails(ids, userId));
+    }
+
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarWorkoutDto>> getSimilarWorkouts(@PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean includeOwn,
+            @RequestParam(required = false) Long ownerId, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        Long owner = ownerId != null ? ownerId : userId;
+        if (!trainerService.isTrainerOf(userId, List.of(owner))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(workoutSimilarityService.findSimilar(id, owner, Math.min(limit, MAX_SIMILAR),
+                includeOwn));
+    }
+
     @PostMapping("/addExercise")
-    public ResponseEntity<WorkoutExercise> addExerciseToWorkout(@RequestBody AddExerciseToWorkoutRequest request) {
-        WorkoutExercise workoutExercise = workoutService.addExerciseToWorkout(request);
+    public ResponseEntity<WorkoutExercise> addExerciseToWorkout(@RequestBody AddExerciseToWorkoutRequest request,
+            HttpServletRequest httpRequest) {
+        if (!WorkoutExercise.isValidWeight(request.getWeight())) {
+            return ResponseEntity.badRequest().build();
+        }
+        String token = httpRequest.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        WorkoutExercise workoutExercise = workoutService.addExerciseToWorkout(request, userId);
         return ResponseEntity.ok(workoutExercise);
     }
 
     @DeleteMapping("/deleteExercise/{id}")
-    public void deleteExerciseFromWorkout(@PathVariable Long id) {
-        workoutExerciseService.deleteExerciseFromWorkout(id);
+    public void deleteExerciseFromWorkout(@PathVariable Long id, HttpServletRequest request) {
+        String token = request.getHeader("Authorization").substring(7);
+        Long userId = jwtTokenProvider.getUserIdFromToken(token);
+        workoutExerciseService.deleteExerciseFromWorkout(id, userId);
     }
 }
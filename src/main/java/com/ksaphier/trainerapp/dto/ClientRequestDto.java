@@ -0,0 +1,15 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// A user who asked to become a client, waiting for the trainer to accept
+@Data
+@AllArgsConstructor
+public class ClientRequestDto {
+    private Long clientId;
+    private String username;
+    private Instant requestedAt;
+}
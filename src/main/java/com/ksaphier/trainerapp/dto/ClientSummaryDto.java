@@ -0,0 +1,23 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ClientSummaryDto {
+    private Long clientId;
+    private String username;
+    private long workoutCount;
+    private long weekWorkouts;
+    private long weekSets;
+    private long weekVolume;
+    private Instant lastActivityAt;
+    // When the figures above were computed, null until the client's first refresh
+    private Instant refreshedAt;
+    private List<RecentWorkoutDto> recentWorkouts = new ArrayList<>();
+}
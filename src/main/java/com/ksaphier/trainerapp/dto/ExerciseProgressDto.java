@@ -0,0 +1,22 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.ksaphier.trainerapp.timeseries.ProgressSeries;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ExerciseProgressDto {
+    private Long exerciseId;
+    private Integer maxWeight;
+    private Instant maxWeightAt;
+    private Double estimatedOneRepMax;
+    private Instant estimatedOneRepMaxAt;
+    private Integer bestVolume;
+    private Instant bestVolumeAt;
+    private List<ProgressSeries.Point> series;
+}
@@ -0,0 +1,13 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ExerciseRecommendationDto {
+    private List<RecommendedExerciseDto> exercises;
+    private List<Long> uncoveredMuscleIds;
+}
@@ -0,0 +1,22 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class ImportReportDto {
+    private String fileName;
+    // FIT or CSV
+    private String format;
+    private long bytes;
+    private long sets;
+    private long workouts;
+    private long workoutExercises;
+    // Rows that are not sets, could not be parsed or have an out-of-range weight
+    private long skippedRows;
+    // Exercise names not found in the catalog, with the number of sets dropped
+    private Map<String, Long> unmatchedExercises;
+}
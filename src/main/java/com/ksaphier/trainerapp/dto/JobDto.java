@@ -0,0 +1,28 @@
+package com.ksaphier.trainerapp.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ksaphier.trainerapp.model.JobStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class JobDto {
+    private Long id;
+    private String type;
+    private JobStatus status;
+    // Percent done, as last reported by the handler
+    private int progress;
+    private int attempts;
+    private int maxAttempts;
+    private JsonNode result;
+    private String error;
+    // Download with GET /jobs/{id}/output when set and the job is DONE
+    private String outputName;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,13 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardEntryDto {
+    private long rank;
+    private Long userId;
+    private String username;
+    private int weight;
+}
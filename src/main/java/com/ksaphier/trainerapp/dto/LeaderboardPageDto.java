@@ -0,0 +1,15 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardPageDto {
+    private Long exerciseId;
+    private int total;
+    private int offset;
+    private List<LeaderboardEntryDto> entries;
+}
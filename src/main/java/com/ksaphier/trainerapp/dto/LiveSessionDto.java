@@ -0,0 +1,16 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LiveSessionDto {
+    private String id;
+    private Long workoutId;
+    private Instant startedAt;
+    private List<SetCompletionDto> completedSets;
+}
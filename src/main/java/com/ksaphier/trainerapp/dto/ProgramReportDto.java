@@ -0,0 +1,15 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ProgramReportDto {
+    private int clients;
+    private int workouts;
+    private int workoutExercises;
+    private long planMillis;
+    private long persistMillis;
+    private double workoutsPerSecond;
+}
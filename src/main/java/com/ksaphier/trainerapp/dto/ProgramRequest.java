@@ -0,0 +1,16 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProgramRequest {
+    private String name = "Program";
+    // Users the program is generated for, the caller when empty
+    private List<Long> clientIds;
+    private int weeks = 12;
+    private int sessionsPerWeek = 3;
+    private int exercisesPerSession = 5;
+    private int deloadEvery = 4;
+}
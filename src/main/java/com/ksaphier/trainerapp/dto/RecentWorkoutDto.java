@@ -0,0 +1,15 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RecentWorkoutDto {
+    private Long id;
+    private String name;
+    private String type;
+    private Instant createdAt;
+}
@@ -0,0 +1,16 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RecommendedExerciseDto {
+    private Long id;
+    private String name;
+    private String description;
+    private List<Long> muscleIds;
+    private List<Long> newlyCoveredMuscleIds;
+}
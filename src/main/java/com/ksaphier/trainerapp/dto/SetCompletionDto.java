@@ -0,0 +1,17 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SetCompletionDto {
+    private String sessionId;
+    private Long workoutExerciseId;
+    private int series;
+    private int reps;
+    private int weight;
+    private Instant completedAt;
+}
@@ -0,0 +1,14 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SetCompletionRequest {
+    private Long workoutExerciseId;
+    // 1-based number of the completed series
+    private int series;
+    private int reps;
+    private int weight;
+}
@@ -0,0 +1,17 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SetLogRequest {
+    private Long workoutExerciseId;
+    private int setNumber;
+    private int reps;
+    private int weight;
+    // Defaults to the time the request is received
+    private Instant performedAt;
+}
@@ -0,0 +1,13 @@
+package com.ksaphier.trainerapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SimilarWorkoutDto {
+    private Long workoutId;
+    private Long userId;
+    private String name;
+    private double similarity;
+}
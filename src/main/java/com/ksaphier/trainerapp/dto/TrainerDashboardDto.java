@@ -0,0 +1,14 @@
+package com.ksaphier.trainerapp.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TrainerDashboardDto {
+    private long total;
+    private int offset;
+    private List<ClientSummaryDto> clients;
+}
@@ -0,0 +1,194 @@
+package com.ksaphier.trainerapp.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Heaviest lift per user on one exercise. Entries are kept ordered by weight
+ * (ties by user id) for paging, and a Fenwick tree counts users per weight, so
+ * a rank or the start of a page is found in O(log maxWeight) instead of by
+ * walking the entries. Ranks are competition style: equal weights share a rank.
+ * The tree grows with the heaviest weight up to MAX_WEIGHT; heavier weights
+ * are ranked as MAX_WEIGHT, so a bogus value cannot blow up its size.
+ */
+public class ExerciseLeaderboard {
+
+    public static final int MAX_WEIGHT = 100_000;
+
+    public record Ranked(long rank, long userId, int weight) {
+    }
+
+    private record Entry(long userId, int weight) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byWeight = Integer.compare(other.weight, weight);
+            return byWeight != 0 ? byWeight : Long.compare(userId, other.userId);
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> bestByUser = new HashMap<>();
+    private final TreeSet<Entry> entries = new TreeSet<>();
+    // counts[weight + 1] in Fenwick layout
+    private long[] counts = new long[1024];
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Keeps the higher of the user's current best and the given weight. */
+    public void offer(long userId, int weight) {
+        lock.writeLock().lock();
+        try {
+            Integer current = bestByUser.get(userId);
+            if (current == null || weight > current) {
+                replace(userId, current, weight);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Sets the user's best, null removes the user from the board. */
+    public void set(long userId, Integer weight) {
+        lock.writeLock().lock();
+        try {
+            Integer current = bestByUser.get(userId);
+            if (current == null ? weight != null : !current.equals(weight)) {
+                replace(userId, current, weight);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long userId) {
+        lock.readLock().lock();
+        try {
+            return bestByUser.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Ranked> rankOf(long userId) {
+        lock.readLock().lock();
+        try {
+            Integer weight = bestByUser.get(userId);
+            if (weight == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Ranked(countHeavierThan(weight) + 1, userId, weight));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Ranked> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Ranked> page = new ArrayList<>(Math.max(0, Math.min(limit, entries.size() - offset)));
+            if (offset < 0 || offset >= entries.size() || limit <= 0) {
+                return page;
+            }
+            // Weight of the entry at the offset, then skip the ties ranked before it
+            int weight = weightAtPosition(entries.size() - offset);
+            long heavier = countHeavierThan(weight);
+            Iterator<Entry> iterator = entries.tailSet(new Entry(Long.MIN_VALUE, weight), true).iterator();
+            for (long skip = offset - heavier; skip > 0; skip--) {
+                iterator.next();
+            }
+
+            long position = offset;
+            long rank = heavier + 1;
+            int previousWeight = weight;
+            while (iterator.hasNext() && page.size() < limit) {
+                Entry entry = iterator.next();
+                if (entry.weight() != previousWeight) {
+                    rank = position + 1;
+                    previousWeight = entry.weight();
+                }
+                page.add(new Ranked(rank, entry.userId(), entry.weight()));
+                position++;
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void replace(long userId, Integer oldWeight, Integer newWeight) {
+        if (oldWeight != null) {
+            entries.remove(new Entry(userId, oldWeight));
+            add(oldWeight, -1);
+            bestByUser.remove(userId);
+        }
+        if (newWeight != null) {
+            int weight = Math.min(MAX_WEIGHT, Math.max(0, newWeight));
+            // Before adding the entry: growing rebuilds the counts from the entries
+            add(weight, 1);
+            entries.add(new Entry(userId, weight));
+            bestByUser.put(userId, weight);
+        }
+    }
+
+    private void add(int weight, long delta) {
+        if (weight + 1 >= counts.length) {
+            grow(weight + 1);
+        }
+        for (int i = weight + 1; i < counts.length; i += i & -i) {
+            counts[i] += delta;
+        }
+    }
+
+    // Number of users with a best at or below the weight
+    private long countUpTo(int weight) {
+        long count = 0;
+        for (int i = Math.min(weight + 1, counts.length - 1); i > 0; i -= i & -i) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    private long countHeavierThan(int weight) {
+        return entries.size() - countUpTo(weight);
+    }
+
+    // Smallest weight with at least `position` users at or below it (1-based from the lightest)
+    private int weightAtPosition(long position) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(counts.length - 1); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < counts.length && counts[next] < position) {
+                index = next;
+                position -= counts[next];
+            }
+        }
+        return index;
+    }
+
+    private void grow(int minIndex) {
+        int size = counts.length;
+        while (size <= minIndex) {
+            size <<= 1;
+        }
+        counts = new long[size];
+        for (Entry entry : entries) {
+            for (int i = entry.weight() + 1; i < size; i += i & -i) {
+                counts[i]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.ksaphier.trainerapp.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the exercise catalog where every exercise's muscles
+ * are encoded as a bitset (one bit per muscle). Coverage queries are answered
+ * with bitwise operations over the packed masks instead of database joins.
+ */
+public class ExerciseMuscleIndex {
+
+    public enum Mode {
+        // Fewest exercises covering the target, muscles may be hit more than once
+        BEST_COVER,
+        // Never pick an exercise that hits a muscle already worked by a previous pick
+        NO_OVERLAP
+    }
+
+    public record Pick(long exerciseId, List<Long> muscleIds, List<Long> newlyCoveredMuscleIds) {
+    }
+
+    public record Result(List<Pick> picks, List<Long> uncoveredMuscleIds) {
+    }
+
+    private final long[] muscleIds;
+    private final Map<Long, Integer> muscleBits;
+    private final int words;
+
+    private final long[] exerciseIds;
+    private final Map<Long, Integer> exercisePositions;
+    // exercise i uses masks[i * words .. (i + 1) * words)
+    private final long[] masks;
+
+    private ExerciseMuscleIndex(long[] muscleIds, Map<Long, Integer> muscleBits, long[] exerciseIds,
+            Map<Long, Integer> exercisePositions, long[] masks) {
+        this.muscleIds = muscleIds;
+        this.muscleBits = muscleBits;
+        this.words = Math.max(1, (muscleIds.length + 63) >>> 6);
+        this.exerciseIds = exerciseIds;
+        this.exercisePositions = exercisePositions;
+        this.masks = masks;
+    }
+
+    public int size() {
+        return exerciseIds.length;
+    }
+
+    public List<Long> exerciseIds() {
+        return Arrays.stream(exerciseIds).boxed().toList();
+    }
+
+    public List<Long> muscleIds() {
+        return Arrays.stream(muscleIds).boxed().toList();
+    }
+
+    public Result recommend(Collection<Long> targetMuscleIds, Collection<Long> excludedExerciseIds, int limit,
+            Mode mode) {
+        long[] uncovered = new long[words];
+        List<Long> unknownMuscles = new ArrayList<>();
+        for (Long muscleId : targetMuscleIds) {
+            Integer bit = muscleBits.get(muscleId);
+            if (bit == null) {
+                unknownMuscles.add(muscleId);
+            } else {
+                uncovered[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        boolean[] excluded = new boolean[exerciseIds.length];
+        for (Long exerciseId : excludedExerciseIds) {
+            Integer position = exercisePositions.get(exerciseId);
+            if (position != null) {
+                excluded[position] = true;
+            }
+        }
+
+        // Only exercises that hit at least one target muscle can ever be picked
+        int[] candidates = new int[exerciseIds.length];
+        int candidateCount = 0;
+        for (int i = 0; i < exerciseIds.length; i++) {
+            if (!excluded[i] && intersects(i, uncovered)) {
+                candidates[candidateCount++] = i;
+            }
+        }
+
+        long[] target = uncovered.clone();
+        long[] worked = new long[words];
+        List<Pick> picks = new ArrayList<>();
+
+        while (picks.size() < limit && !isEmpty(uncovered)) {
+            int best = -1;
+            int bestGain = 0;
+            int bestOffTarget = Integer.MAX_VALUE;
+
+            for (int c = 0; c < candidateCount; c++) {
+                int i = candidates[c];
+                if (mode == Mode.NO_OVERLAP && intersects(i, worked)) {
+                    continue;
+                }
+                int gain = 0;
+                int offTarget = 0;
+                int base = i * words;
+                for (int w = 0; w < words; w++) {
+                    gain += Long.bitCount(masks[base + w] & uncovered[w]);
+                    offTarget += Long.bitCount(masks[base + w] & ~target[w]);
+                }
+                if (gain > bestGain || (gain == bestGain && gain > 0 && offTarget < bestOffTarget)) {
+                    best = i;
+                    bestGain = gain;
+                    bestOffTarget = offTarget;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            List<Long> newlyCovered = new ArrayList<>();
+            int base = best * words;
+            for (int w = 0; w < words; w++) {
+                long hit = masks[base + w] & uncovered[w];
+                collectMuscles(hit, w, newlyCovered);
+                uncovered[w] &= ~masks[base + w];
+                worked[w] |= masks[base + w];
+            }
+            picks.add(new Pick(exerciseIds[best], musclesOf(best), newlyCovered));
+        }
+
+        List<Long> uncoveredMuscles = new ArrayList<>(unknownMuscles);
+        for (int w = 0; w < words; w++) {
+            collectMuscles(uncovered[w], w, uncoveredMuscles);
+        }
+        return new Result(picks, uncoveredMuscles);
+    }
+
+    private boolean intersects(int exercise, long[] bits) {
+        int base = exercise * words;
+        for (int w = 0; w < words; w++) {
+            if ((masks[base + w] & bits[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Long> musclesOf(int exercise) {
+        List<Long> result = new ArrayList<>();
+        int base = exercise * words;
+        for (int w = 0; w < words; w++) {
+            collectMuscles(masks[base + w], w, result);
+        }
+        return result;
+    }
+
+    private void collectMuscles(long word, int wordIndex, List<Long> into) {
+        while (word != 0) {
+            int bit = Long.numberOfTrailingZeros(word);
+            into.add(muscleIds[(wordIndex << 6) + bit]);
+            word &= word - 1;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<Long, List<Long>> musclesByExercise = new HashMap<>();
+
+        public Builder addExercise(long exerciseId) {
+            musclesByExercise.computeIfAbsent(exerciseId, id -> new ArrayList<>());
+            return this;
+        }
+
+        public Builder addMuscle(long exerciseId, long muscleId) {
+            musclesByExercise.computeIfAbsent(exerciseId, id -> new ArrayList<>()).add(muscleId);
+            return this;
+        }
+
+        public ExerciseMuscleIndex build() {
+            long[] muscleIds = musclesByExercise.values().stream()
+                    .flatMap(List::stream)
+                    .mapToLong(Long::longValue)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            Map<Long, Integer> muscleBits = new HashMap<>();
+            for (int i = 0; i < muscleIds.length; i++) {
+                muscleBits.put(muscleIds[i], i);
+            }
+            int words = Math.max(1, (muscleIds.length + 63) >>> 6);
+
+            long[] exerciseIds = musclesByExercise.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<Long, Integer> exercisePositions = new HashMap<>();
+            long[] masks = new long[exerciseIds.length * words];
+            for (int i = 0; i < exerciseIds.length; i++) {
+                exercisePositions.put(exerciseIds[i], i);
+                for (Long muscleId : musclesByExercise.get(exerciseIds[i])) {
+                    int bit = muscleBits.get(muscleId);
+                    masks[i * words + (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            return new ExerciseMuscleIndex(Arrays.copyOf(muscleIds, muscleIds.length), muscleBits, exerciseIds,
+                    exercisePositions, masks);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ksaphier.trainerapp.index;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable lookup from exercise names to catalog ids. Names are compared by
+ * their letters and digits only, ignoring case, so "Bench Press",
+ * "bench_press" and "BENCH-PRESS" resolve to the same exercise. A name with a
+ * parenthetical variant ("Bench Press (Barbell)") falls back to the name
+ * without it when the full name is not in the catalog.
+ */
+public class ExerciseNameIndex {
+
+    private final Map<String, Long> ids;
+
+    private ExerciseNameIndex(Map<String, Long> ids) {
+        this.ids = ids;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /** Catalog id for the name, null if no exercise matches. */
+    public Long resolve(String name) {
+        if (name == null) {
+            return null;
+        }
+        Long id = ids.get(normalize(name));
+        if (id == null) {
+            int parenthesis = name.indexOf('(');
+            if (parenthesis > 0) {
+                id = ids.get(normalize(name.substring(0, parenthesis)));
+            }
+        }
+        return id;
+    }
+
+    static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<String, Long> ids = new HashMap<>();
+
+        // The lowest id wins when two catalog entries normalize to the same name
+        public Builder add(long exerciseId, String name) {
+            if (name != null) {
+                ids.merge(normalize(name), exerciseId, Math::min);
+            }
+            return this;
+        }
+
+        public ExerciseNameIndex build() {
+            return new ExerciseNameIndex(Map.copyOf(ids));
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.ksaphier.trainerapp.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest neighbours of workouts by the Jaccard similarity of
+ * their exercise sets. Every workout gets a MinHash signature of HASHES
+ * values, stored as 16 bits each. The signature is cut into BANDS bands of
+ * ROWS values; workouts sharing any band land in the same bucket and become
+ * candidates, which are then ranked by how many signature values they share.
+ * With 16 bands of 3 rows, pairs at 0.5 similarity are found with ~87%
+ * probability and pairs at 0.2 rarely become candidates at all.
+ */
+public class WorkoutSimilarityIndex {
+
+    public static final int BANDS = 16;
+    public static final int ROWS = 3;
+    public static final int HASHES = BANDS * ROWS;
+
+    public record Match(long workoutId, long ownerId, double similarity) {
+    }
+
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private long[] workoutIds = new long[1024];
+    private long[] ownerIds = new long[1024];
+    // Each owner's slots as a doubly linked list, so an owner's workouts are found without a scan
+    private final Map<Long, Integer> firstSlotByOwner = new HashMap<>();
+    private int[] nextOfOwner = new int[1024];
+    private int[] previousOfOwner = new int[1024];
+    // Signature of slot s is signatures[s * HASHES .. (s + 1) * HASHES)
+    private char[] signatures = new char[1024 * HASHES];
+    private final BandTable buckets = new BandTable();
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Adds or replaces the workout; an empty exercise set removes it. */
+    public void put(long workoutId, long ownerId, Collection<Long> exerciseIds) {
+        if (exerciseIds.isEmpty()) {
+            remove(workoutId);
+            return;
+        }
+        char[] signature = signature(exerciseIds);
+        lock.writeLock().lock();
+        try {
+            Integer current = slots.get(workoutId);
+            if (current != null && ownerIds[current] == ownerId && Arrays.equals(signatures, current * HASHES,
+                    (current + 1) * HASHES, signature, 0, HASHES)) {
+                // Unchanged, e.g. refreshed with the rest of the owner's workouts
+                return;
+            }
+            removeLocked(workoutId);
+            int slot = freeSlots.isEmpty() ? slots.size() : freeSlots.remove(freeSlots.size() - 1);
+            ensureCapacity(slot);
+            slots.put(workoutId, slot);
+            workoutIds[slot] = workoutId;
+            ownerIds[slot] = ownerId;
+            linkOwner(slot);
+            System.arraycopy(signature, 0, signatures, slot * HASHES, HASHES);
+            for (int band = 0; band < BANDS; band++) {
+                buckets.put(bandKey(signature, 0, band), slot, band);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long workoutId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(workoutId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the owner's workouts that are not in workoutIds, e.g. after a
+     * bulk delete. Visits only the owner's slots; keptWorkoutIds should be a set.
+     */
+    public void retainOwner(long ownerId, Collection<Long> keptWorkoutIds) {
+        lock.writeLock().lock();
+        try {
+            List<Long> removed = new ArrayList<>();
+            Integer first = firstSlotByOwner.get(ownerId);
+            for (int slot = first == null ? BandTable.NONE : first; slot != BandTable.NONE;
+                    slot = nextOfOwner[slot]) {
+                if (!keptWorkoutIds.contains(workoutIds[slot])) {
+                    removed.add(workoutIds[slot]);
+                }
+            }
+            removed.forEach(this::removeLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most similar indexed workouts to the given exercise set, excluding the
+     * workout itself and optionally the owner's other workouts. At most
+     * maxCandidates bucket entries are examined, which bounds the cost of very
+     * common exercise combinations.
+     */
+    public List<Match> similar(Collection<Long> exerciseIds, long excludeWorkoutId, Long excludeOwnerId,
+            double minSimilarity, int limit, int maxCandidates) {
+        if (exerciseIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        char[] signature = signature(exerciseIds);
+        lock.readLock().lock();
+        try {
+            return similarLocked(signature, excludeWorkoutId, excludeOwnerId, minSimilarity, limit, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #similar} for an indexed workout, using its stored
+     * signature. Empty if the workout is not indexed.
+     */
+    public List<Match> similarTo(long workoutId, boolean excludeOwner, double minSimilarity, int limit,
+            int maxCandidates) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(workoutId);
+            if (slot == null || limit <= 0) {
+                return List.of();
+            }
+            char[] signature = Arrays.copyOfRange(signatures, slot * HASHES, (slot + 1) * HASHES);
+            return similarLocked(signature, workoutId, excludeOwner ? ownerIds[slot] : null, minSimilarity, limit,
+                    maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long workoutId) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(workoutId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Match> similarLocked(char[] signature, long excludeWorkoutId, Long excludeOwnerId,
+            double minSimilarity, int limit, int maxCandidates) {
+        int[] candidates = new int[Math.min(maxCandidates, 256)];
+        int candidateCount = 0;
+        for (int band = 0; band < BANDS; band++) {
+            for (int entry = buckets.head(bandKey(signature, 0, band));
+                    entry != BandTable.NONE && candidateCount < maxCandidates; entry = buckets.next(entry)) {
+                if (candidateCount == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, (int) Math.min(maxCandidates, candidates.length * 2L));
+                }
+                candidates[candidateCount++] = entry / BANDS;
+            }
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < candidateCount; i++) {
+            int slot = candidates[i];
+            if (i > 0 && candidates[i - 1] == slot) {
+                continue;
+            }
+            if (workoutIds[slot] == excludeWorkoutId
+                    || (excludeOwnerId != null && ownerIds[slot] == excludeOwnerId)) {
+                continue;
+            }
+            int agreeing = 0;
+            int base = slot * HASHES;
+            for (int h = 0; h < HASHES; h++) {
+                if (signatures[base + h] == signature[h]) {
+                    agreeing++;
+                }
+            }
+            double similarity = agreeing / (double) HASHES;
+            if (similarity >= minSimilarity) {
+                matches.add(new Match(workoutIds[slot], ownerIds[slot], similarity));
+            }
+        }
+        matches.sort((a, b) -> a.similarity() != b.similarity()
+                ? Double.compare(b.similarity(), a.similarity())
+                : Long.compare(a.workoutId(), b.workoutId()));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private void removeLocked(long workoutId) {
+        Integer slot = slots.remove(workoutId);
+        if (slot == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            buckets.remove(bandKey(signatures, slot * HASHES, band), slot, band);
+        }
+        unlinkOwner(slot);
+        freeSlots.add(slot);
+    }
+
+    private void linkOwner(int slot) {
+        Integer first = firstSlotByOwner.put(ownerIds[slot], slot);
+        nextOfOwner[slot] = first == null ? BandTable.NONE : first;
+        previousOfOwner[slot] = BandTable.NONE;
+        if (first != null) {
+            previousOfOwner[first] = slot;
+        }
+    }
+
+    private void unlinkOwner(int slot) {
+        int before = previousOfOwner[slot];
+        int after = nextOfOwner[slot];
+        if (after != BandTable.NONE) {
+            previousOfOwner[after] = before;
+        }
+        if (before != BandTable.NONE) {
+            nextOfOwner[before] = after;
+        } else if (after == BandTable.NONE) {
+            firstSlotByOwner.remove(ownerIds[slot]);
+        } else {
+            firstSlotByOwner.put(ownerIds[slot], after);
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < workoutIds.length) {
+            return;
+        }
+        int capacity = workoutIds.length * 2;
+        workoutIds = Arrays.copyOf(workoutIds, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        nextOfOwner = Arrays.copyOf(nextOfOwner, capacity);
+        previousOfOwner = Arrays.copyOf(previousOfOwner, capacity);
+        signatures = Arrays.copyOf(signatures, capacity * HASHES);
+    }
+
+    static char[] signature(Collection<Long> exerciseIds) {
+        char[] signature = new char[HASHES];
+        long[] minimums = new long[HASHES];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        for (Long exerciseId : exerciseIds) {
+            for (int h = 0; h < HASHES; h++) {
+                long hash = mix(exerciseId ^ SEEDS[h]) >>> 1;
+                if (hash < minimums[h]) {
+                    minimums[h] = hash;
+                }
+            }
+        }
+        for (int h = 0; h < HASHES; h++) {
+            signature[h] = (char) minimums[h];
+        }
+        return signature;
+    }
+
+    // 4 bits of band number and 3 x 16 bits of values: distinct bands never collide
+    private static long bandKey(char[] signature, int offset, int band) {
+        int start = offset + band * ROWS;
+        return ((long) band << 48) | ((long) signature[start] << 32) | ((long) signature[start + 1] << 16)
+                | signature[start + 2];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Band key to bucket, as an open addressing table of chain heads plus
+     * next/previous links per (slot, band) entry. Workouts built from the same
+     * template share a bucket, so each key is stored once and inserts and
+     * removals are O(1) however popular the bucket is; everything stays in
+     * primitive arrays.
+     */
+    private static class BandTable {
+
+        static final int NONE = -1;
+
+        private long[] keys = new long[1 << 12];
+        private int[] heads = new int[1 << 12];
+        private int size;
+        // Links of entry slot * BANDS + band within its bucket
+        private int[] next = new int[1024 * BANDS];
+        private int[] previous = new int[1024 * BANDS];
+
+        BandTable() {
+            Arrays.fill(heads, NONE);
+        }
+
+        void put(long key, int slot, int band) {
+            int entry = slot * BANDS + band;
+            if (entry >= next.length) {
+                int capacity = Math.max(next.length * 2, entry + BANDS);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+            }
+            int i = find(key);
+            if (heads[i] == NONE) {
+                if ((size + 1) * 10 > keys.length * 7) {
+                    resize();
+                    i = find(key);
+                }
+                keys[i] = key;
+                size++;
+            } else {
+                previous[heads[i]] = entry;
+            }
+            next[entry] = heads[i];
+            previous[entry] = NONE;
+            heads[i] = entry;
+        }
+
+        // The entry must be in the bucket of the key
+        void remove(long key, int slot, int band) {
+            int entry = slot * BANDS + band;
+            int before = previous[entry];
+            int after = next[entry];
+            if (after != NONE) {
+                previous[after] = before;
+            }
+            if (before != NONE) {
+                next[before] = after;
+                return;
+            }
+            int i = find(key);
+            heads[i] = after;
+            if (after == NONE) {
+                delete(i);
+            }
+        }
+
+        /** First entry (slot * BANDS + band) of the bucket, or NONE. */
+        int head(long key) {
+            return heads[find(key)];
+        }
+
+        int next(int entry) {
+            return next[entry];
+        }
+
+        // Index of the key, or of the empty cell where it would go
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, mask);
+            while (heads[i] != NONE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        // Backward shift deletion keeps probe sequences intact without tombstones
+        private void delete(int hole) {
+            int mask = keys.length - 1;
+            size--;
+            for (int i = (hole + 1) & mask; heads[i] != NONE; i = (i + 1) & mask) {
+                int home = index(keys[i], mask);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    heads[hole] = heads[i];
+                    hole = i;
+                }
+            }
+            heads[hole] = NONE;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldKeys.length * 2];
+            Arrays.fill(heads, NONE);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldHeads[i] != NONE) {
+                    int j = find(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    heads[j] = oldHeads[i];
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            return (int) mix(key) & mask;
+        }
+    }
+}
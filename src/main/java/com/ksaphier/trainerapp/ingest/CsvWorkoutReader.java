@@ -0,0 +1,326 @@
+package com.ksaphier.trainerapp.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads one set per row from a CSV export (Strong, Hevy and similar trackers)
+ * straight out of a byte buffer, typically a memory-mapped file, so the file
+ * never has to fit on the heap. Columns are found by header name; the
+ * delimiter (comma, semicolon or tab) is taken from the header line. Weights
+ * in a column whose header mentions lb are converted to kg.
+ *
+ * Rows are split into field offsets over a reused byte array: unused columns
+ * are never decoded, numbers are parsed from the bytes, and the date, workout
+ * and exercise columns reuse the previous row's value when the bytes repeat,
+ * as they do for every set of a workout.
+ */
+public class CsvWorkoutReader {
+
+    private static final double KG_PER_LB = 0.45359237;
+    private static final int PROGRESS_EVERY = 4096;
+    private static final String DEFAULT_WORKOUT_NAME = "Imported workout";
+
+    private static final List<String> DATE_COLUMNS = List.of("date", "startdate", "starttime", "performedat");
+    private static final List<String> WORKOUT_COLUMNS = List.of("workoutname", "workout", "routinename", "routine",
+            "title");
+    private static final List<String> EXERCISE_COLUMNS = List.of("exercisename", "exercise", "exercisetitle");
+    private static final List<String> REPS_COLUMNS = List.of("reps", "repetitions");
+    private static final List<String> WEIGHT_COLUMNS = List.of("weight", "weightkg", "weightlbs", "weightlb");
+    private static final List<String> REST_COLUMNS = List.of("rest", "restseconds", "resttime");
+
+    private static final List<DateTimeFormatter> DATE_TIME_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+            DateTimeFormatter.ofPattern("d MMM yyyy, HH:mm", Locale.ENGLISH));
+
+    private final ByteBuffer buffer;
+    private byte delimiter = ',';
+    // Unquoted content of the current record, field i is line[starts[i] .. ends[i])
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private int fieldCount;
+    private long skippedRows;
+
+    public CsvWorkoutReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads every row, passing valid sets on in file order. Progress receives
+     * the number of bytes consumed every few thousand rows.
+     */
+    public void read(Consumer<ImportedSet> sets, LongConsumer progress) {
+        skipByteOrderMark();
+        delimiter = detectDelimiter();
+        if (!nextRecord()) {
+            return;
+        }
+        List<String> header = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            header.add(new String(line, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8));
+        }
+        List<String> columns = header.stream().map(CsvWorkoutReader::normalize).toList();
+        int date = column(columns, DATE_COLUMNS);
+        int workout = column(columns, WORKOUT_COLUMNS);
+        int exercise = column(columns, EXERCISE_COLUMNS);
+        int reps = column(columns, REPS_COLUMNS);
+        int weight = column(columns, WEIGHT_COLUMNS);
+        int rest = column(columns, REST_COLUMNS);
+        if (exercise < 0 || reps < 0) {
+            throw new IllegalArgumentException("CSV needs exercise and reps columns, found " + header);
+        }
+        double weightFactor = weight >= 0 && columns.get(weight).contains("lb") ? KG_PER_LB : 1;
+
+        DateParser dateParser = new DateParser();
+        RepeatedValue<LocalDateTime> dates = new RepeatedValue<>(dateParser::parse);
+        RepeatedValue<String> workouts = new RepeatedValue<>(Function.identity());
+        RepeatedValue<String> exercises = new RepeatedValue<>(Function.identity());
+        long rows = 0;
+        while (nextRecord()) {
+            if (fieldCount == 1 && isBlank(0)) {
+                continue;
+            }
+            try {
+                String exerciseName = exercises.get(exercise);
+                if (exerciseName == null || isBlank(reps)) {
+                    // Rest timers, notes and other non-set rows
+                    skippedRows++;
+                    continue;
+                }
+                int repCount = (int) Math.round(number(reps));
+                double weightValue = weight >= 0 && !isBlank(weight) ? number(weight) * weightFactor : 0;
+                Integer restValue = rest >= 0 && !isBlank(rest) ? (int) Math.round(number(rest)) : null;
+                String workoutName = workouts.get(workout);
+                sets.accept(new ImportedSet(workoutName != null ? workoutName : DEFAULT_WORKOUT_NAME,
+                        dates.get(date), exerciseName, repCount, weightValue, restValue));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                skippedRows++;
+            }
+            if (++rows % PROGRESS_EVERY == 0) {
+                progress.accept(buffer.position());
+            }
+        }
+        progress.accept(buffer.position());
+    }
+
+    public long skippedRows() {
+        return skippedRows;
+    }
+
+    private void skipByteOrderMark() {
+        if (buffer.remaining() >= 3 && buffer.get(buffer.position()) == (byte) 0xEF
+                && buffer.get(buffer.position() + 1) == (byte) 0xBB
+                && buffer.get(buffer.position() + 2) == (byte) 0xBF) {
+            buffer.position(buffer.position() + 3);
+        }
+    }
+
+    private byte detectDelimiter() {
+        int commas = 0;
+        int semicolons = 0;
+        int tabs = 0;
+        boolean quoted = false;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && b == '\n') {
+                break;
+            } else if (!quoted && b == ',') {
+                commas++;
+            } else if (!quoted && b == ';') {
+                semicolons++;
+            } else if (!quoted && b == '\t') {
+                tabs++;
+            }
+        }
+        return semicolons > commas && semicolons >= tabs ? (byte) ';' : tabs > commas ? (byte) '\t' : (byte) ',';
+    }
+
+    // Splits the next record with RFC 4180 quoting, false at the end of the buffer
+    private boolean nextRecord() {
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        lineLength = 0;
+        fieldCount = 0;
+        int fieldStart = 0;
+        boolean quoted = false;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (quoted) {
+                if (b != '"') {
+                    append(b);
+                } else if (buffer.hasRemaining() && buffer.get(buffer.position()) == '"') {
+                    buffer.get();
+                    append(b);
+                } else {
+                    quoted = false;
+                }
+            } else if (b == '"') {
+                quoted = true;
+            } else if (b == delimiter) {
+                endField(fieldStart);
+                fieldStart = lineLength;
+            } else if (b == '\n') {
+                break;
+            } else if (b != '\r') {
+                append(b);
+            }
+        }
+        endField(fieldStart);
+        return true;
+    }
+
+    private void append(byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+    }
+
+    private void endField(int fieldStart) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        int start = fieldStart;
+        int end = lineLength;
+        while (start < end && line[start] == ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] == ' ') {
+            end--;
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private boolean isBlank(int column) {
+        return column < 0 || column >= fieldCount || starts[column] == ends[column];
+    }
+
+    // Plain decimals are parsed from the bytes, anything else goes through Double.parseDouble
+    private double number(int column) {
+        int i = starts[column];
+        int end = ends[column];
+        boolean negative = i < end && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long digits = 0;
+        int scale = -1;
+        int count = 0;
+        for (; i < end; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9' && count < 15) {
+                digits = digits * 10 + (b - '0');
+                count++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if ((b == '.' || b == ',') && scale < 0) {
+                // Decimal comma in European exports
+                scale = 0;
+            } else {
+                String value = new String(line, starts[column], end - starts[column], StandardCharsets.UTF_8);
+                return Double.parseDouble(value.replace(',', '.'));
+            }
+        }
+        if (count == 0) {
+            throw new NumberFormatException("Not a number");
+        }
+        double value = scale > 0 ? digits / Math.pow(10, scale) : digits;
+        return negative ? -value : value;
+    }
+
+    private static int column(List<String> columns, List<String> names) {
+        for (String name : names) {
+            int index = columns.indexOf(name);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        // "Weight (kg)" and the like
+        for (int i = 0; i < columns.size(); i++) {
+            for (String name : names) {
+                if (columns.get(i).startsWith(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String normalize(String header) {
+        return header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    // Value of a column, decoded again only when its bytes differ from the previous row
+    private class RepeatedValue<T> {
+        private final Function<String, T> decode;
+        private byte[] bytes = new byte[0];
+        private T value;
+
+        RepeatedValue(Function<String, T> decode) {
+            this.decode = decode;
+        }
+
+        T get(int column) {
+            if (isBlank(column)) {
+                return null;
+            }
+            int start = starts[column];
+            int end = ends[column];
+            if (value == null || !Arrays.equals(bytes, 0, bytes.length, line, start, end)) {
+                T decoded = decode.apply(new String(line, start, end - start, StandardCharsets.UTF_8));
+                bytes = Arrays.copyOfRange(line, start, end);
+                value = decoded;
+            }
+            return value;
+        }
+    }
+
+    // Remembers the format that worked last, exports use one format throughout
+    private static class DateParser {
+        private DateTimeFormatter last = DATE_TIME_FORMATS.get(0);
+
+        LocalDateTime parse(String value) {
+            try {
+                return LocalDateTime.parse(value, last);
+            } catch (DateTimeParseException e) {
+                for (DateTimeFormatter format : DATE_TIME_FORMATS) {
+                    try {
+                        LocalDateTime parsed = LocalDateTime.parse(value, format);
+                        last = format;
+                        return parsed;
+                    } catch (DateTimeParseException ignored) {
+                        // try the next format
+                    }
+                }
+                try {
+                    return OffsetDateTime.parse(value).toLocalDateTime();
+                } catch (DateTimeParseException ignored) {
+                    return LocalDate.parse(value).atStartOfDay();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ksaphier.trainerapp.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads the strength sets of a Garmin FIT activity file straight out of a
+ * byte buffer. Only the messages needed for a workout are decoded: the
+ * session start time and the set messages (repetitions, weight, exercise
+ * category, rest); every other message is skipped by its definition. The
+ * exercise category is mapped to its FIT profile name ("bench_press"), which
+ * the importer then resolves against the catalog.
+ */
+public class FitWorkoutReader {
+
+    private static final int SESSION = 18;
+    private static final int SET = 225;
+    private static final int FILE_ID = 0;
+
+    private static final int SET_DURATION = 0;
+    private static final int SET_REPETITIONS = 3;
+    private static final int SET_WEIGHT = 4;
+    private static final int SET_TYPE = 5;
+    private static final int SET_START_TIME = 6;
+    private static final int SET_CATEGORY = 7;
+    private static final int SESSION_START_TIME = 2;
+    private static final int FILE_ID_TIME_CREATED = 4;
+
+    private static final int SET_TYPE_REST = 0;
+    private static final int SET_TYPE_ACTIVE = 1;
+
+    // FIT timestamps count seconds from 1989-12-31T00:00:00Z
+    private static final long FIT_EPOCH = 631065600L;
+    private static final int PROGRESS_EVERY = 4096;
+    private static final String WORKOUT_NAME = "Imported FIT workout";
+
+    // Profile exercise_category values 0..32
+    private static final String[] CATEGORIES = { "bench_press", "calf_raise", "cardio", "carry", "chop", "core",
+            "crunch", "curl", "deadlift", "flye", "hip_raise", "hip_stability", "hip_swing", "hyperextension",
+            "lateral_raise", "leg_curl", "leg_raise", "lunge", "olympic_lift", "plank", "plyo", "pull_up", "push_up",
+            "row", "shoulder_press", "shoulder_stability", "shrug", "sit_up", "squat", "total_body",
+            "triceps_extension", "warm_up", "run" };
+
+    // Element size of each base type by its number (low five bits of the base type byte)
+    private static final int[] BASE_TYPE_SIZES = { 1, 1, 1, 2, 2, 4, 4, 1, 4, 8, 1, 2, 4, 1, 8, 8, 8 };
+
+    private record Field(int number, int size, int elementSize) {
+    }
+
+    private record Definition(int globalNumber, ByteOrder order, List<Field> fields, int developerBytes) {
+    }
+
+    private record ActiveSet(String exercise, int reps, double weight, long startTime) {
+    }
+
+    private final ByteBuffer buffer;
+    private final Definition[] definitions = new Definition[16];
+    private final List<ActiveSet> sets = new ArrayList<>();
+    private final List<Integer> rests = new ArrayList<>();
+    private long sessionStart = -1;
+    private long fileCreated = -1;
+
+    public FitWorkoutReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static boolean isFit(ByteBuffer buffer) {
+        int start = buffer.position();
+        return buffer.remaining() >= 12 && buffer.get(start + 8) == '.' && buffer.get(start + 9) == 'F'
+                && buffer.get(start + 10) == 'I' && buffer.get(start + 11) == 'T';
+    }
+
+    /** Reads the activity and passes its active sets on as one workout. */
+    public void read(Consumer<ImportedSet> consumer, LongConsumer progress) {
+        if (!isFit(buffer)) {
+            throw new IllegalArgumentException("Not a FIT file");
+        }
+        int start = buffer.position();
+        int headerSize = buffer.get(start) & 0xFF;
+        long dataSize = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(start + 4) & 0xFFFFFFFFL;
+        long end = Math.min(buffer.limit(), start + headerSize + dataSize);
+        buffer.position(start + headerSize);
+
+        long records = 0;
+        while (buffer.position() < end) {
+            int header = buffer.get() & 0xFF;
+            if ((header & 0x80) != 0) {
+                // Compressed timestamp header, always a data message
+                readData(definition((header >> 5) & 0x03));
+            } else if ((header & 0x40) != 0) {
+                definitions[header & 0x0F] = readDefinition((header & 0x20) != 0);
+            } else {
+                readData(definition(header & 0x0F));
+            }
+            if (++records % PROGRESS_EVERY == 0) {
+                progress.accept(buffer.position());
+            }
+        }
+        buffer.position((int) Math.min(buffer.limit(), end + 2));
+        progress.accept(buffer.position());
+
+        long startTime = sessionStart >= 0 ? sessionStart
+                : fileCreated >= 0 ? fileCreated
+                : sets.isEmpty() ? -1 : sets.get(0).startTime();
+        LocalDateTime performedAt = startTime < 0 ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochSecond(FIT_EPOCH + startTime), ZoneOffset.UTC);
+        for (int i = 0; i < sets.size(); i++) {
+            ActiveSet set = sets.get(i);
+            consumer.accept(new ImportedSet(WORKOUT_NAME, performedAt, set.exercise(), set.reps(), set.weight(),
+                    rests.get(i)));
+        }
+    }
+
+    private Definition definition(int localType) {
+        Definition definition = definitions[localType];
+        if (definition == null) {
+            throw new IllegalArgumentException("FIT data message without definition at " + buffer.position());
+        }
+        return definition;
+    }
+
+    private Definition readDefinition(boolean developerFields) {
+        buffer.get(); // reserved
+        ByteOrder order = buffer.get() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        int globalNumber = order == ByteOrder.LITTLE_ENDIAN
+                ? (buffer.get() & 0xFF) | (buffer.get() & 0xFF) << 8
+                : (buffer.get() & 0xFF) << 8 | (buffer.get() & 0xFF);
+        int fieldCount = buffer.get() & 0xFF;
+        List<Field> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            int number = buffer.get() & 0xFF;
+            int size = buffer.get() & 0xFF;
+            int baseType = buffer.get() & 0x1F;
+            int elementSize = baseType < BASE_TYPE_SIZES.length ? BASE_TYPE_SIZES[baseType] : 1;
+            fields.add(new Field(number, size, size % elementSize == 0 ? elementSize : 1));
+        }
+        int developerBytes = 0;
+        if (developerFields) {
+            int developerCount = buffer.get() & 0xFF;
+            for (int i = 0; i < developerCount; i++) {
+                buffer.get();
+                developerBytes += buffer.get() & 0xFF;
+                buffer.get();
+            }
+        }
+        return new Definition(globalNumber, order, fields, developerBytes);
+    }
+
+    private void readData(Definition definition) {
+        int global = definition.globalNumber();
+        if (global != SET && global != SESSION && global != FILE_ID) {
+            int size = definition.developerBytes();
+            for (Field field : definition.fields()) {
+                size += field.size();
+            }
+            buffer.position(buffer.position() + size);
+            return;
+        }
+
+        long duration = -1;
+        long reps = -1;
+        long weight = -1;
+        long type = -1;
+        long startTime = -1;
+        long category = -1;
+        for (Field field : definition.fields()) {
+            // Arrays (category) are read by their first element
+            long value = readUnsigned(field.size(), field.elementSize(), definition.order());
+            if (global == SET) {
+                switch (field.number()) {
+                    case SET_DURATION -> duration = value;
+                    case SET_REPETITIONS -> reps = value;
+                    case SET_WEIGHT -> weight = value;
+                    case SET_TYPE -> type = value;
+                    case SET_START_TIME -> startTime = value;
+                    case SET_CATEGORY -> category = value;
+                    default -> { }
+                }
+            } else if (global == SESSION && field.number() == SESSION_START_TIME) {
+                sessionStart = value;
+            } else if (global == FILE_ID && field.number() == FILE_ID_TIME_CREATED) {
+                fileCreated = value;
+            }
+        }
+        buffer.position(buffer.position() + definition.developerBytes());
+
+        if (global != SET) {
+            return;
+        }
+        if (type == SET_TYPE_REST && !sets.isEmpty() && duration >= 0) {
+            // Rest after the previous active set, duration is in milliseconds
+            rests.set(rests.size() - 1, (int) Math.round(duration / 1000.0));
+        } else if (type == SET_TYPE_ACTIVE && reps >= 0) {
+            String exercise = category >= 0 && category < CATEGORIES.length
+                    ? CATEGORIES[(int) category] : "unknown";
+            // Weight is in kg with a scale of 16
+            sets.add(new ActiveSet(exercise, (int) reps, weight >= 0 ? weight / 16.0 : 0, startTime));
+            rests.add(null);
+        }
+    }
+
+    // Unsigned value of an integer field, -1 for the FIT invalid value (all bits set)
+    private long readUnsigned(int size, int elementSize, ByteOrder order) {
+        int first = buffer.position();
+        if (elementSize > 4) {
+            // No 64-bit fields are read
+            buffer.position(first + size);
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < elementSize; i++) {
+            int b = buffer.get(first + (order == ByteOrder.LITTLE_ENDIAN ? i : elementSize - 1 - i)) & 0xFF;
+            value |= (long) b << (8 * i);
+        }
+        buffer.position(first + size);
+        long invalid = (1L << (8 * elementSize)) - 1;
+        return value == invalid ? -1 : value;
+    }
+}
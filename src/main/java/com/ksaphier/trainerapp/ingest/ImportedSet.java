@@ -0,0 +1,11 @@
+package com.ksaphier.trainerapp.ingest;
+
+import java.time.LocalDateTime;
+
+/**
+ * One performed set read from an export file. Sets with the same workout name
+ * and start time belong to the same workout.
+ */
+public record ImportedSet(String workoutName, LocalDateTime performedAt, String exerciseName, int reps,
+        double weight, Integer restSeconds) {
+}
@@ -0,0 +1,11 @@
+package com.ksaphier.trainerapp.ingest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ImportedWorkout(String name, LocalDateTime performedAt, List<Exercise> exercises) {
+
+    /** All sets of one exercise: the heaviest set gives weight and reps. */
+    public record Exercise(String name, int series, int reps, int weight, int rest) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.ksaphier.trainerapp.ingest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Groups a stream of sets into workouts. Exports list the sets of a workout
+ * next to each other, so a workout is complete as soon as a set of another
+ * one arrives and only the current workout is held in memory. Sets heavier
+ * than maxWeight, or with a negative weight, are rejected.
+ */
+public class WorkoutAssembler implements Consumer<ImportedSet> {
+
+    private static final int DEFAULT_REST = 90;
+
+    private final double maxWeight;
+    private final Consumer<ImportedWorkout> workouts;
+
+    private String currentName;
+    private LocalDateTime currentStart;
+    private final Map<String, ExerciseSets> currentExercises = new LinkedHashMap<>();
+    private long sets;
+    private long rejectedSets;
+
+    private static class ExerciseSets {
+        private int series;
+        private int reps;
+        private double weight = -1;
+        private Integer rest;
+    }
+
+    public WorkoutAssembler(double maxWeight, Consumer<ImportedWorkout> workouts) {
+        this.maxWeight = maxWeight;
+        this.workouts = workouts;
+    }
+
+    @Override
+    public void accept(ImportedSet set) {
+        if (!(set.weight() >= 0 && set.weight() <= maxWeight)) {
+            rejectedSets++;
+            return;
+        }
+        if (!Objects.equals(set.workoutName(), currentName) || !Objects.equals(set.performedAt(), currentStart)) {
+            finish();
+            currentName = set.workoutName();
+            currentStart = set.performedAt();
+        }
+        ExerciseSets exercise = currentExercises.computeIfAbsent(set.exerciseName(), name -> new ExerciseSets());
+        exercise.series++;
+        if (set.weight() > exercise.weight || (set.weight() == exercise.weight && set.reps() > exercise.reps)) {
+            exercise.weight = set.weight();
+            exercise.reps = set.reps();
+        }
+        if (set.restSeconds() != null) {
+            exercise.rest = set.restSeconds();
+        }
+        sets++;
+    }
+
+    /** Emits the workout in progress, if any. */
+    public void finish() {
+        if (currentExercises.isEmpty()) {
+            return;
+        }
+        List<ImportedWorkout.Exercise> exercises = new ArrayList<>(currentExercises.size());
+        currentExercises.forEach((name, sets) -> exercises.add(new ImportedWorkout.Exercise(name, sets.series,
+                sets.reps, (int) Math.round(Math.max(0, sets.weight)),
+                sets.rest != null ? sets.rest : DEFAULT_REST)));
+        currentExercises.clear();
+        workouts.accept(new ImportedWorkout(currentName, currentStart, exercises));
+    }
+
+    public long sets() {
+        return sets;
+    }
+
+    public long rejectedSets() {
+        return rejectedSets;
+    }
+}
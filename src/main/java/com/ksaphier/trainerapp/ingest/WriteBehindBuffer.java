@@ -0,0 +1,206 @@
+package com.ksaphier.trainerapp.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue in front of a batch writer. Callers only enqueue; a single
+ * flusher thread hands the writer a batch once batchSize items are waiting or
+ * flushInterval has passed since the oldest one arrived. When the queue is
+ * full, offer() waits up to offerTimeout and then rejects, so the caller can
+ * push back instead of the buffer growing without limit. stop() wakes the
+ * flusher and writes everything that was accepted.
+ */
+public class WriteBehindBuffer<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 500;
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Consumer<List<T>> writer;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter written;
+    private final Counter dropped;
+    private final Timer flushes;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public WriteBehindBuffer(String name, int capacity, int batchSize, Duration flushInterval, Duration offerTimeout,
+            Consumer<List<T>> writer, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.writer = writer;
+
+        this.accepted = items(meterRegistry, "accepted");
+        this.rejected = items(meterRegistry, "rejected");
+        this.written = items(meterRegistry, "written");
+        this.dropped = items(meterRegistry, "dropped");
+        this.flushes = Timer.builder("trainerapp.writebehind.flush")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("trainerapp.writebehind.queued", queue, BlockingQueue::size)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    private Counter items(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("trainerapp.writebehind.items")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean offer(T item) {
+        if (!running) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (queue.offer(item, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                accepted.increment();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, name + "-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Wakes a flusher waiting for items
+        flusher.interrupt();
+        try {
+            flusher.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("{} flusher did not finish within {} ms, writing the rest from the stopping thread",
+                    name, STOP_TIMEOUT_MILLIS);
+        }
+        // Items accepted right before running flipped may still be queued
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                queue.drainTo(batch, batchSize - batch.size());
+                while (batch.size() < batchSize && running) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Never lose what was already taken off the queue
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // An interrupt fails the writer's connection checkout, so it is held back until the batch is handled;
+        // one arriving during an attempt costs a retry
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                interrupted |= Thread.interrupted();
+                try {
+                    flushes.record(() -> writer.accept(batch));
+                    written.increment(batch.size());
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt >= MAX_WRITE_ATTEMPTS) {
+                        logger.error("Dropping {} {} items after {} failed writes", batch.size(), name, attempt, e);
+                        dropped.increment(batch.size());
+                        return;
+                    }
+                    logger.warn("Writing {} {} items failed, retrying", batch.size(), name, e);
+                    interrupted |= Thread.interrupted();
+                    try {
+                        Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
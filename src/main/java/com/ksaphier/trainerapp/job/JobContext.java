@@ -0,0 +1,25 @@
+package com.ksaphier.trainerapp.job;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface JobContext {
+
+    Long jobId();
+
+    Long userId();
+
+    // 1 on the first run
+    int attempt();
+
+    <T> T payload(Class<T> type);
+
+    /** Reports progress; writes are throttled, so it is cheap to call often. */
+    void progress(long done, long total);
+
+    /** The file uploaded with the job. */
+    InputStream input();
+
+    /** Starts the job's downloadable output, replacing what an earlier attempt wrote. */
+    OutputStream output(String fileName);
+}
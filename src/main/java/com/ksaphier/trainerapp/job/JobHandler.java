@@ -0,0 +1,18 @@
+package com.ksaphier.trainerapp.job;
+
+/**
+ * Runs one type of background job. Handlers are Spring beans picked up by
+ * JobService; a job may run again after a failure or a lost worker, so a
+ * handler with more than one attempt must be safe to repeat.
+ */
+public interface JobHandler {
+
+    String type();
+
+    default int maxAttempts() {
+        return 3;
+    }
+
+    /** Does the work; the returned value is stored as the job result (JSON). */
+    Object run(JobContext context) throws Exception;
+}
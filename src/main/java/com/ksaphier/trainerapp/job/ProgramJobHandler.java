@@ -0,0 +1,41 @@
+package com.ksaphier.trainerapp.job;
+
+import com.ksaphier.trainerapp.dto.ProgramRequest;
+import com.ksaphier.trainerapp.service.ProgramService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+
+@Component
+public class ProgramJobHandler implements JobHandler {
+
+    public static final String TYPE = "PROGRAM";
+
+    private final ProgramService programService;
+
+    @Autowired
+    public ProgramJobHandler(ProgramService programService) {
+        this.programService = programService;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    // Slices are committed separately, a second run would duplicate the ones that made it
+    @Override
+    public int maxAttempts() {
+        return 1;
+    }
+
+    @Override
+    public Object run(JobContext context) {
+        ProgramRequest request = context.payload(ProgramRequest.class);
+        int clients = request.getClientIds() == null || request.getClientIds().isEmpty()
+                ? 1 : new HashSet<>(request.getClientIds()).size();
+        return programService.generate(request, context.userId(), done -> context.progress(done, clients));
+    }
+}
@@ -0,0 +1,38 @@
+package com.ksaphier.trainerapp.job;
+
+import com.ksaphier.trainerapp.service.WorkoutService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Deletes in id-ordered batches, a retry continues with what is left
+@Component
+public class WorkoutDeleteJobHandler implements JobHandler {
+
+    public static final String TYPE = "WORKOUT_DELETE";
+
+    // A null type deletes all of the user's workouts
+    public record Payload(String workoutType) {
+    }
+
+    public record Result(long deleted) {
+    }
+
+    private final WorkoutService workoutService;
+
+    @Autowired
+    public WorkoutDeleteJobHandler(WorkoutService workoutService) {
+        this.workoutService = workoutService;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public Object run(JobContext context) {
+        Payload payload = context.payload(Payload.class);
+        return new Result(workoutService.deleteWorkouts(context.userId(), payload.workoutType(), context::progress));
+    }
+}
@@ -0,0 +1,33 @@
+package com.ksaphier.trainerapp.job;
+
+import com.ksaphier.trainerapp.service.WorkoutExportService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+
+@Component
+public class WorkoutExportJobHandler implements JobHandler {
+
+    public static final String TYPE = "WORKOUT_EXPORT";
+
+    private final WorkoutExportService workoutExportService;
+
+    @Autowired
+    public WorkoutExportJobHandler(WorkoutExportService workoutExportService) {
+        this.workoutExportService = workoutExportService;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public Object run(JobContext context) throws Exception {
+        try (OutputStream output = context.output("workouts-" + context.userId() + ".csv")) {
+            return workoutExportService.exportCsv(context.userId(), output, context::progress);
+        }
+    }
+}
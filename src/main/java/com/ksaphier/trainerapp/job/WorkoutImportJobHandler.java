@@ -0,0 +1,54 @@
+package com.ksaphier.trainerapp.job;
+
+import com.ksaphier.trainerapp.service.WorkoutImportService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// The upload is copied from the job table to a local file first, so it can be memory-mapped
+@Component
+public class WorkoutImportJobHandler implements JobHandler {
+
+    public static final String TYPE = "WORKOUT_IMPORT";
+
+    public record Payload(String fileName, long size) {
+    }
+
+    private final WorkoutImportService workoutImportService;
+
+    @Autowired
+    public WorkoutImportJobHandler(WorkoutImportService workoutImportService) {
+        this.workoutImportService = workoutImportService;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    // The import commits before the job completes, a second run after a lost completion would import it twice
+    @Override
+    public int maxAttempts() {
+        return 1;
+    }
+
+    @Override
+    public Object run(JobContext context) throws Exception {
+        Payload payload = context.payload(Payload.class);
+        Path spooled = Files.createTempFile("workout-import-", ".upload");
+        try {
+            try (InputStream input = context.input()) {
+                Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return workoutImportService.importFile(context.userId(), spooled, payload.fileName(),
+                    bytes -> context.progress(bytes, payload.size()));
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ksaphier.trainerapp.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows the latency of the requests it admits, in
+ * the spirit of the gradient limiters in Netflix concurrency-limits. Samples
+ * are averaged over a window; at the end of each window the short-term
+ * average is compared with a slow moving long-term average. While they stay
+ * within the tolerance the limit grows by a fraction of its square root;
+ * once the short-term latency rises past it the limit shrinks in proportion
+ * (at most by half per window), and a window with failures multiplies it by
+ * the backoff ratio. The limit only grows while the window actually used
+ * half of it.
+ */
+public class AdaptiveLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveLimiter.class);
+
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_FACTOR = 0.05;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final LongSupplier clock;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+    private final Counter rejected;
+    private final Counter increased;
+    private final Counter decreased;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRtt;
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInflight;
+    private boolean windowDropped;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance,
+            Duration window, int minWindowSamples, MeterRegistry meterRegistry) {
+        this(name, initialLimit, minLimit, maxLimit, tolerance, window, minWindowSamples, meterRegistry,
+                System::nanoTime);
+    }
+
+    AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window,
+            int minWindowSamples, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = window.toNanos();
+        this.minWindowSamples = minWindowSamples;
+        this.clock = clock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+        this.windowStart = clock.getAsLong();
+
+        Gauge.builder("trainerapp.limiter.limit", this, AdaptiveLimiter::getLimit)
+                .description("Current concurrency limit")
+                .tag("class", name)
+                .register(meterRegistry);
+        Gauge.builder("trainerapp.limiter.inflight", inflight, AtomicInteger::get)
+                .description("Requests currently admitted")
+                .tag("class", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("trainerapp.limiter.rejected")
+                .description("Requests answered 503 because the limit was reached")
+                .tag("class", name)
+                .register(meterRegistry);
+        this.increased = limitChanges(meterRegistry, name, "up");
+        this.decreased = limitChanges(meterRegistry, name, "down");
+    }
+
+    private static Counter limitChanges(MeterRegistry meterRegistry, String name, String direction) {
+        return Counter.builder("trainerapp.limiter.changes")
+                .description("Windows after which the limit changed")
+                .tag("class", name)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /** Admits a request if fewer than the limit are in flight; every admitted request must be released. */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Releases without a sample, for requests whose latency says nothing about the backend. */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /** Releases and records the request's latency; dropped requests failed or timed out. */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        synchronized (this) {
+            windowMaxInflight = Math.max(windowMaxInflight, current);
+            if (dropped) {
+                windowDropped = true;
+            } else {
+                windowRttSum += rttNanos;
+                windowSamples++;
+            }
+            long now = clock.getAsLong();
+            if (now - windowStart >= windowNanos && (windowSamples >= minWindowSamples || windowDropped)) {
+                update();
+                windowStart = now;
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowMaxInflight = 0;
+                windowDropped = false;
+            }
+        }
+    }
+
+    private void update() {
+        double newLimit;
+        if (windowDropped) {
+            newLimit = estimatedLimit * BACKOFF_RATIO;
+        } else {
+            double shortRtt = (double) windowRttSum / windowSamples;
+            if (longRtt == 0) {
+                longRtt = shortRtt;
+            } else {
+                longRtt = longRtt * (1 - LONG_RTT_FACTOR) + shortRtt * LONG_RTT_FACTOR;
+                // After a slow period the long average would keep the limit low, let it recover quickly
+                if (longRtt / shortRtt > 2) {
+                    longRtt *= 0.95;
+                }
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            if (gradient < 1) {
+                // Shed at once, growing back is smoothed
+                newLimit = estimatedLimit * gradient;
+            } else if (windowMaxInflight < estimatedLimit / 2) {
+                // Not limited by concurrency, the latency says nothing about a higher limit
+                newLimit = estimatedLimit;
+            } else {
+                newLimit = estimatedLimit + SMOOTHING * Math.sqrt(estimatedLimit);
+            }
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        int previous = limit;
+        limit = (int) estimatedLimit;
+        if (limit != previous) {
+            (limit > previous ? increased : decreased).increment();
+            logger.debug("{} concurrency limit {} -> {}", name, previous, limit);
+        }
+    }
+}
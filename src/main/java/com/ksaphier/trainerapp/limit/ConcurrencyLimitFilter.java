@@ -0,0 +1,161 @@
+package com.ksaphier.trainerapp.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sheds load before it reaches the controllers. Runs ahead of the Spring
+ * Security chain, so a rejected request costs neither a JWT check nor the
+ * user lookup behind it. Login and registration, reads and writes each get
+ * their own AdaptiveLimiter: BCrypt-bound logins and slow writes do not take
+ * the room of cheap reads. Requests over the limit get 503 with Retry-After
+ * right away instead of queueing for a Tomcat thread. Event streams are
+ * admitted against the limit but give their permit back before they open,
+ * and async requests slower than max-sample release without a sample.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    public enum RequestClass {
+        AUTH, READ, WRITE
+    }
+
+    private final boolean enabled;
+    private final long maxSampleNanos;
+    private final Map<RequestClass, AdaptiveLimiter> limiters = new EnumMap<>(RequestClass.class);
+
+    @Autowired
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+            @Value("${trainerapp.limiter.enabled:true}") boolean enabled,
+            @Value("${trainerapp.limiter.initial-limit:20}") int initialLimit,
+            @Value("${trainerapp.limiter.min-limit:4}") int minLimit,
+            @Value("${trainerapp.limiter.max-limit:200}") int maxLimit,
+            @Value("${trainerapp.limiter.tolerance:1.5}") double tolerance,
+            @Value("${trainerapp.limiter.window:1s}") Duration window,
+            @Value("${trainerapp.limiter.min-window-samples:10}") int minWindowSamples,
+            @Value("${trainerapp.limiter.max-sample:10s}") Duration maxSample) {
+        this.enabled = enabled;
+        this.maxSampleNanos = maxSample.toNanos();
+        for (RequestClass requestClass : RequestClass.values()) {
+            limiters.put(requestClass, new AdaptiveLimiter(requestClass.name().toLowerCase(), initialLimit, minLimit,
+                    maxLimit, tolerance, window, minWindowSamples, meterRegistry));
+        }
+    }
+
+    public AdaptiveLimiter limiter(RequestClass requestClass) {
+        return limiters.get(requestClass);
+    }
+
+    static RequestClass classify(HttpServletRequest request) {
+        if (request.getRequestURI().startsWith("/api/auth/")) {
+            return RequestClass.AUTH;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? RequestClass.READ : RequestClass.WRITE;
+    }
+
+    // EventSource always asks for the stream; the content type check after the chain catches other clients
+    static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Health checks must keep answering under load, preflights do no work
+        return !enabled || request.getRequestURI().startsWith("/actuator/") || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        AdaptiveLimiter limiter = limiters.get(classify(request));
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        if (isEventStream(request)) {
+            // Live session streams stay open for minutes, they are not backend latency
+            limiter.release();
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                String contentType = response.getContentType();
+                if (contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+                    limiter.release();
+                } else {
+                    request.getAsyncContext().addListener(new ReleaseOnComplete(limiter, start, maxSampleNanos));
+                }
+            } else {
+                limiter.release(System.nanoTime() - start, response.getStatus() >= 500);
+            }
+            released = true;
+        } finally {
+            if (!released) {
+                limiter.release(System.nanoTime() - start, true);
+            }
+        }
+    }
+
+    // Mono and Callable handlers finish on another thread
+    private record ReleaseOnComplete(AdaptiveLimiter limiter, long start, long maxSampleNanos)
+            implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            long rtt = System.nanoTime() - start;
+            boolean failed = response.getStatus() >= 500;
+            if (!failed && rtt > maxSampleNanos) {
+                // Waited on something other than the backend, e.g. a slow client or a long poll
+                limiter.release();
+            } else {
+                limiter.release(rtt, failed);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // onComplete follows and releases
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // onComplete follows and releases
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
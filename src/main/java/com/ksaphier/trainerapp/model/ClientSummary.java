@@ -0,0 +1,25 @@
+package com.ksaphier.trainerapp.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.time.Instant;
+
+// Precomputed activity of a trainer's client, written only by TrainerDashboardRepository.refreshSummaries
+@Entity
+@Data
+public class ClientSummary {
+    @Id
+    private Long userId;
+
+    private long workoutCount;
+    private Instant lastWorkoutAt;
+    // Workouts created and sets performed in the last seven days, volume is the sum of reps * weight
+    private long weekWorkouts;
+    private long weekSets;
+    private long weekVolume;
+    private Instant lastSetAt;
+    private Instant lastActivityAt;
+    private Instant refreshedAt;
+}
@@ -0,0 +1,41 @@
+package com.ksaphier.trainerapp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+import java.time.Instant;
+
+// Personal records and progression of one user on one exercise, see ProgressService
+@Entity
+@Data
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "userId", "exerciseId" }))
+public class ExerciseProgress {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private Long exerciseId;
+
+    private Integer maxWeight;
+    private Instant maxWeightAt;
+    private Double estimatedOneRepMax;
+    private Instant estimatedOneRepMaxAt;
+    private Integer bestVolume;
+    private Instant bestVolumeAt;
+
+    // ProgressSeries encoding
+    @JsonIgnore
+    @Column(columnDefinition = "bytea")
+    private byte[] series;
+
+    private Instant updatedAt;
+}
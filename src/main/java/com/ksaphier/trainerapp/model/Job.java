@@ -0,0 +1,53 @@
+package com.ksaphier.trainerapp.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+// A unit of background work, claimed by one worker at a time with FOR UPDATE SKIP LOCKED
+@Entity
+@Data
+@Table(indexes = { @Index(columnList = "status, runAfter"), @Index(columnList = "userId") })
+public class Job {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private String type;
+
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+
+    // JSON handed to the job handler, and the JSON it returned
+    @Column(columnDefinition = "text")
+    private String payload;
+    @Column(columnDefinition = "text")
+    private String result;
+    @Column(columnDefinition = "text")
+    private String error;
+
+    private int progress;
+    private int attempts;
+    private int maxAttempts;
+    // File name of the output the job wrote, if any
+    private String outputName;
+
+    // Instance running the job and its last sign of life
+    private String lockedBy;
+    private Instant heartbeatAt;
+
+    private Instant runAfter;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
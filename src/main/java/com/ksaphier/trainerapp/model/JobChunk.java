@@ -0,0 +1,24 @@
+package com.ksaphier.trainerapp.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+// Part of a file uploaded for a job (kind IN) or written by it (OUT), so any instance can run the job
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "jobId, kind, part"))
+public class JobChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long jobId;
+    private String kind;
+    private int part;
+    private byte[] data;
+}
@@ -0,0 +1,8 @@
+package com.ksaphier.trainerapp.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
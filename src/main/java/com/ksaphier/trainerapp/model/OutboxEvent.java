@@ -0,0 +1,38 @@
+package com.ksaphier.trainerapp.model;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityType;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+// A change, written in the transaction that made it and relayed to the outbox sinks afterwards
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "publishedAt, id"))
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+    @Enumerated(EnumType.STRING)
+    private ChangeType changeType;
+    private Long entityId;
+    // Owning user for per-user data, null for catalog entities
+    private Long ownerId;
+
+    private Instant createdAt;
+    // Null until every sink has the event
+    private Instant publishedAt;
+}
@@ -0,0 +1,33 @@
+package com.ksaphier.trainerapp.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// A set as actually performed, WorkoutExercise only holds the plan
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// The second index serves the per-user time ranges of the trainer dashboard summaries
+@Table(indexes = { @Index(columnList = "userId, workoutExerciseId"), @Index(columnList = "userId, performedAt") })
+public class SetLog {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private Long workoutExerciseId;
+    private int setNumber;
+    private int reps;
+    private int weight;
+    private Instant performedAt;
+}
@@ -0,0 +1,29 @@
+package com.ksaphier.trainerapp.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+import java.time.Instant;
+
+// A client who lets a trainer see their activity and plan programs for them, once the trainer accepts
+@Entity
+@Data
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "trainerId", "clientId" }),
+        indexes = @Index(columnList = "clientId"))
+public class TrainerClient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long trainerId;
+    private Long clientId;
+    private Instant createdAt;
+    // Null while the request waits for the trainer; pending links grant nothing
+    private Instant acceptedAt;
+}
@@ -4,10 +4,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.Data;
 
-@Entity
+import org.hibernate.annotations.PartitionKey;
+
+import java.time.Instant;
 
+@Entity
+// Per-user reads and the per-owner refreshes of the in-memory indexes
+@Table(indexes = @Index(columnList = "userId"))
 @Data
 public class Workout {
     @Id
@@ -17,6 +25,17 @@ public class Workout {
     private String name;
     private String description;
     private String type;
-    // user id
+    // user id, also the hash partition key (scripts/partition-workouts.sql)
+    @PartitionKey
     private Long userId;
+    // Set on insert unless given, imports keep the date of the session; null for workouts created before the
+    // column existed
+    private Instant createdAt;
+
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
 }
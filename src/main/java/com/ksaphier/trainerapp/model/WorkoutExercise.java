@@ -1,30 +1,63 @@
 package com.ksaphier.trainerapp.model;
 
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ForeignKey;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import org.hibernate.annotations.PartitionKey;
 
 @Entity
+@Table(indexes = @Index(columnList = "userId, workout_id"))
 @Data
 public class WorkoutExercise {
+    // In kg; heavier than any lift, so a larger weight is a typo or a unit mix-up
+    public static final int MAX_WEIGHT = 1000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "workout_id")
+    // Lazy: loading it by id alone would search every partition of workout.
+    // No foreign key, a partitioned workout table has no unique key on id alone.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "workout_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Workout workout;
 
     @ManyToOne
     @JoinColumn(name = "exercise_id")
     private Exercise exercise;
 
+    // The workout's owner, copied so rows are partitioned with their workout
+    @PartitionKey
+    private Long userId;
+
     private int series;
     private int reps;
     private int rest;
     private int weight;
+
+    public static boolean isValidWeight(double weight) {
+        return weight >= 0 && weight <= MAX_WEIGHT;
+    }
+
+    @PrePersist
+    void onCreate() {
+        if (userId == null && workout != null) {
+            userId = workout.getUserId();
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package com.ksaphier.trainerapp.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a file, one JSON object per line, and forces the batch
+ * to disk before it is acknowledged. Meant as an audit trail and as the input
+ * of feeds that tail the file. Whichever instance holds the relay lock
+ * appends, so the path must be absolute and on storage every instance
+ * mounts; a relative one would scatter the stream over working directories.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(Path file, ObjectMapper objectMapper) {
+        if (!file.isAbsolute()) {
+            throw new IllegalArgumentException("Outbox file must be an absolute path: " + file);
+        }
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 160);
+        for (OutboxEvent event : events) {
+            lines.write(objectMapper.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ksaphier.trainerapp.outbox;
+
+import com.ksaphier.trainerapp.model.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps relayed events in memory, for tests and local development.
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) {
+        events.addAll(batch);
+    }
+
+    public synchronized List<OutboxEvent> events() {
+        return List.copyOf(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
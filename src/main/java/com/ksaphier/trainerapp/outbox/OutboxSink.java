@@ -0,0 +1,19 @@
+package com.ksaphier.trainerapp.outbox;
+
+import com.ksaphier.trainerapp.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Receives relayed change events. Sinks are Spring beans picked up by
+ * OutboxService. A batch is marked published only once every sink accepted
+ * it, and a failed batch is handed to all sinks again, so delivery is at
+ * least once: a sink must tolerate events it has already seen, e.g. by id.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    /** Called with batches in event id order, from one thread at a time. */
+    void publish(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,134 @@
+package com.ksaphier.trainerapp.program;
+
+import com.ksaphier.trainerapp.index.ExerciseMuscleIndex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Periodized program for one catalog snapshot. The weekly split is chosen
+ * once: the muscles are spread over the training days and each day covers
+ * its share with the fewest exercises (ExerciseMuscleIndex), so every muscle
+ * is worked each week. Weeks then only differ in load: intensity climbs by
+ * 2.5% of 1RM per week and per block, and the last week of every block is a
+ * lighter deload. Planning a week is pure and thread-safe.
+ */
+public class ProgramPlanner {
+
+    private static final double START_INTENSITY = 0.675;
+    private static final double WEEKLY_STEP = 0.025;
+    private static final double MAX_INTENSITY = 0.9;
+    private static final double DELOAD_DROP = 0.075;
+    private static final int SERIES = 3;
+    private static final int DELOAD_SERIES = 2;
+    // Reps in reserve below the estimated max reps at an intensity
+    private static final int RESERVE_REPS = 2;
+
+    public record Settings(int weeks, int sessionsPerWeek, int exercisesPerSession, int deloadEvery) {
+    }
+
+    public record PlannedExercise(long exerciseId, int series, int reps, int rest, int weight) {
+    }
+
+    public record PlannedSession(int week, int day, boolean deload, List<PlannedExercise> exercises) {
+    }
+
+    private final Settings settings;
+    private final List<List<Long>> days;
+
+    public ProgramPlanner(ExerciseMuscleIndex catalog, Settings settings) {
+        this.settings = settings;
+        this.days = split(catalog, settings.sessionsPerWeek(), settings.exercisesPerSession());
+    }
+
+    // Exercise ids of each training day, the same every week
+    public List<List<Long>> days() {
+        return days;
+    }
+
+    /** Sessions of one week (1-based) for a client's estimated 1RM per exercise. */
+    public List<PlannedSession> planWeek(int week, Map<Long, Double> oneRepMaxes) {
+        boolean deload = isDeload(week, settings.deloadEvery());
+        double intensity = intensity(week, settings.deloadEvery());
+        int reps = repsAt(deload ? intensity + DELOAD_DROP : intensity);
+        int series = deload ? DELOAD_SERIES : SERIES;
+        int rest = reps <= 5 ? 180 : reps <= 8 ? 120 : 90;
+
+        List<PlannedSession> sessions = new ArrayList<>(days.size());
+        for (int day = 0; day < days.size(); day++) {
+            List<PlannedExercise> exercises = new ArrayList<>(days.get(day).size());
+            for (Long exerciseId : days.get(day)) {
+                Double oneRepMax = oneRepMaxes.get(exerciseId);
+                // Without a record the trainer sets the first weights
+                int weight = oneRepMax == null ? 0 : (int) Math.round(oneRepMax * intensity);
+                exercises.add(new PlannedExercise(exerciseId, series, reps, rest, weight));
+            }
+            sessions.add(new PlannedSession(week, day + 1, deload, exercises));
+        }
+        return sessions;
+    }
+
+    static boolean isDeload(int week, int deloadEvery) {
+        return deloadEvery > 1 && week % deloadEvery == 0;
+    }
+
+    // Share of 1RM lifted in the week; each block starts one step above the previous one
+    static double intensity(int week, int deloadEvery) {
+        int block = deloadEvery > 1 ? (week - 1) / deloadEvery : 0;
+        int position = deloadEvery > 1 ? (week - 1) % deloadEvery : week - 1;
+        if (isDeload(week, deloadEvery)) {
+            return START_INTENSITY + WEEKLY_STEP * block - DELOAD_DROP;
+        }
+        return Math.min(MAX_INTENSITY, START_INTENSITY + WEEKLY_STEP * (block + position));
+    }
+
+    // Inverse of the Epley formula used for the progress records
+    static int repsAt(double intensity) {
+        int maxReps = (int) Math.round(30 * (1 / intensity - 1));
+        return Math.max(3, Math.min(12, maxReps - RESERVE_REPS));
+    }
+
+    private static List<List<Long>> split(ExerciseMuscleIndex catalog, int sessions, int exercisesPerSession) {
+        List<List<Long>> days = new ArrayList<>(sessions);
+        List<Long> muscles = catalog.muscleIds();
+        if (muscles.isEmpty()) {
+            // No muscle data, rotate through the catalog instead
+            List<Long> exercises = catalog.exerciseIds();
+            for (int day = 0; day < sessions; day++) {
+                List<Long> picks = new ArrayList<>();
+                for (int i = 0; i < exercisesPerSession && !exercises.isEmpty(); i++) {
+                    Long exerciseId = exercises.get((day * exercisesPerSession + i) % exercises.size());
+                    if (!picks.contains(exerciseId)) {
+                        picks.add(exerciseId);
+                    }
+                }
+                days.add(picks);
+            }
+            return days;
+        }
+
+        Set<Long> used = new HashSet<>();
+        List<Long> carried = new ArrayList<>();
+        for (int day = 0; day < sessions; day++) {
+            List<Long> target = new ArrayList<>(carried);
+            for (int i = day; i < muscles.size(); i += sessions) {
+                target.add(muscles.get(i));
+            }
+            // Prefer exercises not used on another day, fall back to repeating one
+            ExerciseMuscleIndex.Result result = catalog.recommend(target, used, exercisesPerSession,
+                    ExerciseMuscleIndex.Mode.BEST_COVER);
+            if (result.picks().isEmpty()) {
+                result = catalog.recommend(target, List.of(), exercisesPerSession,
+                        ExerciseMuscleIndex.Mode.BEST_COVER);
+            }
+            List<Long> picks = result.picks().stream().map(ExerciseMuscleIndex.Pick::exerciseId).toList();
+            used.addAll(picks);
+            carried = result.uncoveredMuscleIds();
+            days.add(picks);
+        }
+        return days;
+    }
+}
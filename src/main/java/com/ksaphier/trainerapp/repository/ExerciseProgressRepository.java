@@ -0,0 +1,37 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.model.ExerciseProgress;
+
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExerciseProgressRepository extends JpaRepository<ExerciseProgress, Long> {
+    Optional<ExerciseProgress> findByUserIdAndExerciseId(Long userId, Long exerciseId);
+
+    List<ExerciseProgress> findByUserId(Long userId);
+
+    List<ExerciseProgress> findByUserIdIn(Collection<Long> userIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM ExerciseProgress p WHERE p.userId = :userId AND p.exerciseId = :exerciseId")
+    Optional<ExerciseProgress> findForUpdate(Long userId, Long exerciseId);
+
+    // Two first saves for the same exercise must not both insert
+    @Modifying
+    @Query(value = "INSERT INTO exercise_progress (user_id, exercise_id) VALUES (:userId, :exerciseId) "
+            + "ON CONFLICT DO NOTHING", nativeQuery = true)
+    void insertIfAbsent(Long userId, Long exerciseId);
+
+    @Modifying
+    @Query("DELETE FROM ExerciseProgress p WHERE p.exerciseId = :exerciseId")
+    int deleteByExerciseId(Long exerciseId);
+}
@@ -4,10 +4,15 @@ import com.ksaphier.trainerapp.model.Exercise;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
     List<Exercise> findByName(String name);
+
+    // (exercise id, muscle id) pairs for the whole catalog
+    @Query("SELECT e.id, m.id FROM Exercise e JOIN e.muscles m")
+    List<Object[]> findAllExerciseMuscleIds();
     // Custom query methods can be added here
 }
\ No newline at end of file
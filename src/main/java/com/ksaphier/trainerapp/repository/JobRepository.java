@@ -0,0 +1,175 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.model.Job;
+import com.ksaphier.trainerapp.model.JobStatus;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain SQL over the job tables. Claiming relies on FOR UPDATE SKIP LOCKED so
+ * workers on any number of instances can poll the same table: each queued
+ * job is handed to exactly one of them without blocking the others. Updates
+ * made while running are guarded by locked_by, so a worker whose job was
+ * reclaimed after a missed heartbeat can no longer change it.
+ */
+@Repository
+public class JobRepository {
+
+    public static final String INPUT = "IN";
+    public static final String OUTPUT = "OUT";
+
+    private static final String CLAIM_SQL = "UPDATE job SET status = 'RUNNING', locked_by = ?, "
+            + "heartbeat_at = now(), attempts = attempts + 1, started_at = COALESCE(started_at, now()) "
+            + "WHERE id IN (SELECT id FROM job WHERE status = 'QUEUED' AND run_after <= now() "
+            + "ORDER BY run_after, id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING *";
+
+    private static final RowMapper<Job> JOB_MAPPER = JobRepository::toJob;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Long insert(Long userId, String type, String payload, int maxAttempts) {
+        return jdbcTemplate.queryForObject("INSERT INTO job (user_id, type, status, payload, progress, attempts, "
+                + "max_attempts, run_after, created_at) VALUES (?, ?, 'QUEUED', ?, 0, 0, ?, now(), now()) "
+                + "RETURNING id",
+                Long.class, userId, type, payload, maxAttempts);
+    }
+
+    public Optional<Job> findById(Long id) {
+        return jdbcTemplate.query("SELECT * FROM job WHERE id = ?", JOB_MAPPER, id).stream().findFirst();
+    }
+
+    public List<Job> findByUserId(Long userId, int limit) {
+        return jdbcTemplate.query("SELECT * FROM job WHERE user_id = ? ORDER BY id DESC LIMIT ?", JOB_MAPPER,
+                userId, limit);
+    }
+
+    public int countPending(Long userId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM job WHERE user_id = ? AND status IN ('QUEUED', 'RUNNING')", Integer.class,
+                userId);
+        return count == null ? 0 : count;
+    }
+
+    public List<Job> claim(String worker, int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, JOB_MAPPER, worker, limit);
+    }
+
+    public void heartbeat(String worker) {
+        jdbcTemplate.update("UPDATE job SET heartbeat_at = now() WHERE locked_by = ? AND status = 'RUNNING'",
+                worker);
+    }
+
+    public boolean progress(Long id, String worker, int progress) {
+        return jdbcTemplate.update("UPDATE job SET progress = ?, heartbeat_at = now() "
+                + "WHERE id = ? AND locked_by = ? AND status = 'RUNNING'", progress, id, worker) == 1;
+    }
+
+    public boolean setOutputName(Long id, String worker, String outputName) {
+        return jdbcTemplate.update("UPDATE job SET output_name = ? WHERE id = ? AND locked_by = ?",
+                outputName, id, worker) == 1;
+    }
+
+    public boolean complete(Long id, String worker, String result) {
+        return jdbcTemplate.update("UPDATE job SET status = 'DONE', progress = 100, result = ?, error = NULL, "
+                + "locked_by = NULL, finished_at = now() WHERE id = ? AND locked_by = ? AND status = 'RUNNING'",
+                result, id, worker) == 1;
+    }
+
+    // Back in the queue after the delay
+    public boolean retry(Long id, String worker, String error, Duration delay) {
+        return jdbcTemplate.update("UPDATE job SET status = 'QUEUED', error = ?, locked_by = NULL, progress = 0, "
+                + "run_after = now() + ? * interval '1 millisecond' "
+                + "WHERE id = ? AND locked_by = ? AND status = 'RUNNING'",
+                error, delay.toMillis(), id, worker) == 1;
+    }
+
+    public boolean fail(Long id, String worker, String error) {
+        return jdbcTemplate.update("UPDATE job SET status = 'FAILED', error = ?, locked_by = NULL, "
+                + "finished_at = now() WHERE id = ? AND locked_by = ? AND status = 'RUNNING'",
+                error, id, worker) == 1;
+    }
+
+    /**
+     * Jobs whose worker stopped sending heartbeats (crashed or partitioned
+     * instance) go back to the queue, or fail once out of attempts. Times
+     * are compared on the database clock, which all instances share.
+     */
+    public int reclaimStale(Duration staleAfter) {
+        return jdbcTemplate.update("UPDATE job SET locked_by = NULL, error = 'Worker stopped responding', "
+                + "status = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END, "
+                + "finished_at = CASE WHEN attempts >= max_attempts THEN now() END, run_after = now() "
+                + "WHERE status = 'RUNNING' AND heartbeat_at < now() - ? * interval '1 millisecond'",
+                staleAfter.toMillis());
+    }
+
+    public int deleteFinishedBefore(Duration age) {
+        String finished = "SELECT id FROM job WHERE status IN ('DONE', 'FAILED') "
+                + "AND finished_at < now() - ? * interval '1 millisecond'";
+        jdbcTemplate.update("DELETE FROM job_chunk WHERE job_id IN (" + finished + ")", age.toMillis());
+        return jdbcTemplate.update("DELETE FROM job WHERE id IN (" + finished + ")", age.toMillis());
+    }
+
+    public void insertChunk(Long jobId, String kind, int part, byte[] data, int length) {
+        jdbcTemplate.update("INSERT INTO job_chunk (job_id, kind, part, data) VALUES (?, ?, ?, ?)",
+                statement -> {
+                    statement.setLong(1, jobId);
+                    statement.setString(2, kind);
+                    statement.setInt(3, part);
+                    statement.setBytes(4, length == data.length ? data : Arrays.copyOf(data, length));
+                });
+    }
+
+    // Null past the last part
+    public byte[] findChunk(Long jobId, String kind, int part) {
+        List<byte[]> data = jdbcTemplate.query(
+                "SELECT data FROM job_chunk WHERE job_id = ? AND kind = ? AND part = ?",
+                (rs, row) -> rs.getBytes(1), jobId, kind, part);
+        return data.isEmpty() ? null : data.get(0);
+    }
+
+    public void deleteChunks(Long jobId, String kind) {
+        jdbcTemplate.update("DELETE FROM job_chunk WHERE job_id = ? AND kind = ?", jobId, kind);
+    }
+
+    private static Job toJob(ResultSet rs, int row) throws SQLException {
+        Job job = new Job();
+        job.setId(rs.getLong("id"));
+        job.setUserId(rs.getLong("user_id"));
+        job.setType(rs.getString("type"));
+        job.setStatus(JobStatus.valueOf(rs.getString("status")));
+        job.setPayload(rs.getString("payload"));
+        job.setResult(rs.getString("result"));
+        job.setError(rs.getString("error"));
+        job.setProgress(rs.getInt("progress"));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        job.setOutputName(rs.getString("output_name"));
+        job.setLockedBy(rs.getString("locked_by"));
+        job.setHeartbeatAt(instant(rs, "heartbeat_at"));
+        job.setRunAfter(instant(rs, "run_after"));
+        job.setCreatedAt(instant(rs, "created_at"));
+        job.setStartedAt(instant(rs, "started_at"));
+        job.setFinishedAt(instant(rs, "finished_at"));
+        return job;
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
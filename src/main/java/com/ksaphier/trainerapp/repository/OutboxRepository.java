@@ -0,0 +1,99 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain SQL over outbox_event. Events are inserted with the connection of
+ * the surrounding transaction, so they commit or roll back with the change
+ * they describe. The relay reads unpublished events in id order and marks
+ * them published once the sinks have them; a transaction that commits after
+ * one with a higher id is simply picked up by the next batch.
+ */
+@Repository
+public class OutboxRepository {
+
+    // Key of the advisory lock that lets a single instance relay at a time
+    public static final long RELAY_LOCK = 0x6f75_7462_6f78_0001L;
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_event (entity_type, change_type, entity_id, "
+            + "owner_id, created_at) VALUES (?, ?, ?, ?, now())";
+
+    public record Backlog(long pending, Instant oldestCreatedAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(EntityChangeEvent event) {
+        jdbcTemplate.update(INSERT_SQL, event.getEntityType().name(), event.getChangeType().name(), event.getId(),
+                event.getOwnerId());
+    }
+
+    public void insertAll(Collection<EntityChangeEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events.stream()
+                .map(event -> new Object[] { event.getEntityType().name(), event.getChangeType().name(),
+                        event.getId(), event.getOwnerId() })
+                .toList());
+    }
+
+    // Must run in a transaction, the lock is released when it ends
+    public boolean tryRelayLock() {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK));
+    }
+
+    public List<OutboxEvent> findUnpublished(int limit) {
+        return jdbcTemplate.query("SELECT * FROM outbox_event WHERE published_at IS NULL ORDER BY id LIMIT ?",
+                OutboxRepository::toEvent, limit);
+    }
+
+    public int markPublished(Collection<Long> ids) {
+        return jdbcTemplate.update("UPDATE outbox_event SET published_at = now() WHERE id = ANY(?)",
+                statement -> statement.setArray(1,
+                        statement.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    public Backlog backlog() {
+        return jdbcTemplate.queryForObject("SELECT count(*), min(created_at) FROM outbox_event "
+                + "WHERE published_at IS NULL",
+                (rs, row) -> new Backlog(rs.getLong(1), instant(rs.getTimestamp(2))));
+    }
+
+    public int deletePublishedBefore(Duration age) {
+        return jdbcTemplate.update("DELETE FROM outbox_event "
+                + "WHERE published_at < now() - ? * interval '1 millisecond'", age.toMillis());
+    }
+
+    private static OutboxEvent toEvent(ResultSet rs, int row) throws SQLException {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(rs.getLong("id"));
+        event.setEntityType(EntityType.valueOf(rs.getString("entity_type")));
+        event.setChangeType(ChangeType.valueOf(rs.getString("change_type")));
+        event.setEntityId(rs.getObject("entity_id", Long.class));
+        event.setOwnerId(rs.getObject("owner_id", Long.class));
+        event.setCreatedAt(instant(rs.getTimestamp("created_at")));
+        event.setPublishedAt(instant(rs.getTimestamp("published_at")));
+        return event;
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
@@ -0,0 +1,99 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.dto.SimplifiedExerciseDto;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.model.Muscle;
+import com.ksaphier.trainerapp.model.Workout;
+
+import io.r2dbc.spi.Readable;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Non-blocking reads over the tables managed by the JPA entities. Plain SQL
+ * is used so the JPA entities don't need R2DBC mapping annotations.
+ */
+@Repository
+public class ReactiveReadRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveReadRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<Workout> findWorkoutsByUserId(Long userId) {
+        return databaseClient.sql("SELECT id, name, description, type, user_id, created_at FROM workout "
+                + "WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map(ReactiveReadRepository::toWorkout)
+                .all();
+    }
+
+    public Mono<Workout> findWorkoutById(Long workoutId, Long userId) {
+        return databaseClient.sql("SELECT id, name, description, type, user_id, created_at FROM workout "
+                + "WHERE user_id = :userId AND id = :id")
+                .bind("userId", userId)
+                .bind("id", workoutId)
+                .map(ReactiveReadRepository::toWorkout)
+                .one();
+    }
+
+    public Flux<SimplifiedExerciseDto> findExercisesByWorkoutId(Long workoutId, Long userId) {
+        return databaseClient.sql("SELECT we.id, e.name, e.description, we.series, we.reps, we.rest, we.weight "
+                + "FROM workout_exercise we JOIN exercise e ON e.id = we.exercise_id "
+                + "WHERE we.user_id = :userId AND we.workout_id = :workoutId")
+                .bind("userId", userId)
+                .bind("workoutId", workoutId)
+                .map(row -> new SimplifiedExerciseDto(
+                        row.get("id", Long.class),
+                        row.get("name", String.class),
+                        row.get("description", String.class),
+                        row.get("series", Integer.class),
+                        row.get("reps", Integer.class),
+                        row.get("rest", Integer.class),
+                        row.get("weight", Integer.class)))
+                .all();
+    }
+
+    public Flux<Exercise> findAllExercises() {
+        return databaseClient.sql("SELECT id, name, description FROM exercise")
+                .map(row -> {
+                    Exercise exercise = new Exercise();
+                    exercise.setId(row.get("id", Long.class));
+                    exercise.setName(row.get("name", String.class));
+                    exercise.setDescription(row.get("description", String.class));
+                    return exercise;
+                })
+                .all();
+    }
+
+    public Flux<Muscle> findAllMuscles() {
+        return databaseClient.sql("SELECT id, name, description FROM muscle")
+                .map(row -> {
+                    Muscle muscle = new Muscle();
+                    muscle.setId(row.get("id", Long.class));
+                    muscle.setName(row.get("name", String.class));
+                    muscle.setDescription(row.get("description", String.class));
+                    return muscle;
+                })
+                .all();
+    }
+
+    private static Workout toWorkout(Readable row) {
+        Workout workout = new Workout();
+        workout.setId(row.get("id", Long.class));
+        workout.setName(row.get("name", String.class));
+        workout.setDescription(row.get("description", String.class));
+        workout.setType(row.get("type", String.class));
+        workout.setUserId(row.get("user_id", Long.class));
+        workout.setCreatedAt(row.get("created_at", Instant.class));
+        return workout;
+    }
+}
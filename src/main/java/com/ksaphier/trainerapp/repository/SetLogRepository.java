@@ -0,0 +1,12 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.model.SetLog;
+
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SetLogRepository extends JpaRepository<SetLog, Long> {
+    List<SetLog> findByUserIdAndWorkoutExerciseIdOrderByPerformedAt(Long userId, Long workoutExerciseId);
+}
@@ -0,0 +1,32 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.model.TrainerClient;
+
+import java.util.Collection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TrainerClientRepository extends JpaRepository<TrainerClient, Long> {
+    @Query("SELECT count(tc) FROM TrainerClient tc WHERE tc.trainerId = :trainerId "
+            + "AND tc.clientId IN :clientIds AND tc.acceptedAt IS NOT NULL")
+    long countAccepted(Long trainerId, Collection<Long> clientIds);
+
+    // Requesting twice is not an error
+    @Modifying
+    @Query(value = "INSERT INTO trainer_client (trainer_id, client_id, created_at) "
+            + "VALUES (:trainerId, :clientId, now()) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(Long trainerId, Long clientId);
+
+    // Accepting twice is not an error either; 0 when the client never asked
+    @Modifying
+    @Query(value = "UPDATE trainer_client SET accepted_at = COALESCE(accepted_at, now()) "
+            + "WHERE trainer_id = :trainerId AND client_id = :clientId", nativeQuery = true)
+    int accept(Long trainerId, Long clientId);
+
+    @Modifying
+    @Query("DELETE FROM TrainerClient tc WHERE tc.trainerId = :trainerId AND tc.clientId = :clientId")
+    int deleteByTrainerIdAndClientId(Long trainerId, Long clientId);
+}
@@ -0,0 +1,139 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.dto.ClientRequestDto;
+import com.ksaphier.trainerapp.dto.ClientSummaryDto;
+import com.ksaphier.trainerapp.dto.RecentWorkoutDto;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain SQL behind the trainer dashboard. The per-client figures are not
+ * computed when a page is read: refreshSummaries aggregates workouts and
+ * performed sets of every client into client_summary with one INSERT ...
+ * SELECT ... ON CONFLICT statement, and a page is then read with a fixed
+ * number of queries whatever the number of clients. Only accepted links
+ * count; a pending request shows the trainer nothing but the username.
+ */
+@Repository
+public class TrainerDashboardRepository {
+
+    // Key of the advisory lock that lets a single instance run the full refresh
+    public static final long REFRESH_LOCK = 0x7472_6169_6e65_7201L;
+
+    private static final String REFRESH_SQL = "INSERT INTO client_summary (user_id, workout_count, "
+            + "last_workout_at, week_workouts, week_sets, week_volume, last_set_at, last_activity_at, refreshed_at) "
+            + "SELECT c.client_id, w.workout_count, w.last_workout_at, w.week_workouts, s.week_sets, s.week_volume, "
+            + "l.last_set_at, GREATEST(w.last_workout_at, l.last_set_at), now() "
+            + "FROM (SELECT DISTINCT client_id FROM trainer_client WHERE accepted_at IS NOT NULL %s) c "
+            + "CROSS JOIN LATERAL (SELECT count(*) AS workout_count, max(created_at) AS last_workout_at, "
+            + "count(*) FILTER (WHERE created_at >= now() - interval '7 days') AS week_workouts "
+            + "FROM workout WHERE user_id = c.client_id) w "
+            + "CROSS JOIN LATERAL (SELECT count(*) AS week_sets, "
+            + "COALESCE(sum(reps::bigint * weight), 0) AS week_volume "
+            + "FROM set_log WHERE user_id = c.client_id AND performed_at >= now() - interval '7 days') s "
+            + "CROSS JOIN LATERAL (SELECT max(performed_at) AS last_set_at FROM set_log "
+            + "WHERE user_id = c.client_id) l "
+            + "ON CONFLICT (user_id) DO UPDATE SET workout_count = EXCLUDED.workout_count, "
+            + "last_workout_at = EXCLUDED.last_workout_at, week_workouts = EXCLUDED.week_workouts, "
+            + "week_sets = EXCLUDED.week_sets, week_volume = EXCLUDED.week_volume, "
+            + "last_set_at = EXCLUDED.last_set_at, last_activity_at = EXCLUDED.last_activity_at, "
+            + "refreshed_at = EXCLUDED.refreshed_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TrainerDashboardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Must run in a transaction, the lock is released when it ends
+    public boolean tryRefreshLock() {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, REFRESH_LOCK));
+    }
+
+    /** Recomputes the summary of every client of any trainer and drops those of former clients. */
+    public int refreshSummaries() {
+        int refreshed = jdbcTemplate.update(String.format(REFRESH_SQL, ""));
+        jdbcTemplate.update("DELETE FROM client_summary WHERE user_id NOT IN "
+                + "(SELECT client_id FROM trainer_client WHERE accepted_at IS NOT NULL)");
+        return refreshed;
+    }
+
+    public int refreshSummary(Long clientId) {
+        return jdbcTemplate.update(String.format(REFRESH_SQL, "AND client_id = ?"), clientId);
+    }
+
+    public long countClients(Long trainerId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM trainer_client WHERE trainer_id = ? "
+                + "AND accepted_at IS NOT NULL", Long.class, trainerId);
+        return count == null ? 0 : count;
+    }
+
+    // Most recently active first; clients not refreshed yet come last
+    public List<ClientSummaryDto> findClientSummaries(Long trainerId, int offset, int limit) {
+        return jdbcTemplate.query("SELECT tc.client_id, u.username, s.workout_count, s.week_workouts, s.week_sets, "
+                + "s.week_volume, s.last_activity_at, s.refreshed_at "
+                + "FROM trainer_client tc JOIN users u ON u.id = tc.client_id "
+                + "LEFT JOIN client_summary s ON s.user_id = tc.client_id "
+                + "WHERE tc.trainer_id = ? AND tc.accepted_at IS NOT NULL "
+                + "ORDER BY s.last_activity_at DESC NULLS LAST, tc.client_id LIMIT ? OFFSET ?",
+                TrainerDashboardRepository::toClientSummary, trainerId, limit, offset);
+    }
+
+    // Oldest first
+    public List<ClientRequestDto> findClientRequests(Long trainerId, int limit) {
+        return jdbcTemplate.query("SELECT tc.client_id, u.username, tc.created_at "
+                + "FROM trainer_client tc JOIN users u ON u.id = tc.client_id "
+                + "WHERE tc.trainer_id = ? AND tc.accepted_at IS NULL ORDER BY tc.created_at, tc.client_id LIMIT ?",
+                (rs, row) -> new ClientRequestDto(rs.getLong("client_id"), rs.getString("username"),
+                        instant(rs.getTimestamp("created_at"))), trainerId, limit);
+    }
+
+    /** The latest workouts of each of the clients, ranked per client with a window function in one query. */
+    public Map<Long, List<RecentWorkoutDto>> findRecentWorkouts(Collection<Long> clientIds, int perClient) {
+        Map<Long, List<RecentWorkoutDto>> recent = new HashMap<>();
+        jdbcTemplate.query("SELECT id, user_id, name, type, created_at FROM ("
+                + "SELECT id, user_id, name, type, created_at, row_number() OVER "
+                + "(PARTITION BY user_id ORDER BY created_at DESC NULLS LAST, id DESC) AS position "
+                + "FROM workout WHERE user_id = ANY(?)) ranked "
+                + "WHERE position <= ? ORDER BY user_id, position",
+                statement -> {
+                    statement.setArray(1, statement.getConnection().createArrayOf("bigint", clientIds.toArray()));
+                    statement.setInt(2, perClient);
+                },
+                rs -> {
+                    recent.computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>())
+                            .add(new RecentWorkoutDto(rs.getLong("id"), rs.getString("name"), rs.getString("type"),
+                                    instant(rs.getTimestamp("created_at"))));
+                });
+        return recent;
+    }
+
+    private static ClientSummaryDto toClientSummary(ResultSet rs, int row) throws SQLException {
+        ClientSummaryDto summary = new ClientSummaryDto();
+        summary.setClientId(rs.getLong("client_id"));
+        summary.setUsername(rs.getString("username"));
+        summary.setWorkoutCount(rs.getLong("workout_count"));
+        summary.setWeekWorkouts(rs.getLong("week_workouts"));
+        summary.setWeekSets(rs.getLong("week_sets"));
+        summary.setWeekVolume(rs.getLong("week_volume"));
+        summary.setLastActivityAt(instant(rs.getTimestamp("last_activity_at")));
+        summary.setRefreshedAt(instant(rs.getTimestamp("refreshed_at")));
+        return summary;
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
@@ -2,15 +2,50 @@ package com.ksaphier.trainerapp.repository;
 
 import com.ksaphier.trainerapp.model.WorkoutExercise;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+// Scoped to the owner like WorkoutRepository, except deleteByExerciseId which spans all users by nature
 @Repository
 public interface WorkoutExerciseRepository extends JpaRepository<WorkoutExercise, Long> {
-    List<WorkoutExercise> findByWorkoutId(Long workoutId);
+    // Written out: the derived query would join workout on id alone, which searches every partition
+    @Query("SELECT we FROM WorkoutExercise we WHERE we.userId = :userId AND we.workout.id = :workoutId")
+    List<WorkoutExercise> findByUserIdAndWorkoutId(Long userId, Long workoutId);
+
+    Optional<WorkoutExercise> findByIdAndUserId(Long id, Long userId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // Exercises fetched in the same query, the workouts are left as lazy references
+    @Query("SELECT we FROM WorkoutExercise we JOIN FETCH we.exercise "
+            + "WHERE we.userId = :userId AND we.workout.id IN :workoutIds ORDER BY we.id")
+    List<WorkoutExercise> findWithExerciseByUserIdAndWorkoutIdIn(Long userId, Collection<Long> workoutIds);
+
+    @Query("SELECT we.exercise.id FROM WorkoutExercise we WHERE we.userId = :userId AND we.workout.id = :workoutId")
+    List<Long> findExerciseIdsByUserIdAndWorkoutId(Long userId, Long workoutId);
+
+    @Query("SELECT DISTINCT we.exercise.id FROM WorkoutExercise we "
+            + "WHERE we.userId = :userId AND we.workout.id IN :workoutIds")
+    List<Long> findExerciseIdsByUserIdAndWorkoutIdIn(Long userId, Collection<Long> workoutIds);
+
+    // { series, reps, weight, the workout's createdAt } of each entry, oldest workout first
+    @Query("SELECT we.series, we.reps, we.weight, w.createdAt FROM WorkoutExercise we JOIN we.workout w "
+            + "WHERE we.userId = :userId AND w.userId = :userId AND we.exercise.id = :exerciseId "
+            + "ORDER BY w.createdAt, we.id")
+    List<Object[]> findSetsByUserIdAndExerciseId(Long userId, Long exerciseId);
 
     void deleteByExerciseId(Long exerciseId);
 
-    void deleteByWorkoutId(Long workoutId);
-}
\ No newline at end of file
+    @Modifying
+    @Query("DELETE FROM WorkoutExercise we WHERE we.userId = :userId AND we.workout.id = :workoutId")
+    int deleteByUserIdAndWorkoutId(Long userId, Long workoutId);
+
+    @Modifying
+    @Query("DELETE FROM WorkoutExercise we WHERE we.userId = :userId AND we.workout.id IN :workoutIds")
+    int deleteByUserIdAndWorkoutIdIn(Long userId, Collection<Long> workoutIds);
+}
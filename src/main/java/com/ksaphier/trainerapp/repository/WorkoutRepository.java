@@ -2,14 +2,41 @@ package com.ksaphier.trainerapp.repository;
 
 import com.ksaphier.trainerapp.model.Workout;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+// Every query names the owner, so Postgres scans only that user's hash partition
 @Repository
 public interface WorkoutRepository extends JpaRepository<Workout, Long> {
-    List<Workout> findByName(String name);
-
     // Custom query methods can be added here
     List<Workout> findAllByUserId(Long userId); // Changed to Long
-}
\ No newline at end of file
+
+    Optional<Workout> findByIdAndUserId(Long id, Long userId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    List<Workout> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    // Workouts of several owners, e.g. similar workouts: scans those owners' partitions only
+    List<Workout> findByUserIdInAndIdIn(Collection<Long> userIds, Collection<Long> ids);
+
+    long countByUserId(Long userId);
+
+    long countByUserIdAndType(Long userId, String type);
+
+    @Query("SELECT w.id FROM Workout w WHERE w.userId = :userId ORDER BY w.id")
+    List<Long> findIdsByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT w.id FROM Workout w WHERE w.userId = :userId AND w.type = :type ORDER BY w.id")
+    List<Long> findIdsByUserIdAndType(Long userId, String type, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Workout w WHERE w.userId = :userId AND w.id IN :ids")
+    int deleteByUserIdAndIdIn(Long userId, Collection<Long> ids);
+}
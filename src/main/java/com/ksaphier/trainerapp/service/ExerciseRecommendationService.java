@@ -0,0 +1,116 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.ExerciseRecommendationDto;
+import com.ksaphier.trainerapp.dto.RecommendedExerciseDto;
+import com.ksaphier.trainerapp.index.ExerciseMuscleIndex;
+import com.ksaphier.trainerapp.index.ExerciseNameIndex;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.repository.ExerciseRepository;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ExerciseRecommendationService {
+
+    private final ExerciseRepository exerciseRepository;
+    private final WorkoutExerciseRepository workoutExerciseRepository;
+
+    // Rebuilt from the catalog on first use after any exercise or muscle change
+    private volatile Catalog catalog;
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    private record Catalog(ExerciseMuscleIndex index, ExerciseNameIndex names, Map<Long, Exercise> exercises) {
+    }
+
+    @Autowired
+    public ExerciseRecommendationService(ExerciseRepository exerciseRepository,
+            WorkoutExerciseRepository workoutExerciseRepository, InvalidationBus invalidationBus) {
+        this.exerciseRepository = exerciseRepository;
+        this.workoutExerciseRepository = workoutExerciseRepository;
+        invalidationBus.subscribe(event -> {
+            if (event.affects(EntityType.EXERCISE) || event.affects(EntityType.MUSCLE)) {
+                catalogVersion.incrementAndGet();
+                catalog = null;
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public ExerciseRecommendationDto recommend(Collection<Long> muscleIds, Long excludeWorkoutId, Long userId,
+            int limit, ExerciseMuscleIndex.Mode mode) {
+        Catalog current = catalog();
+        List<Long> excluded = excludeWorkoutId == null
+                ? Collections.emptyList()
+                : workoutExerciseRepository.findExerciseIdsByUserIdAndWorkoutId(userId, excludeWorkoutId);
+
+        ExerciseMuscleIndex.Result result = current.index().recommend(muscleIds, excluded, limit, mode);
+
+        List<RecommendedExerciseDto> exercises = result.picks().stream()
+                .map(pick -> {
+                    Exercise exercise = current.exercises().get(pick.exerciseId());
+                    return new RecommendedExerciseDto(
+                            pick.exerciseId(),
+                            exercise.getName(),
+                            exercise.getDescription(),
+                            pick.muscleIds(),
+                            pick.newlyCoveredMuscleIds());
+                })
+                .collect(Collectors.toList());
+        return new ExerciseRecommendationDto(exercises, result.uncoveredMuscleIds());
+    }
+
+    // Current catalog snapshot, shared with the program generator
+    public ExerciseMuscleIndex muscleIndex() {
+        return catalog().index();
+    }
+
+    // Name lookup of the same snapshot, used by the workout importer
+    public ExerciseNameIndex nameIndex() {
+        return catalog().names();
+    }
+
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            synchronized (this) {
+                current = catalog;
+                if (current == null) {
+                    long version = catalogVersion.get();
+                    current = loadCatalog();
+                    // Don't keep a snapshot that a concurrent change already made stale
+                    if (catalogVersion.get() == version) {
+                        catalog = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Catalog loadCatalog() {
+        Map<Long, Exercise> exercises = exerciseRepository.findAll().stream()
+                .collect(Collectors.toMap(Exercise::getId, Function.identity()));
+
+        ExerciseMuscleIndex.Builder builder = ExerciseMuscleIndex.builder();
+        exercises.keySet().forEach(builder::addExercise);
+        for (Object[] row : exerciseRepository.findAllExerciseMuscleIds()) {
+            builder.addMuscle((Long) row[0], (Long) row[1]);
+        }
+        ExerciseNameIndex.Builder names = ExerciseNameIndex.builder();
+        exercises.values().forEach(exercise -> names.add(exercise.getId(), exercise.getName()));
+        return new Catalog(builder.build(), names.build(), exercises);
+    }
+}
@@ -1,5 +1,8 @@
 package com.ksaphier.trainerapp.service;
 
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
 import com.ksaphier.trainerapp.model.Exercise;
 import com.ksaphier.trainerapp.repository.ExerciseRepository;
 import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
@@ -20,27 +23,49 @@ public class ExerciseService {
     @Autowired
     private WorkoutExerciseRepository workoutExerciseRepository;
 
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ProgressService progressService;
+
     @Autowired
     public ExerciseService(ExerciseRepository exerciseRepository) {
         this.exerciseRepository = exerciseRepository;
     }
 
+    @Transactional(readOnly = true)
     public List<Exercise> findAllExercises() {
         return exerciseRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Exercise> findExerciseById(@NonNull Long id) {
         return exerciseRepository.findById(id);
     }
 
+    @Transactional
     public Exercise saveExercise(@NonNull Exercise exercise) {
-        return exerciseRepository.save(exercise);
+        Exercise saved = exerciseRepository.save(exercise);
+        recordChange(EntityChangeEvent.saved(EntityType.EXERCISE, saved.getId()));
+        return saved;
     }
 
     @Transactional
     public void deleteExercise(@NonNull Long id) {
         workoutExerciseRepository.deleteByExerciseId(id);
+        progressService.deleteExercise(id);
 
         exerciseRepository.deleteById(id);
+        recordChange(EntityChangeEvent.deleted(EntityType.EXERCISE, id));
+    }
+
+    // Must be called in the transaction of the change
+    private void recordChange(EntityChangeEvent event) {
+        outboxService.record(event);
+        invalidationBus.publish(event);
     }
 }
@@ -0,0 +1,500 @@
+package com.ksaphier.trainerapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.job.JobContext;
+import com.ksaphier.trainerapp.job.JobHandler;
+import com.ksaphier.trainerapp.model.Job;
+import com.ksaphier.trainerapp.repository.JobRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent background jobs. A job is a row in the job table (plus the
+ * uploaded file in job_chunk), so it survives restarts and can be run by any
+ * instance: every instance polls the table and claims up to its number of
+ * free worker threads with FOR UPDATE SKIP LOCKED. Running jobs send
+ * heartbeats; jobs of an instance that stops sending them are requeued by
+ * the others. Failed jobs are retried with exponential backoff up to the
+ * handler's attempt limit.
+ */
+@Service
+public class JobService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int MAX_LISTED = 50;
+    private static final int MAX_ERROR_LENGTH = 2000;
+    private static final long PROGRESS_WRITE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JobRepository jobRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<String, JobHandler> handlers;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+    private final String worker;
+    private final int threads;
+    private final Duration pollInterval;
+    private final Duration heartbeatInterval;
+    private final Duration staleAfter;
+    private final Duration retryDelay;
+    private final Duration retention;
+    private final Duration shutdownTimeout;
+    private final int maxPendingPerUser;
+
+    private final AtomicInteger active = new AtomicInteger();
+    // Released when a job is submitted or finishes here, so the poller need not wait a full interval
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private ExecutorService executor;
+    private Thread poller;
+
+    @Autowired
+    public JobService(JobRepository jobRepository, ObjectMapper objectMapper, List<JobHandler> handlers,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${trainerapp.jobs.threads:4}") int threads,
+            @Value("${trainerapp.jobs.poll-interval:1s}") Duration pollInterval,
+            @Value("${trainerapp.jobs.heartbeat-interval:10s}") Duration heartbeatInterval,
+            @Value("${trainerapp.jobs.stale-after:60s}") Duration staleAfter,
+            @Value("${trainerapp.jobs.retry-delay:5s}") Duration retryDelay,
+            @Value("${trainerapp.jobs.retention:7d}") Duration retention,
+            @Value("${trainerapp.jobs.shutdown-timeout:30s}") Duration shutdownTimeout,
+            @Value("${trainerapp.jobs.max-pending-per-user:10}") int maxPendingPerUser) {
+        this.jobRepository = jobRepository;
+        this.objectMapper = objectMapper;
+        this.handlers = handlers.stream().collect(Collectors.toMap(JobHandler::type, Function.identity()));
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.worker = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        this.threads = threads;
+        this.pollInterval = pollInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.staleAfter = staleAfter;
+        this.retryDelay = retryDelay;
+        this.retention = retention;
+        this.shutdownTimeout = shutdownTimeout;
+        this.maxPendingPerUser = maxPendingPerUser;
+        meterRegistry.gauge("trainerapp.jobs.running", active);
+    }
+
+    public JobDto submit(Long userId, String type, Object payload) {
+        return submit(userId, type, payload, null);
+    }
+
+    /**
+     * Queues a job, storing the input stream with it. Returns null when the
+     * user already has too many jobs queued or running.
+     */
+    public JobDto submit(Long userId, String type, Object payload, InputStream input) {
+        JobHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown job type " + type);
+        }
+        String json = toJson(payload);
+        Long id = transaction.execute(status -> {
+            if (jobRepository.countPending(userId) >= maxPendingPerUser) {
+                return null;
+            }
+            Long jobId = jobRepository.insert(userId, type, json, handler.maxAttempts());
+            if (input != null) {
+                storeInput(jobId, input);
+            }
+            return jobId;
+        });
+        if (id == null) {
+            return null;
+        }
+        wakeUp.release();
+        return jobRepository.findById(id).map(this::toDto).orElseThrow();
+    }
+
+    // Only the user who submitted a job can see it
+    public JobDto findJob(Long userId, Long id) {
+        return jobRepository.findById(id)
+                .filter(job -> job.getUserId().equals(userId))
+                .map(this::toDto)
+                .orElse(null);
+    }
+
+    public List<JobDto> findJobs(Long userId) {
+        return jobRepository.findByUserId(userId, MAX_LISTED).stream().map(this::toDto).toList();
+    }
+
+    /** Copies the output of a job, part by part, without holding it in memory. */
+    public void copyOutput(Long id, OutputStream out) throws IOException {
+        byte[] data;
+        for (int part = 0; (data = jobRepository.findChunk(id, JobRepository.OUTPUT, part)) != null; part++) {
+            out.write(data);
+        }
+    }
+
+    private void storeInput(Long jobId, InputStream input) {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try {
+            int part = 0;
+            int length;
+            while ((length = input.readNBytes(buffer, 0, buffer.length)) > 0) {
+                jobRepository.insertChunk(jobId, JobRepository.INPUT, part++, buffer, length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "job-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller = new Thread(this::poll, "job-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Waits for running jobs up to the shutdown timeout. Jobs still running
+     * after that are left to the stale-heartbeat reclaim on another instance:
+     * their transactions roll back when this process exits.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        poller.interrupt();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("{} jobs still running at shutdown", active.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void poll() {
+        long lastHeartbeat = System.nanoTime();
+        long lastMaintenance = 0;
+        while (running) {
+            try {
+                long now = System.nanoTime();
+                if (now - lastHeartbeat >= heartbeatInterval.toNanos()) {
+                    jobRepository.heartbeat(worker);
+                    lastHeartbeat = now;
+                }
+                if (lastMaintenance == 0 || now - lastMaintenance >= staleAfter.toNanos() / 2) {
+                    int reclaimed = jobRepository.reclaimStale(staleAfter);
+                    if (reclaimed > 0) {
+                        logger.warn("Reclaimed {} jobs from unresponsive workers", reclaimed);
+                    }
+                    jobRepository.deleteFinishedBefore(retention);
+                    lastMaintenance = now;
+                }
+                int free = threads - active.get();
+                if (free > 0) {
+                    for (Job job : jobRepository.claim(worker, free)) {
+                        active.incrementAndGet();
+                        executor.execute(() -> run(job));
+                    }
+                }
+                wakeUp.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Database unavailable, try again with the next poll
+                logger.warn("Job poll failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void run(Job job) {
+        long start = System.nanoTime();
+        String outcome = "done";
+        JobHandler handler = handlers.get(job.getType());
+        try {
+            if (handler == null) {
+                throw new IllegalArgumentException("Unknown job type " + job.getType());
+            }
+            Context context = new Context(job);
+            Object result;
+            try {
+                result = handler.run(context);
+            } finally {
+                context.closeOutput();
+            }
+            if (!jobRepository.complete(job.getId(), worker, toJson(result))) {
+                logger.warn("Job {} finished after it was reclaimed", job.getId());
+            }
+            jobRepository.deleteChunks(job.getId(), JobRepository.INPUT);
+        } catch (Exception e) {
+            outcome = fail(job, e);
+        } finally {
+            active.decrementAndGet();
+            wakeUp.release();
+            Timer.builder("trainerapp.jobs.duration")
+                    .tag("type", job.getType())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String fail(Job job, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        // Bad input fails the same way every time
+        boolean retryable = !(e instanceof IllegalArgumentException || e instanceof EntityNotFoundException
+                || e instanceof AccessDeniedException || e instanceof CancellationException);
+        if (retryable && job.getAttempts() < job.getMaxAttempts()) {
+            Duration delay = retryDelay.multipliedBy(1L << Math.min(job.getAttempts() - 1, 10));
+            logger.warn("Job {} ({}) attempt {} failed, retrying in {}", job.getId(), job.getType(),
+                    job.getAttempts(), delay, e);
+            jobRepository.retry(job.getId(), worker, error, delay);
+            Counter.builder("trainerapp.jobs.retried").tag("type", job.getType()).register(meterRegistry)
+                    .increment();
+            return "retried";
+        }
+        logger.warn("Job {} ({}) failed", job.getId(), job.getType(), e);
+        if (jobRepository.fail(job.getId(), worker, error)) {
+            jobRepository.deleteChunks(job.getId(), JobRepository.INPUT);
+        }
+        return "failed";
+    }
+
+    private String toJson(Object value) {
+        try {
+            return value == null ? null : objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Job data is not serializable", e);
+        }
+    }
+
+    private JobDto toDto(Job job) {
+        JsonNode result = null;
+        if (job.getResult() != null) {
+            try {
+                result = objectMapper.readTree(job.getResult());
+            } catch (JsonProcessingException e) {
+                result = objectMapper.getNodeFactory().textNode(job.getResult());
+            }
+        }
+        return new JobDto(job.getId(), job.getType(), job.getStatus(), job.getProgress(), job.getAttempts(),
+                job.getMaxAttempts(), result, job.getError(), job.getOutputName(), job.getCreatedAt(),
+                job.getStartedAt(), job.getFinishedAt());
+    }
+
+    private class Context implements JobContext {
+        private final Job job;
+        private int lastProgress;
+        private long lastProgressWrite = System.nanoTime();
+        private ChunkOutputStream output;
+
+        private Context(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public Long jobId() {
+            return job.getId();
+        }
+
+        @Override
+        public Long userId() {
+            return job.getUserId();
+        }
+
+        @Override
+        public int attempt() {
+            return job.getAttempts();
+        }
+
+        @Override
+        public <T> T payload(Class<T> type) {
+            try {
+                return objectMapper.readValue(job.getPayload(), type);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid job payload", e);
+            }
+        }
+
+        // Synchronized: handlers may report from several threads
+        @Override
+        public synchronized void progress(long done, long total) {
+            int percent = total <= 0 ? 0 : (int) Math.min(99, done * 100 / total);
+            long now = System.nanoTime();
+            if (percent != lastProgress && now - lastProgressWrite >= PROGRESS_WRITE_INTERVAL_NANOS) {
+                if (!jobRepository.progress(job.getId(), worker, percent)) {
+                    throw new CancellationException("Job " + job.getId() + " was reclaimed by another worker");
+                }
+                lastProgress = percent;
+                lastProgressWrite = now;
+            }
+        }
+
+        @Override
+        public InputStream input() {
+            return new ChunkInputStream(job.getId());
+        }
+
+        @Override
+        public OutputStream output(String fileName) {
+            closeOutput();
+            jobRepository.deleteChunks(job.getId(), JobRepository.OUTPUT);
+            jobRepository.setOutputName(job.getId(), worker, fileName);
+            output = new ChunkOutputStream(job.getId());
+            return output;
+        }
+
+        private void closeOutput() {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+        }
+    }
+
+    // Reads the uploaded input one stored part at a time
+    private class ChunkInputStream extends InputStream {
+        private final Long jobId;
+        private byte[] data = new byte[0];
+        private int position;
+        private int part;
+        private boolean done;
+
+        private ChunkInputStream(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public int read() {
+            return fill() ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, data.length - position);
+            System.arraycopy(data, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() {
+            while (!done && position == data.length) {
+                byte[] next = jobRepository.findChunk(jobId, JobRepository.INPUT, part++);
+                if (next == null) {
+                    done = true;
+                } else {
+                    data = next;
+                    position = 0;
+                }
+            }
+            return position < data.length;
+        }
+    }
+
+    // Buffers writes and stores them as parts of CHUNK_SIZE bytes
+    private class ChunkOutputStream extends OutputStream {
+        private final Long jobId;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int length;
+        private int part;
+        private boolean closed;
+
+        private ChunkOutputStream(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void write(int b) {
+            if (length == buffer.length) {
+                flushPart();
+            }
+            buffer[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (length == buffer.length) {
+                    flushPart();
+                }
+                int count = Math.min(len, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, count);
+                length += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                flushPart();
+                closed = true;
+            }
+        }
+
+        private void flushPart() {
+            if (length > 0) {
+                jobRepository.insertChunk(jobId, JobRepository.OUTPUT, part++, buffer, length);
+                length = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.LeaderboardEntryDto;
+import com.ksaphier.trainerapp.dto.LeaderboardPageDto;
+import com.ksaphier.trainerapp.index.ExerciseLeaderboard;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory leaderboards of the heaviest lift per user and exercise. They are
+ * loaded from the database once the application is ready, in parallel over
+ * partitions of the exercise ids. Afterwards every workout change on any node
+ * (invalidation bus) refreshes that user's bests with one grouped query, so
+ * additions and removals are both reflected.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private static final String BESTS_SQL = "SELECT we.exercise_id, w.user_id, u.username, MAX(we.weight) "
+            + "FROM workout_exercise we JOIN workout w ON w.user_id = we.user_id AND w.id = we.workout_id "
+            + "JOIN users u ON u.id = w.user_id "
+            + "WHERE we.weight > 0 AND ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int loadThreads;
+
+    private final Map<Long, ExerciseLeaderboard> boards = new ConcurrentHashMap<>();
+    private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+    // Users changed while the initial load ran, refreshed once it is done
+    private final Set<Long> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    // Full rebuilds take seconds, so they run here and not on the invalidation bus thread
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "leaderboard-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @Autowired
+    public LeaderboardService(JdbcTemplate jdbcTemplate, InvalidationBus invalidationBus,
+            @Value("${trainerapp.leaderboard.load-threads:4}") int loadThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loadThreads = loadThreads;
+
+        invalidationBus.subscribe(this::onChange);
+    }
+
+    private void onChange(EntityChangeEvent event) {
+        if (event.getEntityType() == EntityType.ALL) {
+            rebuildInBackground();
+        } else if (event.getEntityType() == EntityType.EXERCISE && event.getChangeType() == ChangeType.DELETED) {
+            boards.remove(event.getId());
+        } else if (event.getEntityType() == EntityType.WORKOUT && event.getOwnerId() != null) {
+            if (!loaded) {
+                changedDuringLoad.add(event.getOwnerId());
+            }
+            refreshUser(event.getOwnerId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        rebuildInBackground();
+    }
+
+    private void rebuildInBackground() {
+        // A rebuild that has not started yet covers the changes of later requests too
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilds.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Loading leaderboards failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilds.shutdownNow();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        loaded = false;
+        Map<Long, ExerciseLeaderboard> rebuilt = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+        try {
+            CompletableFuture<?>[] partitions = new CompletableFuture<?>[loadThreads];
+            for (int partition = 0; partition < loadThreads; partition++) {
+                int current = partition;
+                partitions[partition] = CompletableFuture.runAsync(() -> jdbcTemplate.query(
+                        BESTS_SQL + "we.exercise_id % ? = ? GROUP BY we.exercise_id, w.user_id, u.username",
+                        row -> {
+                            long userId = row.getLong(2);
+                            usernames.put(userId, row.getString(3));
+                            rebuilt.computeIfAbsent(row.getLong(1), id -> new ExerciseLeaderboard())
+                                    .offer(userId, row.getInt(4));
+                        }, loadThreads, current), executor);
+            }
+            CompletableFuture.allOf(partitions).join();
+        } finally {
+            executor.shutdown();
+        }
+        boards.keySet().retainAll(rebuilt.keySet());
+        boards.putAll(rebuilt);
+        loaded = true;
+
+        for (Long userId : Set.copyOf(changedDuringLoad)) {
+            changedDuringLoad.remove(userId);
+            refreshUser(userId);
+        }
+        logger.info("Loaded {} leaderboards in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void refreshUser(long userId) {
+        Map<Long, Integer> bests = new HashMap<>();
+        jdbcTemplate.query(BESTS_SQL + "w.user_id = ? GROUP BY we.exercise_id, w.user_id, u.username", row -> {
+            usernames.put(userId, row.getString(3));
+            bests.put(row.getLong(1), row.getInt(4));
+        }, userId);
+
+        bests.forEach((exerciseId, weight) -> boards.computeIfAbsent(exerciseId, id -> new ExerciseLeaderboard())
+                .set(userId, weight));
+        boards.forEach((exerciseId, board) -> {
+            if (!bests.containsKey(exerciseId) && board.contains(userId)) {
+                board.set(userId, null);
+            }
+        });
+    }
+
+    public LeaderboardPageDto getPage(Long exerciseId, int offset, int limit) {
+        ExerciseLeaderboard board = boards.get(exerciseId);
+        if (board == null) {
+            return new LeaderboardPageDto(exerciseId, 0, offset, List.of());
+        }
+        List<LeaderboardEntryDto> entries = board.page(offset, limit).stream().map(this::toDto).toList();
+        return new LeaderboardPageDto(exerciseId, board.size(), offset, entries);
+    }
+
+    public Optional<LeaderboardEntryDto> getRank(Long exerciseId, Long userId) {
+        return Optional.ofNullable(boards.get(exerciseId))
+                .flatMap(board -> board.rankOf(userId))
+                .map(this::toDto);
+    }
+
+    private LeaderboardEntryDto toDto(ExerciseLeaderboard.Ranked ranked) {
+        return new LeaderboardEntryDto(ranked.rank(), ranked.userId(), usernames.get(ranked.userId()),
+                ranked.weight());
+    }
+}
@@ -0,0 +1,371 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.LiveSessionDto;
+import com.ksaphier.trainerapp.dto.SetCompletionDto;
+import com.ksaphier.trainerapp.dto.SetCompletionRequest;
+import com.ksaphier.trainerapp.model.WorkoutExercise;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+import com.ksaphier.trainerapp.repository.WorkoutRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live workout sessions pushed to every device of the user over server-sent
+ * events. Streams are async requests, so an open stream holds no thread: a
+ * fan-out pool writes the events, one drain task per stream at a time. A
+ * write to a stalled client blocks its sender, so the pool grows on demand
+ * up to a cap, and a stream is dropped once its queue is full or a write has
+ * been blocked for longer than the send timeout instead of stalling the
+ * others. Sessions live in memory on the instance that started them.
+ */
+@Service
+public class LiveSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveSessionService.class);
+
+    private static final int STREAM_QUEUE_CAPACITY = 32;
+
+    private final WorkoutRepository workoutRepository;
+    private final WorkoutExerciseRepository workoutExerciseRepository;
+
+    private final Map<String, LiveSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final Counter droppedStreams;
+
+    private final ExecutorService fanOut;
+    private final ScheduledExecutorService heartbeat;
+    private final Duration streamTimeout;
+    private final long sendTimeoutNanos;
+    private final Duration maxSessionAge;
+
+    @Autowired
+    public LiveSessionService(WorkoutRepository workoutRepository,
+            WorkoutExerciseRepository workoutExerciseRepository, InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            @Value("${trainerapp.live.fan-out-threads:2}") int fanOutThreads,
+            @Value("${trainerapp.live.max-fan-out-threads:64}") int maxFanOutThreads,
+            @Value("${trainerapp.live.send-timeout:10s}") Duration sendTimeout,
+            @Value("${trainerapp.live.heartbeat-interval:20s}") Duration heartbeatInterval,
+            @Value("${trainerapp.live.stream-timeout:30m}") Duration streamTimeout,
+            @Value("${trainerapp.live.max-session-age:6h}") Duration maxSessionAge) {
+        this.workoutRepository = workoutRepository;
+        this.workoutExerciseRepository = workoutExerciseRepository;
+        this.streamTimeout = streamTimeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.maxSessionAge = maxSessionAge;
+        // No queue: a drain either gets a thread or its stream is dropped, stalled sends cannot hold up the rest
+        this.fanOut = new ThreadPoolExecutor(fanOutThreads, Math.max(fanOutThreads, maxFanOutThreads),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), daemon("live-fan-out"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("live-heartbeat"));
+
+        long intervalMillis = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::heartbeat, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("trainerapp.live.streams", openStreams, AtomicInteger::get)
+                .description("Open live session streams")
+                .register(meterRegistry);
+        Gauge.builder("trainerapp.live.sessions", sessions, Map::size)
+                .description("Active live sessions")
+                .register(meterRegistry);
+        this.droppedStreams = Counter.builder("trainerapp.live.streams.dropped")
+                .description("Live session streams dropped because the client could not keep up")
+                .register(meterRegistry);
+
+        invalidationBus.subscribe(event -> {
+            if (event.getEntityType() == EntityType.WORKOUT && event.getChangeType() == ChangeType.DELETED) {
+                sessions.values().stream()
+                        .filter(session -> session.workoutId.equals(event.getId()))
+                        .forEach(session -> end(session, "workout-deleted"));
+            }
+        });
+    }
+
+    public LiveSessionDto startSession(Long workoutId, Long userId) {
+        // Another user's workout is not found either: the lookup only searches the caller's partition
+        if (!workoutRepository.existsByIdAndUserId(workoutId, userId)) {
+            throw new EntityNotFoundException("Workout not found");
+        }
+
+        LiveSession session = new LiveSession(UUID.randomUUID().toString(), userId, workoutId);
+        workoutExerciseRepository.findByUserIdAndWorkoutId(userId, workoutId)
+                .forEach(workoutExercise -> session.workoutExerciseIds.add(workoutExercise.getId()));
+        sessions.put(session.id, session);
+        return session.toDto();
+    }
+
+    public List<LiveSessionDto> findActiveSessions(Long userId) {
+        return sessions.values().stream()
+                .filter(session -> session.userId.equals(userId))
+                .map(LiveSession::toDto)
+                .toList();
+    }
+
+    public SseEmitter openStream(String sessionId, Long userId) {
+        LiveSession session = ownedSession(sessionId, userId);
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Stream stream = new Stream(session, emitter);
+        session.streams.add(stream);
+        openStreams.incrementAndGet();
+
+        emitter.onCompletion(stream::detach);
+        emitter.onTimeout(stream::detach);
+        emitter.onError(error -> stream.detach());
+
+        // Devices joining mid-session get the sets completed so far
+        stream.enqueue(SseEmitter.event().name("session").data(session.toDto()).build());
+        return emitter;
+    }
+
+    public SetCompletionDto completeSet(String sessionId, Long userId, SetCompletionRequest request) {
+        LiveSession session = ownedSession(sessionId, userId);
+        Long workoutExerciseId = request.getWorkoutExerciseId();
+        if (!session.workoutExerciseIds.contains(workoutExerciseId)) {
+            // Exercises can be added to the workout while the session runs
+            WorkoutExercise workoutExercise = workoutExerciseRepository.findByIdAndUserId(workoutExerciseId, userId)
+                    .filter(we -> we.getWorkout().getId().equals(session.workoutId))
+                    .orElseThrow(() -> new EntityNotFoundException("Exercise not found in workout"));
+            session.workoutExerciseIds.add(workoutExercise.getId());
+        }
+
+        SetCompletionDto completion = new SetCompletionDto(session.id, workoutExerciseId, request.getSeries(),
+                request.getReps(), request.getWeight(), Instant.now());
+        synchronized (session.completedSets) {
+            session.completedSets.add(completion);
+        }
+        session.broadcast(SseEmitter.event().name("set").data(completion));
+        return completion;
+    }
+
+    public void endSession(String sessionId, Long userId) {
+        end(ownedSession(sessionId, userId), "ended");
+    }
+
+    private LiveSession ownedSession(String sessionId, Long userId) {
+        LiveSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new EntityNotFoundException("Session not found");
+        }
+        if (!session.userId.equals(userId)) {
+            throw new AccessDeniedException("Session belongs to another user");
+        }
+        return session;
+    }
+
+    private void end(LiveSession session, String reason) {
+        if (sessions.remove(session.id) == null) {
+            return;
+        }
+        session.broadcast(SseEmitter.event().name("ended").data(reason));
+        session.streams.forEach(Stream::finish);
+    }
+
+    // Keeps idle connections open through proxies and finds streams whose client has gone or stalled
+    private void heartbeat() {
+        try {
+            Instant expiry = Instant.now().minus(maxSessionAge);
+            for (LiveSession session : sessions.values()) {
+                if (session.startedAt.isBefore(expiry)) {
+                    end(session, "expired");
+                } else {
+                    session.broadcast(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Live session heartbeat failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        sessions.values().forEach(session -> session.streams.forEach(Stream::drop));
+        fanOut.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class LiveSession {
+        final String id;
+        final Long userId;
+        final Long workoutId;
+        final Instant startedAt = Instant.now();
+        final Set<Long> workoutExerciseIds = ConcurrentHashMap.newKeySet();
+        final List<SetCompletionDto> completedSets = new ArrayList<>();
+        final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+
+        LiveSession(String id, Long userId, Long workoutId) {
+            this.id = id;
+            this.userId = userId;
+            this.workoutId = workoutId;
+        }
+
+        void broadcast(SseEventBuilder event) {
+            // Builders are mutable, so every stream gets the same built frame
+            Set<DataWithMediaType> frame = Collections.unmodifiableSet(event.build());
+            streams.forEach(stream -> stream.enqueue(frame));
+        }
+
+        LiveSessionDto toDto() {
+            synchronized (completedSets) {
+                return new LiveSessionDto(id, workoutId, startedAt, List.copyOf(completedSets));
+            }
+        }
+    }
+
+    private class Stream {
+        final LiveSession session;
+        final SseEmitter emitter;
+        final BlockingQueue<Set<DataWithMediaType>> pending = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean finishing;
+        volatile boolean dropped;
+        // System.nanoTime() when the write in progress started, 0 while no write is in progress
+        volatile long sendStartedAt;
+
+        Stream(LiveSession session, SseEmitter emitter) {
+            this.session = session;
+            this.emitter = emitter;
+        }
+
+        void enqueue(Set<DataWithMediaType> frame) {
+            if (dropped) {
+                return;
+            }
+            long started = sendStartedAt;
+            if (started != 0 && System.nanoTime() - started > sendTimeoutNanos || !pending.offer(frame)) {
+                // The client cannot keep up; it reconnects and gets a fresh snapshot
+                drop();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // Completes the stream once the events queued so far have been written
+        void finish() {
+            finishing = true;
+            scheduleDrain();
+        }
+
+        /*
+         * Stops sending to the stream. The emitter's methods are synchronized,
+         * so completing it while a write is blocked would block this thread as
+         * well: only the drain task touches the emitter, and a blocked drain
+         * completes it once its write returns or fails.
+         */
+        void drop() {
+            if (!dropped) {
+                dropped = true;
+                droppedStreams.increment();
+                detach();
+                scheduleDrain();
+            }
+        }
+
+        void detach() {
+            if (session.streams.remove(this)) {
+                openStreams.decrementAndGet();
+            }
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    fanOut.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Every sender is busy, most likely with stalled clients; no write is in progress here
+                    dropped = true;
+                    detach();
+                    pending.clear();
+                    close();
+                    draining.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                Set<DataWithMediaType> frame;
+                while (!dropped && (frame = pending.poll()) != null) {
+                    sendStartedAt = System.nanoTime();
+                    try {
+                        emitter.send(frame);
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                if (dropped || finishing) {
+                    pending.clear();
+                    close();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Client went away or the emitter already completed
+                log.debug("Dropping live session stream", e);
+                dropped = true;
+                detach();
+                pending.clear();
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!dropped && !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        void close() {
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.debug("Closing live session stream failed", e);
+            }
+        }
+    }
+}
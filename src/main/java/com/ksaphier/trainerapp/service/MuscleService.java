@@ -1,41 +1,99 @@
 package com.ksaphier.trainerapp.service;
 
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.cache.SingleFlight;
 import com.ksaphier.trainerapp.model.Muscle;
 import com.ksaphier.trainerapp.repository.MuscleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class MuscleService {
 
     private final MuscleRepository muscleRepository;
+    private final InvalidationBus invalidationBus;
+    private final OutboxService outboxService;
+    private final SingleFlight<Long, List<Muscle>> musclesByExerciseFlight;
+    private final TransactionTemplate readOnlyTransaction;
 
     @Autowired
-    public MuscleService(MuscleRepository muscleRepository) {
+    public MuscleService(MuscleRepository muscleRepository, InvalidationBus invalidationBus,
+            OutboxService outboxService, MeterRegistry meterRegistry, PlatformTransactionManager transactionManager,
+            @Value("${trainerapp.singleflight.micro-cache-ttl:200ms}") Duration microCacheTtl) {
         this.muscleRepository = muscleRepository;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+        this.musclesByExerciseFlight = new SingleFlight<>("muscles-by-exercise", microCacheTtl, meterRegistry);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        invalidationBus.subscribe(event -> {
+            if (event.getEntityType() == EntityType.EXERCISE) {
+                musclesByExerciseFlight.invalidate(event.getId());
+            } else if (event.affects(EntityType.MUSCLE)) {
+                musclesByExerciseFlight.invalidateAll();
+            }
+        });
     }
 
+    @Transactional(readOnly = true)
     public List<Muscle> findAllMuscles() {
         return muscleRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Muscle> findMuscleById(@NonNull Long id) {
         return muscleRepository.findById(id);
     }
 
+    @Transactional
     public Muscle saveMuscle(@NonNull Muscle muscle) {
-        return muscleRepository.save(muscle);
+        Muscle saved = muscleRepository.save(muscle);
+        recordChange(EntityChangeEvent.saved(EntityType.MUSCLE, saved.getId()));
+        return saved;
     }
 
+    @Transactional
     public void deleteMuscle(@NonNull Long id) {
         muscleRepository.deleteById(id);
+        recordChange(EntityChangeEvent.deleted(EntityType.MUSCLE, id));
+    }
+
+    // Must be called in the transaction of the change
+    private void recordChange(EntityChangeEvent event) {
+        outboxService.record(event);
+        invalidationBus.publish(event);
     }
 
     // New method to find muscles by exercise ID
     public List<Muscle> findMusclesByExerciseId(@NonNull Long exerciseId) {
-        return muscleRepository.findByExercisesId(exerciseId);
+        return musclesByExerciseFlight.get(exerciseId,
+                () -> readOnlyTransaction.execute(status -> muscleRepository.findByExercisesId(exerciseId).stream()
+                        .map(MuscleService::detachedCopy)
+                        .collect(Collectors.toList())));
+    }
+
+    // Results are shared between requests, so they must not carry lazy
+    // collections bound to the session of the request that loaded them
+    private static Muscle detachedCopy(Muscle muscle) {
+        Muscle copy = new Muscle();
+        copy.setId(muscle.getId());
+        copy.setName(muscle.getName());
+        copy.setDescription(muscle.getDescription());
+        return copy;
     }
 }
@@ -0,0 +1,213 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+import com.ksaphier.trainerapp.outbox.OutboxSink;
+import com.ksaphier.trainerapp.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for entity changes. Services record an event in the
+ * transaction that makes the change, so the event exists exactly when the
+ * change does and the request pays for one insert instead of calling the
+ * downstream feeds. A relay thread on every instance polls for unpublished
+ * events; the one that takes the advisory lock hands them to the OutboxSink
+ * beans in id order, in batches, and marks them published in the same
+ * transaction. Published events are kept for the retention period.
+ */
+@Service
+public class OutboxService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Counter published;
+    private final Counter failures;
+    private final Timer batchTimer;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    // Released when a transaction with events commits here, so they need not wait a full interval
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private Thread relay;
+
+    @Autowired
+    public OutboxService(OutboxRepository outboxRepository, List<OutboxSink> sinks,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${trainerapp.outbox.batch-size:500}") int batchSize,
+            @Value("${trainerapp.outbox.poll-interval:500ms}") Duration pollInterval,
+            @Value("${trainerapp.outbox.retention:7d}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.published = Counter.builder("trainerapp.outbox.published")
+                .description("Events handed to every sink")
+                .register(meterRegistry);
+        this.failures = Counter.builder("trainerapp.outbox.failures")
+                .description("Relay batches that failed and will be retried")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("trainerapp.outbox.batch")
+                .description("Time to relay one batch, sinks included")
+                .register(meterRegistry);
+        Gauge.builder("trainerapp.outbox.pending", pending, AtomicLong::get)
+                .description("Events not published yet")
+                .register(meterRegistry);
+        TimeGauge.builder("trainerapp.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest event not published yet")
+                .register(meterRegistry);
+    }
+
+    /** Writes the event with the caller's transaction; there must be one. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(EntityChangeEvent event) {
+        outboxRepository.insert(event);
+        wakeRelayAfterCommit();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<EntityChangeEvent> events) {
+        if (!events.isEmpty()) {
+            outboxRepository.insertAll(events);
+            wakeRelayAfterCommit();
+        }
+    }
+
+    private void wakeRelayAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp.release();
+            }
+        });
+    }
+
+    /**
+     * Relays the oldest unpublished events to every sink unless another
+     * instance is relaying; returns the number relayed or -1. A sink failure
+     * rolls the batch back, so it is retried as a whole.
+     */
+    public int relayBatch() {
+        long start = System.nanoTime();
+        Integer relayed = transaction.execute(status -> {
+            if (!outboxRepository.tryRelayLock()) {
+                return -1;
+            }
+            List<OutboxEvent> events = outboxRepository.findUnpublished(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            for (OutboxSink sink : sinks) {
+                try {
+                    sink.publish(events);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Outbox sink " + sink.name() + " failed: " + e.getMessage(), e);
+                }
+            }
+            outboxRepository.markPublished(events.stream().map(OutboxEvent::getId).toList());
+            return events.size();
+        });
+        if (relayed != null && relayed > 0) {
+            published.increment(relayed);
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return relayed == null ? -1 : relayed;
+    }
+
+    private void updateBacklog() {
+        OutboxRepository.Backlog backlog = outboxRepository.backlog();
+        pending.set(backlog.pending());
+        lagMillis.set(backlog.oldestCreatedAt() == null ? 0
+                : Math.max(0, Duration.between(backlog.oldestCreatedAt(), Instant.now()).toMillis()));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        relay = new Thread(this::relay, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        relay.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relay() {
+        long lastBacklog = 0;
+        long lastPurge = 0;
+        while (running) {
+            try {
+                int relayed = relayBatch();
+                long now = System.nanoTime();
+                // Measured while draining too, so the lag shows how far behind a busy relay is
+                if (lastBacklog == 0 || now - lastBacklog >= pollInterval.toNanos()) {
+                    updateBacklog();
+                    lastBacklog = now;
+                }
+                if (relayed < batchSize) {
+                    if (lastPurge == 0 || now - lastPurge >= PURGE_INTERVAL_NANOS) {
+                        outboxRepository.deletePublishedBefore(retention);
+                        lastPurge = now;
+                    }
+                    wakeUp.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Sink or database unavailable, the same batch is tried again after a pause
+                failures.increment();
+                logger.warn("Outbox relay failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
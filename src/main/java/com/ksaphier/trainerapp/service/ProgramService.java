@@ -0,0 +1,264 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.ProgramReportDto;
+import com.ksaphier.trainerapp.dto.ProgramRequest;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.model.ExerciseProgress;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.model.WorkoutExercise;
+import com.ksaphier.trainerapp.program.ProgramPlanner;
+import com.ksaphier.trainerapp.repository.ExerciseProgressRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates periodized programs for many clients at once. Every (client,
+ * week) pair is planned as its own fork/join task; the results are persisted
+ * by a few threads, each inserting a slice of the clients in one transaction
+ * with Hibernate JDBC batching (hibernate.jdbc.batch_size), so a program
+ * costs a handful of round trips per batch instead of two per exercise.
+ */
+@Service
+public class ProgramService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgramService.class);
+
+    public static final String WORKOUT_TYPE = "PROGRAM";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExerciseRecommendationService exerciseRecommendationService;
+    private final ExerciseProgressRepository exerciseProgressRepository;
+    private final UserRepository userRepository;
+    private final TrainerService trainerService;
+    private final InvalidationBus invalidationBus;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transaction;
+    private final ForkJoinPool planPool;
+    private final int persistThreads;
+    private final int clientsPerTransaction;
+    private final int flushEvery;
+    private final Timer generationTimer;
+    private final Counter generatedWorkouts;
+
+    @Autowired
+    public ProgramService(ExerciseRecommendationService exerciseRecommendationService,
+            ExerciseProgressRepository exerciseProgressRepository, UserRepository userRepository,
+            TrainerService trainerService, InvalidationBus invalidationBus, OutboxService outboxService,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${trainerapp.program.plan-parallelism:0}") int planParallelism,
+            @Value("${trainerapp.program.persist-threads:4}") int persistThreads,
+            @Value("${trainerapp.program.clients-per-transaction:50}") int clientsPerTransaction,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushEvery) {
+        this.exerciseRecommendationService = exerciseRecommendationService;
+        this.exerciseProgressRepository = exerciseProgressRepository;
+        this.userRepository = userRepository;
+        this.trainerService = trainerService;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.planPool = new ForkJoinPool(planParallelism > 0
+                ? planParallelism : Runtime.getRuntime().availableProcessors());
+        this.persistThreads = persistThreads;
+        this.clientsPerTransaction = clientsPerTransaction;
+        this.flushEvery = flushEvery;
+        this.generationTimer = Timer.builder("trainerapp.program.generation")
+                .description("Time to plan and persist a program request")
+                .register(meterRegistry);
+        this.generatedWorkouts = Counter.builder("trainerapp.program.workouts")
+                .description("Workouts created by the program generator")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        planPool.shutdown();
+    }
+
+    public ProgramReportDto generate(ProgramRequest request, Long requesterId) {
+        return generate(request, requesterId, clients -> {
+        });
+    }
+
+    /** Generates the program; progress receives the number of clients persisted so far. */
+    public ProgramReportDto generate(ProgramRequest request, Long requesterId, LongConsumer progress) {
+        long start = System.nanoTime();
+        List<Long> clientIds = request.getClientIds() == null || request.getClientIds().isEmpty()
+                ? List.of(requesterId)
+                : List.copyOf(new LinkedHashSet<>(request.getClientIds()));
+        // Checked again here: the client may have left the trainer since the job was queued. Before the
+        // existence check, so that a stranger cannot tell which user ids exist
+        if (!trainerService.isTrainerOf(requesterId, clientIds)) {
+            throw new AccessDeniedException("Not a trainer of every client");
+        }
+        if (userRepository.findAllById(clientIds).size() != clientIds.size()) {
+            throw new EntityNotFoundException("Client not found");
+        }
+
+        ProgramPlanner.Settings settings = new ProgramPlanner.Settings(request.getWeeks(),
+                request.getSessionsPerWeek(), request.getExercisesPerSession(), request.getDeloadEvery());
+        ProgramPlanner planner = new ProgramPlanner(exerciseRecommendationService.muscleIndex(), settings);
+        Map<Long, Map<Long, Double>> oneRepMaxes = oneRepMaxes(clientIds);
+
+        int weeks = settings.weeks();
+        List<ProgramPlanner.PlannedSession>[] plans = plan(clientIds, weeks, planner, oneRepMaxes);
+        long planned = System.nanoTime();
+
+        int workouts = 0;
+        int workoutExercises = 0;
+        for (List<ProgramPlanner.PlannedSession> week : plans) {
+            workouts += week.size();
+            for (ProgramPlanner.PlannedSession session : week) {
+                workoutExercises += session.exercises().size();
+            }
+        }
+        persist(request.getName(), clientIds, weeks, plans, progress);
+        long persisted = System.nanoTime();
+
+        generationTimer.record(persisted - start, TimeUnit.NANOSECONDS);
+        generatedWorkouts.increment(workouts);
+        long planMillis = (planned - start) / 1_000_000;
+        long persistMillis = (persisted - planned) / 1_000_000;
+        double seconds = Math.max(1, persisted - start) / 1e9;
+        logger.info("Generated {} workouts with {} exercises for {} clients: plan {} ms, persist {} ms",
+                workouts, workoutExercises, clientIds.size(), planMillis, persistMillis);
+        return new ProgramReportDto(clientIds.size(), workouts, workoutExercises, planMillis, persistMillis,
+                workouts / seconds);
+    }
+
+    private Map<Long, Map<Long, Double>> oneRepMaxes(List<Long> clientIds) {
+        Map<Long, Map<Long, Double>> oneRepMaxes = new HashMap<>();
+        for (ExerciseProgress progress : exerciseProgressRepository.findByUserIdIn(clientIds)) {
+            Double oneRepMax = progress.getEstimatedOneRepMax() != null
+                    ? progress.getEstimatedOneRepMax()
+                    : progress.getMaxWeight() != null ? Double.valueOf(progress.getMaxWeight()) : null;
+            if (oneRepMax != null) {
+                oneRepMaxes.computeIfAbsent(progress.getUserId(), id -> new HashMap<>())
+                        .put(progress.getExerciseId(), oneRepMax);
+            }
+        }
+        return oneRepMaxes;
+    }
+
+    // plans[client * weeks + week - 1] holds that client's sessions of the week
+    @SuppressWarnings("unchecked")
+    private List<ProgramPlanner.PlannedSession>[] plan(List<Long> clientIds, int weeks, ProgramPlanner planner,
+            Map<Long, Map<Long, Double>> oneRepMaxes) {
+        List<ProgramPlanner.PlannedSession>[] plans = new List[clientIds.size() * weeks];
+        try {
+            planPool.submit(() -> IntStream.range(0, plans.length).parallel().forEach(i -> {
+                Map<Long, Double> clientMaxes = oneRepMaxes.getOrDefault(clientIds.get(i / weeks), Map.of());
+                plans[i] = planner.planWeek(i % weeks + 1, clientMaxes);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Program planning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Program planning failed", e.getCause());
+        }
+        return plans;
+    }
+
+    private void persist(String name, List<Long> clientIds, int weeks, List<ProgramPlanner.PlannedSession>[] plans,
+            LongConsumer progress) {
+        List<CompletableFuture<Void>> slices = new ArrayList<>();
+        AtomicLong persistedClients = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(persistThreads);
+        try {
+            for (int from = 0; from < clientIds.size(); from += clientsPerTransaction) {
+                int first = from;
+                int last = Math.min(clientIds.size(), from + clientsPerTransaction);
+                slices.add(CompletableFuture.runAsync(() -> {
+                    transaction.executeWithoutResult(
+                            status -> persistSlice(name, clientIds, weeks, plans, first, last));
+                    progress.accept(persistedClients.addAndGet(last - first));
+                }, executor));
+            }
+            CompletableFuture.allOf(slices.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void persistSlice(String name, List<Long> clientIds, int weeks,
+            List<ProgramPlanner.PlannedSession>[] plans, int first, int last) {
+        int pending = 0;
+        List<EntityChangeEvent> created = new ArrayList<>();
+        for (int client = first; client < last; client++) {
+            Long clientId = clientIds.get(client);
+            for (int week = 1; week <= weeks; week++) {
+                for (ProgramPlanner.PlannedSession session : plans[client * weeks + week - 1]) {
+                    Workout workout = new Workout();
+                    workout.setName(name + " W" + session.week() + " D" + session.day());
+                    workout.setDescription("Week " + session.week() + " of " + weeks
+                            + (session.deload() ? ", deload" : ""));
+                    workout.setType(WORKOUT_TYPE);
+                    workout.setUserId(clientId);
+                    entityManager.persist(workout);
+                    created.add(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, workout.getId(),
+                            clientId));
+                    for (ProgramPlanner.PlannedExercise planned : session.exercises()) {
+                        WorkoutExercise workoutExercise = new WorkoutExercise();
+                        workoutExercise.setWorkout(workout);
+                        workoutExercise.setExercise(entityManager.getReference(Exercise.class,
+                                planned.exerciseId()));
+                        workoutExercise.setSeries(planned.series());
+                        workoutExercise.setReps(planned.reps());
+                        workoutExercise.setRest(planned.rest());
+                        workoutExercise.setWeight(planned.weight());
+                        entityManager.persist(workoutExercise);
+                        pending++;
+                    }
+                    pending++;
+                    if (pending >= flushEvery) {
+                        // Sends the batched inserts and keeps the persistence context small
+                        entityManager.flush();
+                        entityManager.clear();
+                        pending = 0;
+                    }
+                }
+            }
+            // One event per client: listeners refresh by owner instead of per workout
+            invalidationBus.publish(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, null, clientId));
+        }
+        // The outbox keeps one event per workout, committed with the slice
+        outboxService.recordAll(created);
+    }
+}
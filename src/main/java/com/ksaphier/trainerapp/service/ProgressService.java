@@ -0,0 +1,164 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.dto.ExerciseProgressDto;
+import com.ksaphier.trainerapp.model.ExerciseProgress;
+import com.ksaphier.trainerapp.repository.ExerciseProgressRepository;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+import com.ksaphier.trainerapp.timeseries.ProgressSeries;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Personal records and progression curves, kept up to date as exercises are
+ * saved instead of being derived from the whole WorkoutExercise history. Each
+ * (user, exercise) is a single ExerciseProgress row holding the records and
+ * the encoded ProgressSeries. Deleting entries rebuilds the records of the
+ * affected exercises, the only case where a record can go down.
+ */
+@Service
+public class ProgressService {
+
+    private final ExerciseProgressRepository exerciseProgressRepository;
+    private final WorkoutExerciseRepository workoutExerciseRepository;
+
+    @Autowired
+    public ProgressService(ExerciseProgressRepository exerciseProgressRepository,
+            WorkoutExerciseRepository workoutExerciseRepository) {
+        this.exerciseProgressRepository = exerciseProgressRepository;
+        this.workoutExerciseRepository = workoutExerciseRepository;
+    }
+
+    // Epley formula; a single rep is the weight itself
+    public static double estimateOneRepMax(int weight, int reps) {
+        if (reps <= 1) {
+            return weight;
+        }
+        return weight * (1 + reps / 30.0);
+    }
+
+    /**
+     * Runs in the caller's transaction. The row is locked, so concurrent saves
+     * for the same user and exercise are applied one after the other.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSets(Long userId, Long exerciseId, int series, int reps, int weight, Instant performedAt) {
+        if (reps <= 0 || series <= 0) {
+            return;
+        }
+        ExerciseProgress progress = exerciseProgressRepository.findForUpdate(userId, exerciseId)
+                .orElseGet(() -> {
+                    exerciseProgressRepository.insertIfAbsent(userId, exerciseId);
+                    return exerciseProgressRepository.findForUpdate(userId, exerciseId).orElseThrow();
+                });
+
+        ProgressSeries progressSeries = ProgressSeries.decode(progress.getSeries());
+        apply(progress, progressSeries, series, reps, weight, performedAt);
+        progress.setSeries(progressSeries.encode());
+        progress.setUpdatedAt(Instant.now());
+    }
+
+    /**
+     * Rebuilds the records and curves of the exercises from the user's
+     * entries, after some of them were deleted or imported. Runs in the
+     * caller's transaction, after the change. Entries carry no time of their
+     * own, so they are dated by their workout.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recompute(Long userId, Collection<Long> exerciseIds) {
+        // Sorted, so concurrent deletes lock the rows in the same order
+        for (Long exerciseId : new TreeSet<>(exerciseIds)) {
+            Optional<ExerciseProgress> found = exerciseProgressRepository.findForUpdate(userId, exerciseId);
+            List<Object[]> sets = workoutExerciseRepository.findSetsByUserIdAndExerciseId(userId, exerciseId);
+            if (sets.isEmpty()) {
+                found.ifPresent(exerciseProgressRepository::delete);
+                continue;
+            }
+            if (found.isEmpty()) {
+                // First entries of this exercise, e.g. imported ones
+                exerciseProgressRepository.insertIfAbsent(userId, exerciseId);
+                found = exerciseProgressRepository.findForUpdate(userId, exerciseId);
+                // Read again under the lock, a concurrent save may have added a set meanwhile
+                sets = workoutExerciseRepository.findSetsByUserIdAndExerciseId(userId, exerciseId);
+            }
+            ExerciseProgress progress = found.orElseThrow();
+            progress.setMaxWeight(null);
+            progress.setMaxWeightAt(null);
+            progress.setEstimatedOneRepMax(null);
+            progress.setEstimatedOneRepMaxAt(null);
+            progress.setBestVolume(null);
+            progress.setBestVolumeAt(null);
+            ProgressSeries progressSeries = ProgressSeries.empty();
+            for (Object[] set : sets) {
+                apply(progress, progressSeries, (Integer) set[0], (Integer) set[1], (Integer) set[2],
+                        (Instant) set[3]);
+            }
+            progress.setSeries(progressSeries.encode());
+            progress.setUpdatedAt(Instant.now());
+        }
+    }
+
+    // Records of a deleted exercise, for every user
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteExercise(Long exerciseId) {
+        exerciseProgressRepository.deleteByExerciseId(exerciseId);
+    }
+
+    // A null performedAt (workouts older than Workout.createdAt) counts for the records but not the curve
+    private static void apply(ExerciseProgress progress, ProgressSeries progressSeries, int series, int reps,
+            int weight, Instant performedAt) {
+        if (reps <= 0 || series <= 0) {
+            return;
+        }
+        double oneRepMax = estimateOneRepMax(weight, reps);
+        // Request values are only checked for sign, so the product may not fit; it saturates instead
+        int volume = (int) Math.min(Integer.MAX_VALUE, (long) series * reps * weight);
+        if (progress.getMaxWeight() == null || weight > progress.getMaxWeight()) {
+            progress.setMaxWeight(weight);
+            progress.setMaxWeightAt(performedAt);
+        }
+        if (progress.getEstimatedOneRepMax() == null || oneRepMax > progress.getEstimatedOneRepMax()) {
+            progress.setEstimatedOneRepMax(oneRepMax);
+            progress.setEstimatedOneRepMaxAt(performedAt);
+        }
+        if (progress.getBestVolume() == null || volume > progress.getBestVolume()) {
+            progress.setBestVolume(volume);
+            progress.setBestVolumeAt(performedAt);
+        }
+        if (performedAt != null) {
+            progressSeries.add(performedAt.atOffset(ZoneOffset.UTC).toLocalDate(), weight, oneRepMax, volume);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ExerciseProgressDto> findProgress(Long userId, Long exerciseId) {
+        return exerciseProgressRepository.findByUserIdAndExerciseId(userId, exerciseId).map(this::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ExerciseProgressDto> findAllProgress(Long userId) {
+        return exerciseProgressRepository.findByUserId(userId).stream()
+                .map(progress -> {
+                    ExerciseProgressDto dto = toDto(progress);
+                    // The overview only shows the records
+                    dto.setSeries(null);
+                    return dto;
+                })
+                .toList();
+    }
+
+    private ExerciseProgressDto toDto(ExerciseProgress progress) {
+        return new ExerciseProgressDto(progress.getExerciseId(), progress.getMaxWeight(), progress.getMaxWeightAt(),
+                progress.getEstimatedOneRepMax(), progress.getEstimatedOneRepMaxAt(), progress.getBestVolume(),
+                progress.getBestVolumeAt(), ProgressSeries.decode(progress.getSeries()).points());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.model.Muscle;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.repository.ReactiveReadRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class ReactiveReadService {
+
+    private final ReactiveReadRepository reactiveReadRepository;
+
+    @Autowired
+    public ReactiveReadService(ReactiveReadRepository reactiveReadRepository) {
+        this.reactiveReadRepository = reactiveReadRepository;
+    }
+
+    public Flux<Workout> findAllWorkoutsByUser(Long userId) {
+        return reactiveReadRepository.findWorkoutsByUserId(userId);
+    }
+
+    public Mono<WorkoutDetailsDto> getWorkoutDetails(Long workoutId, Long ownerId) {
+        return reactiveReadRepository.findWorkoutById(workoutId, ownerId)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Workout not found")))
+                .zipWith(reactiveReadRepository.findExercisesByWorkoutId(workoutId, ownerId).collectList(),
+                        WorkoutDetailsDto::new);
+    }
+
+    public Flux<Exercise> findAllExercises() {
+        return reactiveReadRepository.findAllExercises();
+    }
+
+    public Flux<Muscle> findAllMuscles() {
+        return reactiveReadRepository.findAllMuscles();
+    }
+}
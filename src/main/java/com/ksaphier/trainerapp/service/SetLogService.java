@@ -0,0 +1,119 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.dto.SetLogRequest;
+import com.ksaphier.trainerapp.ingest.WriteBehindBuffer;
+import com.ksaphier.trainerapp.model.SetLog;
+import com.ksaphier.trainerapp.repository.SetLogRepository;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Performed sets are accepted into a WriteBehindBuffer and inserted in JDBC
+ * batches, so peak traffic costs one round trip per batch instead of one per
+ * set. Logged sets become readable once their batch is flushed.
+ */
+@Service
+public class SetLogService implements SmartLifecycle {
+
+    private static final String INSERT_SQL = "INSERT INTO set_log "
+            + "(user_id, workout_exercise_id, set_number, reps, weight, performed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final SetLogRepository setLogRepository;
+    private final WorkoutExerciseRepository workoutExerciseRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final WriteBehindBuffer<SetLog> buffer;
+
+    // Owner of each workout exercise checked so far; ownership never changes and sets of one exercise come in a row
+    private final Cache<Long, Long> workoutExerciseOwners = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    @Autowired
+    public SetLogService(SetLogRepository setLogRepository, WorkoutExerciseRepository workoutExerciseRepository,
+            JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${trainerapp.setlog.buffer-capacity:20000}") int capacity,
+            @Value("${trainerapp.setlog.batch-size:500}") int batchSize,
+            @Value("${trainerapp.setlog.flush-interval:200ms}") Duration flushInterval,
+            @Value("${trainerapp.setlog.offer-timeout:50ms}") Duration offerTimeout) {
+        this.setLogRepository = setLogRepository;
+        this.workoutExerciseRepository = workoutExerciseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new WriteBehindBuffer<>("set-log", capacity, batchSize, flushInterval, offerTimeout,
+                this::insertBatch, meterRegistry);
+    }
+
+    public boolean ownsWorkoutExercise(Long userId, Long workoutExerciseId) {
+        if (workoutExerciseId == null) {
+            return false;
+        }
+        if (userId.equals(workoutExerciseOwners.getIfPresent(workoutExerciseId))) {
+            return true;
+        }
+        if (!workoutExerciseRepository.existsByIdAndUserId(workoutExerciseId, userId)) {
+            return false;
+        }
+        workoutExerciseOwners.put(workoutExerciseId, userId);
+        return true;
+    }
+
+    // False when the buffer is full, the caller should retry later
+    public boolean logSet(Long userId, SetLogRequest request) {
+        Instant performedAt = request.getPerformedAt() != null ? request.getPerformedAt() : Instant.now();
+        return buffer.offer(new SetLog(null, userId, request.getWorkoutExerciseId(), request.getSetNumber(),
+                request.getReps(), request.getWeight(), performedAt));
+    }
+
+    @Transactional(readOnly = true)
+    public List<SetLog> findSets(Long userId, Long workoutExerciseId) {
+        return setLogRepository.findByUserIdAndWorkoutExerciseIdOrderByPerformedAt(userId, workoutExerciseId);
+    }
+
+    private void insertBatch(List<SetLog> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, setLog) -> {
+            statement.setLong(1, setLog.getUserId());
+            statement.setObject(2, setLog.getWorkoutExerciseId());
+            statement.setInt(3, setLog.getSetNumber());
+            statement.setInt(4, setLog.getReps());
+            statement.setInt(5, setLog.getWeight());
+            statement.setTimestamp(6, Timestamp.from(setLog.getPerformedAt()));
+        });
+    }
+
+    @Override
+    public void start() {
+        buffer.start();
+    }
+
+    @Override
+    public void stop() {
+        buffer.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return buffer.isRunning();
+    }
+
+    // Stops after the web server, so sets accepted while it drains are still written
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
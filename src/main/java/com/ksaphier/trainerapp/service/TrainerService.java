@@ -0,0 +1,175 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.dto.ClientRequestDto;
+import com.ksaphier.trainerapp.dto.ClientSummaryDto;
+import com.ksaphier.trainerapp.dto.RecentWorkoutDto;
+import com.ksaphier.trainerapp.dto.TrainerDashboardDto;
+import com.ksaphier.trainerapp.repository.TrainerClientRepository;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trainer-client links and the trainer dashboard. A client asks to be linked
+ * and the trainer accepts; only then may the trainer see the client's
+ * activity and plan programs for them, so neither side can be linked to the
+ * other without consent. Either side can end the link. The dashboard reads the
+ * client_summary rows, which are recomputed for all clients at once every
+ * refresh interval by whichever instance takes the advisory lock first, and
+ * for one client right after the link is accepted. A page costs three queries
+ * whatever the number of clients: the count, the page of summaries and the
+ * recent workouts of the clients on the page.
+ */
+@Service
+public class TrainerService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainerService.class);
+
+    private final TrainerClientRepository trainerClientRepository;
+    private final TrainerDashboardRepository trainerDashboardRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transaction;
+    private final Duration refreshInterval;
+    private final int recentWorkouts;
+    private final Timer refreshTimer;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public TrainerService(TrainerClientRepository trainerClientRepository,
+            TrainerDashboardRepository trainerDashboardRepository, UserRepository userRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${trainerapp.dashboard.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${trainerapp.dashboard.recent-workouts:3}") int recentWorkouts) {
+        this.trainerClientRepository = trainerClientRepository;
+        this.trainerDashboardRepository = trainerDashboardRepository;
+        this.userRepository = userRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.refreshInterval = refreshInterval;
+        this.recentWorkouts = recentWorkouts;
+        this.refreshTimer = Timer.builder("trainerapp.dashboard.refresh")
+                .description("Time to recompute the summaries of all trainers' clients")
+                .register(meterRegistry);
+    }
+
+    // The client's request, pending until the trainer accepts it; false when there is no such trainer
+    @Transactional
+    public boolean addClient(Long trainerId, Long clientId) {
+        if (!userRepository.existsById(trainerId)) {
+            return false;
+        }
+        trainerClientRepository.insertIfAbsent(trainerId, clientId);
+        return true;
+    }
+
+    // False when the client did not ask
+    @Transactional
+    public boolean acceptClient(Long trainerId, Long clientId) {
+        if (trainerClientRepository.accept(trainerId, clientId) == 0) {
+            return false;
+        }
+        // Shown with figures right away instead of after the next refresh
+        trainerDashboardRepository.refreshSummary(clientId);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ClientRequestDto> getClientRequests(Long trainerId, int limit) {
+        return trainerDashboardRepository.findClientRequests(trainerId, limit);
+    }
+
+    @Transactional
+    public boolean removeClient(Long trainerId, Long clientId) {
+        return trainerClientRepository.deleteByTrainerIdAndClientId(trainerId, clientId) > 0;
+    }
+
+    /** True when every one of the users is the trainer or one of their accepted clients. */
+    @Transactional(readOnly = true)
+    public boolean isTrainerOf(Long trainerId, Collection<Long> userIds) {
+        Set<Long> clientIds = new HashSet<>(userIds);
+        clientIds.remove(trainerId);
+        return clientIds.isEmpty()
+                || trainerClientRepository.countAccepted(trainerId, clientIds) == clientIds.size();
+    }
+
+    @Transactional(readOnly = true)
+    public TrainerDashboardDto getDashboard(Long trainerId, int offset, int limit) {
+        long total = trainerDashboardRepository.countClients(trainerId);
+        if (total <= offset) {
+            return new TrainerDashboardDto(total, offset, List.of());
+        }
+        List<ClientSummaryDto> clients = trainerDashboardRepository.findClientSummaries(trainerId, offset, limit);
+        Map<Long, List<RecentWorkoutDto>> recent = trainerDashboardRepository.findRecentWorkouts(
+                clients.stream().map(ClientSummaryDto::getClientId).toList(), recentWorkouts);
+        for (ClientSummaryDto client : clients) {
+            client.setRecentWorkouts(recent.getOrDefault(client.getClientId(), List.of()));
+        }
+        return new TrainerDashboardDto(total, offset, clients);
+    }
+
+    /** Recomputes every summary unless another instance is already doing it; returns the rows written or -1. */
+    public int refreshSummaries() {
+        long start = System.nanoTime();
+        Integer refreshed = transaction.execute(status -> trainerDashboardRepository.tryRefreshLock()
+                ? trainerDashboardRepository.refreshSummaries() : -1);
+        if (refreshed != null && refreshed >= 0) {
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.debug("Refreshed {} client summaries in {} ms", refreshed, (System.nanoTime() - start) / 1_000_000);
+        }
+        return refreshed == null ? -1 : refreshed;
+    }
+
+    private void refresh() {
+        try {
+            refreshSummaries();
+        } catch (RuntimeException e) {
+            // Database unavailable, the next interval tries again
+            logger.warn("Client summary refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "client-summary-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -1,11 +1,15 @@
 package com.ksaphier.trainerapp.service;
 
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
 import com.ksaphier.trainerapp.model.User;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ksaphier.trainerapp.dto.RegistrationRequest;
 import com.ksaphier.trainerapp.repository.UserRepository;
@@ -15,13 +19,20 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final InvalidationBus invalidationBus;
+    private final OutboxService outboxService;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+            InvalidationBus invalidationBus, OutboxService outboxService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
     }
 
+    // The outbox event commits with the new user
+    @Transactional
     public String registerUser(RegistrationRequest request) {
         Optional<User> existingUser = userRepository.findByUsername(request.getUsername());
         if (existingUser.isPresent()) {
@@ -34,7 +45,10 @@ public class UserService {
         user.setPassword(encodedPassword);
         user.setEmail(request.getEmail());
 
-        userRepository.save(user);
+        User saved = userRepository.save(user);
+        EntityChangeEvent event = EntityChangeEvent.saved(EntityType.USER, saved.getId());
+        outboxService.record(event);
+        invalidationBus.publish(event);
 
         return "User registered successfully";
     }
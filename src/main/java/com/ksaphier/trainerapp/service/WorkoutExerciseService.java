@@ -1,5 +1,9 @@
 package com.ksaphier.trainerapp.service;
 
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
 import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,14 +11,32 @@ import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 public class WorkoutExerciseService {
 
     @Autowired
     private final WorkoutExerciseRepository workoutExerciseRepository = null;
 
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ProgressService progressService;
+
     @Transactional
-    public void deleteExerciseFromWorkout(@NonNull Long id) {
-        workoutExerciseRepository.deleteById(id);
+    public void deleteExerciseFromWorkout(@NonNull Long id, Long userId) {
+        workoutExerciseRepository.findByIdAndUserId(id, userId).ifPresent(workoutExercise -> {
+            workoutExerciseRepository.delete(workoutExercise);
+            progressService.recompute(userId, List.of(workoutExercise.getExercise().getId()));
+            EntityChangeEvent event = new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED,
+                    workoutExercise.getWorkout().getId(), workoutExercise.getUserId());
+            outboxService.record(event);
+            invalidationBus.publish(event);
+        });
     }
 }
@@ -0,0 +1,101 @@
+package com.ksaphier.trainerapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes a user's workouts as CSV, one row per planned set, in the column
+ * layout the importer reads back. Rows are streamed from a server-side
+ * cursor, so an export of any size needs constant memory.
+ */
+@Service
+public class WorkoutExportService {
+
+    private static final String HEADER = "Workout Id,Workout Name,Workout Type,Exercise Name,Set Order,"
+            + "Weight (kg),Reps,Rest\n";
+    private static final String EXPORT_SQL = "SELECT w.id, w.name, w.type, e.name, we.series, we.weight, we.reps, "
+            + "we.rest FROM workout w JOIN workout_exercise we ON we.user_id = w.user_id AND we.workout_id = w.id "
+            + "JOIN exercise e ON e.id = we.exercise_id WHERE w.user_id = ? ORDER BY w.id, we.id";
+    private static final int FETCH_SIZE = 1000;
+
+    public record ExportCounts(long workouts, long rows) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public WorkoutExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /** Writes the CSV; progress receives (workouts written, workouts in total). */
+    public ExportCounts exportCsv(Long userId, OutputStream output, BiConsumer<Long, Long> progress) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+        // The driver only streams with a fetch size inside a transaction
+        return readOnlyTransaction.execute(status -> {
+            Long total = jdbcTemplate.queryForObject("SELECT count(*) FROM workout WHERE user_id = ?", Long.class,
+                    userId);
+            long[] counts = { 0, 0 };
+            long[] lastWorkout = { -1 };
+            try {
+                writer.write(HEADER);
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(EXPORT_SQL);
+                    statement.setFetchSize(FETCH_SIZE);
+                    statement.setLong(1, userId);
+                    return statement;
+                }, rs -> {
+                    long workoutId = rs.getLong(1);
+                    if (workoutId != lastWorkout[0]) {
+                        lastWorkout[0] = workoutId;
+                        progress.accept(++counts[0], total);
+                    }
+                    String prefix = workoutId + "," + csv(rs.getString(2)) + "," + csv(rs.getString(3)) + ","
+                            + csv(rs.getString(4)) + ",";
+                    String suffix = "," + rs.getInt(6) + "," + rs.getInt(7) + "," + rs.getInt(8) + "\n";
+                    try {
+                        for (int set = 1; set <= Math.max(1, rs.getInt(5)); set++) {
+                            writer.write(prefix);
+                            writer.write(Integer.toString(set));
+                            writer.write(suffix);
+                            counts[1]++;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ExportCounts(counts[0], counts[1]);
+        });
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
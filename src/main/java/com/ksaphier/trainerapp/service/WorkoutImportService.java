@@ -0,0 +1,229 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.ImportReportDto;
+import com.ksaphier.trainerapp.index.ExerciseNameIndex;
+import com.ksaphier.trainerapp.ingest.CsvWorkoutReader;
+import com.ksaphier.trainerapp.ingest.FitWorkoutReader;
+import com.ksaphier.trainerapp.ingest.ImportedWorkout;
+import com.ksaphier.trainerapp.ingest.WorkoutAssembler;
+import com.ksaphier.trainerapp.model.Exercise;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.model.WorkoutExercise;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Imports workout history from FIT and CSV exports. The file is
+ * memory-mapped, so the readers walk it without copying it onto the heap;
+ * sets are grouped into workouts as they stream by and inserted with
+ * Hibernate JDBC batching in one transaction, which makes a retried import
+ * all or nothing. Exercise names are resolved through the cached catalog
+ * name index. Runs as a background job, see WorkoutImportJobHandler.
+ */
+@Service
+public class WorkoutImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkoutImportService.class);
+
+    public static final String WORKOUT_TYPE = "IMPORT";
+    private static final int MAX_UNMATCHED_NAMES = 50;
+    private static final int MAX_TRACKED_NAMES = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExerciseRecommendationService exerciseRecommendationService;
+    private final InvalidationBus invalidationBus;
+    private final OutboxService outboxService;
+    private final ProgressService progressService;
+    private final TransactionTemplate transaction;
+    private final int flushEvery;
+    private final Timer importTimer;
+    private final Counter importedWorkouts;
+
+    private static class Counts {
+        private final Long userId;
+        private long workouts;
+        private long workoutExercises;
+        private final Map<String, Long> unmatched = new HashMap<>();
+        private final List<Long> workoutIds = new ArrayList<>();
+        private final Set<Long> exerciseIds = new HashSet<>();
+
+        private Counts(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    @Autowired
+    public WorkoutImportService(ExerciseRecommendationService exerciseRecommendationService,
+            InvalidationBus invalidationBus, OutboxService outboxService, ProgressService progressService,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushEvery) {
+        this.exerciseRecommendationService = exerciseRecommendationService;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+        this.progressService = progressService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.flushEvery = flushEvery;
+        this.importTimer = Timer.builder("trainerapp.import.duration")
+                .description("Time to parse and insert one uploaded export")
+                .register(meterRegistry);
+        this.importedWorkouts = Counter.builder("trainerapp.import.workouts")
+                .description("Workouts created from uploaded exports")
+                .register(meterRegistry);
+    }
+
+    /** Imports the file for the user; progress receives the bytes read so far. */
+    public ImportReportDto importFile(Long userId, Path file, String fileName, LongConsumer progress)
+            throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ExerciseNameIndex names = exerciseRecommendationService.nameIndex();
+            Counts counts = new Counts(userId);
+            ImportReportDto report = transaction.execute(status -> {
+                ImportReportDto imported = importBuffer(counts, buffer, names, progress);
+                // Records and curves rebuilt from all of the user's entries, with the imported ones in place
+                progressService.recompute(userId, counts.exerciseIds);
+                // Committed with the workouts, one event per workout as for bulk deletes
+                outboxService.recordAll(counts.workoutIds.stream()
+                        .map(id -> new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, id, userId))
+                        .toList());
+                return imported;
+            });
+            report.setFileName(fileName);
+            report.setBytes(channel.size());
+            invalidationBus.publish(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, null, userId));
+            importedWorkouts.increment(report.getWorkouts());
+            logger.info("Imported {} workouts ({} sets) for user {} from {}", report.getWorkouts(),
+                    report.getSets(), userId, fileName);
+            return report;
+        } finally {
+            importTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ImportReportDto importBuffer(Counts counts, MappedByteBuffer buffer, ExerciseNameIndex names,
+            LongConsumer progress) {
+        int[] pending = { 0 };
+        WorkoutAssembler assembler = new WorkoutAssembler(WorkoutExercise.MAX_WEIGHT, imported -> {
+            pending[0] += persist(counts, imported, names);
+            if (pending[0] >= flushEvery) {
+                // Sends the batched inserts and keeps the persistence context small
+                entityManager.flush();
+                entityManager.clear();
+                pending[0] = 0;
+            }
+        });
+        String format;
+        long skippedRows = 0;
+        if (FitWorkoutReader.isFit(buffer)) {
+            format = "FIT";
+            new FitWorkoutReader(buffer).read(assembler, progress);
+        } else {
+            format = "CSV";
+            CsvWorkoutReader reader = new CsvWorkoutReader(buffer);
+            reader.read(assembler, progress);
+            skippedRows = reader.skippedRows();
+        }
+        assembler.finish();
+
+        Map<String, Long> unmatchedExercises = new LinkedHashMap<>();
+        counts.unmatched.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_UNMATCHED_NAMES)
+                .forEach(entry -> unmatchedExercises.put(entry.getKey(), entry.getValue()));
+        return new ImportReportDto(null, format, 0, assembler.sets(), counts.workouts, counts.workoutExercises,
+                skippedRows + assembler.rejectedSets(), unmatchedExercises);
+    }
+
+    // Rows added to the persistence context; workouts without a known exercise are dropped
+    private int persist(Counts counts, ImportedWorkout imported, ExerciseNameIndex names) {
+        // Spellings that resolve to the same exercise ("Bench Press", "bench_press") become one row
+        Map<Long, WorkoutExercise> byExercise = new LinkedHashMap<>();
+        for (ImportedWorkout.Exercise exercise : imported.exercises()) {
+            Long exerciseId = names.resolve(exercise.name());
+            if (exerciseId == null) {
+                if (counts.unmatched.size() < MAX_TRACKED_NAMES || counts.unmatched.containsKey(exercise.name())) {
+                    counts.unmatched.merge(exercise.name(), (long) exercise.series(), Long::sum);
+                }
+                continue;
+            }
+            WorkoutExercise merged = byExercise.get(exerciseId);
+            if (merged == null) {
+                WorkoutExercise workoutExercise = new WorkoutExercise();
+                workoutExercise.setExercise(entityManager.getReference(Exercise.class, exerciseId));
+                workoutExercise.setSeries(exercise.series());
+                workoutExercise.setReps(exercise.reps());
+                workoutExercise.setRest(exercise.rest());
+                workoutExercise.setWeight(exercise.weight());
+                byExercise.put(exerciseId, workoutExercise);
+            } else {
+                merged.setSeries(merged.getSeries() + exercise.series());
+                if (exercise.weight() > merged.getWeight()) {
+                    merged.setWeight(exercise.weight());
+                    merged.setReps(exercise.reps());
+                }
+            }
+        }
+        if (byExercise.isEmpty()) {
+            return 0;
+        }
+
+        Workout workout = new Workout();
+        workout.setName(imported.name());
+        workout.setDescription(imported.performedAt() == null ? "Imported" : "Imported, performed "
+                + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(imported.performedAt()));
+        workout.setType(WORKOUT_TYPE);
+        workout.setUserId(counts.userId);
+        if (imported.performedAt() != null) {
+            // Exports carry no zone (FIT times are read as UTC), so dates are taken as UTC
+            workout.setCreatedAt(imported.performedAt().toInstant(ZoneOffset.UTC));
+        }
+        entityManager.persist(workout);
+        counts.workoutIds.add(workout.getId());
+        counts.exerciseIds.addAll(byExercise.keySet());
+        for (WorkoutExercise workoutExercise : byExercise.values()) {
+            workoutExercise.setWorkout(workout);
+            entityManager.persist(workoutExercise);
+        }
+        counts.workouts++;
+        counts.workoutExercises += byExercise.size();
+        return 1 + byExercise.size();
+    }
+}
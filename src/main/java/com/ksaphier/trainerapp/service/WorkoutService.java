@@ -1,5 +1,9 @@
 package com.ksaphier.trainerapp.service;
 
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
 import com.ksaphier.trainerapp.dto.AddExerciseToWorkoutRequest;
 import com.ksaphier.trainerapp.dto.SimplifiedExerciseDto;
 import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
@@ -10,50 +14,154 @@ import com.ksaphier.trainerapp.repository.ExerciseRepository;
 import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
 import com.ksaphier.trainerapp.repository.WorkoutRepository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 @Service
 public class WorkoutService {
 
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private final WorkoutRepository workoutRepository;
 
     @Autowired
     private WorkoutExerciseRepository workoutExerciseRepository;
 
-    public WorkoutDetailsDto getWorkoutDetails(Long workoutId) {
-        Workout workout = workoutRepository.findById(workoutId)
-                .orElseThrow(() -> new EntityNotFoundException("Workout not found"));
+    private final InvalidationBus invalidationBus;
+    // Per-user lists and per-workout details, dropped by the invalidation bus on every change. Entries are
+    // never handed out: callers get copies, so changing a returned workout cannot change what others are served
+    private final Cache<Long, List<Workout>> workoutLists;
+    private final Cache<Long, WorkoutDetailsDto> workoutDetails;
+    // Counts invalidations, so a bulk load can tell whether one raced it
+    private final AtomicLong invalidations = new AtomicLong();
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate transaction;
 
-        List<WorkoutExercise> workoutExercises = workoutExerciseRepository.findByWorkoutId(workoutId);
+    /**
+     * Cached per workout. Concurrent misses for the same workout share one
+     * load: Caffeine runs it once while the other callers wait, and an
+     * invalidation arriving meanwhile waits for the load and then drops it.
+     * The owner is part of the lookup, which keeps the load on one partition.
+     */
+    public WorkoutDetailsDto getWorkoutDetails(Long workoutId, Long ownerId) {
+        WorkoutDetailsDto found = workoutDetails.get(workoutId, id -> {
+            WorkoutDetailsDto details = readOnlyTransaction.execute(
+                    status -> loadWorkoutDetails(ownerId, List.of(id))).get(id);
+            if (details == null) {
+                throw new EntityNotFoundException("Workout not found");
+            }
+            return details;
+        });
+        if (!ownerId.equals(found.getDetails().getUserId())) {
+            throw new EntityNotFoundException("Workout not found");
+        }
+        return copy(found);
+    }
 
-        List<SimplifiedExerciseDto> exercises = workoutExercises.stream()
-                .map(we -> new SimplifiedExerciseDto(
-                        we.getId(),
-                        we.getExercise().getName(),
-                        we.getExercise().getDescription(),
-                        we.getSeries(),
-                        we.getReps(),
-                        we.getRest(),
-                        we.getWeight()))
-                .collect(Collectors.toList());
+    /**
+     * Details of several of the user's workouts, keyed by id in request
+     * order; ids that do not exist or belong to someone else are left out.
+     * Cached entries are served as they are and all misses are loaded
+     * together in two queries, so a weekly plan costs one request instead of
+     * one per workout.
+     */
+    public Map<Long, WorkoutDetailsDto> getWorkoutDetails(Collection<Long> workoutIds, Long userId) {
+        Set<Long> ids = new LinkedHashSet<>(workoutIds);
+        Map<Long, WorkoutDetailsDto> found = new HashMap<>(workoutDetails.getAllPresent(ids));
+        List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long generation = invalidations.get();
+            Map<Long, WorkoutDetailsDto> loaded = readOnlyTransaction.execute(
+                    status -> loadWorkoutDetails(userId, missing));
+            workoutDetails.putAll(loaded);
+            // An invalidation during the load may have raced the put; it could not have removed what was not there
+            if (invalidations.get() != generation) {
+                workoutDetails.invalidateAll(loaded.keySet());
+            }
+            found.putAll(loaded);
+        }
 
-        return new WorkoutDetailsDto(workout, exercises);
+        Map<Long, WorkoutDetailsDto> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            WorkoutDetailsDto details = found.get(id);
+            // Another user's workout is only ever found in the cache; the load looks in the caller's partition
+            if (details != null && userId.equals(details.getDetails().getUserId())) {
+                result.put(id, copy(details));
+            }
+        }
+        return result;
+    }
+
+    // One query for the workouts and one for their exercises, whatever the number of ids
+    private Map<Long, WorkoutDetailsDto> loadWorkoutDetails(Long userId, Collection<Long> workoutIds) {
+        List<Workout> workouts = workoutRepository.findByUserIdAndIdIn(userId, workoutIds);
+        Map<Long, List<SimplifiedExerciseDto>> exercisesByWorkout = new HashMap<>();
+        for (WorkoutExercise we
+                : workoutExerciseRepository.findWithExerciseByUserIdAndWorkoutIdIn(userId, workoutIds)) {
+            exercisesByWorkout.computeIfAbsent(we.getWorkout().getId(), id -> new ArrayList<>())
+                    .add(new SimplifiedExerciseDto(
+                            we.getId(),
+                            we.getExercise().getName(),
+                            we.getExercise().getDescription(),
+                            we.getSeries(),
+                            we.getReps(),
+                            we.getRest(),
+                            we.getWeight()));
+        }
+
+        Map<Long, WorkoutDetailsDto> details = new HashMap<>();
+        for (Workout workout : workouts) {
+            details.put(workout.getId(), new WorkoutDetailsDto(workout,
+                    exercisesByWorkout.getOrDefault(workout.getId(), new ArrayList<>())));
+        }
+        return details;
     }
 
     @Autowired
     ExerciseRepository exerciseRepository;
 
-    public WorkoutExercise addExerciseToWorkout(AddExerciseToWorkoutRequest request) {
-        Workout workout = workoutRepository.findById(request.getWorkoutId())
+    @Autowired
+    private ProgressService progressService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    // Personal records are updated in the same transaction as the new entry, dated by the workout as a rebuild
+    // would date it
+    @Transactional
+    public WorkoutExercise addExerciseToWorkout(AddExerciseToWorkoutRequest request, Long userId) {
+        Workout workout = workoutRepository.findByIdAndUserId(request.getWorkoutId(), userId)
                 .orElseThrow(() -> new EntityNotFoundException("Workout not found"));
         Exercise exercise = exerciseRepository.findById(request.getExerciseId())
                 .orElseThrow(() -> new EntityNotFoundException("Exercise not found"));
@@ -66,34 +174,214 @@ public class WorkoutService {
         workoutExercise.setRest(request.getRest());
         workoutExercise.setWeight(request.getWeight());
 
-        return workoutExerciseRepository.save(workoutExercise);
+        WorkoutExercise saved = workoutExerciseRepository.save(workoutExercise);
+        if (workout.getUserId() != null) {
+            progressService.recordSets(workout.getUserId(), exercise.getId(), request.getSeries(),
+                    request.getReps(), request.getWeight(), workout.getCreatedAt());
+        }
+        recordChange(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, workout.getId(), workout.getUserId()));
+        return saved;
     }
 
     @Autowired
-    public WorkoutService(WorkoutRepository workoutRepository) {
+    public WorkoutService(WorkoutRepository workoutRepository, InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry, PlatformTransactionManager transactionManager,
+            @Value("${trainerapp.workout-cache.lists-max-size:32MB}") DataSize listsMaxSize,
+            @Value("${trainerapp.workout-cache.details-max-size:32MB}") DataSize detailsMaxSize,
+            @Value("${trainerapp.workout-cache.expire-after-write:10m}") Duration expireAfterWrite) {
         this.workoutRepository = workoutRepository;
+        this.invalidationBus = invalidationBus;
+        this.workoutLists = cache("workout-lists", listsMaxSize, expireAfterWrite,
+                (userId, workouts) -> estimatedSize(workouts), meterRegistry);
+        this.workoutDetails = cache("workout-details", detailsMaxSize, expireAfterWrite,
+                (workoutId, details) -> estimatedSize(details), meterRegistry);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.transaction = new TransactionTemplate(transactionManager);
+
+        invalidationBus.subscribe(event -> {
+            invalidations.incrementAndGet();
+            if (event.getEntityType() == EntityType.WORKOUT) {
+                invalidateWorkout(event.getId(), event.getOwnerId());
+            } else if (event.affects(EntityType.EXERCISE)) {
+                // Details embed exercise names and descriptions
+                workoutDetails.invalidateAll();
+            }
+            if (event.getEntityType() == EntityType.ALL) {
+                workoutLists.invalidateAll();
+            }
+        });
+    }
+
+    // Size-bounded W-TinyLFU caches weighed in estimated heap bytes, expired as a safety net for lost events
+    private static <V> Cache<Long, V> cache(String name, DataSize maxSize, Duration expireAfterWrite,
+            Weigher<Long, V> weigher, MeterRegistry meterRegistry) {
+        Cache<Long, V> cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher(weigher)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("trainerapp.workout-cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of lookups served from the cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("trainerapp.workout-cache.size", cache,
+                c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated heap used by the cached entries")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private void invalidateWorkout(Long workoutId, Long ownerId) {
+        if (workoutId != null) {
+            workoutDetails.invalidate(workoutId);
+        } else if (ownerId != null) {
+            // Bulk events (imports, programs, bulk deletes) carry only the owner
+            workoutDetails.asMap().values().removeIf(details -> ownerId.equals(details.getDetails().getUserId()));
+        } else {
+            workoutDetails.invalidateAll();
+        }
+        if (ownerId != null) {
+            workoutLists.invalidate(ownerId);
+        } else {
+            workoutLists.invalidateAll();
+        }
     }
 
-    public List<Workout> findAllWorkouts() {
-        return workoutRepository.findAll();
+    // Rough sizes of the object graphs: headers, references and Latin-1 strings
+    private static int estimatedSize(List<Workout> workouts) {
+        int size = 64;
+        for (Workout workout : workouts) {
+            size += 8 + estimatedSize(workout);
+        }
+        return size;
     }
 
-    public Optional<Workout> findWorkoutById(@NonNull Long id) {
-        return workoutRepository.findById(id);
+    private static int estimatedSize(WorkoutDetailsDto details) {
+        int size = 88 + estimatedSize(details.getDetails());
+        for (SimplifiedExerciseDto exercise : details.getExercises()) {
+            size += 8 + 64 + estimatedSize(exercise.getName()) + estimatedSize(exercise.getDescription());
+        }
+        return size;
     }
 
+    private static int estimatedSize(Workout workout) {
+        return 96 + estimatedSize(workout.getName()) + estimatedSize(workout.getDescription())
+                + estimatedSize(workout.getType());
+    }
+
+    private static int estimatedSize(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Workout> findWorkoutById(@NonNull Long id, Long userId) {
+        return workoutRepository.findByIdAndUserId(id, userId);
+    }
+
+    @Transactional
     public Workout saveWorkout(@NonNull Workout workout) {
-        return workoutRepository.save(workout);
+        Workout saved = workoutRepository.save(workout);
+        recordChange(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, saved.getId(), saved.getUserId()));
+        return saved;
     }
 
+    // Changes the loaded entity in place: merging a detached one would select it again by id alone
     @Transactional
-    public void deleteWorkout(@NonNull Long id) {
-        workoutExerciseRepository.deleteByWorkoutId(id);
+    public Optional<Workout> updateWorkout(@NonNull Long id, Long userId, String name, String description) {
+        Optional<Workout> workout = workoutRepository.findByIdAndUserId(id, userId);
+        workout.ifPresent(found -> {
+            found.setName(name);
+            found.setDescription(description);
+            recordChange(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, id, userId));
+        });
+        return workout;
+    }
 
-        workoutRepository.deleteById(id);
+    @Transactional
+    public void deleteWorkout(@NonNull Long id, Long userId) {
+        workoutRepository.findByIdAndUserId(id, userId).ifPresent(workout -> {
+            List<Long> exerciseIds = workoutExerciseRepository.findExerciseIdsByUserIdAndWorkoutId(userId, id);
+            workoutExerciseRepository.deleteByUserIdAndWorkoutId(userId, id);
+            workoutRepository.delete(workout);
+            progressService.recompute(userId, exerciseIds);
+            recordChange(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.DELETED, id, userId));
+        });
     }
 
+    /**
+     * Deletes the user's workouts of a type (all of them for a null type) in
+     * batches of their own transaction, so a large delete neither holds
+     * locks for long nor loads every workout. Returns the number deleted.
+     */
+    public long deleteWorkouts(Long userId, String type, BiConsumer<Long, Long> progress) {
+        long total = type == null ? workoutRepository.countByUserId(userId)
+                : workoutRepository.countByUserIdAndType(userId, type);
+        long deleted = 0;
+        while (true) {
+            Integer batch = transaction.execute(status -> {
+                Pageable first = PageRequest.of(0, DELETE_BATCH_SIZE);
+                List<Long> ids = type == null ? workoutRepository.findIdsByUserId(userId, first)
+                        : workoutRepository.findIdsByUserIdAndType(userId, type, first);
+                if (!ids.isEmpty()) {
+                    List<Long> exerciseIds = workoutExerciseRepository.findExerciseIdsByUserIdAndWorkoutIdIn(userId,
+                            ids);
+                    workoutExerciseRepository.deleteByUserIdAndWorkoutIdIn(userId, ids);
+                    workoutRepository.deleteByUserIdAndIdIn(userId, ids);
+                    progressService.recompute(userId, exerciseIds);
+                    // One outbox event per workout for the audit trail, the caches only need the owner
+                    outboxService.recordAll(ids.stream()
+                            .map(id -> new EntityChangeEvent(EntityType.WORKOUT, ChangeType.DELETED, id, userId))
+                            .toList());
+                }
+                return ids.size();
+            });
+            if (batch == null || batch == 0) {
+                break;
+            }
+            deleted += batch;
+            progress.accept(deleted, total);
+        }
+        // One owner-level event instead of one per workout
+        invalidationBus.publish(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.DELETED, null, userId));
+        return deleted;
+    }
+
+    // Must be called in the transaction of the change
+    private void recordChange(EntityChangeEvent event) {
+        outboxService.record(event);
+        invalidationBus.publish(event);
+    }
+
+    // Cached per user; a hit needs no transaction and no connection
     public List<Workout> findAllWorkoutsByUser(Long userId) {
-        return workoutRepository.findAllByUserId(userId);
+        return workoutLists.get(userId,
+                id -> List.copyOf(readOnlyTransaction.execute(status -> workoutRepository.findAllByUserId(id))))
+                .stream().map(WorkoutService::copy).toList();
+    }
+
+    private static WorkoutDetailsDto copy(WorkoutDetailsDto details) {
+        List<SimplifiedExerciseDto> exercises = new ArrayList<>(details.getExercises().size());
+        for (SimplifiedExerciseDto exercise : details.getExercises()) {
+            exercises.add(new SimplifiedExerciseDto(exercise.getId(), exercise.getName(), exercise.getDescription(),
+                    exercise.getSeries(), exercise.getReps(), exercise.getRest(), exercise.getWeight()));
+        }
+        return new WorkoutDetailsDto(copy(details.getDetails()), exercises);
+    }
+
+    // Every column, a new one has to be copied here too
+    private static Workout copy(Workout workout) {
+        Workout copy = new Workout();
+        copy.setId(workout.getId());
+        copy.setName(workout.getName());
+        copy.setDescription(workout.getDescription());
+        copy.setType(workout.getType());
+        copy.setUserId(workout.getUserId());
+        copy.setCreatedAt(workout.getCreatedAt());
+        return copy;
     }
 }
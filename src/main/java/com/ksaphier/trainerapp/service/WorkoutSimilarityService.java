@@ -0,0 +1,239 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.SimilarWorkoutDto;
+import com.ksaphier.trainerapp.index.WorkoutSimilarityIndex;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.repository.WorkoutRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds workouts with a similar set of exercises through an in-memory MinHash
+ * index, so a lookup touches a few LSH buckets instead of comparing against
+ * every workout. The index is loaded once the application is ready, in
+ * parallel over partitions of the workout ids, and every workout change on
+ * any node (invalidation bus) re-reads that workout's exercise ids.
+ */
+@Service
+public class WorkoutSimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkoutSimilarityService.class);
+
+    private static final String EXERCISES_SQL = "SELECT we.workout_id, w.user_id, we.exercise_id "
+            + "FROM workout_exercise we JOIN workout w ON w.user_id = we.user_id AND w.id = we.workout_id WHERE ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WorkoutRepository workoutRepository;
+    private final int loadThreads;
+    private final double minSimilarity;
+    private final int maxCandidates;
+
+    private volatile WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+    // Workouts (id to owner) changed while the initial load ran, refreshed once it is done
+    private final Map<Long, Long> changedDuringLoad = new ConcurrentHashMap<>();
+    private final Set<Long> changedOwnersDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    // Full rebuilds take seconds, so they run here and not on the invalidation bus thread
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "similarity-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    @Autowired
+    public WorkoutSimilarityService(JdbcTemplate jdbcTemplate, WorkoutRepository workoutRepository,
+            InvalidationBus invalidationBus,
+            @Value("${trainerapp.similarity.load-threads:4}") int loadThreads,
+            @Value("${trainerapp.similarity.min-similarity:0.3}") double minSimilarity,
+            @Value("${trainerapp.similarity.max-candidates:5000}") int maxCandidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.workoutRepository = workoutRepository;
+        this.loadThreads = loadThreads;
+        this.minSimilarity = minSimilarity;
+        this.maxCandidates = maxCandidates;
+
+        invalidationBus.subscribe(this::onChange);
+    }
+
+    private void onChange(EntityChangeEvent event) {
+        if (event.getEntityType() == EntityType.ALL) {
+            rebuildInBackground();
+        } else if (event.getEntityType() == EntityType.WORKOUT && event.getId() != null
+                && event.getOwnerId() != null) {
+            if (!loaded) {
+                changedDuringLoad.put(event.getId(), event.getOwnerId());
+            }
+            if (event.getChangeType() == ChangeType.DELETED) {
+                index.remove(event.getId());
+            } else {
+                refreshWorkout(event.getId(), event.getOwnerId());
+            }
+        } else if (event.getEntityType() == EntityType.WORKOUT && event.getOwnerId() != null) {
+            // Bulk change to one user's workouts, e.g. a generated program
+            if (!loaded) {
+                changedOwnersDuringLoad.add(event.getOwnerId());
+            }
+            refreshOwner(event.getOwnerId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        rebuildInBackground();
+    }
+
+    private void rebuildInBackground() {
+        // A rebuild that has not started yet covers the changes of later requests too
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilds.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Loading workout similarity index failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilds.shutdownNow();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        loaded = false;
+        WorkoutSimilarityIndex rebuilt = new WorkoutSimilarityIndex();
+        ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+        try {
+            CompletableFuture<?>[] partitions = new CompletableFuture<?>[loadThreads];
+            for (int partition = 0; partition < loadThreads; partition++) {
+                int current = partition;
+                partitions[partition] = CompletableFuture.runAsync(() -> {
+                    // Rows arrive grouped by workout, each group becomes one signature
+                    List<Long> exerciseIds = new ArrayList<>();
+                    long[] workout = { -1, 0 };
+                    jdbcTemplate.query(EXERCISES_SQL + "we.workout_id % ? = ? ORDER BY we.workout_id", row -> {
+                        long workoutId = row.getLong(1);
+                        if (workoutId != workout[0]) {
+                            if (!exerciseIds.isEmpty()) {
+                                rebuilt.put(workout[0], workout[1], exerciseIds);
+                            }
+                            exerciseIds.clear();
+                            workout[0] = workoutId;
+                            workout[1] = row.getLong(2);
+                        }
+                        exerciseIds.add(row.getLong(3));
+                    }, loadThreads, current);
+                    if (!exerciseIds.isEmpty()) {
+                        rebuilt.put(workout[0], workout[1], exerciseIds);
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(partitions).join();
+        } finally {
+            executor.shutdown();
+        }
+        index = rebuilt;
+        loaded = true;
+
+        for (Map.Entry<Long, Long> changed : Map.copyOf(changedDuringLoad).entrySet()) {
+            changedDuringLoad.remove(changed.getKey());
+            refreshWorkout(changed.getKey(), changed.getValue());
+        }
+        for (Long ownerId : Set.copyOf(changedOwnersDuringLoad)) {
+            changedOwnersDuringLoad.remove(ownerId);
+            refreshOwner(ownerId);
+        }
+        logger.info("Indexed {} workouts for similarity in {} ms", rebuilt.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void refreshWorkout(long workoutId, long ownerId) {
+        List<Long> exerciseIds = new ArrayList<>();
+        jdbcTemplate.query(EXERCISES_SQL + "we.user_id = ? AND we.workout_id = ?", row -> {
+            exerciseIds.add(row.getLong(3));
+        }, ownerId, workoutId);
+        index.put(workoutId, ownerId, exerciseIds);
+    }
+
+    public void refreshOwner(long ownerId) {
+        Map<Long, List<Long>> exercisesByWorkout = new HashMap<>();
+        jdbcTemplate.query(EXERCISES_SQL + "we.user_id = ?", row -> {
+            exercisesByWorkout.computeIfAbsent(row.getLong(1), id -> new ArrayList<>()).add(row.getLong(3));
+        }, ownerId);
+        WorkoutSimilarityIndex current = index;
+        exercisesByWorkout.forEach((workoutId, exerciseIds) -> current.put(workoutId, ownerId, exerciseIds));
+        // Bulk deletes only publish the owner
+        current.retainOwner(ownerId, exercisesByWorkout.keySet());
+    }
+
+    /**
+     * Workouts most similar to the given one, by estimated Jaccard similarity
+     * of their exercise sets. Other users' workouts only, unless includeOwn.
+     */
+    public List<SimilarWorkoutDto> findSimilar(Long workoutId, Long ownerId, int limit, boolean includeOwn) {
+        if (!workoutRepository.existsByIdAndUserId(workoutId, ownerId)) {
+            throw new EntityNotFoundException("Workout not found");
+        }
+
+        WorkoutSimilarityIndex current = index;
+        if (!current.contains(workoutId) && !loaded) {
+            refreshWorkout(workoutId, ownerId);
+            // The refresh writes to whichever index is current now, a finished load may have replaced it
+            current = index;
+        }
+        List<WorkoutSimilarityIndex.Match> matches = current.similarTo(workoutId, !includeOwn, minSimilarity, limit,
+                maxCandidates);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        // The index knows the owners, so only their partitions are read
+        Map<Long, Workout> workouts = workoutRepository.findByUserIdInAndIdIn(
+                matches.stream().map(WorkoutSimilarityIndex.Match::ownerId).collect(Collectors.toSet()),
+                matches.stream().map(WorkoutSimilarityIndex.Match::workoutId).toList()).stream()
+                .collect(Collectors.toMap(Workout::getId, Function.identity()));
+        List<SimilarWorkoutDto> similar = new ArrayList<>(matches.size());
+        for (WorkoutSimilarityIndex.Match match : matches) {
+            Workout candidate = workouts.get(match.workoutId());
+            // Deleted since it was indexed, the bus event is on its way
+            if (candidate != null) {
+                similar.add(new SimilarWorkoutDto(candidate.getId(), candidate.getUserId(), candidate.getName(),
+                        match.similarity()));
+            }
+        }
+        return similar;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the tuples of Postgres' binary COPY format. Fields stay
+ * in their binary representation; a null field is a null array.
+ */
+final class PgBinaryCopy {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0 };
+
+    private PgBinaryCopy() {
+    }
+
+    static void readRows(InputStream stream, SnapshotReader.RowConsumer consumer) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("Not a binary COPY stream");
+        }
+        in.readInt(); // flags
+        in.skipNBytes(in.readInt()); // header extension
+        for (int count = in.readShort(); count != -1; count = in.readShort()) {
+            byte[][] fields = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length >= 0) {
+                    fields[i] = new byte[length];
+                    in.readFully(fields[i]);
+                }
+            }
+            consumer.accept(fields);
+        }
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    static void writeRow(DataOutputStream out, byte[][] fields) throws IOException {
+        out.writeShort(fields.length);
+        for (byte[] field : fields) {
+            if (field == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(field.length);
+                out.write(field);
+            }
+        }
+    }
+
+    static void writeTrailer(DataOutputStream out) throws IOException {
+        out.writeShort(-1);
+    }
+}
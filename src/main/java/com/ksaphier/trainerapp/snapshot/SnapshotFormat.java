@@ -0,0 +1,124 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of a snapshot file:
+ *
+ * <pre>
+ * magic, version
+ * row group*      int rows, then per column: int raw length, int compressed length, deflated bytes
+ * footer          the tables with their columns, row count, checksum and row groups
+ * long            footer offset
+ * magic
+ * </pre>
+ *
+ * A column of a row group is a null bitmap followed by its non-null values.
+ * Values are the fields of Postgres' binary COPY format. Fixed-width integer
+ * types (integers, dates, timestamps) are stored as zigzag varint deltas from
+ * the previous value, so ascending ids and close timestamps take a byte or
+ * two; every other type is stored as a varint length and its bytes.
+ */
+final class SnapshotFormat {
+
+    static final byte[] MAGIC = { 'T', 'R', 'N', 'S', 'N', 'A', 'P', 0 };
+    static final int VERSION = 1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SnapshotFormat() {
+    }
+
+    // Width in bytes of the types stored as integer deltas, 0 for the rest
+    static int integerWidth(String typeName) {
+        return switch (typeName) {
+            case "int2" -> 2;
+            case "int4", "date" -> 4;
+            case "int8", "timestamp", "timestamptz" -> 8;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Hash of one row's binary fields, null being distinct from empty. Tables
+     * are checksummed by adding up the hashes of their rows, which does not
+     * depend on the order the rows are read in.
+     */
+    static long rowHash(byte[][] fields) {
+        long hash = FNV_OFFSET;
+        for (byte[] field : fields) {
+            hash = (hash ^ (field == null ? -1 : field.length)) * FNV_PRIME;
+            if (field != null) {
+                for (byte b : field) {
+                    hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+                }
+            }
+        }
+        // Murmur3 finalizer, spreads the bits before the hashes are summed
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    static long readInteger(byte[] field, int width) {
+        long value = field[0]; // sign-extended
+        for (int i = 1; i < width; i++) {
+            value = (value << 8) | (field[i] & 0xff);
+        }
+        return value;
+    }
+
+    static byte[] writeInteger(long value, int width) {
+        byte[] field = new byte[width];
+        for (int i = width - 1; i >= 0; i--) {
+            field[i] = (byte) value;
+            value >>= 8;
+        }
+        return field;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in snapshot");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // A ByteArrayOutputStream whose buffer can be handed out without a copy
+    static final class Bytes extends ByteArrayOutputStream {
+
+        Bytes(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
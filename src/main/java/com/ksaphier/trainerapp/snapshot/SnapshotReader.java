@@ -0,0 +1,173 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a snapshot file written by SnapshotWriter. The footer is read when
+ * the file is opened; row groups are read with positional reads, so several
+ * threads can each read their own range of a table at the same time.
+ */
+public class SnapshotReader implements Closeable {
+
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(byte[][] fields) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final List<SnapshotTable> tables;
+
+    public SnapshotReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            tables = readFooter(file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public List<SnapshotTable> tables() {
+        return tables;
+    }
+
+    /** Passes the rows of row groups [fromGroup, toGroup) of the table to the consumer, in order. */
+    public void read(SnapshotTable table, int fromGroup, int toGroup, RowConsumer consumer) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            for (SnapshotTable.RowGroup group : table.rowGroups().subList(fromGroup, toGroup)) {
+                for (byte[][] row : readRowGroup(table, group, inflater)) {
+                    consumer.accept(row);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[][][] readRowGroup(SnapshotTable table, SnapshotTable.RowGroup group, Inflater inflater)
+            throws IOException {
+        ByteBuffer buffer = readFully(group.offset(), group.length());
+        int rows = buffer.getInt();
+        if (rows != group.rows()) {
+            throw new IOException("Row group of " + table.name() + " at " + group.offset() + " has " + rows
+                    + " rows, the footer says " + group.rows());
+        }
+        int columnCount = table.columns().size();
+        byte[][][] fields = new byte[rows][columnCount][];
+        for (int c = 0; c < columnCount; c++) {
+            byte[] raw = new byte[buffer.getInt()];
+            int compressed = buffer.getInt();
+            inflater.reset();
+            inflater.setInput(buffer.array(), buffer.position(), compressed);
+            try {
+                if (inflater.inflate(raw) != raw.length || !inflater.finished()) {
+                    throw new IOException("Truncated column " + table.columns().get(c).name() + " in "
+                            + table.name());
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt column " + table.columns().get(c).name() + " in " + table.name(), e);
+            }
+            buffer.position(buffer.position() + compressed);
+            decodeColumn(ByteBuffer.wrap(raw), rows, table.columns().get(c).width(), fields, c);
+        }
+        return fields;
+    }
+
+    private static void decodeColumn(ByteBuffer raw, int rows, int width, byte[][][] fields, int column) {
+        int bitmap = (rows + 7) / 8;
+        raw.position(bitmap);
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            if ((raw.get(row >>> 3) & (1 << (row & 7))) != 0) {
+                continue;
+            }
+            if (width > 0) {
+                previous += SnapshotFormat.unzigzag(SnapshotFormat.readVarLong(raw));
+                fields[row][column] = SnapshotFormat.writeInteger(previous, width);
+            } else {
+                byte[] field = new byte[(int) SnapshotFormat.readVarLong(raw)];
+                raw.get(field);
+                fields[row][column] = field;
+            }
+        }
+    }
+
+    private List<SnapshotTable> readFooter(Path file) throws IOException {
+        long size = channel.size();
+        int trailer = 8 + SnapshotFormat.MAGIC.length;
+        if (size < SnapshotFormat.MAGIC.length + 4 + trailer
+                || !hasMagic(readFully(0, SnapshotFormat.MAGIC.length))) {
+            throw new IOException(file + " is not a snapshot");
+        }
+        int version = readFully(SnapshotFormat.MAGIC.length, 4).getInt();
+        if (version != SnapshotFormat.VERSION) {
+            throw new IOException(file + " has snapshot version " + version + ", expected " + SnapshotFormat.VERSION);
+        }
+        ByteBuffer end = readFully(size - trailer, trailer);
+        long footerOffset = end.getLong();
+        if (!hasMagic(end)) {
+            throw new IOException(file + " has no footer, the export did not finish");
+        }
+
+        ByteBuffer footer = readFully(footerOffset, (int) (size - trailer - footerOffset));
+        int tableCount = footer.getInt();
+        List<SnapshotTable> result = new ArrayList<>(tableCount);
+        for (int t = 0; t < tableCount; t++) {
+            String name = readUtf(footer);
+            int columnCount = footer.getShort();
+            List<SnapshotTable.Column> columns = new ArrayList<>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                columns.add(new SnapshotTable.Column(readUtf(footer), readUtf(footer), footer.get()));
+            }
+            long rows = footer.getLong();
+            long checksum = footer.getLong();
+            int groupCount = footer.getInt();
+            List<SnapshotTable.RowGroup> groups = new ArrayList<>(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                groups.add(new SnapshotTable.RowGroup(footer.getLong(), footer.getInt(), footer.getInt()));
+            }
+            result.add(new SnapshotTable(name, List.copyOf(columns), rows, checksum, List.copyOf(groups)));
+        }
+        return List.copyOf(result);
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+        buffer.get(magic);
+        return Arrays.equals(magic, SnapshotFormat.MAGIC);
+    }
+
+    // The modified UTF-8 of DataOutput.writeUTF, identifiers and type names only
+    private static String readUtf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import java.util.List;
+
+/**
+ * A table in a snapshot file. The row count and checksum are those of the
+ * rows as exported, see SnapshotFormat.rowHash.
+ */
+public record SnapshotTable(String name, List<Column> columns, long rows, long checksum, List<RowGroup> rowGroups) {
+
+    // Width of integer columns (stored as deltas) in bytes, 0 for other types
+    public record Column(String name, String type, int width) {
+    }
+
+    public record RowGroup(long offset, int length, int rows) {
+    }
+}
@@ -0,0 +1,453 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+/**
+ * Copies the whole database (every table of the current schema) to a
+ * snapshot file and back, for staging copies of production:
+ *
+ * <pre>
+ * export  file                              one repeatable-read transaction, so the tables are consistent
+ * restore file [--threads=N] [--no-verify]  replaces the contents of the tables and verifies them
+ * verify  file                              compares the file and the database row by row checksum
+ * </pre>
+ *
+ * Rows travel in Postgres' binary COPY format both ways, so no value is
+ * converted. A restore truncates the tables and drops their keys, indexes
+ * and foreign keys, loads the row groups with parallel COPY streams, then
+ * rebuilds the keys, resets the id sequences to the largest id and analyzes
+ * the tables. The statements that recreate the keys are saved next to the
+ * snapshot until they have run. Uses the SPRING_DATASOURCE_* variables; run
+ * it with scripts/snapshot.sh while the application is stopped.
+ */
+public class SnapshotTool {
+
+    // Row groups of a table are restored by parallel COPY streams of about this many rows
+    private static final long ROWS_PER_COPY = 250_000;
+
+    private record Key(String table, String name, char kind, String definition) {
+
+        // Keys first, plain indexes next and foreign keys, which need the keys they reference, last
+        int rank() {
+            return switch (kind) {
+                case 'p', 'u' -> 0;
+                case 'i' -> 1;
+                default -> 2;
+            };
+        }
+
+        String createSql() {
+            if (kind == 'i') {
+                // An index created ON ONLY a partitioned table would not be built on its partitions
+                return definition.replace(" ON ONLY ", " ON ");
+            }
+            return "ALTER TABLE " + quote(table) + " ADD CONSTRAINT " + name + " " + definition;
+        }
+
+        String dropSql() {
+            return kind == 'i' ? "DROP INDEX " + name : "ALTER TABLE " + quote(table) + " DROP CONSTRAINT " + name;
+        }
+    }
+
+    private record Check(long rows, long checksum) {
+    }
+
+    private record Slice(SnapshotTable table, int fromGroup, int toGroup, long rows) {
+    }
+
+    private final DataSource dataSource;
+    private final int threads;
+
+    public SnapshotTool(DataSource dataSource, int threads) {
+        this.dataSource = dataSource;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean verify = true;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else if (args[i].equals("--no-verify")) {
+                verify = false;
+            } else {
+                usage();
+            }
+        }
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(threads + 1);
+        boolean ok;
+        try {
+            SnapshotTool tool = new SnapshotTool(dataSource, threads);
+            Path file = Path.of(args[1]);
+            ok = switch (args[0]) {
+                case "export" -> {
+                    tool.export(file);
+                    yield true;
+                }
+                case "restore" -> tool.restore(file, verify);
+                case "verify" -> tool.verify(file);
+                default -> {
+                    usage();
+                    yield false;
+                }
+            };
+        } finally {
+            dataSource.close();
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: SnapshotTool export|restore|verify <file> [--threads=N] [--no-verify]");
+        System.exit(2);
+    }
+
+    public void export(Path file) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection(); SnapshotWriter writer = new SnapshotWriter(file)) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            for (String table : tableNames(connection)) {
+                long tableStart = System.nanoTime();
+                List<SnapshotTable.Column> columns = columns(connection, table);
+                writer.beginTable(table, columns);
+                try (InputStream in = new PGCopyInputStream(connection.unwrap(PGConnection.class),
+                        "COPY (" + select(table, columns) + ") TO STDOUT (FORMAT binary)")) {
+                    PgBinaryCopy.readRows(in, writer::addRow);
+                }
+                SnapshotTable exported = writer.endTable();
+                System.out.printf("  %-24s %,12d rows %,9d ms%n", table, exported.rows(), millis(tableStart));
+            }
+            writer.finish();
+            connection.commit();
+        }
+        System.out.printf("exported %s, %,d bytes, in %,d ms%n", file, Files.size(file), millis(start));
+    }
+
+    public boolean restore(Path file, boolean verify) throws Exception {
+        long start = System.nanoTime();
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            List<SnapshotTable> tables = reader.tables();
+            List<String> names = tables.stream().map(SnapshotTable::name).toList();
+            Path keysFile = file.resolveSibling(file.getFileName() + ".keys.sql");
+
+            long phase = System.nanoTime();
+            List<Key> keys;
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                keys = keys(connection, names);
+                saveKeys(keys, keysFile);
+                try (Statement statement = connection.createStatement()) {
+                    for (Key key : keys.stream().sorted(Comparator.comparingInt(Key::rank).reversed()).toList()) {
+                        statement.execute(key.dropSql());
+                    }
+                    // After the drops, so TRUNCATE has no index files to recreate
+                    statement.execute("TRUNCATE " + names.stream().map(SnapshotTool::quote)
+                            .collect(Collectors.joining(", ")));
+                }
+                connection.commit();
+            }
+            System.out.printf("dropped %d keys and indexes (saved to %s), truncated %d tables in %,d ms%n",
+                    keys.size(), keysFile, names.size(), millis(phase));
+
+            phase = System.nanoTime();
+            long rows = load(reader, tables);
+            System.out.printf("loaded %,d rows with %d threads in %,d ms%n", rows, threads, millis(phase));
+
+            phase = System.nanoTime();
+            rebuild(names, keys);
+            Files.delete(keysFile);
+            resetSequences(tables);
+            System.out.printf("rebuilt %d keys and indexes, reset sequences, analyzed in %,d ms%n", keys.size(),
+                    millis(phase));
+            System.out.printf("restored %s in %,d ms%n", file, millis(start));
+
+            return !verify || verify(reader);
+        }
+    }
+
+    public boolean verify(Path file) throws Exception {
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            return verify(reader);
+        }
+    }
+
+    // Recomputes every table's row count and checksum from the file and from the database
+    private boolean verify(SnapshotReader reader) throws Exception {
+        long start = System.nanoTime();
+        List<Callable<String>> checks = new ArrayList<>();
+        for (SnapshotTable table : reader.tables()) {
+            checks.add(() -> {
+                Check expected = new Check(table.rows(), table.checksum());
+                Check inFile = fileCheck(reader, table);
+                Check inDatabase = databaseCheck(table);
+                if (expected.equals(inFile) && expected.equals(inDatabase)) {
+                    return null;
+                }
+                return String.format("%s: snapshot %s, file %s, database %s", table.name(), expected, inFile,
+                        inDatabase);
+            });
+        }
+        List<String> mismatches = runAll(checks).stream().filter(mismatch -> mismatch != null).toList();
+        mismatches.forEach(mismatch -> System.out.println("  MISMATCH " + mismatch));
+        System.out.printf("verified %d tables in %,d ms: %s%n", reader.tables().size(), millis(start),
+                mismatches.isEmpty() ? "row counts and checksums match" : mismatches.size() + " mismatched");
+        return mismatches.isEmpty();
+    }
+
+    private long load(SnapshotReader reader, List<SnapshotTable> tables) throws Exception {
+        List<Slice> slices = new ArrayList<>();
+        for (SnapshotTable table : tables) {
+            int from = 0;
+            long rows = 0;
+            for (int g = 0; g < table.rowGroups().size(); g++) {
+                rows += table.rowGroups().get(g).rows();
+                if (rows >= ROWS_PER_COPY || g == table.rowGroups().size() - 1) {
+                    slices.add(new Slice(table, from, g + 1, rows));
+                    from = g + 1;
+                    rows = 0;
+                }
+            }
+        }
+        // Largest first, so a big table does not start last and hold up the end
+        slices.sort(Comparator.comparingLong(Slice::rows).reversed());
+        List<Callable<Long>> copies = new ArrayList<>();
+        for (Slice slice : slices) {
+            copies.add(() -> copyIn(reader, slice));
+        }
+        return runAll(copies).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private long copyIn(SnapshotReader reader, Slice slice) throws SQLException, IOException {
+        SnapshotTable table = slice.table();
+        String columns = table.columns().stream().map(column -> quote(column.name()))
+                .collect(Collectors.joining(", "));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (DataOutputStream out = new DataOutputStream(new PGCopyOutputStream(
+                    connection.unwrap(PGConnection.class),
+                    "COPY " + quote(table.name()) + " (" + columns + ") FROM STDIN (FORMAT binary)", 1 << 16))) {
+                PgBinaryCopy.writeHeader(out);
+                reader.read(table, slice.fromGroup(), slice.toGroup(), fields -> PgBinaryCopy.writeRow(out, fields));
+                PgBinaryCopy.writeTrailer(out);
+            }
+            connection.commit();
+        }
+        return slice.rows();
+    }
+
+    private void rebuild(List<String> tables, List<Key> keys) throws Exception {
+        // Keys and indexes of a table are built one after the other, ALTER TABLE locks it; tables in parallel
+        List<Callable<Void>> builds = new ArrayList<>();
+        for (String table : tables) {
+            List<Key> tableKeys = keys.stream()
+                    .filter(key -> key.table().equals(table) && key.kind() != 'f')
+                    .sorted(Comparator.comparingInt(Key::rank))
+                    .toList();
+            builds.add(() -> {
+                execute(tableKeys.stream().map(Key::createSql).toList());
+                execute(List.of("ANALYZE " + quote(table)));
+                return null;
+            });
+        }
+        runAll(builds);
+        execute(keys.stream().filter(key -> key.kind() == 'f').map(Key::createSql).toList());
+    }
+
+    // Sequences feeding an id column, serial or Hibernate's <table>_seq, continue after the largest id
+    private void resetSequences(List<SnapshotTable> tables) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (SnapshotTable table : tables) {
+                if (table.columns().stream().noneMatch(column -> column.name().equals("id"))) {
+                    continue;
+                }
+                String sequence;
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT coalesce(pg_get_serial_sequence(?, 'id'), to_regclass(?)::text)")) {
+                    statement.setString(1, quote(table.name()));
+                    statement.setString(2, quote(table.name() + "_seq"));
+                    try (ResultSet rs = statement.executeQuery()) {
+                        rs.next();
+                        sequence = rs.getString(1);
+                    }
+                }
+                if (sequence != null) {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT setval(?::regclass, coalesce(max(id), 1), max(id) IS NOT NULL) FROM "
+                                    + quote(table.name()))) {
+                        statement.setString(1, sequence);
+                        statement.execute();
+                    }
+                }
+            }
+        }
+    }
+
+    private Check fileCheck(SnapshotReader reader, SnapshotTable table) throws IOException {
+        long[] sums = new long[2];
+        reader.read(table, 0, table.rowGroups().size(), fields -> {
+            sums[0]++;
+            sums[1] += SnapshotFormat.rowHash(fields);
+        });
+        return new Check(sums[0], sums[1]);
+    }
+
+    private Check databaseCheck(SnapshotTable table) throws SQLException, IOException {
+        long[] sums = new long[2];
+        try (Connection connection = dataSource.getConnection();
+                InputStream in = new PGCopyInputStream(connection.unwrap(PGConnection.class),
+                        "COPY (" + select(table.name(), table.columns()) + ") TO STDOUT (FORMAT binary)")) {
+            PgBinaryCopy.readRows(in, fields -> {
+                sums[0]++;
+                sums[1] += SnapshotFormat.rowHash(fields);
+            });
+        }
+        return new Check(sums[0], sums[1]);
+    }
+
+    private static List<String> tableNames(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT relname FROM pg_class "
+                        + "WHERE relnamespace = current_schema()::regnamespace AND relkind IN ('r', 'p') "
+                        + "AND NOT relispartition ORDER BY relname")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static List<SnapshotTable.Column> columns(Connection connection, String table) throws SQLException {
+        List<SnapshotTable.Column> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT a.attname, "
+                + "format_type(a.atttypid, a.atttypmod), t.typname FROM pg_attribute a "
+                + "JOIN pg_type t ON t.oid = a.atttypid "
+                + "WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped AND a.attgenerated = '' "
+                + "ORDER BY a.attnum")) {
+            statement.setString(1, quote(table));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(new SnapshotTable.Column(rs.getString(1), rs.getString(2),
+                            SnapshotFormat.integerWidth(rs.getString(3))));
+                }
+            }
+        }
+        return columns;
+    }
+
+    // Primary keys, unique constraints, foreign keys and the indexes that do not back a constraint
+    private static List<Key> keys(Connection connection, List<String> tables) throws SQLException {
+        List<Key> keys = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT t.relname, quote_ident(k.conname), k.contype, pg_get_constraintdef(k.oid) "
+                        + "FROM pg_constraint k JOIN pg_class t ON t.oid = k.conrelid "
+                        + "WHERE t.relnamespace = current_schema()::regnamespace AND t.relname = ANY (?) "
+                        + "AND k.contype IN ('p', 'u', 'f') "
+                        + "UNION ALL "
+                        + "SELECT t.relname, x.indexrelid::regclass::text, 'i', pg_get_indexdef(x.indexrelid) "
+                        + "FROM pg_index x JOIN pg_class t ON t.oid = x.indrelid "
+                        + "WHERE t.relnamespace = current_schema()::regnamespace AND t.relname = ANY (?) "
+                        + "AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = x.indexrelid "
+                        + "AND k.contype IN ('p', 'u', 'x'))")) {
+            statement.setArray(1, connection.createArrayOf("text", tables.toArray()));
+            statement.setArray(2, connection.createArrayOf("text", tables.toArray()));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    keys.add(new Key(rs.getString(1), rs.getString(2), rs.getString(3).charAt(0), rs.getString(4)));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static void saveKeys(List<Key> keys, Path file) throws IOException {
+        Files.write(file, keys.stream()
+                .sorted(Comparator.comparingInt(Key::rank))
+                .map(key -> key.createSql() + ";")
+                .toList());
+    }
+
+    private void execute(List<String> statements) throws SQLException {
+        if (statements.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String select(String table, List<SnapshotTable.Column> columns) {
+        return "SELECT " + columns.stream().map(column -> quote(column.name())).collect(Collectors.joining(", "))
+                + " FROM " + quote(table);
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,204 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes tables to a snapshot file, one table at a time, rows being the
+ * fields of Postgres' binary COPY format. Rows are buffered by column and
+ * written as deflated row groups; the footer that makes the file readable is
+ * only written by finish, so an interrupted export is never mistaken for a
+ * complete one.
+ */
+public class SnapshotWriter implements Closeable {
+
+    static final int ROW_GROUP_ROWS = 65_536;
+    static final int ROW_GROUP_BYTES = 32 << 20;
+
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] deflateBuffer = new byte[1 << 16];
+    private final List<SnapshotTable> tables = new ArrayList<>();
+
+    private String tableName;
+    private List<SnapshotTable.Column> columns;
+    private ColumnBuffer[] buffers;
+    private List<SnapshotTable.RowGroup> rowGroups;
+    private int groupRows;
+    private long groupBytes;
+    private long tableRows;
+    private long checksum;
+
+    public SnapshotWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SnapshotFormat.MAGIC.length + 4);
+        header.put(SnapshotFormat.MAGIC).putInt(SnapshotFormat.VERSION).flip();
+        write(header);
+    }
+
+    public void beginTable(String name, List<SnapshotTable.Column> tableColumns) {
+        if (tableName != null) {
+            throw new IllegalStateException("Table " + tableName + " is not finished");
+        }
+        tableName = name;
+        columns = List.copyOf(tableColumns);
+        buffers = columns.stream().map(column -> new ColumnBuffer(column.width())).toArray(ColumnBuffer[]::new);
+        rowGroups = new ArrayList<>();
+        groupRows = 0;
+        groupBytes = 0;
+        tableRows = 0;
+        checksum = 0;
+    }
+
+    public void addRow(byte[][] fields) throws IOException {
+        if (fields.length != buffers.length) {
+            throw new IllegalArgumentException("Row of " + tableName + " has " + fields.length + " fields, expected "
+                    + buffers.length);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            buffers[i].add(groupRows, fields[i]);
+            groupBytes += fields[i] == null ? 0 : fields[i].length;
+        }
+        groupRows++;
+        tableRows++;
+        checksum += SnapshotFormat.rowHash(fields);
+        if (groupRows == ROW_GROUP_ROWS || groupBytes >= ROW_GROUP_BYTES) {
+            flushRowGroup();
+        }
+    }
+
+    public SnapshotTable endTable() throws IOException {
+        if (groupRows > 0) {
+            flushRowGroup();
+        }
+        SnapshotTable table = new SnapshotTable(tableName, columns, tableRows, checksum, List.copyOf(rowGroups));
+        tables.add(table);
+        tableName = null;
+        return table;
+    }
+
+    /** Writes the footer and forces the file to disk. */
+    public void finish() throws IOException {
+        if (tableName != null) {
+            throw new IllegalStateException("Table " + tableName + " is not finished");
+        }
+        long footerOffset = channel.position();
+        SnapshotFormat.Bytes footer = new SnapshotFormat.Bytes(4096);
+        DataOutputStream out = new DataOutputStream(footer);
+        out.writeInt(tables.size());
+        for (SnapshotTable table : tables) {
+            out.writeUTF(table.name());
+            out.writeShort(table.columns().size());
+            for (SnapshotTable.Column column : table.columns()) {
+                out.writeUTF(column.name());
+                out.writeUTF(column.type());
+                out.writeByte(column.width());
+            }
+            out.writeLong(table.rows());
+            out.writeLong(table.checksum());
+            out.writeInt(table.rowGroups().size());
+            for (SnapshotTable.RowGroup group : table.rowGroups()) {
+                out.writeLong(group.offset());
+                out.writeInt(group.length());
+                out.writeInt(group.rows());
+            }
+        }
+        out.writeLong(footerOffset);
+        out.write(SnapshotFormat.MAGIC);
+        write(ByteBuffer.wrap(footer.array(), 0, footer.size()));
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+
+    private void flushRowGroup() throws IOException {
+        long offset = channel.position();
+        SnapshotFormat.Bytes group = new SnapshotFormat.Bytes((int) Math.min(groupBytes / 2 + 1024, 1 << 24));
+        DataOutputStream out = new DataOutputStream(group);
+        out.writeInt(groupRows);
+        for (ColumnBuffer buffer : buffers) {
+            byte[] raw = buffer.toRaw(groupRows);
+            int lengthAt = group.size();
+            out.writeInt(raw.length);
+            out.writeInt(0);
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(deflateBuffer);
+                group.write(deflateBuffer, 0, n);
+                compressed += n;
+            }
+            ByteBuffer.wrap(group.array()).putInt(lengthAt + 4, compressed);
+            buffer.reset();
+        }
+        write(ByteBuffer.wrap(group.array(), 0, group.size()));
+        rowGroups.add(new SnapshotTable.RowGroup(offset, group.size(), groupRows));
+        groupRows = 0;
+        groupBytes = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // One column of the current row group: null bitmap and encoded values
+    private static final class ColumnBuffer {
+
+        private final int width;
+        private final byte[] nulls = new byte[ROW_GROUP_ROWS / 8];
+        private final SnapshotFormat.Bytes values = new SnapshotFormat.Bytes(1 << 16);
+        private long previous;
+
+        ColumnBuffer(int width) {
+            this.width = width;
+        }
+
+        void add(int row, byte[] field) {
+            if (field == null) {
+                nulls[row >>> 3] |= (byte) (1 << (row & 7));
+            } else if (width > 0) {
+                if (field.length != width) {
+                    throw new IllegalArgumentException("Integer field of " + field.length + " bytes, expected "
+                            + width);
+                }
+                long value = SnapshotFormat.readInteger(field, width);
+                SnapshotFormat.writeVarLong(values, SnapshotFormat.zigzag(value - previous));
+                previous = value;
+            } else {
+                SnapshotFormat.writeVarLong(values, field.length);
+                values.write(field, 0, field.length);
+            }
+        }
+
+        byte[] toRaw(int rows) {
+            int bitmap = (rows + 7) / 8;
+            byte[] raw = Arrays.copyOf(nulls, bitmap + values.size());
+            System.arraycopy(values.array(), 0, raw, bitmap, values.size());
+            return raw;
+        }
+
+        void reset() {
+            Arrays.fill(nulls, (byte) 0);
+            values.reset();
+            previous = 0;
+        }
+    }
+}
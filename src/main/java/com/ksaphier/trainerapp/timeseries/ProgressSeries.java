@@ -0,0 +1,154 @@
+package com.ksaphier.trainerapp.timeseries;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progression curve of one user on one exercise, one point per day with the
+ * best values of that day. Points are kept sorted; once there are more than
+ * MAX_POINTS, the older half is merged pairwise, so old history gets coarser
+ * while recent days stay exact and the encoded size stays bounded.
+ *
+ * Encoding: version byte, point count, then per point the day as a delta to
+ * the previous point and each value as a zigzag delta, all as varints. A
+ * typical point takes 4-6 bytes.
+ */
+public class ProgressSeries {
+
+    public static final int MAX_POINTS = 256;
+
+    private static final byte VERSION = 1;
+
+    public record Point(LocalDate date, int maxWeight, double estimatedOneRepMax, int volume) {
+    }
+
+    // { epochDay, maxWeight, estimatedOneRepMax in tenths, volume }
+    private final List<long[]> points;
+
+    private ProgressSeries(List<long[]> points) {
+        this.points = points;
+    }
+
+    public static ProgressSeries empty() {
+        return new ProgressSeries(new ArrayList<>());
+    }
+
+    public static ProgressSeries decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown progress series version " + version);
+        }
+        int count = (int) readVarint(buffer);
+        List<long[]> points = new ArrayList<>(count + 1);
+        long day = 0;
+        long weight = 0;
+        long oneRepMax = 0;
+        long volume = 0;
+        for (int i = 0; i < count; i++) {
+            day += readVarint(buffer);
+            weight += zigzagDecode(readVarint(buffer));
+            oneRepMax += zigzagDecode(readVarint(buffer));
+            volume += zigzagDecode(readVarint(buffer));
+            points.add(new long[] { day, weight, oneRepMax, volume });
+        }
+        return new ProgressSeries(points);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + points.size() * 6);
+        out.write(VERSION);
+        writeVarint(out, points.size());
+        long[] previous = new long[4];
+        for (long[] point : points) {
+            writeVarint(out, point[0] - previous[0]);
+            for (int v = 1; v < 4; v++) {
+                writeVarint(out, zigzagEncode(point[v] - previous[v]));
+            }
+            previous = point;
+        }
+        return out.toByteArray();
+    }
+
+    /** Merges the values into the day's point, keeping the best of each. */
+    public void add(LocalDate date, int maxWeight, double estimatedOneRepMax, int volume) {
+        long[] point = { date.toEpochDay(), maxWeight, Math.round(estimatedOneRepMax * 10), volume };
+        int index = Collections.binarySearch(points, point, (a, b) -> Long.compare(a[0], b[0]));
+        if (index >= 0) {
+            mergeInto(points.get(index), point);
+        } else {
+            points.add(-index - 1, point);
+        }
+        if (points.size() > MAX_POINTS) {
+            downsampleOlderHalf();
+        }
+    }
+
+    public List<Point> points() {
+        List<Point> result = new ArrayList<>(points.size());
+        for (long[] point : points) {
+            result.add(new Point(LocalDate.ofEpochDay(point[0]), (int) point[1], point[2] / 10.0, (int) point[3]));
+        }
+        return result;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    // A merged pair is dated on its later day
+    private void downsampleOlderHalf() {
+        int half = points.size() / 2;
+        List<long[]> compacted = new ArrayList<>(points.size());
+        for (int i = 0; i + 1 < half; i += 2) {
+            long[] merged = points.get(i + 1).clone();
+            mergeInto(merged, points.get(i));
+            compacted.add(merged);
+        }
+        int rest = half % 2 == 0 ? half : half - 1;
+        compacted.addAll(points.subList(rest, points.size()));
+        points.clear();
+        points.addAll(compacted);
+    }
+
+    private static void mergeInto(long[] target, long[] other) {
+        for (int v = 1; v < 4; v++) {
+            target[v] = Math.max(target[v], other[v]);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
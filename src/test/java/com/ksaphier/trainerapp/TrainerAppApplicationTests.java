@@ -3,7 +3,8 @@ package com.ksaphier.trainerapp;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Keeps the relay from writing to the shared outbox file
+@SpringBootTest(properties = "trainerapp.outbox.sink=memory")
 class TrainerAppApplicationTests {
 
 	@Test
@@ -0,0 +1,71 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.index.ExerciseMuscleIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Coverage queries against a synthetic 50k exercise catalog. Run from the IDE
+ * or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ksaphier.trainerapp.benchmark.ExerciseRecommendationBenchmark
+ */
+public class ExerciseRecommendationBenchmark {
+
+    private static final int EXERCISES = 50_000;
+    private static final int MUSCLES = 80;
+    private static final int QUERIES = 20_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+
+        long buildStart = System.nanoTime();
+        ExerciseMuscleIndex.Builder builder = ExerciseMuscleIndex.builder();
+        for (long exercise = 0; exercise < EXERCISES; exercise++) {
+            int muscleCount = 1 + random.nextInt(4);
+            for (int m = 0; m < muscleCount; m++) {
+                builder.addMuscle(exercise, random.nextInt(MUSCLES));
+            }
+        }
+        ExerciseMuscleIndex index = builder.build();
+        System.out.printf("built index of %d exercises in %d ms%n", index.size(),
+                (System.nanoTime() - buildStart) / 1_000_000);
+
+        List<List<Long>> targets = new ArrayList<>();
+        List<List<Long>> exclusions = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            List<Long> target = new ArrayList<>();
+            for (int m = 0, n = 2 + random.nextInt(5); m < n; m++) {
+                target.add((long) random.nextInt(MUSCLES));
+            }
+            List<Long> excluded = new ArrayList<>();
+            for (int e = 0; e < 8; e++) {
+                excluded.add((long) random.nextInt(EXERCISES));
+            }
+            targets.add(target);
+            exclusions.add(excluded);
+        }
+
+        for (ExerciseMuscleIndex.Mode mode : ExerciseMuscleIndex.Mode.values()) {
+            // Warm up the JIT before measuring
+            for (int q = 0; q < QUERIES / 4; q++) {
+                index.recommend(targets.get(q), exclusions.get(q), 10, mode);
+            }
+            long[] latencies = new long[QUERIES];
+            long start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                long queryStart = System.nanoTime();
+                index.recommend(targets.get(q), exclusions.get(q), 10, mode);
+                latencies[q] = System.nanoTime() - queryStart;
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            System.out.printf("%-10s %8.0f queries/s  p50 %6.1f us  p99 %6.1f us%n", mode,
+                    QUERIES / (elapsed / 1e9),
+                    latencies[QUERIES / 2] / 1e3,
+                    latencies[QUERIES * 99 / 100] / 1e3);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.model.Job;
+import com.ksaphier.trainerapp.repository.JobRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Drains a queue of no-op jobs with several pollers, each standing in for a
+ * worker on its own instance, once with the FOR UPDATE SKIP LOCKED claim of
+ * JobRepository and once with a plain FOR UPDATE claim. Reports jobs per
+ * second, empty claims and whether any job was claimed twice. Uses the
+ * SPRING_DATASOURCE_* variables and the job table created by the
+ * application; its rows are removed afterwards.
+ *
+ * Arguments: [jobs] [pollers] [claimSize]
+ */
+public class JobClaimBenchmark {
+
+    private static final long BENCHMARK_USER_ID = -1;
+    private static final String TYPE = "BENCHMARK";
+
+    private static final String PLAIN_CLAIM_SQL = "UPDATE job SET status = 'RUNNING', locked_by = ?, "
+            + "heartbeat_at = now(), attempts = attempts + 1 "
+            + "WHERE id IN (SELECT id FROM job WHERE status = 'QUEUED' AND run_after <= now() "
+            + "ORDER BY run_after, id LIMIT ? FOR UPDATE) RETURNING id";
+
+    public static void main(String[] args) throws Exception {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int pollers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int claimSize = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(pollers);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        JobRepository jobRepository = new JobRepository(jdbcTemplate);
+
+        try {
+            for (int round = 0; round < 2; round++) {
+                // First round warms up the JIT and the connections
+                boolean report = round == 1;
+                run("FOR UPDATE SKIP LOCKED", jobs, pollers, claimSize, report, jdbcTemplate, jobRepository,
+                        (worker, limit) -> jobRepository.claim(worker, limit).stream().map(Job::getId).toList());
+                run("FOR UPDATE", jobs, pollers, claimSize, report, jdbcTemplate, jobRepository,
+                        (worker, limit) -> jdbcTemplate.queryForList(PLAIN_CLAIM_SQL, Long.class, worker, limit));
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM job WHERE user_id = ?", BENCHMARK_USER_ID);
+            dataSource.close();
+        }
+    }
+
+    private static void run(String name, int jobs, int pollers, int claimSize, boolean report,
+            JdbcTemplate jdbcTemplate, JobRepository jobRepository, BiFunction<String, Integer, List<Long>> claim)
+            throws Exception {
+        jdbcTemplate.update("DELETE FROM job WHERE user_id = ?", BENCHMARK_USER_ID);
+        jdbcTemplate.update("INSERT INTO job (user_id, type, status, progress, attempts, max_attempts, run_after, "
+                + "created_at) SELECT ?, ?, 'QUEUED', 0, 0, 1, now(), now() FROM generate_series(1, ?)",
+                BENCHMARK_USER_ID, TYPE, jobs);
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong emptyClaims = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(pollers);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int p = 0; p < pollers; p++) {
+            String worker = "benchmark-" + p;
+            futures.add(executor.submit(() -> {
+                while (completed.get() < jobs) {
+                    List<Long> ids = claim.apply(worker, claimSize);
+                    if (ids.isEmpty()) {
+                        emptyClaims.incrementAndGet();
+                        continue;
+                    }
+                    for (Long id : ids) {
+                        if (jobRepository.complete(id, worker, null)) {
+                            completed.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+
+        Integer claimedTwice = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM job WHERE user_id = ? AND attempts > 1", Integer.class, BENCHMARK_USER_ID);
+        if (report) {
+            System.out.printf("%-24s %d jobs, %d pollers: %d ms, %.0f jobs/s, %d empty claims, %d claimed twice%n",
+                    name, jobs, pollers, millis, jobs * 1000.0 / Math.max(1, millis), emptyClaims.get(),
+                    claimedTwice);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.index.ExerciseLeaderboard;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Page and rank queries against one leaderboard with 1M users. Run from the IDE
+ * or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ksaphier.trainerapp.benchmark.LeaderboardBenchmark
+ */
+public class LeaderboardBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int QUERIES = 200_000;
+    private static final int PAGE_SIZE = 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+
+        long buildStart = System.nanoTime();
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        for (long user = 0; user < USERS; user++) {
+            // Roughly normal around 100 kg
+            board.offer(user, (int) Math.max(0, 100 + random.nextGaussian() * 30));
+        }
+        System.out.printf("built leaderboard of %d users in %d ms%n", board.size(),
+                (System.nanoTime() - buildStart) / 1_000_000);
+
+        for (int round = 0; round < 3; round++) {
+            long[] pages = new long[QUERIES];
+            long[] ranks = new long[QUERIES];
+            long[] updates = new long[QUERIES];
+            long checksum = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                long start = System.nanoTime();
+                checksum += board.page(random.nextInt(USERS), PAGE_SIZE).size();
+                pages[q] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checksum += board.rankOf(random.nextInt(USERS)).orElseThrow().rank();
+                ranks[q] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                board.offer(random.nextInt(USERS), 100 + random.nextInt(100));
+                updates[q] = System.nanoTime() - start;
+            }
+            System.out.printf("round %d: page p50 %s p99 %s | rank p50 %s p99 %s | update p50 %s p99 %s (%d)%n",
+                    round + 1, micros(pages, 50), micros(pages, 99), micros(ranks, 50), micros(ranks, 99),
+                    micros(updates, 50), micros(updates, 99), checksum);
+        }
+    }
+
+    private static String micros(long[] samples, int percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return String.format("%.1f us", sorted[sorted.length * percentile / 100] / 1e3);
+    }
+}
@@ -0,0 +1,132 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens many SSE streams on one live session of a running instance, completes
+ * a set and reports how long the event took to reach every stream.
+ *
+ * Arguments: baseUrl jwt workoutId [streams] [rounds]
+ */
+public class LiveSessionFanOutBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: LiveSessionFanOutBenchmark baseUrl jwt workoutId [streams] [rounds]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        String jwt = args[1];
+        String workoutId = args[2];
+        int streams = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        String session = client.send(json(baseUrl + "/sessions", jwt, "{\"workoutId\":" + workoutId + "}"),
+                HttpResponse.BodyHandlers.ofString()).body();
+        String sessionId = field(session, "id");
+        String details = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/workouts/" + workoutId + "/details"))
+                .header("Authorization", "Bearer " + jwt).build(), HttpResponse.BodyHandlers.ofString()).body();
+        String workoutExerciseId = field(details.substring(details.indexOf("\"exercises\"")), "id");
+
+        CountDownLatch connected = new CountDownLatch(streams);
+        CountDownLatch[] received = new CountDownLatch[rounds];
+        for (int r = 0; r < rounds; r++) {
+            received[r] = new CountDownLatch(streams);
+        }
+        AtomicLong[] lastArrival = new AtomicLong[rounds];
+        Arrays.setAll(lastArrival, r -> new AtomicLong());
+
+        HttpRequest streamRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/sessions/" + sessionId + "/stream"))
+                .header("Authorization", "Bearer " + jwt)
+                .build();
+        long openStart = System.nanoTime();
+        for (int i = 0; i < streams; i++) {
+            // Read asynchronously, the client must not need a thread per stream either
+            client.sendAsync(streamRequest, HttpResponse.BodyHandlers.fromLineSubscriber(new Flow.Subscriber<String>() {
+                int round;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(String line) {
+                    if (line.equals("event:session")) {
+                        connected.countDown();
+                    } else if (line.equals("event:set") && round < rounds) {
+                        lastArrival[round].accumulateAndGet(System.nanoTime(), Math::max);
+                        received[round++].countDown();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    System.err.println("stream failed: " + throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            }));
+            if (i % 500 == 499) {
+                // Stay below the server's accept backlog
+                Thread.sleep(50);
+            }
+        }
+        if (!connected.await(5, TimeUnit.MINUTES)) {
+            System.out.printf("only %d of %d streams connected%n", streams - connected.getCount(), streams);
+        }
+        System.out.printf("%d streams open in %.1f s%n", streams - connected.getCount(),
+                (System.nanoTime() - openStart) / 1e9);
+
+        for (int r = 0; r < rounds; r++) {
+            long sent = System.nanoTime();
+            int status = client.send(json(baseUrl + "/sessions/" + sessionId + "/sets", jwt,
+                    "{\"workoutExerciseId\":" + workoutExerciseId + ",\"series\":" + (r + 1)
+                            + ",\"reps\":10,\"weight\":50}"),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 200) {
+                System.out.printf("round %d: set completion failed with %d%n", r + 1, status);
+                continue;
+            }
+            boolean all = received[r].await(60, TimeUnit.SECONDS);
+            System.out.printf("round %d: delivered to %d streams, last after %.1f ms%s%n", r + 1,
+                    streams - received[r].getCount(), (lastArrival[r].get() - sent) / 1e6, all ? "" : " (timed out)");
+        }
+
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/sessions/" + sessionId))
+                .header("Authorization", "Bearer " + jwt).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        System.exit(0);
+    }
+
+    private static HttpRequest json(String url, String jwt, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + jwt)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String field(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":") + name.length() + 3;
+        int end = start;
+        while (end < json.length() && ",}".indexOf(json.charAt(end)) < 0) {
+            end++;
+        }
+        return json.substring(start, end).replace("\"", "");
+    }
+}
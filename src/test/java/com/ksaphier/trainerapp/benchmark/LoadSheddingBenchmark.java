@@ -0,0 +1,108 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Overloads a running instance with GET /workouts from many clients while a
+ * single client logs in over and over, then reports the latency of served
+ * and rejected reads and of the logins. Run once with the limiter enabled
+ * and once with trainerapp.limiter.enabled=false to compare.
+ *
+ * Arguments: baseUrl username password [concurrency] [seconds]
+ */
+public class LoadSheddingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: LoadSheddingBenchmark baseUrl username password [concurrency] [seconds]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        String login = "{\"username\":\"" + args[1] + "\",\"password\":\"" + args[2] + "\"}";
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+        long seconds = args.length > 4 ? Long.parseLong(args[4]) : 30;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest loginRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(login))
+                .build();
+        String jwt = client.send(loginRequest, HttpResponse.BodyHandlers.ofString()).body();
+        HttpRequest read = HttpRequest.newBuilder(URI.create(baseUrl + "/workouts"))
+                .header("Authorization", "Bearer " + jwt)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Long> served = Collections.synchronizedList(new ArrayList<>());
+        List<Long> rejected = Collections.synchronizedList(new ArrayList<>());
+        List<Long> failed = Collections.synchronizedList(new ArrayList<>());
+        List<Long> logins = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executor.submit(() -> {
+                while (System.nanoTime() < end) {
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(read, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long latency = System.nanoTime() - sent;
+                    (status == 200 ? served : status == 503 ? rejected : failed).add(latency);
+                    if (status == 503) {
+                        // A client honouring Retry-After would wait a second; keep the pressure up instead
+                        Thread.sleep(10);
+                    }
+                }
+                return null;
+            }));
+        }
+        while (System.nanoTime() < end) {
+            long sent = System.nanoTime();
+            HttpResponse<Void> response = client.send(loginRequest, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                logins.add(System.nanoTime() - sent);
+            }
+            Thread.sleep(100);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        report("reads served (200)", served, seconds);
+        report("reads rejected (503)", rejected, seconds);
+        report("reads failed", failed, seconds);
+        report("logins", logins, seconds);
+    }
+
+    private static void report(String name, List<Long> latencies, long seconds) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            System.out.printf("%-22s none%n", name);
+            return;
+        }
+        System.out.printf("%-22s %7d  %7.0f/s  p50 %8.1f ms  p99 %8.1f ms%n", name, sorted.size(),
+                (double) sorted.size() / seconds, sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get(sorted.size() * 99 / 100) / 1e6);
+    }
+}
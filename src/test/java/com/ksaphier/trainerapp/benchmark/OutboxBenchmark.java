@@ -0,0 +1,173 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+import com.ksaphier.trainerapp.outbox.FileOutboxSink;
+import com.ksaphier.trainerapp.repository.OutboxRepository;
+import com.ksaphier.trainerapp.service.OutboxService;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures what the outbox costs a write and how fast the relay drains it.
+ * Runs single-row workout updates in a scratch schema three ways: alone,
+ * with the outbox insert in the same transaction, and with the event
+ * appended to a file and forced to disk before the request returns, which is
+ * what publishing synchronously from the request would cost. Then fills the
+ * outbox with events and drains it through OutboxService and FileOutboxSink
+ * at several batch sizes. Needs the outbox_event table of the application;
+ * uses the SPRING_DATASOURCE_* variables and drops the schema afterwards.
+ * Stop the application first, its relay competes for the same lock.
+ *
+ * Arguments: [writes] [events]
+ */
+public class OutboxBenchmark {
+
+    private static final int WORKOUTS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int writes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        String schema = "outbox_bench_" + UUID.randomUUID().toString().substring(0, 8);
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(1);
+        // Unqualified names resolve to the scratch tables, so the real outbox is never drained
+        dataSource.setConnectionInitSql("SET search_path TO " + schema + ", public");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        OutboxRepository outboxRepository = new OutboxRepository(jdbcTemplate);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        Path directory = Files.createTempDirectory("outbox-bench");
+        FileOutboxSink inlineSink = new FileOutboxSink(directory.resolve("inline.jsonl"), objectMapper);
+
+        try {
+            jdbcTemplate.execute("CREATE SCHEMA " + schema);
+            jdbcTemplate.execute("CREATE TABLE workout (id bigint PRIMARY KEY, name varchar(255))");
+            jdbcTemplate.execute("CREATE TABLE outbox_event (LIKE public.outbox_event INCLUDING ALL)");
+            jdbcTemplate.update("INSERT INTO workout SELECT g, 'Workout ' || g FROM generate_series(1, ?) g",
+                    WORKOUTS);
+
+            System.out.printf("%,d single-row updates%n", writes);
+            report("update", writes, i -> transaction.executeWithoutResult(status -> update(jdbcTemplate, i)));
+            report("update + outbox insert", writes, i -> transaction.executeWithoutResult(status -> {
+                update(jdbcTemplate, i);
+                outboxRepository.insert(event(i));
+            }));
+            report("update + inline file publish", writes, i -> transaction.executeWithoutResult(status -> {
+                update(jdbcTemplate, i);
+                try {
+                    inlineSink.publish(List.of(toOutboxEvent(i)));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+
+            System.out.printf("%n%,d events drained to a file%n", events);
+            for (int batchSize : new int[] { 1, 50, 500, 2000 }) {
+                drain(jdbcTemplate, transactionManager, transaction, outboxRepository, objectMapper,
+                        directory.resolve("relay-" + batchSize + ".jsonl"), batchSize, events);
+            }
+        } finally {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+            dataSource.close();
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void update(JdbcTemplate jdbcTemplate, int i) {
+        jdbcTemplate.update("UPDATE workout SET name = ? WHERE id = ?", "Workout " + i, 1 + i % WORKOUTS);
+    }
+
+    private static EntityChangeEvent event(int i) {
+        return new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, 1L + i % WORKOUTS, 1L);
+    }
+
+    private static OutboxEvent toOutboxEvent(int i) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId((long) i);
+        event.setEntityType(EntityType.WORKOUT);
+        event.setChangeType(ChangeType.SAVED);
+        event.setEntityId(1L + i % WORKOUTS);
+        event.setOwnerId(1L);
+        event.setCreatedAt(Instant.now());
+        return event;
+    }
+
+    private static void drain(JdbcTemplate jdbcTemplate, DataSourceTransactionManager transactionManager,
+            TransactionTemplate transaction, OutboxRepository outboxRepository, ObjectMapper objectMapper,
+            Path file, int batchSize, int events) throws Exception {
+        jdbcTemplate.execute("TRUNCATE outbox_event");
+        List<EntityChangeEvent> pending = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            pending.add(event(i));
+        }
+        transaction.executeWithoutResult(status -> outboxRepository.insertAll(pending));
+
+        // Not started, relayBatch is called from here until the outbox is empty
+        OutboxService outboxService = new OutboxService(outboxRepository,
+                List.of(new FileOutboxSink(file, objectMapper)), transactionManager, new SimpleMeterRegistry(),
+                batchSize, Duration.ofMillis(500), Duration.ofDays(7));
+        long start = System.nanoTime();
+        int relayed = 0;
+        while (relayed < events) {
+            int batch = outboxService.relayBatch();
+            if (batch == 0) {
+                throw new IllegalStateException("Outbox empty after " + relayed + " events");
+            }
+            relayed += Math.max(batch, 0);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long lines;
+        try (var stream = Files.lines(file)) {
+            lines = stream.count();
+        }
+        System.out.printf("  batch %-5d %8.2f s  %,9.0f events/s  %,d lines%n", batchSize, seconds,
+                events / seconds, lines);
+    }
+
+    private static void report(String name, int writes, IntConsumer write) {
+        for (int i = 0; i < writes / 5; i++) {
+            write.accept(i);
+        }
+        List<Long> latencies = new ArrayList<>(writes);
+        for (int i = 0; i < writes; i++) {
+            long start = System.nanoTime();
+            write.accept(i);
+            latencies.add(System.nanoTime() - start);
+        }
+        Collections.sort(latencies);
+        System.out.printf("  %-30s p50 %6.3f ms  p99 %6.3f ms%n", name, latencies.get(writes / 2) / 1e6,
+                latencies.get(writes * 99 / 100) / 1e6);
+    }
+}
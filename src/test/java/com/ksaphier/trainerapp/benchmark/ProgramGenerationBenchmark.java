@@ -0,0 +1,119 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registers a trainer and client users linked to it on a running instance
+ * and generates a 12-week program for all of them with one POST /programs,
+ * waiting for the job to finish through GET /jobs/{id}, then times the same
+ * amount of work done serially through POST /workouts and
+ * POST /workouts/addExercise for a few clients and extrapolates.
+ *
+ * Arguments: baseUrl [clients] [serialClients]
+ */
+public class ProgramGenerationBenchmark {
+
+    private static final int WEEKS = 12;
+    private static final int SESSIONS_PER_WEEK = 3;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: ProgramGenerationBenchmark baseUrl [clients] [serialClients]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int serialClients = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        HttpClient client = HttpClient.newHttpClient();
+        String prefix = "bench-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        List<Long> clientIds = new ArrayList<>();
+        String jwt = register(client, baseUrl, prefix + "trainer");
+        long trainerId = userId(jwt);
+        long registerStart = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            String clientJwt = register(client, baseUrl, prefix + i);
+            client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/trainers/" + trainerId + "/clients/me"))
+                    .header("Authorization", "Bearer " + clientJwt)
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            clientIds.add(userId(clientJwt));
+        }
+        System.out.printf("registered %d clients in %d ms%n", clients, (System.nanoTime() - registerStart) / 1_000_000);
+
+        long start = System.nanoTime();
+        HttpResponse<String> accepted = client.send(json(baseUrl + "/programs", jwt,
+                "{\"name\":\"Bench\",\"weeks\":" + WEEKS + ",\"sessionsPerWeek\":" + SESSIONS_PER_WEEK
+                        + ",\"clientIds\":" + clientIds + "}"),
+                HttpResponse.BodyHandlers.ofString());
+        String job = accepted.body();
+        while (job.contains("\"QUEUED\"") || job.contains("\"RUNNING\"")) {
+            Thread.sleep(100);
+            job = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/" + field(job, "id")))
+                    .header("Authorization", "Bearer " + jwt).build(), HttpResponse.BodyHandlers.ofString()).body();
+        }
+        long batchedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("POST /programs: %d, job finished in %d ms%n%s%n", accepted.statusCode(), batchedMillis,
+                job);
+
+        int workoutExercises = Integer.parseInt(field(job, "workoutExercises"));
+        int perSession = Math.max(1, workoutExercises / (clients * WEEKS * SESSIONS_PER_WEEK));
+        String exerciseId = "1";
+
+        start = System.nanoTime();
+        for (int i = 0; i < serialClients * WEEKS * SESSIONS_PER_WEEK; i++) {
+            String workout = client.send(json(baseUrl + "/workouts", jwt, "{\"name\":\"Serial " + i + "\"}"),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            String workoutId = field(workout, "id");
+            for (int e = 0; e < perSession; e++) {
+                client.send(json(baseUrl + "/workouts/addExercise", jwt, "{\"workoutId\":" + workoutId
+                        + ",\"exerciseId\":" + exerciseId + ",\"series\":3,\"reps\":10,\"rest\":90,\"weight\":50}"),
+                        HttpResponse.BodyHandlers.discarding());
+            }
+        }
+        double serialMillisPerClient = (System.nanoTime() - start) / 1e6 / serialClients;
+        System.out.printf("serial calls: %.0f ms per client, ~%.1f s for %d clients (%.0fx slower)%n",
+                serialMillisPerClient, serialMillisPerClient * clients / 1000, clients,
+                serialMillisPerClient * clients / Math.max(1, batchedMillis));
+    }
+
+    private static String register(HttpClient client, String baseUrl, String username) throws Exception {
+        String user = "{\"username\":\"" + username + "\",\"password\":\"p\",\"email\":\"" + username
+                + "@bench\"}";
+        client.send(json(baseUrl + "/api/auth/register", null, user), HttpResponse.BodyHandlers.discarding());
+        return client.send(json(baseUrl + "/api/auth/login", null, user), HttpResponse.BodyHandlers.ofString())
+                .body();
+    }
+
+    private static long userId(String jwt) {
+        String payload = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[1]), StandardCharsets.UTF_8);
+        return Long.parseLong(field(payload, "userId"));
+    }
+
+    private static HttpRequest json(String url, String jwt, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (jwt != null) {
+            builder.header("Authorization", "Bearer " + jwt);
+        }
+        return builder.build();
+    }
+
+    private static String field(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":") + name.length() + 3;
+        int end = start;
+        while (end < json.length() && ",}".indexOf(json.charAt(end)) < 0) {
+            end++;
+        }
+        return json.substring(start, end).replace("\"", "");
+    }
+}
@@ -0,0 +1,92 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the servlet read endpoints with their /reactive counterparts at a
+ * fixed number of in-flight requests against a running instance.
+ *
+ * Arguments: baseUrl jwt workoutId [concurrency] [requestsPerEndpoint]
+ */
+public class ReadApiLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: ReadApiLoadBenchmark baseUrl jwt workoutId [concurrency] [requests]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        String jwt = args[1];
+        String workoutId = args[2];
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        int requests = args.length > 4 ? Integer.parseInt(args[4]) : 20_000;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        String[][] pairs = {
+                { "/workouts", "/reactive/workouts" },
+                { "/workouts/" + workoutId + "/details", "/reactive/workouts/" + workoutId + "/details" },
+                { "/exercises", "/reactive/exercises" },
+        };
+        for (String[] pair : pairs) {
+            for (String path : pair) {
+                // Warm-up run, then the measured one
+                run(client, baseUrl + path, jwt, concurrency, requests / 4, false);
+                run(client, baseUrl + path, jwt, concurrency, requests, true);
+            }
+        }
+    }
+
+    private static void run(HttpClient client, String url, String jwt, int concurrency, int requests,
+            boolean report) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + jwt)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        if (report) {
+            Arrays.sort(latencies);
+            System.out.printf("%-45s %8.0f req/s  p50 %7.1f ms  p99 %7.1f ms  errors %d%n",
+                    url.substring(url.indexOf('/', 8)),
+                    requests / (elapsed / 1e9),
+                    latencies[requests / 2] / 1e6,
+                    latencies[requests * 99 / 100] / 1e6,
+                    errors.get());
+        }
+    }
+}
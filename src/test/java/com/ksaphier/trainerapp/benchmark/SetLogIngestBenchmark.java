@@ -0,0 +1,134 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.ingest.WriteBehindBuffer;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares one INSERT per logged set with the write-behind buffer used by
+ * POST /sets. Request threads are simulated by a fixed pool sharing a Hikari
+ * pool of the default size. Uses the SPRING_DATASOURCE_* variables and the
+ * set_log table created by the application; its rows are removed afterwards.
+ *
+ * Arguments: [sets] [requestThreads]
+ */
+public class SetLogIngestBenchmark {
+
+    private static final long BENCHMARK_USER_ID = -1;
+
+    private static final String INSERT_SQL = "INSERT INTO set_log "
+            + "(user_id, workout_exercise_id, set_number, reps, weight, performed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private record LoggedSet(long workoutExerciseId, int setNumber, int reps, int weight, Instant performedAt) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sets = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        try {
+            for (int round = 0; round < 2; round++) {
+                // First round warms up the JIT and the connections
+                boolean report = round == 1;
+                run("insert per request", sets, threads, report, jdbcTemplate, set -> {
+                    insertOne(jdbcTemplate, set);
+                    return true;
+                }, null);
+
+                WriteBehindBuffer<LoggedSet> buffer = new WriteBehindBuffer<>("benchmark", 20_000, 500,
+                        Duration.ofMillis(200), Duration.ofMillis(50), batch -> insertBatch(jdbcTemplate, batch),
+                        new SimpleMeterRegistry());
+                buffer.start();
+                run("write-behind buffer", sets, threads, report, jdbcTemplate, buffer::offer, buffer);
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM set_log WHERE user_id = ?", BENCHMARK_USER_ID);
+            dataSource.close();
+        }
+    }
+
+    private interface Ingest {
+        boolean accept(LoggedSet set) throws Exception;
+    }
+
+    private static void run(String name, int sets, int threads, boolean report, JdbcTemplate jdbcTemplate,
+            Ingest ingest, WriteBehindBuffer<LoggedSet> buffer) throws Exception {
+        jdbcTemplate.update("DELETE FROM set_log WHERE user_id = ?", BENCHMARK_USER_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long[] latencies = new long[sets];
+        int[] rejected = new int[threads];
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = thread; i < sets; i += threads) {
+                    LoggedSet set = new LoggedSet(i % 1000, i % 5 + 1, 10, 50, Instant.now());
+                    long sent = System.nanoTime();
+                    if (!ingest.accept(set)) {
+                        rejected[thread]++;
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long accepted = System.nanoTime() - start;
+        if (buffer != null) {
+            buffer.stop();
+        }
+        long durable = System.nanoTime() - start;
+        executor.shutdown();
+
+        if (report) {
+            Arrays.sort(latencies);
+            int rejectedTotal = Arrays.stream(rejected).sum();
+            Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM set_log WHERE user_id = ?",
+                    Integer.class, BENCHMARK_USER_ID);
+            System.out.printf("%-20s %8.0f sets/s accepted, %8.0f sets/s written, request p50 %6.3f ms "
+                    + "p99 %6.3f ms, rejected %d, rows %d%n",
+                    name, sets / (accepted / 1e9), (sets - rejectedTotal) / (durable / 1e9),
+                    latencies[sets / 2] / 1e6, latencies[sets * 99 / 100] / 1e6, rejectedTotal, rows);
+        }
+    }
+
+    private static void insertOne(JdbcTemplate jdbcTemplate, LoggedSet set) {
+        jdbcTemplate.update(INSERT_SQL, BENCHMARK_USER_ID, set.workoutExerciseId(), set.setNumber(), set.reps(),
+                set.weight(), Timestamp.from(set.performedAt()));
+    }
+
+    private static void insertBatch(JdbcTemplate jdbcTemplate, List<LoggedSet> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, set) -> {
+            statement.setLong(1, BENCHMARK_USER_ID);
+            statement.setLong(2, set.workoutExerciseId());
+            statement.setInt(3, set.setNumber());
+            statement.setInt(4, set.reps());
+            statement.setInt(5, set.weight());
+            statement.setTimestamp(6, Timestamp.from(set.performedAt()));
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.dto.ClientSummaryDto;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Seeds a trainer with many clients, each with workouts, planned exercises
+ * and performed sets, then builds the dashboard two ways: from the
+ * client_summary rows with the queries of TrainerDashboardRepository, and
+ * with the per-user queries behind GET /workouts, GET /workouts/{id}/details
+ * and GET /sets for every client, which is the only way to sort clients by
+ * last activity without the summaries. Reports queries and milliseconds of
+ * both and the time of a full summary refresh. Uses the SPRING_DATASOURCE_*
+ * variables and the tables created by the application; its rows are removed
+ * afterwards.
+ *
+ * Arguments: [clients] [workoutsPerClient] [pageSize]
+ */
+public class TrainerDashboardBenchmark {
+
+    private static final int EXERCISES_PER_WORKOUT = 4;
+    private static final int SETS_PER_EXERCISE = 3;
+    private static final int RECENT_WORKOUTS = 3;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int workoutsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int pageSize = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TrainerDashboardRepository repository = new TrainerDashboardRepository(jdbcTemplate);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        String prefix = "dash-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+        try {
+            long seedStart = System.nanoTime();
+            Long trainerId = seed(jdbcTemplate, prefix, clients, workoutsPerClient);
+            System.out.printf("seeded %d clients, %d workouts in %d ms%n", clients, clients * workoutsPerClient,
+                    (System.nanoTime() - seedStart) / 1_000_000);
+
+            long refreshNanos = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                transaction.execute(status -> repository.tryRefreshLock() ? repository.refreshSummaries() : -1);
+                refreshNanos = Math.min(refreshNanos, System.nanoTime() - start);
+            }
+            Integer summarized = jdbcTemplate.queryForObject("SELECT count(*) FROM client_summary", Integer.class);
+            System.out.printf("full refresh: %d summaries in %.1f ms%n", summarized, refreshNanos / 1e6);
+
+            long pageNanos = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                repository.countClients(trainerId);
+                List<ClientSummaryDto> page = repository.findClientSummaries(trainerId, 0, pageSize);
+                repository.findRecentWorkouts(page.stream().map(ClientSummaryDto::getClientId).toList(),
+                        RECENT_WORKOUTS);
+                pageNanos = Math.min(pageNanos, System.nanoTime() - start);
+            }
+            System.out.printf("dashboard page of %d from summaries: 3 queries, %.1f ms%n", pageSize, pageNanos / 1e6);
+
+            long perUserNanos = Long.MAX_VALUE;
+            long queries = 0;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                queries = perUser(jdbcTemplate, trainerId);
+                perUserNanos = Math.min(perUserNanos, System.nanoTime() - start);
+            }
+            System.out.printf("dashboard with per-user queries: %d queries, %.1f ms%n", queries, perUserNanos / 1e6);
+        } finally {
+            cleanUp(jdbcTemplate, prefix);
+            dataSource.close();
+        }
+    }
+
+    private static Long seed(JdbcTemplate jdbcTemplate, String prefix, int clients, int workoutsPerClient) {
+        Long trainerId = jdbcTemplate.queryForObject("INSERT INTO users (username, password, email) "
+                + "VALUES (?, 'x', ?) RETURNING id", Long.class, prefix + "trainer", prefix + "trainer@bench");
+        jdbcTemplate.update("INSERT INTO users (username, password, email) "
+                + "SELECT ? || g, 'x', ? || g || '@bench' FROM generate_series(1, ?) g", prefix, prefix, clients);
+        jdbcTemplate.update("INSERT INTO trainer_client (trainer_id, client_id, created_at, accepted_at) "
+                + "SELECT ?, id, now(), now() FROM users WHERE username LIKE ? || '%' AND id <> ?",
+                trainerId, prefix, trainerId);
+        // Spread over the last 90 days, so only some fall in the current week
+        jdbcTemplate.update("INSERT INTO workout (id, user_id, name, type, created_at) "
+                + "SELECT nextval('workout_seq'), tc.client_id, 'Workout ' || g, 'BENCHMARK', "
+                + "now() - random() * interval '90 days' FROM trainer_client tc, generate_series(1, ?) g "
+                + "WHERE tc.trainer_id = ?", workoutsPerClient, trainerId);
+        jdbcTemplate.update("INSERT INTO workout_exercise (id, user_id, workout_id, exercise_id, series, reps, rest, "
+                + "weight) SELECT nextval('workout_exercise_seq'), w.user_id, w.id, (SELECT min(id) FROM exercise), "
+                + "3, 10, 90, 50 "
+                + "FROM workout w JOIN trainer_client tc ON tc.client_id = w.user_id, generate_series(1, ?) g "
+                + "WHERE tc.trainer_id = ?", EXERCISES_PER_WORKOUT, trainerId);
+        jdbcTemplate.update("INSERT INTO set_log (user_id, workout_exercise_id, set_number, reps, weight, "
+                + "performed_at) SELECT w.user_id, we.id, g, 10, 50, w.created_at + g * interval '3 minutes' "
+                + "FROM workout w JOIN trainer_client tc ON tc.client_id = w.user_id "
+                + "JOIN workout_exercise we ON we.user_id = w.user_id AND we.workout_id = w.id, "
+                + "generate_series(1, ?) g "
+                + "WHERE tc.trainer_id = ?", SETS_PER_EXERCISE, trainerId);
+        jdbcTemplate.execute("ANALYZE");
+        return trainerId;
+    }
+
+    // The dashboard assembled from the existing per-user reads, for all clients so they can be sorted
+    private static long perUser(JdbcTemplate jdbcTemplate, Long trainerId) {
+        long queries = 1;
+        List<Long> clientIds = jdbcTemplate.queryForList(
+                "SELECT client_id FROM trainer_client WHERE trainer_id = ?", Long.class, trainerId);
+        for (Long clientId : clientIds) {
+            List<Map<String, Object>> workouts = jdbcTemplate.queryForList(
+                    "SELECT id, name, description, type, user_id, created_at FROM workout WHERE user_id = ?",
+                    clientId);
+            queries++;
+            for (Map<String, Object> workout : workouts) {
+                Long workoutId = (Long) workout.get("id");
+                jdbcTemplate.queryForList("SELECT id, name, description, type, user_id FROM workout "
+                        + "WHERE user_id = ? AND id = ?", clientId, workoutId);
+                List<Long> workoutExerciseIds = jdbcTemplate.queryForList("SELECT we.id FROM workout_exercise we "
+                        + "JOIN exercise e ON e.id = we.exercise_id WHERE we.user_id = ? AND we.workout_id = ?",
+                        Long.class, clientId, workoutId);
+                queries += 2;
+                for (Long workoutExerciseId : workoutExerciseIds) {
+                    jdbcTemplate.queryForList("SELECT reps, weight, performed_at FROM set_log "
+                            + "WHERE user_id = ? AND workout_exercise_id = ? ORDER BY performed_at",
+                            clientId, workoutExerciseId);
+                    queries++;
+                }
+            }
+        }
+        return queries;
+    }
+
+    private static void cleanUp(JdbcTemplate jdbcTemplate, String prefix) {
+        String users = "SELECT id FROM users WHERE username LIKE '" + prefix + "%'";
+        jdbcTemplate.update("DELETE FROM set_log WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM workout_exercise WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM workout WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM client_summary WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM trainer_client WHERE trainer_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (" + users + ")");
+    }
+}
@@ -0,0 +1,201 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.index.ExerciseNameIndex;
+import com.ksaphier.trainerapp.ingest.CsvWorkoutReader;
+import com.ksaphier.trainerapp.ingest.ImportedSet;
+import com.ksaphier.trainerapp.ingest.WorkoutAssembler;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a synthetic Strong-style CSV export with the memory-mapped reader
+ * and with Files.readAllLines plus String.split, reporting time and bytes
+ * allocated. With a base url, the same file is then uploaded to a running
+ * instance through POST /imports and its job polled until done; the CSV
+ * then uses the instance's exercise names.
+ *
+ * Arguments: [rows] [baseUrl]
+ */
+public class WorkoutImportBenchmark {
+
+    private static final int SETS_PER_EXERCISE = 4;
+    private static final int EXERCISES_PER_WORKOUT = 5;
+    private static final LocalDateTime FIRST_WORKOUT = LocalDateTime.of(2015, 1, 1, 18, 0);
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String baseUrl = args.length > 1 ? args[1] : null;
+
+        HttpClient client = HttpClient.newHttpClient();
+        String jwt = null;
+        List<String> names = new ArrayList<>();
+        if (baseUrl != null) {
+            String username = "import-" + UUID.randomUUID();
+            String user = "{\"username\":\"" + username + "\",\"password\":\"p\",\"email\":\"" + username
+                    + "@bench\"}";
+            client.send(json(baseUrl + "/api/auth/register", null, user), HttpResponse.BodyHandlers.discarding());
+            jwt = client.send(json(baseUrl + "/api/auth/login", null, user), HttpResponse.BodyHandlers.ofString())
+                    .body();
+            String exercises = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/exercises"))
+                    .header("Authorization", "Bearer " + jwt).build(), HttpResponse.BodyHandlers.ofString()).body();
+            Matcher matcher = Pattern.compile("\"name\":\"([^\"]*)\",\"description\":[^,]*,\"muscles\"")
+                    .matcher(exercises);
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+        } else {
+            for (int i = 0; i < 300; i++) {
+                names.add("Exercise " + i);
+            }
+        }
+
+        Path file = Files.createTempFile("import-benchmark-", ".csv");
+        try {
+            write(file, rows, names);
+            System.out.printf("%d rows, %d MB%n", rows, Files.size(file) >> 20);
+
+            ExerciseNameIndex.Builder builder = ExerciseNameIndex.builder();
+            for (int i = 0; i < names.size(); i++) {
+                builder.add(i, names.get(i));
+            }
+            ExerciseNameIndex index = builder.build();
+
+            for (int round = 0; round < 3; round++) {
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                long workouts = mapped(file, index);
+                System.out.printf("mapped reader:          %d workouts in %d ms, %d MB allocated%n", workouts,
+                        (System.nanoTime() - start) / 1_000_000, (allocatedBytes() - allocated) >> 20);
+
+                allocated = allocatedBytes();
+                start = System.nanoTime();
+                workouts = readAllLines(file, index);
+                System.out.printf("readAllLines + split:   %d workouts in %d ms, %d MB allocated%n", workouts,
+                        (System.nanoTime() - start) / 1_000_000, (allocatedBytes() - allocated) >> 20);
+            }
+
+            if (baseUrl != null) {
+                upload(client, baseUrl, jwt, file);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void write(Path file, int rows, List<String> names) throws Exception {
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Date,Workout Name,Duration,Exercise Name,Set Order,Weight,Reps,Distance,Seconds,Notes\n");
+            int row = 0;
+            for (int workout = 0; row < rows; workout++) {
+                String date = FORMAT.format(FIRST_WORKOUT.plusHours(7L * workout));
+                for (int e = 0; e < EXERCISES_PER_WORKOUT && row < rows; e++) {
+                    String name = names.get(random.nextInt(names.size()));
+                    for (int set = 1; set <= SETS_PER_EXERCISE && row < rows; set++, row++) {
+                        writer.write(date + ",\"Session " + workout % 7 + "\",1h," + "\"" + name
+                                + "\"," + set + "," + (20 + random.nextInt(100)) + "," + (3 + random.nextInt(10))
+                                + ",0,0,\n");
+                    }
+                }
+            }
+        }
+    }
+
+    private static long mapped(Path file, ExerciseNameIndex index) throws Exception {
+        long[] workouts = { 0 };
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            WorkoutAssembler assembler = new WorkoutAssembler(Double.MAX_VALUE, workout -> {
+                workout.exercises().forEach(exercise -> index.resolve(exercise.name()));
+                workouts[0]++;
+            });
+            new CsvWorkoutReader(buffer).read(assembler, bytes -> {
+            });
+            assembler.finish();
+        }
+        return workouts[0];
+    }
+
+    // The naive approach: whole file on the heap as strings, no quoting support
+    private static long readAllLines(Path file, ExerciseNameIndex index) throws Exception {
+        long[] workouts = { 0 };
+        WorkoutAssembler assembler = new WorkoutAssembler(Double.MAX_VALUE, workout -> {
+            workout.exercises().forEach(exercise -> index.resolve(exercise.name()));
+            workouts[0]++;
+        });
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] columns = lines.get(i).split(",", -1);
+            assembler.accept(new ImportedSet(columns[1].replace("\"", ""),
+                    LocalDateTime.parse(columns[0], FORMAT), columns[3].replace("\"", ""),
+                    Integer.parseInt(columns[6]), Double.parseDouble(columns[5]), null));
+        }
+        assembler.finish();
+        return workouts[0];
+    }
+
+    private static void upload(HttpClient client, String baseUrl, String jwt, Path file) throws Exception {
+        String boundary = "bench" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"strong.csv\""
+                + "\r\nContent-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        HttpResponse<String> accepted = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/imports"))
+                .header("Authorization", "Bearer " + jwt)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(HttpRequest.BodyPublishers.ofByteArray(head),
+                        HttpRequest.BodyPublishers.ofFile(file), HttpRequest.BodyPublishers.ofByteArray(tail)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        System.out.printf("POST /imports: %d in %d ms%n", accepted.statusCode(),
+                (System.nanoTime() - start) / 1_000_000);
+        Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(accepted.body());
+        if (!id.find()) {
+            System.out.println(accepted.body());
+            return;
+        }
+
+        String status;
+        do {
+            Thread.sleep(250);
+            status = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/" + id.group(1)))
+                    .header("Authorization", "Bearer " + jwt).build(), HttpResponse.BodyHandlers.ofString()).body();
+            Matcher percent = Pattern.compile("\"progress\":(\\d+)").matcher(status);
+            System.out.printf("  %s%%%n", percent.find() ? percent.group(1) : "?");
+        } while (status.contains("\"QUEUED\"") || status.contains("\"RUNNING\""));
+        System.out.printf("import finished in %d ms%n%s%n", (System.nanoTime() - start) / 1_000_000, status);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static HttpRequest json(String url, String jwt, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (jwt != null) {
+            builder.header("Authorization", "Bearer " + jwt);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Generates workouts and planned exercises in a scratch schema twice: in
+ * plain tables with the indexes the application had before partitioning, and
+ * in tables hash-partitioned by user_id as by scripts/partition-workouts.sql.
+ * Runs the per-user reads of the application against the same sample of
+ * users, then adds users until the tables hold growth times as many rows
+ * (rows per user stay the same) and runs them again. The plain tables get the
+ * queries by workout id the application used before, the partitioned ones
+ * the queries that name the owner. Uses the SPRING_DATASOURCE_* variables;
+ * the schema is dropped afterwards.
+ *
+ * Arguments: [users] [growth]
+ */
+public class WorkoutPartitionBenchmark {
+
+    private static final int PARTITIONS = 16;
+    private static final int WORKOUTS_PER_USER = 40;
+    private static final int EXERCISES_PER_WORKOUT = 4;
+    private static final int QUERIES = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int growth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(1);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String schema = "partition_bench_" + UUID.randomUUID().toString().substring(0, 8);
+
+        try {
+            createTables(jdbcTemplate, schema);
+            seed(jdbcTemplate, schema, 1, users);
+            measure(jdbcTemplate, schema, users, users);
+            seed(jdbcTemplate, schema, users + 1, users * growth);
+            measure(jdbcTemplate, schema, users, users * growth);
+        } finally {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+            dataSource.close();
+        }
+    }
+
+    private static void createTables(JdbcTemplate jdbcTemplate, String schema) {
+        jdbcTemplate.execute("CREATE SCHEMA " + schema);
+        String workout = "(id bigint NOT NULL, user_id bigint NOT NULL, name varchar(255), description varchar(255), "
+                + "type varchar(255), created_at timestamptz)";
+        String workoutExercise = "(id bigint NOT NULL, user_id bigint NOT NULL, workout_id bigint, "
+                + "exercise_id bigint, series int NOT NULL, reps int NOT NULL, rest int NOT NULL, weight int NOT NULL)";
+
+        jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_plain " + workout);
+        jdbcTemplate.execute("ALTER TABLE " + schema + ".workout_plain ADD PRIMARY KEY (id)");
+        jdbcTemplate.execute("CREATE INDEX ON " + schema + ".workout_plain (user_id)");
+        jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_exercise_plain " + workoutExercise);
+        jdbcTemplate.execute("ALTER TABLE " + schema + ".workout_exercise_plain ADD PRIMARY KEY (id)");
+        jdbcTemplate.execute("CREATE INDEX ON " + schema + ".workout_exercise_plain (workout_id)");
+
+        jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_hash " + workout + " PARTITION BY HASH (user_id)");
+        jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_exercise_hash " + workoutExercise
+                + " PARTITION BY HASH (user_id)");
+        for (int i = 0; i < PARTITIONS; i++) {
+            String bounds = " FOR VALUES WITH (MODULUS " + PARTITIONS + ", REMAINDER " + i + ")";
+            jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_hash_p" + i + " PARTITION OF "
+                    + schema + ".workout_hash" + bounds);
+            jdbcTemplate.execute("CREATE TABLE " + schema + ".workout_exercise_hash_p" + i + " PARTITION OF "
+                    + schema + ".workout_exercise_hash" + bounds);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + schema + ".workout_hash ADD PRIMARY KEY (user_id, id)");
+        jdbcTemplate.execute("CREATE INDEX ON " + schema + ".workout_hash (user_id)");
+        jdbcTemplate.execute("ALTER TABLE " + schema + ".workout_exercise_hash ADD PRIMARY KEY (user_id, id)");
+        jdbcTemplate.execute("CREATE INDEX ON " + schema + ".workout_exercise_hash (user_id, workout_id)");
+    }
+
+    // Users firstUser..lastUser with their workouts; ids are derived from the user so both variants get equal rows
+    private static void seed(JdbcTemplate jdbcTemplate, String schema, int firstUser, int lastUser) {
+        long start = System.nanoTime();
+        for (String variant : List.of("plain", "hash")) {
+            jdbcTemplate.update("INSERT INTO " + schema + ".workout_" + variant
+                    + " (id, user_id, name, type, created_at) "
+                    + "SELECT (u - 1) * ? + g, u, 'Workout ' || g, 'BENCHMARK', now() "
+                    + "FROM generate_series(?, ?) u, generate_series(1, ?) g",
+                    WORKOUTS_PER_USER, firstUser, lastUser, WORKOUTS_PER_USER);
+            jdbcTemplate.update("INSERT INTO " + schema + ".workout_exercise_" + variant
+                    + " (id, user_id, workout_id, exercise_id, series, reps, rest, weight) "
+                    + "SELECT ((u - 1) * ? + g) * ? + k, u, (u - 1) * ? + g, 1 + (g * 7 + k) % 200, 3, 10, 90, 50 "
+                    + "FROM generate_series(?, ?) u, generate_series(1, ?) g, generate_series(0, ? - 1) k",
+                    WORKOUTS_PER_USER, EXERCISES_PER_WORKOUT, WORKOUTS_PER_USER, firstUser, lastUser,
+                    WORKOUTS_PER_USER, EXERCISES_PER_WORKOUT);
+        }
+        jdbcTemplate.execute("ANALYZE " + schema + ".workout_plain");
+        jdbcTemplate.execute("ANALYZE " + schema + ".workout_exercise_plain");
+        jdbcTemplate.execute("ANALYZE " + schema + ".workout_hash");
+        jdbcTemplate.execute("ANALYZE " + schema + ".workout_exercise_hash");
+        System.out.printf("seeded users %d..%d in %d ms%n", firstUser, lastUser,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Queries for users of the first seed only, so both scales read the same rows
+    private static void measure(JdbcTemplate jdbcTemplate, String schema, int sampledUsers, int totalUsers) {
+        long workouts = (long) totalUsers * WORKOUTS_PER_USER;
+        System.out.printf("%n%,d workouts, %,d planned exercises%n", workouts, workouts * EXERCISES_PER_WORKOUT);
+        Random random = new Random(42);
+        long[] userIds = new long[QUERIES];
+        long[] workoutIds = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            userIds[i] = 1 + random.nextInt(sampledUsers);
+            workoutIds[i] = (userIds[i] - 1) * WORKOUTS_PER_USER + 1 + random.nextInt(WORKOUTS_PER_USER);
+        }
+
+        String workoutColumns = "SELECT id, name, description, type, user_id, created_at FROM " + schema;
+        report("list, plain", i -> jdbcTemplate.queryForList(workoutColumns + ".workout_plain WHERE user_id = ?",
+                userIds[i]));
+        report("list, partitioned", i -> jdbcTemplate.queryForList(workoutColumns
+                + ".workout_hash WHERE user_id = ?", userIds[i]));
+        report("details by id, plain", i -> {
+            jdbcTemplate.queryForList(workoutColumns + ".workout_plain WHERE id = ?", workoutIds[i]);
+            return jdbcTemplate.queryForList("SELECT * FROM " + schema
+                    + ".workout_exercise_plain WHERE workout_id = ?", workoutIds[i]);
+        });
+        report("details by owner, partitioned", i -> {
+            jdbcTemplate.queryForList(workoutColumns + ".workout_hash WHERE user_id = ? AND id = ?",
+                    userIds[i], workoutIds[i]);
+            return jdbcTemplate.queryForList("SELECT * FROM " + schema
+                    + ".workout_exercise_hash WHERE user_id = ? AND workout_id = ?", userIds[i], workoutIds[i]);
+        });
+        // What a lookup that leaves out the owner costs once the table is partitioned
+        report("by id alone, partitioned", i -> jdbcTemplate.queryForList(workoutColumns
+                + ".workout_hash WHERE id = ?", workoutIds[i]));
+    }
+
+    private static void report(String name, IntFunction<Object> query) {
+        for (int i = 0; i < QUERIES / 5; i++) {
+            query.apply(i);
+        }
+        List<Long> latencies = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            query.apply(i);
+            latencies.add(System.nanoTime() - start);
+        }
+        Collections.sort(latencies);
+        System.out.printf("  %-32s p50 %6.3f ms  p99 %6.3f ms%n", name, latencies.get(QUERIES / 2) / 1e6,
+                latencies.get(QUERIES * 99 / 100) / 1e6);
+    }
+}
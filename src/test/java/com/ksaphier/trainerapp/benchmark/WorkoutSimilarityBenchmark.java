@@ -0,0 +1,166 @@
+package com.ksaphier.trainerapp.benchmark;
+
+import com.ksaphier.trainerapp.index.WorkoutSimilarityIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Similar-workout lookups over 2M synthetic workouts, compared with a brute
+ * force scan for latency and recall. Workouts are variations of a few hundred
+ * templates, like users following popular programs. Run with -Xmx4g from the
+ * IDE or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ksaphier.trainerapp.benchmark.WorkoutSimilarityBenchmark
+ */
+public class WorkoutSimilarityBenchmark {
+
+    private static final int WORKOUTS = 2_000_000;
+    private static final int TEMPLATES = 500;
+    private static final int CATALOG = 800;
+    private static final int QUERIES = 20_000;
+    private static final int BRUTE_FORCE_QUERIES = 50;
+    private static final int LIMIT = 10;
+    private static final double MIN_SIMILARITY = 0.3;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        long[][] templates = new long[TEMPLATES][];
+        for (int t = 0; t < TEMPLATES; t++) {
+            templates[t] = randomExercises(random, 5 + random.nextInt(4));
+        }
+
+        long[][] workouts = new long[WORKOUTS][];
+        for (int w = 0; w < WORKOUTS; w++) {
+            long[] exercises = templates[random.nextInt(TEMPLATES)].clone();
+            // Swap up to three exercises for random ones
+            for (int swaps = random.nextInt(4); swaps > 0; swaps--) {
+                exercises[random.nextInt(exercises.length)] = random.nextInt(CATALOG);
+            }
+            workouts[w] = exercises;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long buildStart = System.nanoTime();
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        for (int w = 0; w < WORKOUTS; w++) {
+            index.put(w, w, asList(workouts[w]));
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("indexed %d workouts in %d ms, ~%d MB heap%n", index.size(), buildMillis,
+                (heapAfter - heapBefore) >> 20);
+
+        for (int round = 0; round < 3; round++) {
+            long[] lookups = new long[QUERIES];
+            long[] updates = new long[QUERIES];
+            long checksum = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                long start = System.nanoTime();
+                checksum += index.similarTo(random.nextInt(WORKOUTS), true, MIN_SIMILARITY, LIMIT, 5000).size();
+                lookups[q] = System.nanoTime() - start;
+
+                int w = random.nextInt(WORKOUTS);
+                workouts[w][random.nextInt(workouts[w].length)] = random.nextInt(CATALOG);
+                start = System.nanoTime();
+                index.put(w, w, asList(workouts[w]));
+                updates[q] = System.nanoTime() - start;
+            }
+            System.out.printf("round %d: lookup p50 %s p99 %s | update p50 %s p99 %s (%d)%n", round + 1,
+                    millis(lookups, 50), millis(lookups, 99), millis(updates, 50), millis(updates, 99), checksum);
+        }
+
+        // Recall of every workout at similarity >= 0.5 without the candidate cap, and how
+        // close the capped top results are to the exact top results
+        long[] scans = new long[BRUTE_FORCE_QUERIES];
+        long expected = 0;
+        long found = 0;
+        double exactTop = 0;
+        double indexTop = 0;
+        for (int q = 0; q < BRUTE_FORCE_QUERIES; q++) {
+            int probe = random.nextInt(WORKOUTS);
+            long start = System.nanoTime();
+            double[] jaccard = bruteForce(workouts, probe);
+            scans[q] = System.nanoTime() - start;
+
+            Set<Long> approximate = new HashSet<>();
+            index.similarTo(probe, true, MIN_SIMILARITY, Integer.MAX_VALUE, Integer.MAX_VALUE)
+                    .forEach(match -> approximate.add(match.workoutId()));
+            for (int w = 0; w < WORKOUTS; w++) {
+                if (jaccard[w] >= 0.5) {
+                    expected++;
+                    if (approximate.contains((long) w)) {
+                        found++;
+                    }
+                }
+            }
+
+            double[] sorted = jaccard.clone();
+            Arrays.sort(sorted);
+            for (int i = 1; i <= LIMIT; i++) {
+                exactTop += sorted[WORKOUTS - i];
+            }
+            for (WorkoutSimilarityIndex.Match match : index.similarTo(probe, true, MIN_SIMILARITY, LIMIT, 5000)) {
+                indexTop += jaccard[(int) match.workoutId()];
+            }
+        }
+        System.out.printf("brute force scan p50 %s | recall at similarity >= 0.5: %.1f%% of %d"
+                + " | mean exact similarity of top %d: index %.3f, brute force %.3f%n",
+                millis(scans, 50), 100.0 * found / Math.max(1, expected), expected, LIMIT,
+                indexTop / (BRUTE_FORCE_QUERIES * LIMIT), exactTop / (BRUTE_FORCE_QUERIES * LIMIT));
+    }
+
+    private static double[] bruteForce(long[][] workouts, int probe) {
+        long[] probeSet = distinct(workouts[probe]);
+        double[] jaccard = new double[workouts.length];
+        for (int w = 0; w < workouts.length; w++) {
+            if (w == probe) {
+                continue;
+            }
+            long[] other = distinct(workouts[w]);
+            int shared = 0;
+            for (long exercise : other) {
+                for (long probeExercise : probeSet) {
+                    if (exercise == probeExercise) {
+                        shared++;
+                        break;
+                    }
+                }
+            }
+            jaccard[w] = shared / (double) (probeSet.length + other.length - shared);
+        }
+        return jaccard;
+    }
+
+    private static long[] distinct(long[] exercises) {
+        return Arrays.stream(exercises).distinct().toArray();
+    }
+
+    private static long[] randomExercises(Random random, int count) {
+        Set<Long> exercises = new HashSet<>();
+        while (exercises.size() < count) {
+            exercises.add((long) random.nextInt(CATALOG));
+        }
+        return exercises.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static List<Long> asList(long[] exercises) {
+        List<Long> list = new ArrayList<>(exercises.length);
+        for (long exercise : exercises) {
+            list.add(exercise);
+        }
+        return list;
+    }
+
+    private static String millis(long[] samples, int percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return String.format("%.2f ms", sorted[sorted.length * percentile / 100] / 1e6);
+    }
+}
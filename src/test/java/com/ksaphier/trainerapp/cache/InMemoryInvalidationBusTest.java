@@ -0,0 +1,66 @@
+package com.ksaphier.trainerapp.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryInvalidationBusTest {
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testPublishOutsideTransactionDispatchesImmediately() {
+        InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        List<EntityChangeEvent> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        bus.publish(EntityChangeEvent.saved(EntityType.EXERCISE, 1L));
+
+        assertEquals(1, received.size());
+        assertEquals(EntityType.EXERCISE, received.get(0).getEntityType());
+    }
+
+    @Test
+    public void testPublishInsideTransactionWaitsForCommit() {
+        InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        List<EntityChangeEvent> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(EntityChangeEvent.deleted(EntityType.MUSCLE, 2L));
+        assertTrue(received.isEmpty());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1, received.size());
+        assertEquals(ChangeType.DELETED, received.get(0).getChangeType());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotBlockOthers() {
+        InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        List<EntityChangeEvent> received = new ArrayList<>();
+        bus.subscribe(event -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.subscribe(received::add);
+
+        bus.publish(EntityChangeEvent.all());
+
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).affects(EntityType.WORKOUT));
+    }
+}
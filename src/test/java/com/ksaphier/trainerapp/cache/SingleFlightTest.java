@@ -0,0 +1,102 @@
+package com.ksaphier.trainerapp.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", Duration.ZERO, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> leader = executor.submit(() -> flight.get(1L, () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(release);
+                return "workout-1";
+            }));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> flight.get(1L, () -> {
+                    loads.incrementAndGet();
+                    return "unexpected";
+                })));
+            }
+            // Give the followers time to join the in-flight load
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("workout-1", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("workout-1", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(7.0 / 8.0, flight.coalescingRatio(), 1e-9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMicroCacheServesRepeatedReads() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1), new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.get(1L, () -> "v" + loads.incrementAndGet());
+        assertEquals("v1", flight.get(1L, () -> "v" + loads.incrementAndGet()));
+
+        flight.invalidate(1L);
+        assertEquals("v2", flight.get(1L, () -> "v" + loads.incrementAndGet()));
+    }
+
+    @Test
+    public void testResultLoadedDuringInvalidationIsNotCached() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        assertEquals("stale", flight.get(1L, () -> {
+            flight.invalidate(1L);
+            return "stale";
+        }));
+        assertEquals("fresh", flight.get(1L, () -> "fresh"));
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        SingleFlight<Long, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, () -> flight.get(1L, () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("ok", flight.get(1L, () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
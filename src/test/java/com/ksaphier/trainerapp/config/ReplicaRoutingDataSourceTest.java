@@ -0,0 +1,62 @@
+package com.ksaphier.trainerapp.config;
+
+import com.ksaphier.trainerapp.service.CustomUserDetails;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+            new DriverManagerDataSource(), new DriverManagerDataSource(), new ReplicaStickiness(Duration.ofMinutes(1)));
+
+    @AfterEach
+    public void reset() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testReadOnlyTransactionGoesToReplica() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.Route.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void testWritesGoToPrimary() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void testUserReadsStayOnPrimaryAfterOwnWrite() {
+        authenticate(1L);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        routingDataSource.determineCurrentLookupKey();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.Route.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+        authenticate(2L);
+        assertEquals(ReplicaRoutingDataSource.Route.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    private void authenticate(Long userId) {
+        CustomUserDetails userDetails = new CustomUserDetails(userId, "user" + userId, "", Collections.emptyList());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+}
@@ -10,7 +10,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import org.springframework.http.MediaType;
 
-@SpringBootTest
+// Keeps the relay from writing to the shared outbox file
+@SpringBootTest(properties = "trainerapp.outbox.sink=memory")
 @AutoConfigureMockMvc
 public class ExerciseControllerTest {
 
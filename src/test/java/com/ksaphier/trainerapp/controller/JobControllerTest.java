@@ -0,0 +1,64 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.model.JobStatus;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobControllerTest {
+
+    private static final long USER_ID = 1L;
+
+    private final JobService jobService = mock(JobService.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final JobController controller = new JobController(jobService, jwtTokenProvider);
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @BeforeEach
+    public void setUp() {
+        request.addHeader("Authorization", "Bearer token");
+        when(jwtTokenProvider.getUserIdFromToken("token")).thenReturn(USER_ID);
+    }
+
+    @Test
+    public void testOutputOfUnfinishedJobIsNotServed() throws Exception {
+        for (JobStatus status : new JobStatus[] { JobStatus.QUEUED, JobStatus.RUNNING, JobStatus.FAILED }) {
+            when(jobService.findJob(USER_ID, 7L)).thenReturn(job(status, "workouts.csv"));
+
+            assertEquals(HttpStatus.CONFLICT, controller.getJobOutput(7L, request).getStatusCode());
+        }
+        verify(jobService, never()).copyOutput(anyLong(), any());
+    }
+
+    @Test
+    public void testOutputOfFinishedJobIsServed() {
+        when(jobService.findJob(USER_ID, 7L)).thenReturn(job(JobStatus.DONE, "workouts.csv"));
+
+        assertEquals(HttpStatus.OK, controller.getJobOutput(7L, request).getStatusCode());
+    }
+
+    @Test
+    public void testMissingJobOrOutputIsNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND, controller.getJobOutput(7L, request).getStatusCode());
+
+        when(jobService.findJob(USER_ID, 7L)).thenReturn(job(JobStatus.DONE, null));
+        assertEquals(HttpStatus.NOT_FOUND, controller.getJobOutput(7L, request).getStatusCode());
+    }
+
+    private static JobDto job(JobStatus status, String outputName) {
+        return new JobDto(7L, "WORKOUT_EXPORT", status, 0, 1, 3, null, null, outputName, null, null, null);
+    }
+}
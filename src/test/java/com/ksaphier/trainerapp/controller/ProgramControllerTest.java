@@ -0,0 +1,95 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.JobDto;
+import com.ksaphier.trainerapp.dto.ProgramRequest;
+import com.ksaphier.trainerapp.job.ProgramJobHandler;
+import com.ksaphier.trainerapp.repository.TrainerClientRepository;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProgramControllerTest {
+
+    private static final long TRAINER = 1L;
+    private static final long CLIENT = 2L;
+    private static final long STRANGER = 3L;
+
+    private final JobService jobService = mock(JobService.class);
+    private final TrainerClientRepository trainerClientRepository = mock(TrainerClientRepository.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private ProgramController controller;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    public void setUp() {
+        TrainerService trainerService = new TrainerService(trainerClientRepository,
+                mock(TrainerDashboardRepository.class), mock(UserRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), Duration.ofMinutes(5), 3);
+        controller = new ProgramController(jobService, trainerService, jwtTokenProvider);
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer token");
+        when(jwtTokenProvider.getUserIdFromToken("token")).thenReturn(TRAINER);
+        // Trainer 1 has client 2 only
+        when(trainerClientRepository.countAccepted(eq(TRAINER), any())).thenAnswer(invocation -> {
+            Iterable<?> ids = invocation.getArgument(1);
+            long count = 0;
+            for (Object id : ids) {
+                count += id.equals(CLIENT) ? 1 : 0;
+            }
+            return count;
+        });
+        when(jobService.submit(anyLong(), eq(ProgramJobHandler.TYPE), any())).thenReturn(mock(JobDto.class));
+    }
+
+    @Test
+    public void testProgramForOwnClientsIsAccepted() {
+        assertEquals(HttpStatus.ACCEPTED,
+                controller.generateProgram(program(List.of(TRAINER, CLIENT)), request).getStatusCode());
+        assertEquals(HttpStatus.ACCEPTED, controller.generateProgram(program(null), request).getStatusCode());
+    }
+
+    @Test
+    public void testProgramForAnotherUsersClientIsForbidden() {
+        assertEquals(HttpStatus.FORBIDDEN,
+                controller.generateProgram(program(List.of(CLIENT, STRANGER)), request).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN,
+                controller.generateProgram(program(List.of(STRANGER)), request).getStatusCode());
+        verify(jobService, never()).submit(anyLong(), any(), any());
+    }
+
+    @Test
+    public void testMissingClientIdIsRejected() {
+        assertEquals(HttpStatus.BAD_REQUEST,
+                controller.generateProgram(program(Arrays.asList(CLIENT, null)), request).getStatusCode());
+        verify(trainerClientRepository, never()).countAccepted(anyLong(), any());
+    }
+
+    private static ProgramRequest program(List<Long> clientIds) {
+        ProgramRequest program = new ProgramRequest();
+        program.setClientIds(clientIds);
+        return program;
+    }
+}
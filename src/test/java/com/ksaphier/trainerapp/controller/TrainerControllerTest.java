@@ -0,0 +1,102 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.repository.TrainerClientRepository;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrainerControllerTest {
+
+    private static final long TRAINER = 1L;
+    private static final long CLIENT = 2L;
+    private static final long STRANGER = 3L;
+
+    private final TrainerClientRepository trainerClientRepository = mock(TrainerClientRepository.class);
+    private final TrainerDashboardRepository trainerDashboardRepository = mock(TrainerDashboardRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private TrainerService trainerService;
+    private TrainerController controller;
+
+    @BeforeEach
+    public void setUp() {
+        trainerService = new TrainerService(trainerClientRepository, trainerDashboardRepository, userRepository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), Duration.ofMinutes(5), 3);
+        controller = new TrainerController(trainerService, jwtTokenProvider);
+        when(userRepository.existsById(TRAINER)).thenReturn(true);
+    }
+
+    @Test
+    public void testClientRequestGrantsNothingUntilAccepted() {
+        when(trainerClientRepository.insertIfAbsent(TRAINER, CLIENT)).thenReturn(1);
+
+        assertEquals(HttpStatus.ACCEPTED, controller.addClient(TRAINER, as(CLIENT)).getStatusCode());
+
+        verify(trainerDashboardRepository, never()).refreshSummary(anyLong());
+        // Pending links are not counted
+        when(trainerClientRepository.countAccepted(TRAINER, Set.of(CLIENT))).thenReturn(0L);
+        assertFalse(trainerService.isTrainerOf(TRAINER, List.of(TRAINER, CLIENT)));
+    }
+
+    @Test
+    public void testAcceptRefreshesTheClientSummary() {
+        when(trainerClientRepository.accept(TRAINER, CLIENT)).thenReturn(1);
+
+        assertEquals(HttpStatus.NO_CONTENT, controller.acceptClient(CLIENT, as(TRAINER)).getStatusCode());
+
+        verify(trainerDashboardRepository).refreshSummary(CLIENT);
+        when(trainerClientRepository.countAccepted(TRAINER, Set.of(CLIENT))).thenReturn(1L);
+        assertTrue(trainerService.isTrainerOf(TRAINER, List.of(TRAINER, CLIENT)));
+    }
+
+    @Test
+    public void testOnlyTheTrainerCanAccept() {
+        // The caller is always the accepting trainer, so a client accepting their own request finds none
+        assertEquals(HttpStatus.NOT_FOUND, controller.acceptClient(CLIENT, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.acceptClient(TRAINER, as(CLIENT)).getStatusCode());
+        verify(trainerDashboardRepository, never()).refreshSummary(anyLong());
+    }
+
+    @Test
+    public void testLinkChecks() {
+        assertEquals(HttpStatus.BAD_REQUEST, controller.addClient(CLIENT, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.addClient(STRANGER, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN,
+                controller.removeClient(TRAINER, CLIENT, as(STRANGER)).getStatusCode());
+        verify(trainerClientRepository, never()).insertIfAbsent(any(), any());
+        verify(trainerClientRepository, never()).deleteByTrainerIdAndClientId(any(), any());
+        // Only the caller counts as themselves, without a query
+        assertTrue(trainerService.isTrainerOf(STRANGER, List.of(STRANGER)));
+        verify(trainerClientRepository, never()).countAccepted(any(), any());
+    }
+
+    private MockHttpServletRequest as(long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer user-" + userId);
+        when(jwtTokenProvider.getUserIdFromToken("user-" + userId)).thenReturn(userId);
+        return request;
+    }
+}
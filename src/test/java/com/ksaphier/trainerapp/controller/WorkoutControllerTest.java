@@ -0,0 +1,91 @@
+package com.ksaphier.trainerapp.controller;
+
+import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.repository.TrainerClientRepository;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+import com.ksaphier.trainerapp.service.JobService;
+import com.ksaphier.trainerapp.service.JwtTokenProvider;
+import com.ksaphier.trainerapp.service.TrainerService;
+import com.ksaphier.trainerapp.service.WorkoutExerciseService;
+import com.ksaphier.trainerapp.service.WorkoutService;
+import com.ksaphier.trainerapp.service.WorkoutSimilarityService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkoutControllerTest {
+
+    private static final long TRAINER = 1L;
+    private static final long CLIENT = 2L;
+    private static final long STRANGER = 3L;
+
+    private final TrainerClientRepository trainerClientRepository = mock(TrainerClientRepository.class);
+    private final WorkoutService workoutService = mock(WorkoutService.class);
+    private final WorkoutSimilarityService workoutSimilarityService = mock(WorkoutSimilarityService.class);
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private WorkoutController controller;
+
+    @BeforeEach
+    public void setUp() {
+        TrainerService trainerService = new TrainerService(trainerClientRepository,
+                mock(TrainerDashboardRepository.class), mock(UserRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), Duration.ofMinutes(5), 3);
+        controller = new WorkoutController(workoutService, mock(WorkoutExerciseService.class),
+                workoutSimilarityService, mock(JobService.class), trainerService, jwtTokenProvider);
+        when(trainerClientRepository.countAccepted(TRAINER, Set.of(CLIENT))).thenReturn(1L);
+        when(workoutService.getWorkoutDetails(any(Long.class), any(Long.class)))
+                .thenReturn(new WorkoutDetailsDto(new Workout(), List.of()));
+    }
+
+    @Test
+    public void testOwnWorkoutAndClientsWorkoutAreRead() {
+        assertEquals(HttpStatus.OK, controller.getWorkoutDetails(10L, null, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getWorkoutDetails(10L, CLIENT, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getWorkoutDetails(10L, CLIENT, as(TRAINER)).getStatusCode());
+        assertEquals(HttpStatus.OK,
+                controller.getSimilarWorkouts(10L, 10, false, CLIENT, as(TRAINER)).getStatusCode());
+
+        verify(workoutService, times(3)).getWorkoutDetails(10L, CLIENT);
+        verify(workoutSimilarityService).findSimilar(10L, CLIENT, 10, false);
+    }
+
+    @Test
+    public void testOtherOwnersAnswerNotFoundWithoutReading() {
+        // Only the trainer reads the client, not the other way round, and nobody else
+        assertEquals(HttpStatus.NOT_FOUND, controller.getWorkoutDetails(10L, CLIENT, as(STRANGER)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getWorkoutDetails(10L, TRAINER, as(CLIENT)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND,
+                controller.getSimilarWorkouts(10L, 10, true, CLIENT, as(STRANGER)).getStatusCode());
+
+        verify(workoutService, never()).getWorkoutDetails(any(Long.class), any(Long.class));
+        verify(workoutSimilarityService, never()).findSimilar(any(), any(), anyInt(), anyBoolean());
+    }
+
+    private MockHttpServletRequest as(long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer user-" + userId);
+        when(jwtTokenProvider.getUserIdFromToken("user-" + userId)).thenReturn(userId);
+        return request;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ksaphier.trainerapp.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExerciseLeaderboardTest {
+
+    @Test
+    public void testOfferKeepsBestWeight() {
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        board.offer(1, 100);
+        board.offer(1, 80);
+        board.offer(1, 120);
+
+        assertEquals(1, board.size());
+        assertEquals(120, board.rankOf(1).orElseThrow().weight());
+    }
+
+    @Test
+    public void testTiesShareRank() {
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        board.offer(1, 100);
+        board.offer(2, 120);
+        board.offer(3, 100);
+        board.offer(4, 90);
+
+        assertEquals(List.of(
+                new ExerciseLeaderboard.Ranked(1, 2, 120),
+                new ExerciseLeaderboard.Ranked(2, 1, 100),
+                new ExerciseLeaderboard.Ranked(2, 3, 100),
+                new ExerciseLeaderboard.Ranked(4, 4, 90)), board.page(0, 10));
+        assertEquals(2, board.rankOf(3).orElseThrow().rank());
+        assertEquals(List.of(new ExerciseLeaderboard.Ranked(2, 3, 100)), board.page(2, 1));
+    }
+
+    @Test
+    public void testSetLowersAndRemoves() {
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        board.offer(1, 100);
+        board.offer(2, 90);
+
+        board.set(1, 50);
+        assertEquals(2, board.rankOf(1).orElseThrow().rank());
+
+        board.set(1, null);
+        assertFalse(board.contains(1));
+        assertTrue(board.rankOf(1).isEmpty());
+        assertEquals(1, board.rankOf(2).orElseThrow().rank());
+    }
+
+    @Test
+    public void testWeightsBeyondInitialRange() {
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        board.offer(1, 100);
+        board.offer(2, 5000);
+        board.offer(3, 70_000);
+
+        assertEquals(1, board.rankOf(3).orElseThrow().rank());
+        assertEquals(3, board.rankOf(1).orElseThrow().rank());
+        assertEquals(2, board.page(1, 1).get(0).userId());
+    }
+
+    @Test
+    @Timeout(5)
+    public void testWeightsAboveMaximumShareTheTopRank() {
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        board.offer(1, 2_000_000_000);
+        board.offer(2, 300_000_000);
+        board.offer(3, Integer.MAX_VALUE);
+        board.offer(4, 200);
+
+        assertEquals(new ExerciseLeaderboard.Ranked(1, 1, ExerciseLeaderboard.MAX_WEIGHT),
+                board.rankOf(1).orElseThrow());
+        assertEquals(1, board.rankOf(3).orElseThrow().rank());
+        assertEquals(4, board.rankOf(4).orElseThrow().rank());
+        assertEquals(List.of(new ExerciseLeaderboard.Ranked(4, 4, 200)), board.page(3, 1));
+    }
+
+    @Test
+    public void testPagesMatchSortedRanking() {
+        Random random = new Random(42);
+        ExerciseLeaderboard board = new ExerciseLeaderboard();
+        Map<Long, Integer> best = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long userId = random.nextInt(3_000);
+            int weight = random.nextInt(400);
+            if (random.nextInt(10) == 0) {
+                board.set(userId, null);
+                best.remove(userId);
+            } else {
+                board.offer(userId, weight);
+                best.merge(userId, weight, Math::max);
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> sorted = new ArrayList<>(best.entrySet());
+        sorted.sort(Comparator.comparing(Map.Entry<Long, Integer>::getValue).reversed()
+                .thenComparing(Map.Entry::getKey));
+        List<ExerciseLeaderboard.Ranked> expected = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            int weight = sorted.get(i).getValue();
+            long rank = i > 0 && sorted.get(i - 1).getValue() == weight ? expected.get(i - 1).rank() : i + 1;
+            expected.add(new ExerciseLeaderboard.Ranked(rank, sorted.get(i).getKey(), weight));
+        }
+
+        assertEquals(expected.size(), board.size());
+        for (int offset = 0; offset < expected.size(); offset += 37) {
+            assertEquals(expected.subList(offset, Math.min(expected.size(), offset + 25)), board.page(offset, 25));
+        }
+        for (ExerciseLeaderboard.Ranked ranked : expected) {
+            assertEquals(ranked, board.rankOf(ranked.userId()).orElseThrow());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ksaphier.trainerapp.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExerciseMuscleIndexTest {
+
+    private static final long CHEST = 1, TRICEPS = 2, FRONT_DELTS = 3, BICEPS = 4;
+
+    private final ExerciseMuscleIndex index = ExerciseMuscleIndex.builder()
+            .addMuscle(10, CHEST).addMuscle(10, TRICEPS).addMuscle(10, FRONT_DELTS) // bench press
+            .addMuscle(11, CHEST) // fly
+            .addMuscle(12, TRICEPS) // pushdown
+            .addMuscle(13, FRONT_DELTS).addMuscle(13, TRICEPS) // overhead press
+            .addMuscle(14, BICEPS) // curl
+            .build();
+
+    @Test
+    public void testBestCoverPicksSingleCompoundExercise() {
+        ExerciseMuscleIndex.Result result = index.recommend(List.of(CHEST, TRICEPS, FRONT_DELTS), List.of(), 5,
+                ExerciseMuscleIndex.Mode.BEST_COVER);
+
+        assertEquals(1, result.picks().size());
+        assertEquals(10, result.picks().get(0).exerciseId());
+        assertTrue(result.uncoveredMuscleIds().isEmpty());
+    }
+
+    @Test
+    public void testExcludedExercisesAreSkipped() {
+        ExerciseMuscleIndex.Result result = index.recommend(List.of(CHEST, TRICEPS, FRONT_DELTS), List.of(10L), 5,
+                ExerciseMuscleIndex.Mode.BEST_COVER);
+
+        assertEquals(List.of(13L, 11L), result.picks().stream().map(ExerciseMuscleIndex.Pick::exerciseId).toList());
+        assertTrue(result.uncoveredMuscleIds().isEmpty());
+    }
+
+    @Test
+    public void testNoOverlapNeverRepeatsAMuscle() {
+        ExerciseMuscleIndex.Result result = index.recommend(List.of(CHEST, TRICEPS, FRONT_DELTS, BICEPS),
+                List.of(10L, 13L), 5, ExerciseMuscleIndex.Mode.NO_OVERLAP);
+
+        assertEquals(List.of(11L, 12L, 14L),
+                result.picks().stream().map(ExerciseMuscleIndex.Pick::exerciseId).sorted().toList());
+        assertEquals(List.of(FRONT_DELTS), result.uncoveredMuscleIds());
+    }
+
+    @Test
+    public void testUnknownMusclesAreReportedAsUncovered() {
+        ExerciseMuscleIndex.Result result = index.recommend(List.of(BICEPS, 99L), List.of(), 5,
+                ExerciseMuscleIndex.Mode.BEST_COVER);
+
+        assertEquals(14, result.picks().get(0).exerciseId());
+        assertEquals(List.of(99L), result.uncoveredMuscleIds());
+    }
+
+    @Test
+    public void testMoreThanSixtyFourMuscles() {
+        ExerciseMuscleIndex.Builder builder = ExerciseMuscleIndex.builder();
+        for (long muscle = 0; muscle < 130; muscle++) {
+            builder.addMuscle(muscle / 10, muscle);
+        }
+        ExerciseMuscleIndex wide = builder.build();
+
+        ExerciseMuscleIndex.Result result = wide.recommend(List.of(5L, 70L, 129L), List.of(), 5,
+                ExerciseMuscleIndex.Mode.NO_OVERLAP);
+
+        assertEquals(List.of(0L, 7L, 12L),
+                result.picks().stream().map(ExerciseMuscleIndex.Pick::exerciseId).sorted().toList());
+        assertTrue(result.uncoveredMuscleIds().isEmpty());
+    }
+}
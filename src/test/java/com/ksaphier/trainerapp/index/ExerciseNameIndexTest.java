@@ -0,0 +1,35 @@
+package com.ksaphier.trainerapp.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExerciseNameIndexTest {
+
+    @Test
+    public void testResolvesNamesIgnoringCaseAndPunctuation() {
+        ExerciseNameIndex index = ExerciseNameIndex.builder()
+                .add(1, "Bench Press")
+                .add(2, "Pull-Up")
+                .add(3, "Bench Press (Dumbbell)")
+                .build();
+
+        assertEquals(1L, index.resolve("bench_press"));
+        assertEquals(1L, index.resolve("BENCH PRESS"));
+        assertEquals(2L, index.resolve("pull up"));
+        assertEquals(3L, index.resolve("Bench Press (Dumbbell)"));
+        // Unknown variant falls back to the base exercise
+        assertEquals(1L, index.resolve("Bench Press (Barbell)"));
+        assertNull(index.resolve("Deadlift"));
+        assertNull(index.resolve(null));
+    }
+
+    @Test
+    public void testDuplicateNamesKeepLowestId() {
+        ExerciseNameIndex index = ExerciseNameIndex.builder().add(7, "Squat").add(4, "squat").build();
+
+        assertEquals(1, index.size());
+        assertEquals(4L, index.resolve("Squat"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.ksaphier.trainerapp.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkoutSimilarityIndexTest {
+
+    @Test
+    public void testIdenticalWorkoutsAreFound() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        index.put(1, 10, List.of(1L, 2L, 3L, 4L));
+        index.put(2, 20, List.of(4L, 3L, 2L, 1L));
+        index.put(3, 30, List.of(100L, 101L, 102L));
+
+        List<WorkoutSimilarityIndex.Match> matches = index.similarTo(1, true, 0.3, 10, 1000);
+
+        assertEquals(List.of(new WorkoutSimilarityIndex.Match(2, 20, 1.0)), matches);
+    }
+
+    @Test
+    public void testExcludesOwnWorkoutsUnlessAsked() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        index.put(1, 10, List.of(1L, 2L, 3L));
+        index.put(2, 10, List.of(1L, 2L, 3L));
+
+        assertTrue(index.similarTo(1, true, 0.3, 10, 1000).isEmpty());
+        assertEquals(2, index.similarTo(1, false, 0.3, 10, 1000).get(0).workoutId());
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        index.put(1, 10, List.of(1L, 2L, 3L));
+        index.put(2, 20, List.of(1L, 2L, 3L));
+
+        index.put(2, 20, List.of(7L, 8L, 9L));
+        assertTrue(index.similarTo(1, true, 0.3, 10, 1000).isEmpty());
+        assertEquals(2, index.similar(List.of(7L, 8L, 9L), -1, null, 0.3, 10, 1000).get(0).workoutId());
+
+        index.remove(2);
+        assertEquals(1, index.size());
+        assertTrue(index.similar(List.of(7L, 8L, 9L), -1, null, 0.3, 10, 1000).isEmpty());
+
+        index.put(1, 10, List.of());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testRetainOwnerRemovesOnlyThatOwnersOtherWorkouts() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        index.put(1, 10, List.of(1L, 2L, 3L));
+        index.put(2, 10, List.of(1L, 2L, 3L));
+        index.put(3, 10, List.of(1L, 2L, 3L));
+        index.put(4, 20, List.of(1L, 2L, 3L));
+
+        index.retainOwner(10, Set.of(2L));
+
+        assertEquals(2, index.size());
+        assertTrue(index.contains(2) && index.contains(4));
+        assertEquals(List.of(new WorkoutSimilarityIndex.Match(4, 20, 1.0)),
+                index.similar(List.of(1L, 2L, 3L), 2, null, 0.3, 10, 1000));
+    }
+
+    @Test
+    public void testRetainOwnerFollowsRemovalsAndOwnerChanges() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        for (long workoutId = 1; workoutId <= 5; workoutId++) {
+            index.put(workoutId, 10, List.of(workoutId, 100L));
+        }
+        index.remove(3);
+        // Moves to another owner, and its freed slot is reused by owner 10
+        index.put(1, 20, List.of(1L, 100L));
+        index.put(6, 10, List.of(6L, 100L));
+        index.put(7, 20, List.of(7L, 100L));
+
+        index.retainOwner(10, Set.of(4L));
+
+        assertEquals(Set.of(1L, 4L, 7L), Set.copyOf(indexed(index, 1, 7)));
+        index.retainOwner(20, Set.of());
+        assertEquals(List.of(4L), indexed(index, 1, 7));
+        index.retainOwner(10, Set.of());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testEstimatesJaccardAndRanksByIt() {
+        Random random = new Random(7);
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        // Noise workouts over a catalog that does not overlap the probe
+        for (int i = 0; i < 20_000; i++) {
+            Set<Long> exercises = new HashSet<>();
+            while (exercises.size() < 6) {
+                exercises.add(1_000L + random.nextInt(500));
+            }
+            index.put(1_000 + i, i, exercises);
+        }
+        List<Long> probe = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        index.put(1, 1, List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L)); // 8/9
+        index.put(2, 2, List.of(1L, 2L, 3L, 4L, 5L, 6L, 10L, 11L)); // 6/10
+        index.put(3, 3, List.of(1L, 2L, 12L, 13L, 14L, 15L)); // 2/12
+
+        List<WorkoutSimilarityIndex.Match> matches = index.similar(probe, -1, null, 0.3, 10, 5000);
+
+        assertEquals(List.of(1L, 2L), matches.stream().map(WorkoutSimilarityIndex.Match::workoutId).toList());
+        assertEquals(8 / 9.0, matches.get(0).similarity(), 0.2);
+        assertEquals(0.6, matches.get(1).similarity(), 0.2);
+    }
+
+    @Test
+    public void testRemovingFromSharedBuckets() {
+        WorkoutSimilarityIndex index = new WorkoutSimilarityIndex();
+        for (long workout = 1; workout <= 1000; workout++) {
+            index.put(workout, workout, List.of(1L, 2L, 3L, 4L));
+        }
+        for (long workout = 2; workout <= 1000; workout += 2) {
+            index.remove(workout);
+        }
+        // Same exercises again: unchanged, stays indexed once
+        index.put(1, 1, List.of(4L, 3L, 2L, 1L));
+
+        List<WorkoutSimilarityIndex.Match> matches = index.similarTo(1, true, 0.3, 1000, 10_000);
+
+        assertEquals(500, index.size());
+        assertEquals(499, matches.size());
+        assertTrue(matches.stream().allMatch(match -> match.workoutId() % 2 == 1 && match.workoutId() != 1));
+    }
+
+    private static List<Long> indexed(WorkoutSimilarityIndex index, long from, long to) {
+        List<Long> indexed = new ArrayList<>();
+        for (long workoutId = from; workoutId <= to; workoutId++) {
+            if (index.contains(workoutId)) {
+                indexed.add(workoutId);
+            }
+        }
+        return indexed;
+    }
+}
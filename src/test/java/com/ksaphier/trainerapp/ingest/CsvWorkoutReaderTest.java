@@ -0,0 +1,96 @@
+package com.ksaphier.trainerapp.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvWorkoutReaderTest {
+
+    private static List<ImportedSet> read(String csv) {
+        List<ImportedSet> sets = new ArrayList<>();
+        new CsvWorkoutReader(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8))).read(sets::add, bytes -> {
+        });
+        return sets;
+    }
+
+    @Test
+    public void testReadsQuotedFieldsAndSkipsNonSetRows() {
+        String csv = "﻿Date,Workout Name,Exercise Name,Set Order,Weight,Reps,Notes\r\n"
+                + "2024-03-01 18:00:00,\"Push, heavy\",\"Bench Press (Barbell)\",1,80,5,\"said \"\"easy\"\"\"\r\n"
+                + "2024-03-01 18:00:00,\"Push, heavy\",Rest Timer,,,,\r\n"
+                + "2024-03-01 18:00:00,\"Push, heavy\",Bench Press (Barbell),2,82.5,4,\"two\nlines\"\r\n";
+        CsvWorkoutReader reader = new CsvWorkoutReader(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)));
+        List<ImportedSet> sets = new ArrayList<>();
+        reader.read(sets::add, bytes -> {
+        });
+
+        assertEquals(2, sets.size());
+        assertEquals(1, reader.skippedRows());
+        ImportedSet first = sets.get(0);
+        assertEquals("Push, heavy", first.workoutName());
+        assertEquals("Bench Press (Barbell)", first.exerciseName());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 18, 0), first.performedAt());
+        assertEquals(5, first.reps());
+        assertEquals(80.0, first.weight());
+        assertEquals(82.5, sets.get(1).weight());
+    }
+
+    @Test
+    public void testDetectsSemicolonsAndConvertsPounds() {
+        List<ImportedSet> sets = read("date;exercise;reps;weight (lbs)\n2024-03-01;Squat;5;225\n");
+
+        assertEquals(1, sets.size());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), sets.get(0).performedAt());
+        assertEquals(102.06, sets.get(0).weight(), 0.01);
+    }
+
+    @Test
+    public void testRejectsFilesWithoutExerciseColumn() {
+        assertThrows(IllegalArgumentException.class, () -> read("date,reps\n2024-03-01,5\n"));
+    }
+
+    @Test
+    public void testAssemblesConsecutiveSetsIntoWorkouts() {
+        String csv = "Date,Workout Name,Exercise Name,Weight,Reps,Rest\n"
+                + "2024-03-01 18:00:00,Push,Bench Press,80,5,120\n"
+                + "2024-03-01 18:00:00,Push,Bench Press,85,3,120\n"
+                + "2024-03-01 18:00:00,Push,Dips,0,12,\n"
+                + "2024-03-03 18:00:00,Pull,Row,60,8,\n";
+        List<ImportedWorkout> workouts = new ArrayList<>();
+        WorkoutAssembler assembler = new WorkoutAssembler(500, workouts::add);
+        new CsvWorkoutReader(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8))).read(assembler, bytes -> {
+        });
+        assembler.finish();
+
+        assertEquals(4, assembler.sets());
+        assertEquals(2, workouts.size());
+        assertEquals("Push", workouts.get(0).name());
+        assertEquals(List.of(new ImportedWorkout.Exercise("Bench Press", 2, 3, 85, 120),
+                new ImportedWorkout.Exercise("Dips", 1, 12, 0, 90)), workouts.get(0).exercises());
+        assertEquals("Pull", workouts.get(1).name());
+    }
+
+    @Test
+    public void testAssemblerRejectsOutOfRangeWeights() {
+        String csv = "Date,Exercise Name,Weight,Reps\n"
+                + "2024-03-01 18:00:00,Deadlift,180,5\n"
+                + "2024-03-01 18:00:00,Deadlift,2000000000,1\n"
+                + "2024-03-01 18:00:00,Deadlift,-20,8\n";
+        List<ImportedWorkout> workouts = new ArrayList<>();
+        WorkoutAssembler assembler = new WorkoutAssembler(500, workouts::add);
+        new CsvWorkoutReader(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8))).read(assembler, bytes -> {
+        });
+        assembler.finish();
+
+        assertEquals(1, assembler.sets());
+        assertEquals(2, assembler.rejectedSets());
+        assertEquals(List.of(new ImportedWorkout.Exercise("Deadlift", 1, 5, 180, 90)), workouts.get(0).exercises());
+    }
+}
@@ -0,0 +1,111 @@
+package com.ksaphier.trainerapp.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FitWorkoutReaderTest {
+
+    // 2024-03-01T18:00:00Z in FIT seconds
+    private static final long START = 1709316000L - 631065600L;
+
+    @Test
+    public void testReadsActiveSetsWithRestAndSessionStart() {
+        FitFile fit = new FitFile();
+        // Local type 0: session with an unused field before the start time
+        fit.definition(0, 18, new int[][] { { 254, 2, 0x84 }, { 2, 4, 0x86 } });
+        // Local type 1: record messages that must be skipped
+        fit.definition(1, 20, new int[][] { { 253, 4, 0x86 }, { 3, 1, 0x02 } });
+        // Local type 2: set with duration, reps, weight, type, start time, category[2]
+        fit.definition(2, 225, new int[][] { { 0, 4, 0x86 }, { 3, 2, 0x84 }, { 4, 2, 0x84 }, { 5, 1, 0x02 },
+                { 6, 4, 0x86 }, { 7, 4, 0x84 } });
+        fit.data(1).u32(START).u8(120);
+        fit.data(0).u16(0).u32(START);
+        fit.data(2).u32(30_000).u16(5).u16(80 * 16 + 8).u8(1).u32(START).u16(0).u16(0xFFFF);
+        fit.data(2).u32(95_000).u16(0xFFFF).u16(0xFFFF).u8(0).u32(START + 30).u16(0xFFFF).u16(0xFFFF);
+        fit.data(2).u32(40_000).u16(8).u16(0xFFFF).u8(1).u32(START + 125).u16(28).u16(0xFFFF);
+
+        ByteBuffer buffer = fit.build();
+        assertTrue(FitWorkoutReader.isFit(buffer));
+        List<ImportedSet> sets = new ArrayList<>();
+        long[] progress = { 0 };
+        new FitWorkoutReader(buffer).read(sets::add, bytes -> progress[0] = bytes);
+
+        assertEquals(2, sets.size());
+        ImportedSet bench = sets.get(0);
+        assertEquals("bench_press", bench.exerciseName());
+        assertEquals(5, bench.reps());
+        assertEquals(80.5, bench.weight());
+        assertEquals(95, bench.restSeconds());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 18, 0), bench.performedAt());
+        ImportedSet squat = sets.get(1);
+        assertEquals("squat", squat.exerciseName());
+        assertEquals(0, squat.weight());
+        assertNull(squat.restSeconds());
+        assertEquals(buffer.limit(), progress[0]);
+    }
+
+    @Test
+    public void testRecognizesFitHeaderOnly() {
+        assertFalse(FitWorkoutReader.isFit(ByteBuffer.wrap("date,exercise,reps\n".getBytes())));
+    }
+
+    // Little-endian FIT file with a 14 byte header; CRCs are left at zero since the reader ignores them
+    private static class FitFile {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        void definition(int localType, int globalNumber, int[][] fields) {
+            records.write(0x40 | localType);
+            records.write(0);
+            records.write(0);
+            u16(globalNumber);
+            records.write(fields.length);
+            for (int[] field : fields) {
+                records.write(field[0]);
+                records.write(field[1]);
+                records.write(field[2]);
+            }
+        }
+
+        FitFile data(int localType) {
+            records.write(localType);
+            return this;
+        }
+
+        FitFile u8(int value) {
+            records.write(value);
+            return this;
+        }
+
+        FitFile u16(int value) {
+            records.write(value);
+            records.write(value >>> 8);
+            return this;
+        }
+
+        FitFile u32(long value) {
+            u16((int) (value & 0xFFFF));
+            return u16((int) (value >>> 16));
+        }
+
+        ByteBuffer build() {
+            byte[] data = records.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocate(14 + data.length + 2);
+            buffer.put((byte) 14).put((byte) 0x20).putShort((short) 0);
+            buffer.put((byte) data.length).put((byte) (data.length >>> 8)).put((byte) (data.length >>> 16))
+                    .put((byte) (data.length >>> 24));
+            buffer.put(".FIT".getBytes()).putShort((short) 0);
+            buffer.put(data).putShort((short) 0);
+            return buffer.flip();
+        }
+    }
+}
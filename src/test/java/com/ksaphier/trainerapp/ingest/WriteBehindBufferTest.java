@@ -0,0 +1,169 @@
+package com.ksaphier.trainerapp.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindBufferTest {
+
+    @Test
+    public void testFlushesFullBatchesWithoutWaitingForInterval() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch flushed = new CountDownLatch(2);
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 100, 5, Duration.ofMinutes(1),
+                Duration.ZERO, batch -> {
+                    batches.add(new ArrayList<>(batch));
+                    flushed.countDown();
+                }, new SimpleMeterRegistry());
+        buffer.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(buffer.offer(i));
+            }
+            assertTrue(flushed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(0, 1, 2, 3, 4), batches.get(0));
+            assertEquals(List.of(5, 6, 7, 8, 9), batches.get(1));
+        } finally {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    public void testFlushesPartialBatchAfterInterval() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 100, 50, Duration.ofMillis(50),
+                Duration.ZERO, batch -> {
+                    written.addAll(batch);
+                    flushed.countDown();
+                }, new SimpleMeterRegistry());
+        buffer.start();
+        try {
+            buffer.offer(1);
+            buffer.offer(2);
+            assertTrue(flushed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 2), written);
+        } finally {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    public void testRejectsWhenFull() throws Exception {
+        CountDownLatch writerEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 2, 1, Duration.ofMillis(10),
+                Duration.ofMillis(10), batch -> {
+                    writerEntered.countDown();
+                    await(release);
+                }, new SimpleMeterRegistry());
+        buffer.start();
+        try {
+            // The first item is held by the blocked writer, the next two fill the queue
+            assertTrue(buffer.offer(1));
+            assertTrue(writerEntered.await(5, TimeUnit.SECONDS));
+            assertTrue(buffer.offer(2));
+            assertTrue(buffer.offer(3));
+            assertFalse(buffer.offer(4));
+        } finally {
+            release.countDown();
+            buffer.stop();
+        }
+    }
+
+    @Test
+    public void testStopWritesEverythingAccepted() {
+        AtomicInteger written = new AtomicInteger();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10_000, 100, Duration.ofMinutes(1),
+                Duration.ZERO, batch -> written.addAndGet(batch.size()), new SimpleMeterRegistry());
+        buffer.start();
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        buffer.stop();
+
+        assertEquals(5_000, written.get());
+        assertFalse(buffer.offer(5_000));
+    }
+
+    @Test
+    public void testRetriesFailedWrites() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10, 10, Duration.ofMinutes(1),
+                Duration.ZERO, batch -> {
+                    if (attempts.incrementAndGet() == 1) {
+                        throw new IllegalStateException("connection reset");
+                    }
+                    written.addAll(batch);
+                }, new SimpleMeterRegistry());
+        buffer.start();
+        buffer.offer(1);
+        buffer.stop();
+
+        assertEquals(2, attempts.get());
+        assertEquals(List.of(1), written);
+    }
+
+    @Test
+    public void testStopDoesNotWaitForFlushInterval() {
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10, 10, Duration.ofMinutes(1),
+                Duration.ZERO, written::addAll, new SimpleMeterRegistry());
+        buffer.start();
+        buffer.offer(1);
+        long started = System.nanoTime();
+        buffer.stop();
+
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(List.of(1), written);
+    }
+
+    @Test
+    public void testWriteInterruptedByStopIsRetried() throws Exception {
+        CountDownLatch writerEntered = new CountDownLatch(1);
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10, 3, Duration.ofMinutes(1),
+                Duration.ZERO, batch -> {
+                    if (writerEntered.getCount() > 0) {
+                        writerEntered.countDown();
+                        try {
+                            new CountDownLatch(1).await();
+                        } catch (InterruptedException e) {
+                            // Like a connection checkout interrupted by stop()
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("interrupted", e);
+                        }
+                    }
+                    written.addAll(batch);
+                }, new SimpleMeterRegistry());
+        buffer.start();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertTrue(writerEntered.await(5, TimeUnit.SECONDS));
+        buffer.stop();
+
+        assertEquals(List.of(0, 1, 2), written);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
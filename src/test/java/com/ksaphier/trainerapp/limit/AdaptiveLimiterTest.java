@@ -0,0 +1,99 @@
+package com.ksaphier.trainerapp.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveLimiter limiter(int initialLimit) {
+        return new AdaptiveLimiter("test", initialLimit, 4, 200, 1.5, Duration.ofSeconds(1), 10, meterRegistry,
+                clock::get);
+    }
+
+    // One window with every permit in use, each request taking rtt
+    private void saturatedWindow(AdaptiveLimiter limiter, long rtt) {
+        int permits = 0;
+        while (limiter.tryAcquire()) {
+            permits++;
+        }
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        for (int i = 0; i < permits; i++) {
+            limiter.release(rtt, false);
+        }
+    }
+
+    @Test
+    public void testRejectsOverTheLimit() {
+        AdaptiveLimiter limiter = limiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1.0, meterRegistry.get("trainerapp.limiter.rejected").counter().count());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testGrowsWhileLatencyIsSteady() {
+        AdaptiveLimiter limiter = limiter(20);
+        for (int i = 0; i < 20; i++) {
+            saturatedWindow(limiter, 10 * MILLIS);
+        }
+        assertTrue(limiter.getLimit() > 30, "limit " + limiter.getLimit());
+        assertTrue(meterRegistry.get("trainerapp.limiter.changes").tag("direction", "up").counter().count() > 0);
+    }
+
+    @Test
+    public void testShrinksWhenLatencyRises() {
+        AdaptiveLimiter limiter = limiter(50);
+        for (int i = 0; i < 5; i++) {
+            saturatedWindow(limiter, 10 * MILLIS);
+        }
+        int steady = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            saturatedWindow(limiter, 100 * MILLIS);
+        }
+        assertTrue(limiter.getLimit() < steady / 2, steady + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    public void testBacksOffOnFailuresDownToTheMinimum() {
+        AdaptiveLimiter limiter = limiter(20);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+            limiter.release(10 * MILLIS, true);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testDoesNotGrowWithoutConcurrency() {
+        AdaptiveLimiter limiter = limiter(20);
+        for (int window = 0; window < 20; window++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(limiter.tryAcquire());
+                limiter.release(10 * MILLIS, false);
+            }
+            clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        }
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+}
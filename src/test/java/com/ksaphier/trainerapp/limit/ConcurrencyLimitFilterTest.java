@@ -0,0 +1,48 @@
+package com.ksaphier.trainerapp.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, 20, 4,
+            200, 1.5, Duration.ofSeconds(1), 10, Duration.ofSeconds(10));
+    private final AdaptiveLimiter reads = filter.limiter(ConcurrencyLimitFilter.RequestClass.READ);
+
+    @Test
+    public void testEventStreamGivesItsPermitBackBeforeOpening() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sessions/1/stream");
+        request.addHeader(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        request.setAsyncSupported(true);
+        int[] inflightInHandler = { -1 };
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            inflightInHandler[0] = reads.getInflight();
+            req.startAsync(req, res);
+        });
+
+        assertEquals(0, inflightInHandler[0]);
+        assertEquals(0, reads.getInflight());
+    }
+
+    @Test
+    public void testAsyncRequestHoldsItsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/workouts");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync(req, res));
+
+        assertEquals(1, reads.getInflight());
+        request.getAsyncContext().complete();
+        assertEquals(0, reads.getInflight());
+    }
+}
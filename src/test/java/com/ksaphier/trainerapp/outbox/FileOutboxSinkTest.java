@@ -0,0 +1,74 @@
+package com.ksaphier.trainerapp.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileOutboxSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testBatchesAreAppendedInOrder() throws Exception {
+        Path file = directory.resolve("outbox/events.jsonl");
+        FileOutboxSink sink = new FileOutboxSink(file, objectMapper);
+
+        sink.publish(List.of(event(1L, EntityType.WORKOUT, 10L, 7L), event(2L, EntityType.EXERCISE, 3L, null)));
+        sink.publish(List.of(event(3L, EntityType.MUSCLE, 4L, null)));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(i + 1, objectMapper.readTree(lines.get(i)).get("id").asLong());
+        }
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("WORKOUT", first.get("entityType").asText());
+        assertEquals(7L, first.get("ownerId").asLong());
+        assertTrue(first.get("createdAt").isTextual());
+        assertTrue(objectMapper.readTree(lines.get(1)).get("ownerId").isNull());
+    }
+
+    @Test
+    public void testEmptyBatchLeavesFileEmpty() throws Exception {
+        Path file = directory.resolve("events.jsonl");
+        new FileOutboxSink(file, objectMapper).publish(List.of());
+
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    public void testRelativePathIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FileOutboxSink(Path.of("outbox/events.jsonl"), objectMapper));
+    }
+
+    private static OutboxEvent event(Long id, EntityType entityType, Long entityId, Long ownerId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setEntityType(entityType);
+        event.setChangeType(ChangeType.SAVED);
+        event.setEntityId(entityId);
+        event.setOwnerId(ownerId);
+        event.setCreatedAt(Instant.parse("2024-03-01T10:00:00Z"));
+        return event;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ksaphier.trainerapp.program;
+
+import com.ksaphier.trainerapp.index.ExerciseMuscleIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProgramPlannerTest {
+
+    private static final ProgramPlanner.Settings SETTINGS = new ProgramPlanner.Settings(12, 3, 4, 4);
+
+    // Exercise 10 + muscle: 1 chest, 2 triceps, 3 back, 4 biceps, 5 quads, 6 hamstrings
+    private static ExerciseMuscleIndex catalog() {
+        return ExerciseMuscleIndex.builder()
+                .addMuscle(11, 1).addMuscle(11, 2)
+                .addMuscle(12, 3).addMuscle(12, 4)
+                .addMuscle(13, 5).addMuscle(13, 6)
+                .addMuscle(14, 1)
+                .addMuscle(15, 5)
+                .build();
+    }
+
+    @Test
+    public void testEveryMuscleIsWorkedEachWeek() {
+        ProgramPlanner planner = new ProgramPlanner(catalog(), SETTINGS);
+
+        Set<Long> exercises = new HashSet<>();
+        planner.days().forEach(exercises::addAll);
+
+        assertEquals(3, planner.days().size());
+        assertTrue(exercises.containsAll(List.of(11L, 12L, 13L)));
+    }
+
+    @Test
+    public void testLoadIncreasesWithinAndAcrossBlocks() {
+        ProgramPlanner planner = new ProgramPlanner(catalog(), SETTINGS);
+        Map<Long, Double> oneRepMaxes = Map.of(11L, 100.0, 12L, 100.0, 13L, 140.0);
+
+        for (int block = 0; block < 3; block++) {
+            int firstWeek = block * 4 + 1;
+            for (int week = firstWeek + 1; week < firstWeek + 3; week++) {
+                assertTrue(firstOf(planner.planWeek(week, oneRepMaxes)).weight()
+                        > firstOf(planner.planWeek(week - 1, oneRepMaxes)).weight(), "week " + week);
+            }
+        }
+        // Each block starts above the previous one
+        assertTrue(firstOf(planner.planWeek(5, oneRepMaxes)).weight()
+                > firstOf(planner.planWeek(1, oneRepMaxes)).weight());
+        assertTrue(firstOf(planner.planWeek(11, oneRepMaxes)).reps()
+                < firstOf(planner.planWeek(1, oneRepMaxes)).reps());
+    }
+
+    @Test
+    public void testDeloadWeeksAreLighter() {
+        ProgramPlanner planner = new ProgramPlanner(catalog(), SETTINGS);
+        Map<Long, Double> oneRepMaxes = Map.of(11L, 100.0, 12L, 100.0, 13L, 140.0);
+
+        for (int week = 1; week <= SETTINGS.weeks(); week++) {
+            List<ProgramPlanner.PlannedSession> sessions = planner.planWeek(week, oneRepMaxes);
+            assertEquals(week % 4 == 0, sessions.get(0).deload(), "week " + week);
+        }
+        ProgramPlanner.PlannedExercise loading = firstOf(planner.planWeek(3, oneRepMaxes));
+        ProgramPlanner.PlannedExercise deload = firstOf(planner.planWeek(4, oneRepMaxes));
+        assertTrue(deload.weight() < loading.weight());
+        assertTrue(deload.series() < loading.series());
+    }
+
+    @Test
+    public void testWeightsFollowOneRepMaxAndStayZeroWithout() {
+        ProgramPlanner planner = new ProgramPlanner(catalog(), SETTINGS);
+
+        List<ProgramPlanner.PlannedSession> withoutRecords = planner.planWeek(1, Map.of());
+        assertTrue(withoutRecords.stream().flatMap(session -> session.exercises().stream())
+                .allMatch(exercise -> exercise.weight() == 0));
+
+        ProgramPlanner.PlannedExercise exercise = firstOf(planner.planWeek(1, Map.of(11L, 100.0, 12L, 100.0,
+                13L, 100.0, 14L, 100.0, 15L, 100.0)));
+        // 67.5% of 1RM, rounded, for 12 reps with two in reserve
+        assertEquals(68, exercise.weight());
+        assertEquals(12, exercise.reps());
+    }
+
+    @Test
+    public void testCatalogWithoutMusclesRotatesExercises() {
+        ExerciseMuscleIndex catalog = ExerciseMuscleIndex.builder()
+                .addExercise(1).addExercise(2).addExercise(3)
+                .build();
+        ProgramPlanner planner = new ProgramPlanner(catalog, new ProgramPlanner.Settings(4, 2, 2, 0));
+
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 1L)), planner.days());
+        assertFalse(planner.planWeek(4, Map.of()).get(0).deload());
+    }
+
+    private static ProgramPlanner.PlannedExercise firstOf(List<ProgramPlanner.PlannedSession> sessions) {
+        return sessions.stream()
+                .flatMap(session -> session.exercises().stream())
+                .filter(exercise -> exercise.exerciseId() == 11L)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,202 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.model.Job;
+import com.ksaphier.trainerapp.model.JobStatus;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the claim and reclaim statements against the database of the
+ * SPRING_DATASOURCE_* variables, skipped without them. Uses the job table
+ * created by the application; its rows belong to a user id no real user has
+ * and are removed after every test.
+ */
+public class JobRepositoryTest {
+
+    private static final long TEST_USER_ID = -2;
+    private static final String TYPE = "TEST";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transaction;
+    private static JobRepository jobRepository;
+
+    @BeforeAll
+    public static void connect() {
+        assumeTrue(System.getenv("SPRING_DATASOURCE_URL") != null, "No database configured");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(10);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jobRepository = new JobRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        deleteTestJobs();
+        // Claims take the oldest jobs first, other users' queued jobs would be claimed by the tests too
+        Integer others = jdbcTemplate.queryForObject("SELECT count(*) FROM job WHERE status = 'QUEUED' "
+                + "AND run_after <= now() AND user_id <> ?", Integer.class, TEST_USER_ID);
+        assumeTrue(others != null && others == 0, "Other jobs are queued");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleteTestJobs();
+    }
+
+    @Test
+    @Timeout(30)
+    public void testConcurrentClaimsNeverHandOutAJobTwice() throws Exception {
+        int jobs = 200;
+        insertQueued(jobs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> claims = new ArrayList<>();
+            for (int p = 0; p < 8; p++) {
+                String worker = "test-" + p;
+                claims.add(executor.submit(() -> {
+                    List<Long> claimed = new ArrayList<>();
+                    while (queued() > 0) {
+                        jobRepository.claim(worker, 5).forEach(job -> claimed.add(job.getId()));
+                    }
+                    return claimed;
+                }));
+            }
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<Long>> claim : claims) {
+                claimed.addAll(claim.get());
+            }
+
+            assertEquals(claimed.size(), new HashSet<>(claimed).size());
+            // The pollers of an application running on the same database may have taken some
+            Integer elsewhere = jdbcTemplate.queryForObject("SELECT count(*) FROM job WHERE user_id = ? "
+                    + "AND (locked_by IS NULL OR locked_by NOT LIKE 'test-%')", Integer.class, TEST_USER_ID);
+            assertEquals(jobs, claimed.size() + elsewhere);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    public void testClaimSkipsJobLockedByAnotherTransaction() throws Exception {
+        List<Long> ids = insertQueued(2);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The first worker's claim is not committed until the second one has claimed
+            Future<List<Job>> first = executor.submit(() -> transaction.execute(status -> {
+                List<Job> claimed = jobRepository.claim("test-first", 1);
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return claimed;
+            }));
+            locked.await();
+            // Blocks until the timeout if the locked row is waited for instead of skipped
+            List<Job> second = jobRepository.claim("test-second", 10);
+            release.countDown();
+
+            assertEquals(List.of(ids.get(0)), first.get().stream().map(Job::getId).toList());
+            assertEquals(List.of(ids.get(1)), second.stream().map(Job::getId).toList());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStaleJobsAreRequeuedOrFailedOnceOutOfAttempts() {
+        long retried = insertRunning("test-dead", 1, 3, Duration.ofHours(1));
+        long exhausted = insertRunning("test-dead", 3, 3, Duration.ofHours(1));
+        long alive = insertRunning("test-alive", 1, 3, Duration.ZERO);
+
+        // Read in the same transaction, before a poller can claim the requeued job
+        transaction.executeWithoutResult(status -> {
+            jobRepository.reclaimStale(Duration.ofMinutes(1));
+
+            Job requeued = jobRepository.findById(retried).orElseThrow();
+            assertEquals(JobStatus.QUEUED, requeued.getStatus());
+            assertNull(requeued.getLockedBy());
+            assertEquals(1, requeued.getAttempts());
+
+            Job failed = jobRepository.findById(exhausted).orElseThrow();
+            assertEquals(JobStatus.FAILED, failed.getStatus());
+            assertNotNull(failed.getFinishedAt());
+
+            assertEquals(JobStatus.RUNNING, jobRepository.findById(alive).orElseThrow().getStatus());
+
+            // The worker that lost them can no longer finish them
+            assertFalse(jobRepository.complete(retried, "test-dead", null));
+            assertFalse(jobRepository.fail(exhausted, "test-dead", "late"));
+            assertTrue(jobRepository.progress(alive, "test-alive", 50));
+        });
+    }
+
+    private List<Long> insertQueued(int jobs) {
+        return jdbcTemplate.queryForList("INSERT INTO job (user_id, type, status, progress, attempts, "
+                + "max_attempts, run_after, created_at) SELECT ?, ?, 'QUEUED', 0, 0, 3, "
+                + "now() - interval '1 day', now() FROM generate_series(1, ?) RETURNING id",
+                Long.class, TEST_USER_ID, TYPE, jobs).stream().sorted().toList();
+    }
+
+    private long insertRunning(String worker, int attempts, int maxAttempts, Duration sinceHeartbeat) {
+        return jdbcTemplate.queryForObject("INSERT INTO job (user_id, type, status, progress, attempts, "
+                + "max_attempts, locked_by, heartbeat_at, run_after, created_at, started_at) "
+                + "VALUES (?, ?, 'RUNNING', 0, ?, ?, ?, now() - ? * interval '1 millisecond', now(), now(), now()) "
+                + "RETURNING id", Long.class, TEST_USER_ID, TYPE, attempts, maxAttempts, worker,
+                sinceHeartbeat.toMillis());
+    }
+
+    private int queued() {
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM job WHERE user_id = ? "
+                + "AND status = 'QUEUED'", Integer.class, TEST_USER_ID);
+        return count == null ? 0 : count;
+    }
+
+    private static void deleteTestJobs() {
+        jdbcTemplate.update("DELETE FROM job WHERE user_id = ?", TEST_USER_ID);
+    }
+}
@@ -0,0 +1,134 @@
+package com.ksaphier.trainerapp.repository;
+
+import com.ksaphier.trainerapp.dto.ClientRequestDto;
+import com.ksaphier.trainerapp.dto.ClientSummaryDto;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the dashboard statements against the database of the
+ * SPRING_DATASOURCE_* variables, skipped without them or before the
+ * application has created the trainer_client.accepted_at column. Its users
+ * have a name prefix of their own and are removed after every test.
+ */
+public class TrainerDashboardRepositoryTest {
+
+    private static final String PREFIX = "dashboard-test-";
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TrainerDashboardRepository dashboardRepository;
+
+    private long trainer;
+    private long accepted;
+    private long pending;
+
+    @BeforeAll
+    public static void connect() {
+        assumeTrue(System.getenv("SPRING_DATASOURCE_URL") != null, "No database configured");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        dashboardRepository = new TrainerDashboardRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Integer columns = jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns "
+                + "WHERE table_name = 'trainer_client' AND column_name = 'accepted_at'", Integer.class);
+        assumeTrue(columns != null && columns == 1, "Schema not created by the application yet");
+        cleanUp();
+        trainer = user("trainer");
+        accepted = user("accepted");
+        pending = user("pending");
+        jdbcTemplate.update("INSERT INTO trainer_client (trainer_id, client_id, created_at, accepted_at) "
+                + "VALUES (?, ?, now(), now()), (?, ?, now(), NULL)", trainer, accepted, trainer, pending);
+        for (long client : List.of(accepted, pending)) {
+            jdbcTemplate.update("INSERT INTO workout (id, user_id, name, type, created_at) "
+                    + "VALUES (nextval('workout_seq'), ?, 'Push', 'TEST', now())", client);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cleanUp();
+    }
+
+    @Test
+    public void testPendingClientIsNeitherSummarizedNorShown() {
+        dashboardRepository.refreshSummaries();
+
+        assertEquals(1, summaries(accepted));
+        assertEquals(0, summaries(pending));
+        assertEquals(1, dashboardRepository.countClients(trainer));
+        List<ClientSummaryDto> page = dashboardRepository.findClientSummaries(trainer, 0, 10);
+        assertEquals(List.of(accepted), page.stream().map(ClientSummaryDto::getClientId).toList());
+        assertEquals(1, page.get(0).getWorkoutCount());
+        assertEquals(List.of(pending),
+                dashboardRepository.findClientRequests(trainer, 10).stream().map(ClientRequestDto::getClientId)
+                        .toList());
+    }
+
+    @Test
+    public void testSingleClientRefreshOnlyForAcceptedLinks() {
+        assertEquals(0, dashboardRepository.refreshSummary(pending));
+        assertEquals(1, dashboardRepository.refreshSummary(accepted));
+
+        jdbcTemplate.update("UPDATE trainer_client SET accepted_at = now() WHERE client_id = ?", pending);
+        assertEquals(1, dashboardRepository.refreshSummary(pending));
+        assertEquals(2, dashboardRepository.countClients(trainer));
+        assertEquals(List.of(), dashboardRepository.findClientRequests(trainer, 10));
+    }
+
+    @Test
+    public void testFullRefreshDropsFormerClients() {
+        dashboardRepository.refreshSummaries();
+        jdbcTemplate.update("DELETE FROM trainer_client WHERE client_id = ?", accepted);
+
+        dashboardRepository.refreshSummaries();
+
+        assertEquals(0, summaries(accepted));
+        assertEquals(0, dashboardRepository.countClients(trainer));
+    }
+
+    private long summaries(long clientId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM client_summary WHERE user_id = ?",
+                Long.class, clientId);
+        return count == null ? 0 : count;
+    }
+
+    private static long user(String name) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO users (username, password, email) "
+                + "VALUES (?, 'x', ?) RETURNING id", Long.class, PREFIX + name, PREFIX + name + "@test");
+        return id == null ? 0 : id;
+    }
+
+    private static void cleanUp() {
+        String users = "SELECT id FROM users WHERE username LIKE '" + PREFIX + "%'";
+        jdbcTemplate.update("DELETE FROM workout WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM client_summary WHERE user_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM trainer_client WHERE trainer_id IN (" + users + ")");
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (" + users + ")");
+    }
+}
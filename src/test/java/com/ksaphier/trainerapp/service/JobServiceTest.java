@@ -0,0 +1,104 @@
+package com.ksaphier.trainerapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ksaphier.trainerapp.job.JobContext;
+import com.ksaphier.trainerapp.job.JobHandler;
+import com.ksaphier.trainerapp.model.Job;
+import com.ksaphier.trainerapp.model.JobStatus;
+import com.ksaphier.trainerapp.repository.JobRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobServiceTest {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final JobRepository jobRepository = mock(JobRepository.class);
+    private JobService jobService;
+
+    @AfterEach
+    public void tearDown() {
+        jobService.stop();
+    }
+
+    @Test
+    public void testFailedAttemptIsRetriedWithBackoff() {
+        start(new Failing(new IllegalStateException("Database unavailable")), job(2, 3));
+
+        verify(jobRepository, timeout(5000)).retry(eq(1L), anyString(), eq("Database unavailable"),
+                eq(RETRY_DELAY.multipliedBy(2)));
+        verify(jobRepository, never()).fail(any(), any(), any());
+    }
+
+    @Test
+    public void testLastAttemptFailsTheJob() {
+        start(new Failing(new IllegalStateException("Database unavailable")), job(3, 3));
+
+        verify(jobRepository, timeout(5000)).fail(eq(1L), anyString(), eq("Database unavailable"));
+        verify(jobRepository, never()).retry(any(), any(), any(), any());
+        verify(jobRepository, timeout(5000)).deleteChunks(1L, JobRepository.INPUT);
+    }
+
+    @Test
+    public void testBadInputIsNotRetried() {
+        start(new Failing(new IllegalArgumentException("Not a CSV file")), job(1, 3));
+
+        verify(jobRepository, timeout(5000)).fail(eq(1L), anyString(), eq("Not a CSV file"));
+        verify(jobRepository, after(200).never()).retry(any(), any(), any(), any());
+    }
+
+    private void start(JobHandler handler, Job job) {
+        when(jobRepository.claim(anyString(), anyInt())).thenReturn(List.of(job)).thenReturn(List.of());
+        when(jobRepository.fail(any(), any(), any())).thenReturn(true);
+        jobService = new JobService(jobRepository, new ObjectMapper(), List.of(handler),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 1, Duration.ofMillis(50),
+                Duration.ofSeconds(10), Duration.ofSeconds(60), RETRY_DELAY, Duration.ofDays(7),
+                Duration.ofSeconds(5), 10);
+        jobService.start();
+    }
+
+    // Claimed for its attempt-th time
+    private static Job job(int attempt, int maxAttempts) {
+        Job job = new Job();
+        job.setId(1L);
+        job.setUserId(1L);
+        job.setType(Failing.TYPE);
+        job.setStatus(JobStatus.RUNNING);
+        job.setAttempts(attempt);
+        job.setMaxAttempts(maxAttempts);
+        return job;
+    }
+
+    private record Failing(Exception failure) implements JobHandler {
+
+        static final String TYPE = "FAILING";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+
+        @Override
+        public Object run(JobContext context) throws Exception {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.model.OutboxEvent;
+import com.ksaphier.trainerapp.outbox.InMemoryOutboxSink;
+import com.ksaphier.trainerapp.outbox.OutboxSink;
+import com.ksaphier.trainerapp.repository.OutboxRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Relays through a scratch copy of outbox_event in the database of the
+ * SPRING_DATASOURCE_* variables, skipped without them. The schema is dropped
+ * afterwards. The relay lock is database-wide, so a running application may
+ * hold it for a moment; relay() waits for it.
+ */
+public class OutboxServiceTest {
+
+    private static final String SCHEMA = "outbox_test_" + UUID.randomUUID().toString().substring(0, 8);
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+    private static OutboxRepository outboxRepository;
+
+    private final InMemoryOutboxSink sink = new InMemoryOutboxSink();
+
+    @BeforeAll
+    public static void connect() {
+        assumeTrue(System.getenv("SPRING_DATASOURCE_URL") != null, "No database configured");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("SPRING_DATASOURCE_URL"));
+        dataSource.setUsername(System.getenv("SPRING_DATASOURCE_USERNAME"));
+        dataSource.setPassword(System.getenv("SPRING_DATASOURCE_PASSWORD"));
+        dataSource.setMaximumPoolSize(2);
+        // Unqualified names resolve to the scratch table, so the real outbox is never drained
+        dataSource.setConnectionInitSql("SET search_path TO " + SCHEMA + ", public");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        Integer tables = jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.tables "
+                + "WHERE table_schema = 'public' AND table_name = 'outbox_event'", Integer.class);
+        assumeTrue(tables != null && tables == 1, "Schema not created by the application yet");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE outbox_event (LIKE public.outbox_event INCLUDING ALL)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        outboxRepository = new OutboxRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        if (dataSource != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.close();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.execute("TRUNCATE outbox_event");
+    }
+
+    @Test
+    public void testEventsAreRelayedInIdOrderAndMarkedPublished() {
+        record(5);
+        OutboxService outboxService = outboxService(2, sink);
+
+        assertEquals(2, relay(outboxService));
+        assertEquals(2, relay(outboxService));
+        assertEquals(1, relay(outboxService));
+        assertEquals(0, relay(outboxService));
+
+        List<Long> ids = sink.events().stream().map(OutboxEvent::getId).toList();
+        assertEquals(LongStream.rangeClosed(ids.get(0), ids.get(0) + 4).boxed().toList(), ids);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sink.events().stream().map(OutboxEvent::getEntityId).toList());
+        assertEquals(0, outboxRepository.backlog().pending());
+    }
+
+    @Test
+    public void testFailedBatchIsDeliveredAgainToEverySink() {
+        record(3);
+        int[] calls = { 0 };
+        OutboxSink failingOnce = new OutboxSink() {
+            @Override
+            public String name() {
+                return "failing-once";
+            }
+
+            @Override
+            public void publish(List<OutboxEvent> events) throws Exception {
+                if (calls[0]++ == 0) {
+                    throw new Exception("unavailable");
+                }
+            }
+        };
+        OutboxService outboxService = outboxService(10, sink, failingOnce);
+
+        assertThrows(IllegalStateException.class, () -> relay(outboxService));
+        assertEquals(3, outboxRepository.backlog().pending());
+
+        assertEquals(3, relay(outboxService));
+        // The sink that succeeded the first time sees the batch twice, in the same order
+        assertEquals(List.of(1L, 2L, 3L, 1L, 2L, 3L),
+                sink.events().stream().map(OutboxEvent::getEntityId).toList());
+        assertEquals(0, outboxRepository.backlog().pending());
+    }
+
+    @Test
+    public void testOnlyTheLockHolderRelays() throws Exception {
+        record(2);
+        OutboxService outboxService = outboxService(10, sink);
+
+        // Another instance relaying
+        try (Connection other = dataSource.getConnection(); Statement statement = other.createStatement()) {
+            other.setAutoCommit(false);
+            statement.execute("SELECT pg_advisory_xact_lock(" + OutboxRepository.RELAY_LOCK + ")");
+
+            assertEquals(-1, outboxService.relayBatch());
+            assertEquals(List.of(), sink.events());
+            assertEquals(2, outboxRepository.backlog().pending());
+            other.rollback();
+        }
+
+        assertEquals(2, relay(outboxService));
+    }
+
+    private static OutboxService outboxService(int batchSize, OutboxSink... sinks) {
+        return new OutboxService(outboxRepository, List.of(sinks), transactionManager, new SimpleMeterRegistry(),
+                batchSize, Duration.ofMillis(500), Duration.ofDays(7));
+    }
+
+    private static void record(int events) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> outboxRepository.insertAll(
+                LongStream.rangeClosed(1, events)
+                        .mapToObj(id -> new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, id, 1L))
+                        .toList()));
+    }
+
+    private static int relay(OutboxService outboxService) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        int relayed;
+        while ((relayed = outboxService.relayBatch()) < 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        return relayed;
+    }
+}
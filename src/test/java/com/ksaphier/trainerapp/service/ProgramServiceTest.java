@@ -0,0 +1,55 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.InvalidationBus;
+import com.ksaphier.trainerapp.dto.ProgramRequest;
+import com.ksaphier.trainerapp.repository.ExerciseProgressRepository;
+import com.ksaphier.trainerapp.repository.TrainerClientRepository;
+import com.ksaphier.trainerapp.repository.TrainerDashboardRepository;
+import com.ksaphier.trainerapp.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProgramServiceTest {
+
+    private final TrainerClientRepository trainerClientRepository = mock(TrainerClientRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProgramService programService = new ProgramService(mock(ExerciseRecommendationService.class),
+            mock(ExerciseProgressRepository.class), userRepository,
+            new TrainerService(trainerClientRepository, mock(TrainerDashboardRepository.class), userRepository,
+                    mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), Duration.ofMinutes(5), 3),
+            mock(InvalidationBus.class), mock(OutboxService.class), mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(),
+            1, 1, 50, 100);
+
+    @AfterEach
+    public void tearDown() {
+        programService.shutdown();
+    }
+
+    // The job may run after the client left the trainer, or be queued without going through the controller
+    @Test
+    public void testClientOfAnotherTrainerIsRejectedBeforeLookingUpUsers() {
+        when(trainerClientRepository.countAccepted(eq(1L), any())).thenReturn(0L);
+        ProgramRequest request = new ProgramRequest();
+        request.setClientIds(List.of(1L, 2L));
+
+        assertThrows(AccessDeniedException.class, () -> programService.generate(request, 1L));
+        verify(userRepository, never()).findAllById(any());
+    }
+}
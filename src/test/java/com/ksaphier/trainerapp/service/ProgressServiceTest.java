@@ -0,0 +1,88 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.model.ExerciseProgress;
+import com.ksaphier.trainerapp.repository.ExerciseProgressRepository;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+import com.ksaphier.trainerapp.timeseries.ProgressSeries;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProgressServiceTest {
+
+    private static final long USER_ID = 1L;
+    private static final long EXERCISE_ID = 5L;
+    private static final Instant MARCH = Instant.parse("2021-03-01T10:00:00Z");
+    private static final Instant APRIL = Instant.parse("2021-04-01T10:00:00Z");
+
+    private final ExerciseProgressRepository exerciseProgressRepository = mock(ExerciseProgressRepository.class);
+    private final WorkoutExerciseRepository workoutExerciseRepository = mock(WorkoutExerciseRepository.class);
+    private final ProgressService progressService = new ProgressService(exerciseProgressRepository,
+            workoutExerciseRepository);
+
+    @Test
+    public void testRecordedSetsAreDatedLikeARebuild() {
+        ExerciseProgress recorded = progress();
+        when(exerciseProgressRepository.findForUpdate(USER_ID, EXERCISE_ID)).thenReturn(Optional.of(recorded));
+        progressService.recordSets(USER_ID, EXERCISE_ID, 3, 8, 60, MARCH);
+        progressService.recordSets(USER_ID, EXERCISE_ID, 3, 5, 70, APRIL);
+
+        ExerciseProgress rebuilt = progress();
+        when(exerciseProgressRepository.findForUpdate(USER_ID, EXERCISE_ID)).thenReturn(Optional.of(rebuilt));
+        when(workoutExerciseRepository.findSetsByUserIdAndExerciseId(USER_ID, EXERCISE_ID)).thenReturn(List.of(
+                new Object[] { 3, 8, 60, MARCH }, new Object[] { 3, 5, 70, APRIL }));
+        progressService.recompute(USER_ID, List.of(EXERCISE_ID));
+
+        assertEquals(APRIL, recorded.getMaxWeightAt());
+        assertEquals(MARCH, recorded.getBestVolumeAt());
+        assertEquals(rebuilt.getMaxWeightAt(), recorded.getMaxWeightAt());
+        assertEquals(rebuilt.getEstimatedOneRepMaxAt(), recorded.getEstimatedOneRepMaxAt());
+        assertEquals(rebuilt.getBestVolumeAt(), recorded.getBestVolumeAt());
+        assertArrayEquals(rebuilt.getSeries(), recorded.getSeries());
+        assertEquals(List.of(LocalDate.of(2021, 3, 1), LocalDate.of(2021, 4, 1)),
+                ProgressSeries.decode(recorded.getSeries()).points().stream().map(ProgressSeries.Point::date)
+                        .toList());
+    }
+
+    @Test
+    public void testVolumeSaturatesInsteadOfOverflowing() {
+        ExerciseProgress progress = progress();
+        when(exerciseProgressRepository.findForUpdate(USER_ID, EXERCISE_ID)).thenReturn(Optional.of(progress));
+
+        progressService.recordSets(USER_ID, EXERCISE_ID, 100_000, 100_000, 1000, MARCH);
+
+        assertEquals(Integer.MAX_VALUE, progress.getBestVolume());
+    }
+
+    @Test
+    public void testRecomputeCreatesTheRowForFirstEntries() {
+        ExerciseProgress created = progress();
+        when(exerciseProgressRepository.findForUpdate(USER_ID, EXERCISE_ID))
+                .thenReturn(Optional.empty(), Optional.of(created));
+        when(workoutExerciseRepository.findSetsByUserIdAndExerciseId(USER_ID, EXERCISE_ID))
+                .thenReturn(List.<Object[]>of(new Object[] { 3, 8, 60, MARCH }));
+
+        progressService.recompute(USER_ID, List.of(EXERCISE_ID));
+
+        verify(exerciseProgressRepository).insertIfAbsent(USER_ID, EXERCISE_ID);
+        assertEquals(60, created.getMaxWeight());
+        assertEquals(MARCH, created.getMaxWeightAt());
+    }
+
+    private static ExerciseProgress progress() {
+        ExerciseProgress progress = new ExerciseProgress();
+        progress.setUserId(USER_ID);
+        progress.setExerciseId(EXERCISE_ID);
+        return progress;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ksaphier.trainerapp.service;
+
+import com.ksaphier.trainerapp.cache.ChangeType;
+import com.ksaphier.trainerapp.cache.EntityChangeEvent;
+import com.ksaphier.trainerapp.cache.EntityType;
+import com.ksaphier.trainerapp.cache.InMemoryInvalidationBus;
+import com.ksaphier.trainerapp.dto.WorkoutDetailsDto;
+import com.ksaphier.trainerapp.model.Workout;
+import com.ksaphier.trainerapp.repository.WorkoutExerciseRepository;
+import com.ksaphier.trainerapp.repository.WorkoutRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkoutServiceTest {
+
+    private static final long USER_ID = 1L;
+    private static final long OTHER_USER_ID = 2L;
+
+    private final WorkoutRepository workoutRepository = mock(WorkoutRepository.class);
+    private final WorkoutExerciseRepository workoutExerciseRepository = mock(WorkoutExerciseRepository.class);
+    private final InMemoryInvalidationBus invalidationBus = new InMemoryInvalidationBus();
+    private WorkoutService workoutService;
+
+    @BeforeEach
+    public void setUp() {
+        workoutService = new WorkoutService(workoutRepository, invalidationBus,
+                new SimpleMeterRegistry(), mock(PlatformTransactionManager.class), DataSize.ofMegabytes(1),
+                DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(workoutService, "workoutExerciseRepository", workoutExerciseRepository);
+        ReflectionTestUtils.setField(workoutService, "outboxService", mock(OutboxService.class));
+        ReflectionTestUtils.setField(workoutService, "progressService", mock(ProgressService.class));
+        // The database: whatever the stubs return when asked, workouts of USER_ID only
+        when(workoutRepository.findByUserIdAndIdIn(eq(USER_ID), anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(1);
+            return ids.contains(10L) ? List.of(workout(10L, "Push")) : List.of();
+        });
+    }
+
+    @Test
+    public void testCallersGetCopiesOfCachedEntries() {
+        when(workoutRepository.findAllByUserId(USER_ID)).thenReturn(List.of(workout(10L, "Push")));
+
+        workoutService.findAllWorkoutsByUser(USER_ID).get(0).setName("Changed by a caller");
+        workoutService.getWorkoutDetails(10L, USER_ID).getDetails().setName("Changed by a caller");
+
+        assertEquals("Push", workoutService.findAllWorkoutsByUser(USER_ID).get(0).getName());
+        assertEquals("Push", workoutService.getWorkoutDetails(10L, USER_ID).getDetails().getName());
+        verify(workoutRepository, times(1)).findAllByUserId(USER_ID);
+        verify(workoutRepository, times(1)).findByUserIdAndIdIn(eq(USER_ID), anyCollection());
+    }
+
+    @Test
+    public void testUpdateInvalidatesCachedEntries() {
+        Workout stored = workout(10L, "Push");
+        when(workoutRepository.findAllByUserId(USER_ID)).thenAnswer(invocation -> List.of(copy(stored)));
+        when(workoutRepository.findByUserIdAndIdIn(eq(USER_ID), anyCollection()))
+                .thenAnswer(invocation -> List.of(copy(stored)));
+        when(workoutRepository.findByIdAndUserId(10L, USER_ID)).thenReturn(Optional.of(stored));
+        workoutService.findAllWorkoutsByUser(USER_ID);
+        workoutService.getWorkoutDetails(10L, USER_ID);
+
+        workoutService.updateWorkout(10L, USER_ID, "Push day", null);
+
+        assertEquals("Push day", workoutService.findAllWorkoutsByUser(USER_ID).get(0).getName());
+        WorkoutDetailsDto details = workoutService.getWorkoutDetails(10L, USER_ID);
+        assertEquals("Push day", details.getDetails().getName());
+        verify(workoutRepository, times(2)).findAllByUserId(USER_ID);
+    }
+
+    @Test
+    public void testDeleteInvalidatesCachedEntries() {
+        Workout stored = workout(10L, "Push");
+        when(workoutRepository.findAllByUserId(USER_ID)).thenReturn(List.of(copy(stored)));
+        when(workoutRepository.findByIdAndUserId(10L, USER_ID)).thenReturn(Optional.of(stored));
+        workoutService.findAllWorkoutsByUser(USER_ID);
+        workoutService.getWorkoutDetails(10L, USER_ID);
+
+        when(workoutRepository.findAllByUserId(USER_ID)).thenReturn(List.of());
+        when(workoutRepository.findByUserIdAndIdIn(eq(USER_ID), anyCollection())).thenReturn(List.of());
+        workoutService.deleteWorkout(10L, USER_ID);
+
+        assertEquals(List.of(), workoutService.findAllWorkoutsByUser(USER_ID));
+        assertThrows(EntityNotFoundException.class, () -> workoutService.getWorkoutDetails(10L, USER_ID));
+        assertEquals(0, workoutService.getWorkoutDetails(List.of(10L), USER_ID).size());
+        verify(workoutRepository).delete(any(Workout.class));
+    }
+
+    @Test
+    public void testBatchLeavesOutOtherUsersAndMissingWorkouts() {
+        Workout foreign = workout(20L, "Legs");
+        foreign.setUserId(OTHER_USER_ID);
+        when(workoutRepository.findByUserIdAndIdIn(eq(OTHER_USER_ID), anyCollection())).thenReturn(List.of(foreign));
+        // Cached for its owner, so the batch finds it in the cache rather than in the caller's partition
+        workoutService.getWorkoutDetails(20L, OTHER_USER_ID);
+
+        Map<Long, WorkoutDetailsDto> details = workoutService.getWorkoutDetails(List.of(30L, 20L, 10L, 10L), USER_ID);
+
+        assertEquals(List.of(10L), List.copyOf(details.keySet()));
+        assertEquals("Push", details.get(10L).getDetails().getName());
+        // Only the misses were loaded, together
+        verify(workoutRepository).findByUserIdAndIdIn(USER_ID, List.of(30L, 10L));
+        assertEquals("Legs", workoutService.getWorkoutDetails(20L, OTHER_USER_ID).getDetails().getName());
+        verify(workoutRepository, times(1)).findByUserIdAndIdIn(eq(OTHER_USER_ID), anyCollection());
+    }
+
+    @Test
+    public void testBatchServesCachedEntriesWithoutLoading() {
+        workoutService.getWorkoutDetails(10L, USER_ID);
+
+        assertEquals(1, workoutService.getWorkoutDetails(List.of(10L), USER_ID).size());
+        verify(workoutRepository, times(1)).findByUserIdAndIdIn(eq(USER_ID), anyCollection());
+    }
+
+    @Test
+    public void testInvalidationDuringBatchLoadIsNotOverwritten() {
+        Workout stored = workout(10L, "Push");
+        when(workoutRepository.findByUserIdAndIdIn(eq(USER_ID), anyCollection())).thenAnswer(invocation -> {
+            Workout read = copy(stored);
+            // Committed by another request after this load read the row
+            stored.setName("Push day");
+            invalidationBus.publish(new EntityChangeEvent(EntityType.WORKOUT, ChangeType.SAVED, 10L, USER_ID));
+            return List.of(read);
+        });
+
+        assertEquals("Push", workoutService.getWorkoutDetails(List.of(10L), USER_ID).get(10L).getDetails().getName());
+
+        // The stale load was not kept
+        assertEquals("Push day",
+                workoutService.getWorkoutDetails(List.of(10L), USER_ID).get(10L).getDetails().getName());
+        verify(workoutRepository, times(2)).findByUserIdAndIdIn(eq(USER_ID), anyCollection());
+    }
+
+    static Workout workout(long id, String name) {
+        Workout workout = new Workout();
+        workout.setId(id);
+        workout.setName(name);
+        workout.setUserId(USER_ID);
+        return workout;
+    }
+
+    private static Workout copy(Workout workout) {
+        return workout(workout.getId(), workout.getName());
+    }
+}
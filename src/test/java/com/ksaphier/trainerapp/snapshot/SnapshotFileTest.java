@@ -0,0 +1,122 @@
+package com.ksaphier.trainerapp.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotFileTest {
+
+    private static final List<SnapshotTable.Column> COLUMNS = List.of(
+            new SnapshotTable.Column("id", "bigint", 8),
+            new SnapshotTable.Column("reps", "integer", 4),
+            new SnapshotTable.Column("name", "character varying(255)", 0));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTripAcrossRowGroups() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        int rows = SnapshotWriter.ROW_GROUP_ROWS + 100;
+        List<byte[][]> written = new ArrayList<>();
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.beginTable("workout_exercise", COLUMNS);
+            for (int i = 0; i < rows; i++) {
+                byte[][] row = row(i);
+                written.add(row);
+                writer.addRow(row);
+            }
+            writer.endTable();
+            writer.beginTable("muscle", COLUMNS);
+            writer.endTable();
+            writer.finish();
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            SnapshotTable table = reader.tables().get(0);
+            assertEquals("workout_exercise", table.name());
+            assertEquals(COLUMNS, table.columns());
+            assertEquals(rows, table.rows());
+            assertEquals(2, table.rowGroups().size());
+            assertEquals(0, reader.tables().get(1).rows());
+
+            List<byte[][]> read = new ArrayList<>();
+            long[] checksum = new long[1];
+            reader.read(table, 0, table.rowGroups().size(), fields -> {
+                read.add(fields);
+                checksum[0] += SnapshotFormat.rowHash(fields);
+            });
+            assertEquals(rows, read.size());
+            for (int i = 0; i < rows; i++) {
+                for (int c = 0; c < COLUMNS.size(); c++) {
+                    assertArrayEquals(written.get(i)[c], read.get(i)[c]);
+                }
+            }
+            assertNull(read.get(3)[2]);
+            assertEquals(table.checksum(), checksum[0]);
+        }
+        // Ids and small integers take about a byte each
+        assertTrue(Files.size(file) < rows * 8L);
+    }
+
+    @Test
+    public void testReadsRangeOfRowGroups() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.beginTable("workout", COLUMNS);
+            for (int i = 0; i < SnapshotWriter.ROW_GROUP_ROWS * 2; i++) {
+                writer.addRow(row(i));
+            }
+            writer.endTable();
+            writer.finish();
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            List<Long> ids = new ArrayList<>();
+            reader.read(reader.tables().get(0), 1, 2, fields -> ids.add(SnapshotFormat.readInteger(fields[0], 8)));
+            assertEquals(SnapshotWriter.ROW_GROUP_ROWS, ids.size());
+            assertEquals(SnapshotWriter.ROW_GROUP_ROWS + 1L, ids.get(0));
+        }
+    }
+
+    @Test
+    public void testChecksumDistinguishesNullFromEmpty() {
+        byte[][] empty = { new byte[0] };
+        byte[][] nothing = { null };
+        assertTrue(SnapshotFormat.rowHash(empty) != SnapshotFormat.rowHash(nothing));
+    }
+
+    @Test
+    public void testUnfinishedFileIsRejected() throws IOException {
+        Path file = directory.resolve("snapshot.bin");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.beginTable("workout", COLUMNS);
+            for (int i = 0; i < 1000; i++) {
+                writer.addRow(row(i));
+            }
+            writer.endTable();
+        }
+
+        IOException e = assertThrows(IOException.class, () -> new SnapshotReader(file));
+        assertTrue(e.getMessage().contains("did not finish"));
+    }
+
+    private static byte[][] row(int i) {
+        // Descending and negative values too, deltas are zigzag encoded
+        long reps = i % 7 == 0 ? -i : i % 20;
+        byte[] name = i % 4 == 3 ? null : ("Workout " + i % 50).getBytes(StandardCharsets.UTF_8);
+        return new byte[][] { SnapshotFormat.writeInteger(i + 1, 8), SnapshotFormat.writeInteger(reps, 4), name };
+    }
+}
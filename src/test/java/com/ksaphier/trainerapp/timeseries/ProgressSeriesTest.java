@@ -0,0 +1,66 @@
+package com.ksaphier.trainerapp.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProgressSeriesTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        ProgressSeries series = ProgressSeries.empty();
+        series.add(START, 100, 120.0, 3000);
+        series.add(START.plusDays(3), 95, 126.7, 2850);
+        series.add(START.plusDays(10), 110, 128.3, 3300);
+
+        List<ProgressSeries.Point> decoded = ProgressSeries.decode(series.encode()).points();
+
+        assertEquals(series.points(), decoded);
+        assertEquals(new ProgressSeries.Point(START.plusDays(3), 95, 126.7, 2850), decoded.get(1));
+    }
+
+    @Test
+    public void testSameDayKeepsBestValues() {
+        ProgressSeries series = ProgressSeries.empty();
+        series.add(START, 100, 110.0, 1000);
+        series.add(START, 80, 120.0, 900);
+
+        assertEquals(List.of(new ProgressSeries.Point(START, 100, 120.0, 1000)), series.points());
+    }
+
+    @Test
+    public void testOutOfOrderDaysAreSorted() {
+        ProgressSeries series = ProgressSeries.empty();
+        series.add(START.plusDays(5), 100, 100.0, 100);
+        series.add(START, 90, 90.0, 90);
+
+        assertEquals(START, series.points().get(0).date());
+        assertEquals(START.plusDays(5), series.points().get(1).date());
+    }
+
+    @Test
+    public void testDownsamplesOldHistoryAndKeepsRecentDaysExact() {
+        ProgressSeries series = ProgressSeries.empty();
+        int days = 2000;
+        for (int day = 0; day < days; day++) {
+            series.add(START.plusDays(day), day, day, day);
+        }
+
+        assertTrue(series.size() <= ProgressSeries.MAX_POINTS);
+        List<ProgressSeries.Point> points = series.points();
+        ProgressSeries.Point last = points.get(points.size() - 1);
+        assertEquals(new ProgressSeries.Point(START.plusDays(days - 1), days - 1, days - 1, days - 1), last);
+        assertEquals(START.plusDays(days - 2), points.get(points.size() - 2).date());
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue(points.get(i - 1).date().isBefore(points.get(i).date()));
+        }
+        // Roughly 5 bytes per point
+        assertTrue(series.encode().length < ProgressSeries.MAX_POINTS * 8);
+    }
+}